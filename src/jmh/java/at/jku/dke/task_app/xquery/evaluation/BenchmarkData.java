@@ -0,0 +1,86 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import java.util.Locale;
+
+/**
+ * Generates the documents and query results used by the benchmarks.
+ * <p>
+ * A document consists of {@code person} elements of roughly equal size below a {@code db} root element. A query
+ * result consists of the first persons of a document, so the result cardinality equals the number of persons.
+ */
+public final class BenchmarkData {
+    /**
+     * The query selecting the first persons of a document; {@code %d} is replaced by the result cardinality.
+     */
+    public static final String QUERY = "(doc('etutor.xml')//person)[position() <= %d]";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Parses a size like {@code 1KB}, {@code 1MB} or {@code 50MB}.
+     *
+     * @param size The size.
+     * @return The number of bytes.
+     */
+    public static long parseSize(String size) {
+        String value = size.trim().toUpperCase(Locale.ROOT);
+        if (value.endsWith("KB"))
+            return Long.parseLong(value.substring(0, value.length() - 2)) * 1024;
+        if (value.endsWith("MB"))
+            return Long.parseLong(value.substring(0, value.length() - 2)) * 1024 * 1024;
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Creates a document of approximately the specified size.
+     *
+     * @param size The size of the document in bytes.
+     * @return The document.
+     */
+    public static String document(long size) {
+        var sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, size + 256)).append("<db>");
+        for (int i = 0; sb.length() < size; i++)
+            appendPerson(sb, i, false);
+        return sb.append("</db>").toString();
+    }
+
+    /**
+     * Creates a query result with the specified number of persons.
+     *
+     * @param cardinality The number of persons.
+     * @return The raw result.
+     */
+    public static String result(int cardinality) {
+        return result(cardinality, false, false);
+    }
+
+    /**
+     * Creates a query result with the specified number of persons.
+     *
+     * @param cardinality The number of persons.
+     * @param modified    Whether every tenth person should have a different age and an additional attribute.
+     * @param reversed    Whether the persons should be in reverse order.
+     * @return The raw result.
+     */
+    public static String result(int cardinality, boolean modified, boolean reversed) {
+        var sb = new StringBuilder(cardinality * 128);
+        for (int i = 0; i < cardinality; i++) {
+            if (i > 0)
+                sb.append('\n');
+            appendPerson(sb, reversed ? cardinality - 1 - i : i, modified);
+        }
+        return sb.toString();
+    }
+
+    private static void appendPerson(StringBuilder sb, int i, boolean modified) {
+        boolean changed = modified && i % 10 == 0;
+        sb.append("<person id=\"p").append(i).append('"');
+        if (changed)
+            sb.append(" status=\"new\"");
+        sb.append("><name>Person ").append(i).append("</name>")
+            .append("<age>").append(changed ? 99 : 18 + i % 60).append("</age>")
+            .append("<city>City ").append(i % 100).append("</city>")
+            .append("</person>");
+    }
+}
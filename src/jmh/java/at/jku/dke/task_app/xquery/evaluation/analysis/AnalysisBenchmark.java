@@ -0,0 +1,45 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.evaluation.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing a submission result with a solution result in {@link AnalysisImpl}.
+ * <p>
+ * The submission contains the persons in reverse order and every tenth person differs from the solution. With sorting,
+ * the order of the persons is checked; without sorting, the order is ignored. The solution is prepared once, like a
+ * cached solution, and the submission is parsed in every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalysisBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    @Param({"false", "true"})
+    private boolean sorting;
+
+    private String submission;
+    private XQueryTask task;
+    private PreparedSolution solution;
+
+    @Setup(Level.Trial)
+    public void setup() throws AnalysisException {
+        this.submission = BenchmarkData.result(this.cardinality, true, true);
+        this.task = new XQueryTask(this.sorting ? List.of("//person") : List.of());
+        this.solution = new PreparedSolution(new XQResult(BenchmarkData.result(this.cardinality)), this.task.getSorting());
+    }
+
+    @Benchmark
+    public Analysis analyze() throws AnalysisException {
+        return new AnalysisImpl(new XQResult(this.submission), this.solution, this.task);
+    }
+}
@@ -0,0 +1,42 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import at.jku.dke.task_app.xquery.evaluation.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks generating a DTD and compiling a validator from a parsed result document with the {@link DTDGenerator}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DTDGeneratorBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setup() throws AnalysisException {
+        this.document = new XQResult(BenchmarkData.result(this.cardinality)).getResultDocument();
+    }
+
+    @Benchmark
+    public String printDTD() {
+        var generator = new DTDGenerator();
+        generator.run(this.document);
+        return generator.printDTD();
+    }
+
+    @Benchmark
+    public DTDValidator compileValidator() {
+        var generator = new DTDGenerator();
+        generator.run(this.document);
+        return generator.compileValidator(XQResult.XML_ROOT);
+    }
+}
@@ -0,0 +1,32 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import at.jku.dke.task_app.xquery.evaluation.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing a raw query result into an {@link XQResult}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XQResultBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    private String rawResult;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.rawResult = BenchmarkData.result(this.cardinality);
+    }
+
+    @Benchmark
+    public XQResult parse() throws AnalysisException {
+        return new XQResult(this.rawResult);
+    }
+}
@@ -0,0 +1,67 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import at.jku.dke.task_app.xquery.evaluation.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks {@link BaseXProcessor#executeQuery(String, XQDocument)} and {@link SaxonProcessor#executeQuery(String, XQDocument)}.
+ * <p>
+ * The processors keep the document in their document store, like the pooled processors of the application, so the
+ * benchmark measures the query execution and the serialization of the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessorBenchmark {
+    @Param({"basex", "saxon"})
+    private String processorType;
+
+    @Param({"1KB", "1MB", "50MB"})
+    private String documentSize;
+
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    private Path directory;
+    private XQProcessor processor;
+    private XQDocument document;
+    private String query;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, XQueryException {
+        this.directory = Files.createTempDirectory("xq-benchmark");
+        this.processor = switch (this.processorType) {
+            case "basex" -> new BaseXProcessor(this.directory, true);
+            case "saxon" -> new SaxonProcessor(this.directory, true);
+            default -> throw new IllegalArgumentException("Unknown processor " + this.processorType);
+        };
+        this.document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, BenchmarkData.document(BenchmarkData.parseSize(this.documentSize)));
+        this.query = BenchmarkData.QUERY.formatted(this.cardinality);
+
+        // load the document into the store
+        this.processor.executeQuery(this.query, this.document);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.processor.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String executeQuery() throws XQueryException {
+        return this.processor.executeQuery(this.query, this.document);
+    }
+}
@@ -0,0 +1,90 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of concurrent RUN submissions with platform and virtual request threads.
+ * <p>
+ * Each simulated submission performs a short database read, evaluates a query on a pooled BaseX processor and performs
+ * a short database write, like a RUN submission handled by the servlet container. The platform model uses a bounded
+ * request thread pool with the default size of Tomcat; the virtual model uses one virtual thread per request and
+ * offloads query executions to the platform threads of the processor pool. Every invocation submits a batch of
+ * submissions and waits for all of them, so the score is the average time per submission.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadingModelBenchmark {
+    private static final int SUBMISSIONS = 2000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final String DOCUMENT = "<db>" + "<person><name>Max</name><age>20</age></person>".repeat(200) + "</db>";
+    private static final String QUERY = "for $p in doc('etutor.xml')//person where $p/age > 18 return $p/name";
+
+    @Param({"platform", "virtual"})
+    private String threadingModel;
+
+    @Param({"20"})
+    private long databaseLatencyMillis;
+
+    private XQProcessorPool pool;
+    private ExecutorService requests;
+    private XQDocument document;
+    private Duration databaseLatency;
+
+    @Setup(Level.Trial)
+    public void setup() throws XQueryException {
+        boolean virtual = switch (this.threadingModel) {
+            case "platform" -> false;
+            case "virtual" -> true;
+            default -> throw new IllegalArgumentException("Unknown threading model " + this.threadingModel);
+        };
+        this.document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, DOCUMENT);
+        this.databaseLatency = Duration.ofMillis(this.databaseLatencyMillis);
+        this.pool = new XQProcessorPool(() -> new BaseXProcessor(null), Runtime.getRuntime().availableProcessors(), 0,
+            Duration.ofMinutes(5), Duration.ZERO, virtual);
+        this.requests = virtual ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+
+        // warm up the processors
+        try (var lease = this.pool.borrow()) {
+            lease.evaluate(QUERY, this.document, XQLimits.NONE).getRawResult();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.requests.close();
+        this.pool.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUBMISSIONS)
+    public void submissions(Blackhole blackhole) throws Exception {
+        List<Future<String>> futures = new ArrayList<>(SUBMISSIONS);
+        for (int i = 0; i < SUBMISSIONS; i++)
+            futures.add(this.requests.submit(this::submission));
+        for (Future<String> future : futures)
+            blackhole.consume(future.get());
+    }
+
+    private String submission() throws Exception {
+        Thread.sleep(this.databaseLatency);
+        String result;
+        try (var lease = this.pool.borrow()) {
+            result = lease.evaluate(QUERY, this.document, XQLimits.NONE).getRawResult();
+        }
+        Thread.sleep(this.databaseLatency);
+        return result;
+    }
+}
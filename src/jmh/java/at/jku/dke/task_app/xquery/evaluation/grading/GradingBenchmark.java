@@ -0,0 +1,57 @@
+package at.jku.dke.task_app.xquery.evaluation.grading;
+
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.data.entities.GradingStrategy;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.evaluation.BenchmarkData;
+import at.jku.dke.task_app.xquery.evaluation.analysis.Analysis;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisImpl;
+import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks grading an analysis with {@link XQueryGrading}.
+ * <p>
+ * The analysis is created once; every tenth person of the submission differs from the solution, so each error category
+ * contains entries proportional to the result cardinality.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradingBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    private XQueryTask task;
+    private Analysis analysis;
+
+    @Setup(Level.Trial)
+    public void setup() throws AnalysisException {
+        this.task = new XQueryTask(BigDecimal.TEN, TaskStatus.APPROVED, null, BenchmarkData.QUERY, List.of("//person"));
+        this.task.setMissingNodeStrategy(GradingStrategy.EACH);
+        this.task.setMissingNodePenalty(BigDecimal.ONE);
+        this.task.setIncorrectTextStrategy(GradingStrategy.EACH);
+        this.task.setIncorrectTextPenalty(BigDecimal.ONE);
+        this.task.setMissingAttributeStrategy(GradingStrategy.EACH);
+        this.task.setMissingAttributePenalty(BigDecimal.ONE);
+        this.task.setSuperfluousAttributeStrategy(GradingStrategy.EACH);
+        this.task.setSuperfluousAttributePenalty(BigDecimal.ONE);
+        this.task.setDisplacedNodeStrategy(GradingStrategy.GROUP);
+        this.task.setDisplacedNodePenalty(BigDecimal.ONE);
+        this.analysis = new AnalysisImpl(new XQResult(BenchmarkData.result(this.cardinality, true, true)),
+            new XQResult(BenchmarkData.result(this.cardinality)), this.task);
+    }
+
+    @Benchmark
+    public XQueryGrading grade() {
+        return new XQueryGrading(this.task, this.analysis);
+    }
+}
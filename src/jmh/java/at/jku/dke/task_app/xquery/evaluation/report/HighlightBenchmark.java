@@ -0,0 +1,48 @@
+package at.jku.dke.task_app.xquery.evaluation.report;
+
+import at.jku.dke.task_app.xquery.evaluation.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks highlighting a raw query result with {@link ResultHighlighter}, without limits, truncated to 1 MB and cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HighlightBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int cardinality;
+
+    private String rawResult;
+    private ResultHighlighter unlimited;
+    private ResultHighlighter truncating;
+    private ResultHighlighter caching;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.rawResult = BenchmarkData.result(this.cardinality);
+        this.unlimited = new ResultHighlighter(0, 0);
+        this.truncating = new ResultHighlighter(1024 * 1024, 0);
+        this.caching = new ResultHighlighter(1024 * 1024, 10);
+    }
+
+    @Benchmark
+    public String highlight() {
+        return this.unlimited.highlight(this.rawResult);
+    }
+
+    @Benchmark
+    public String highlightTruncated() {
+        return this.truncating.highlight(this.rawResult);
+    }
+
+    @Benchmark
+    public String highlightCached() {
+        return this.caching.highlight(this.rawResult);
+    }
+}
@@ -3,21 +3,31 @@
 import at.jku.dke.etutor.task_app.AppHelper;
 import at.jku.dke.task_app.xquery.config.XQuerySettings;
 import at.jku.dke.task_app.xquery.evaluation.execution.BaseXProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.BaseXProcessorStore;
 import at.jku.dke.task_app.xquery.evaluation.execution.SaxonProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.SaxonProcessorStore;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocumentStore;
 import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorPool;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorRouter;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorStore;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.boot.thread.Threading;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Scope;
 import org.springframework.core.env.Environment;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * The main class of the application.
@@ -46,22 +56,98 @@ public TaskAppApplication() {
     }
 
     /**
-     * Provides the XQuery processor.
+     * Provides the router to the pools of XQuery processors.
+     * <p>
+     * A pool is created for every engine that can be created with the settings (Saxon requires the XML directory); the
+     * configured executor is the default engine. Processors are created on demand, so unused engines do not consume
+     * resources. If virtual threads are enabled, query executions are offloaded to dedicated platform threads of the pools.
+     * If the document store is enabled, task group documents are stored in the {@code documents} subdirectory of the XML
+     * directory (or a temporary directory) and shared by all pools. Each pool owns a processor store shared by its
+     * processors, so stored databases, parsed documents and compiled queries survive the replacement of processors.
+     *
+     * @param settings      The XQuery settings.
+     * @param environment   The environment.
+     * @param meterRegistry The meter registry.
+     * @return The XQuery processor router.
+     * @throws IOException If the document store could not be created.
+     */
+    @Bean(destroyMethod = "close")
+    public XQProcessorRouter xqProcessorRouter(XQuerySettings settings, Environment environment, MeterRegistry meterRegistry) throws IOException {
+        var pool = settings.pool();
+        var routing = settings.routing();
+        boolean offload = Threading.VIRTUAL.isActive(environment);
+        Map<String, XQProcessorPool> pools = new LinkedHashMap<>();
+        for (String engine : XQProcessorRouter.ENGINES) {
+            if (engine.equals("saxon") && !engine.equals(settings.executor()) && (settings.xmlDirectory() == null || settings.xmlDirectory().isBlank())) {
+                LOG.info("XQuery engine {} is not available because no XML directory is configured", engine);
+                continue;
+            }
+            XQProcessorStore store = createProcessorStore(settings, engine);
+            pools.put(engine, new XQProcessorPool(() -> createProcessor(settings, engine, store), pool.size(), pool.maxExecutions(), pool.borrowTimeout(),
+                pool.leakThreshold(), offload, store));
+        }
+        return new XQProcessorRouter(pools, settings.executor(),
+            routing != null && routing.latency(),
+            routing == null ? 20 : routing.minSamples(),
+            routing == null ? 50 : routing.explorationInterval(),
+            meterRegistry,
+            settings.documentStore() ? createDocumentStore(settings) : null);
+    }
+
+    /**
+     * Creates the store of the task group documents.
+     *
+     * @param settings The XQuery settings.
+     * @return The document store.
+     * @throws IOException If the directory could not be created.
+     */
+    static XQDocumentStore createDocumentStore(XQuerySettings settings) throws IOException {
+        Path directory = settings.xmlDirectory() == null || settings.xmlDirectory().isBlank() ?
+            Files.createTempDirectory("etutor-documents") :
+            Path.of(settings.xmlDirectory(), "documents");
+        return new XQDocumentStore(directory);
+    }
+
+    /**
+     * Creates the store shared by the processors of an engine.
+     *
+     * @param settings The XQuery settings.
+     * @param engine   The engine of the processors.
+     * @return The processor store or {@code null} if the processors of the engine do not share a store.
+     */
+    static XQProcessorStore createProcessorStore(XQuerySettings settings, String engine) {
+        return switch (engine) {
+            case "saxon" -> settings.saxon() == null ?
+                new SaxonProcessorStore() :
+                new SaxonProcessorStore(settings.saxon().executableCacheSize(), settings.saxon().documentCacheSize().toBytes());
+            case "basex" -> settings.documentStore() ?
+                new BaseXProcessorStore(settings.xmlDirectory() == null || settings.xmlDirectory().isBlank() ? null : Path.of(settings.xmlDirectory())) :
+                null;
+            default -> throw new IllegalStateException("Unexpected executor: " + engine);
+        };
+    }
+
+    /**
+     * Creates a new XQuery processor.
      *
      * @param settings The XQuery settings.
+     * @param engine   The engine of the processor.
+     * @param store    The store shared by the processors of the engine or {@code null}.
      * @return The XQuery processor.
      */
-    @Bean
-    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
-    public XQProcessor xqProcessor(XQuerySettings settings) {
-        return switch (settings.executor()) {
+    static XQProcessor createProcessor(XQuerySettings settings, String engine, XQProcessorStore store) {
+        return switch (engine) {
             case "saxon" -> {
                 if (settings.xmlDirectory() == null || settings.xmlDirectory().isBlank())
                     throw new IllegalArgumentException("xmlDirectory must not be null when using saxon processor.");
-                yield new SaxonProcessor(Path.of(settings.xmlDirectory()));
+                yield store instanceof SaxonProcessorStore saxonStore ?
+                    new SaxonProcessor(Path.of(settings.xmlDirectory()), settings.documentStore(), saxonStore) :
+                    new SaxonProcessor(Path.of(settings.xmlDirectory()), settings.documentStore());
             }
-            case "basex" -> new BaseXProcessor(settings.xmlDirectory() == null || settings.xmlDirectory().isBlank() ? null : Path.of(settings.xmlDirectory()));
-            default -> throw new IllegalStateException("Unexpected executor: " + settings.executor());
+            case "basex" -> store instanceof BaseXProcessorStore baseXStore ?
+                new BaseXProcessor(baseXStore) :
+                new BaseXProcessor(settings.xmlDirectory() == null || settings.xmlDirectory().isBlank() ? null : Path.of(settings.xmlDirectory()), settings.documentStore());
+            default -> throw new IllegalStateException("Unexpected executor: " + engine);
         };
     }
 }
@@ -1,17 +1,196 @@
 package at.jku.dke.task_app.xquery.config;
 
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQLimits;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+
 /**
  * Configuration settings for the XQuery module.
  *
- * @param executor     The executor to use for the XQuery processing (either "basex" or "saxon").
- * @param xmlDirectory The directory where the temporary XML files (saxon) or the BaseX database is stored.
- * @param docUrl       The public XML document URL.
+ * @param executor          The executor to use for the XQuery processing (either "basex" or "saxon").
+ * @param xmlDirectory      The directory where the temporary XML files (saxon) or the BaseX database is stored.
+ * @param docUrl            The public XML document URL.
+ * @param documentStore     Whether task group documents should be kept loaded by the executor instead of being loaded for every query and be stored as memory-mapped files.
+ * @param solutionCacheSize The maximum number of prepared solution results kept in memory (0 disables the cache).
+ * @param pool              The settings of the XQuery processor pool.
+ * @param timeouts          The time limits of query executions per submission mode.
+ * @param resultLimits      The limits of query results.
+ * @param queue             The settings of the asynchronous evaluation queue.
+ * @param routing           The settings of the engine routing.
+ * @param warmUp            The settings of the warm-up at startup.
+ * @param highlighting      The settings of the highlighting of query results.
+ * @param regrade           The settings of the batch re-evaluation of submissions.
+ * @param resultCache       The settings of the cache for evaluation results of identical submissions.
+ * @param saxon             The settings of the store shared by the Saxon processors.
  */
 @Validated
 @ConfigurationProperties(prefix = "xquery")
-public record XQuerySettings(@NotNull String executor, String xmlDirectory, @NotNull String docUrl) {
+public record XQuerySettings(@NotNull String executor, String xmlDirectory, @NotNull String docUrl, @DefaultValue("true") boolean documentStore,
+                             @DefaultValue("100") int solutionCacheSize, @Valid @DefaultValue Pool pool,
+                             @Valid @DefaultValue Timeouts timeouts, @Valid @DefaultValue ResultLimits resultLimits,
+                             @Valid @DefaultValue Queue queue, @Valid @DefaultValue Routing routing, @Valid @DefaultValue WarmUp warmUp,
+                             @Valid @DefaultValue Highlighting highlighting, @Valid @DefaultValue Regrade regrade,
+                             @Valid @DefaultValue ResultCache resultCache, @Valid @DefaultValue Saxon saxon) {
+
+    /**
+     * Returns the execution limits of the specified submission mode.
+     *
+     * @param mode The submission mode.
+     * @return The execution limits.
+     */
+    public XQLimits getLimits(SubmissionMode mode) {
+        Timeout timeout = this.timeouts == null ? null : this.timeouts.forMode(mode);
+        return new XQLimits(
+            timeout == null ? Duration.ZERO : timeout.wallClock(),
+            timeout == null ? Duration.ZERO : timeout.cpuTime(),
+            this.resultLimits == null ? 0 : this.resultLimits.maxSize().toBytes(),
+            this.resultLimits == null ? 0 : this.resultLimits.maxNodes(),
+            this.resultLimits == null ? 0 : this.resultLimits.maxDepth());
+    }
+
+    /**
+     * Configuration settings for the XQuery processor pool.
+     *
+     * @param size          The maximum number of processors (0 uses the number of available processors).
+     * @param maxExecutions The number of executions after which a processor is replaced by a new instance (0 disables recycling).
+     * @param borrowTimeout The maximum time to wait for an available processor.
+     * @param leakThreshold The time after which a borrowed processor that has not been returned is reported as leaked (0 disables leak detection).
+     */
+    public record Pool(@Min(0) @DefaultValue("0") int size,
+                       @Min(0) @DefaultValue("1000") int maxExecutions,
+                       @NotNull @DefaultValue("30s") Duration borrowTimeout,
+                       @NotNull @DefaultValue("60s") Duration leakThreshold) {
+    }
+
+    /**
+     * Time limits of query executions per submission mode.
+     *
+     * @param run      The limits in run mode.
+     * @param diagnose The limits in diagnose mode.
+     * @param submit   The limits in submit mode.
+     */
+    public record Timeouts(@Valid @DefaultValue Timeout run,
+                           @Valid @DefaultValue Timeout diagnose,
+                           @Valid @DefaultValue Timeout submit) {
+        /**
+         * Returns the time limits of the specified submission mode.
+         *
+         * @param mode The submission mode.
+         * @return The time limits.
+         */
+        public Timeout forMode(SubmissionMode mode) {
+            return mode == SubmissionMode.RUN ? this.run : mode == SubmissionMode.SUBMIT ? this.submit : this.diagnose;
+        }
+    }
+
+    /**
+     * Time limits of a single query execution.
+     *
+     * @param wallClock The maximum elapsed time of an execution (0 disables the limit).
+     * @param cpuTime   The maximum CPU time of an execution (0 disables the limit).
+     */
+    public record Timeout(@NotNull @DefaultValue("10s") Duration wallClock,
+                          @NotNull @DefaultValue("5s") Duration cpuTime) {
+    }
+
+    /**
+     * Limits of query results, which abort the execution of queries returning oversized results.
+     *
+     * @param maxSize  The maximum size of the serialized result (0 disables the limit).
+     * @param maxNodes The maximum number of elements in the result (0 disables the limit).
+     * @param maxDepth The maximum nesting depth of elements in the result (0 disables the limit).
+     */
+    public record ResultLimits(@NotNull @DefaultValue("20MB") DataSize maxSize,
+                               @Min(0) @DefaultValue("500000") long maxNodes,
+                               @Min(0) @DefaultValue("256") int maxDepth) {
+    }
+
+    /**
+     * Configuration settings for the asynchronous evaluation queue.
+     *
+     * @param workers         The number of concurrent evaluations (0 uses the number of available processors).
+     * @param capacity        The maximum number of waiting evaluations; further submissions are rejected.
+     * @param resultRetention The time the result of a finished evaluation can be polled.
+     */
+    public record Queue(@Min(0) @DefaultValue("0") int workers,
+                        @Min(1) @DefaultValue("100") int capacity,
+                        @NotNull @DefaultValue("10m") Duration resultRetention) {
+    }
+
+    /**
+     * Configuration settings for the routing of queries to the XQuery engines.
+     * <p>
+     * All engines that can be created are loaded side by side; the {@link #executor() executor} is the default engine.
+     *
+     * @param latency             Whether the engine is selected by the measured latency for task groups without selected engine.
+     * @param minSamples          The number of measured executions per engine required to compare the latencies.
+     * @param explorationInterval The interval in which the slower engine is used to update its latency (0 disables exploration).
+     */
+    public record Routing(@DefaultValue("false") boolean latency,
+                          @Min(1) @DefaultValue("20") int minSamples,
+                          @Min(0) @DefaultValue("50") int explorationInterval) {
+    }
+
+    /**
+     * Configuration settings for the warm-up at startup.
+     * <p>
+     * The warm-up creates the processors, loads the task group documents and caches the solutions of all approved tasks.
+     *
+     * @param enabled         Whether the warm-up is executed.
+     * @param readyPercentage The percentage of warmed-up tasks required before the application accepts traffic.
+     */
+    public record WarmUp(@DefaultValue("true") boolean enabled,
+                         @Min(0) @Max(100) @DefaultValue("100") int readyPercentage) {
+    }
+
+    /**
+     * Configuration settings for the highlighting of query results in the feedback.
+     *
+     * @param maxSize      The maximum number of highlighted characters; longer results are truncated (0 disables truncation).
+     * @param cacheSize    The maximum number of highlighted results kept in memory (0 disables the cache).
+     * @param cacheMaxSize The maximum total length of the highlighted HTML kept in memory (0 disables the cache).
+     */
+    public record Highlighting(@NotNull @DefaultValue("1MB") DataSize maxSize,
+                               @Min(0) @DefaultValue("50") int cacheSize,
+                               @NotNull @DefaultValue("16MB") DataSize cacheMaxSize) {
+    }
+
+    /**
+     * Configuration settings for the batch re-evaluation of persisted submissions.
+     *
+     * @param workers         The number of concurrent evaluations (0 uses the number of available processors).
+     * @param batchSize       The number of submissions loaded and written back at once.
+     * @param resultRetention The time the progress of a finished re-evaluation can be polled.
+     */
+    public record Regrade(@Min(0) @DefaultValue("0") int workers,
+                          @Min(1) @DefaultValue("100") int batchSize,
+                          @NotNull @DefaultValue("1h") Duration resultRetention) {
+    }
+
+    /**
+     * Configuration settings for the cache for evaluation results of identical submissions.
+     *
+     * @param maxSize The maximum estimated memory of the cached results (0 disables the cache).
+     */
+    public record ResultCache(@NotNull @DefaultValue("32MB") DataSize maxSize) {
+    }
+
+    /**
+     * Configuration settings for the store of parsed documents and compiled solution queries shared by the Saxon processors.
+     *
+     * @param executableCacheSize The maximum number of compiled solution queries kept in memory (0 disables the cache).
+     * @param documentCacheSize   The maximum total size of the task group documents whose trees are kept in memory (0 disables the store).
+     */
+    public record Saxon(@Min(0) @DefaultValue("256") int executableCacheSize,
+                        @NotNull @DefaultValue("256MB") DataSize documentCacheSize) {
+    }
 }
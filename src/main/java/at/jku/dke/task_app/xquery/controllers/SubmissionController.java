@@ -1,22 +1,115 @@
 package at.jku.dke.task_app.xquery.controllers;
 
+import at.jku.dke.etutor.task_app.auth.AuthConstants;
 import at.jku.dke.etutor.task_app.controllers.BaseSubmissionController;
+import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
 import at.jku.dke.task_app.xquery.data.entities.XQuerySubmission;
+import at.jku.dke.task_app.xquery.dto.EvaluationJobDto;
+import at.jku.dke.task_app.xquery.dto.RegradeJobDto;
 import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.services.EvaluationQueue;
+import at.jku.dke.task_app.xquery.services.RegradeService;
 import at.jku.dke.task_app.xquery.services.XQuerySubmissionService;
-import org.springframework.web.bind.annotation.RestController;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.UUID;
 
 /**
  * Controller for managing {@link XQuerySubmission}s.
  */
 @RestController
 public class SubmissionController extends BaseSubmissionController<XQuerySubmissionDto> {
+
+    private final EvaluationQueue evaluationQueue;
+    private final RegradeService regradeService;
+
     /**
      * Creates a new instance of class {@link SubmissionController}.
      *
      * @param submissionService The input service.
+     * @param evaluationQueue   The asynchronous evaluation queue.
+     * @param regradeService    The re-evaluation service.
      */
-    public SubmissionController(XQuerySubmissionService submissionService) {
+    public SubmissionController(XQuerySubmissionService submissionService, EvaluationQueue evaluationQueue, RegradeService regradeService) {
         super(submissionService);
+        this.evaluationQueue = evaluationQueue;
+        this.regradeService = regradeService;
+    }
+
+    /**
+     * Enqueues the submission for asynchronous evaluation.
+     * <p>
+     * Returns {@code 202 Accepted} with the location of the job, which can be polled for the result, or
+     * {@code 429 Too Many Requests} if the evaluation queue is saturated.
+     *
+     * @param submission The submission.
+     * @param persist    Whether to persist the submission and its result.
+     * @return The state of the enqueued job.
+     */
+    @PostMapping(value = "async", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize(AuthConstants.SUBMIT_AUTHORITY)
+    public ResponseEntity<EvaluationJobDto> submitAsync(@Valid @RequestBody SubmitSubmissionDto<XQuerySubmissionDto> submission,
+                                                        @RequestParam(required = false, defaultValue = "true") boolean persist) {
+        var job = this.evaluationQueue.enqueue(submission, persist);
+        var location = ServletUriComponentsBuilder.fromCurrentRequestUri()
+            .path("/{id}")
+            .buildAndExpand(job.id())
+            .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * Returns the state of an asynchronous evaluation.
+     *
+     * @param id The job identifier.
+     * @return The state of the job.
+     */
+    @GetMapping(value = "async/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize(AuthConstants.SUBMIT_AUTHORITY)
+    public ResponseEntity<EvaluationJobDto> getAsyncResult(@PathVariable UUID id) {
+        return ResponseEntity.ok(this.evaluationQueue.getJob(id)
+            .orElseThrow(() -> new EntityNotFoundException("Evaluation " + id + " does not exist.")));
+    }
+
+    /**
+     * Starts the re-evaluation of all persisted submissions of a task and/or an assignment.
+     * <p>
+     * Re-evaluation overwrites the persisted results, so it requires the same authority as modifying tasks.
+     * <p>
+     * Returns {@code 202 Accepted} with the location of the job, which can be polled for the progress, or
+     * {@code 400 Bad Request} if neither a task nor an assignment is specified.
+     *
+     * @param taskId       The task identifier.
+     * @param assignmentId The assignment identifier.
+     * @return The state of the started job.
+     */
+    @PostMapping(value = "regrade", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize(AuthConstants.CRUD_AUTHORITY)
+    public ResponseEntity<RegradeJobDto> regrade(@RequestParam(required = false) Long taskId, @RequestParam(required = false) String assignmentId) {
+        var job = this.regradeService.start(taskId, assignmentId);
+        var location = ServletUriComponentsBuilder.fromCurrentRequestUri()
+            .path("/{id}")
+            .buildAndExpand(job.id())
+            .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * Returns the progress of a re-evaluation.
+     *
+     * @param id The job identifier.
+     * @return The state of the job.
+     */
+    @GetMapping(value = "regrade/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize(AuthConstants.CRUD_AUTHORITY)
+    public ResponseEntity<RegradeJobDto> getRegradeProgress(@PathVariable UUID id) {
+        return ResponseEntity.ok(this.regradeService.getJob(id)
+            .orElseThrow(() -> new EntityNotFoundException("Re-evaluation " + id + " does not exist.")));
     }
 }
@@ -28,7 +28,7 @@ public TaskGroupController(XQueryTaskGroupService taskGroupService) {
 
     @Override
     protected XQueryTaskGroupDto mapToDto(XQueryTaskGroup taskGroup) {
-        return new XQueryTaskGroupDto(taskGroup.getDiagnoseDocument(), taskGroup.getSubmitDocument());
+        return new XQueryTaskGroupDto(taskGroup.getDiagnoseDocument(), taskGroup.getSubmitDocument(), taskGroup.getExecutor());
     }
 
     /**
@@ -2,6 +2,7 @@
 
 import at.jku.dke.etutor.task_app.data.entities.BaseTaskGroup;
 import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
@@ -9,6 +10,9 @@
 
 /**
  * Represents a XQuery task group.
+ * <p>
+ * The SHA-256 hashes of the documents are stored along with the documents, so the document versions are known without
+ * reading the documents.
  */
 @Entity
 @Table(name = "task_group")
@@ -21,6 +25,15 @@ public class XQueryTaskGroup extends BaseTaskGroup {
     @Column(name = "doc_submit", nullable = false)
     private String submitDocument;
 
+    @Column(name = "doc_diagnose_hash", nullable = false, length = 64)
+    private String diagnoseDocumentHash;
+
+    @Column(name = "doc_submit_hash", nullable = false, length = 64)
+    private String submitDocumentHash;
+
+    @Column(name = "executor")
+    private String executor;
+
     /**
      * Creates a new instance of class {@link XQueryTaskGroup}.
      */
@@ -34,8 +47,8 @@ public XQueryTaskGroup() {
      * @param submitDocument   The submit document.
      */
     public XQueryTaskGroup(String diagnoseDocument, String submitDocument) {
-        this.diagnoseDocument = diagnoseDocument;
-        this.submitDocument = submitDocument;
+        this.setDiagnoseDocument(diagnoseDocument);
+        this.setSubmitDocument(submitDocument);
     }
 
     /**
@@ -47,8 +60,8 @@ public XQueryTaskGroup(String diagnoseDocument, String submitDocument) {
      */
     public XQueryTaskGroup(TaskStatus status, String diagnoseDocument, String submitDocument) {
         super(status);
-        this.diagnoseDocument = diagnoseDocument;
-        this.submitDocument = submitDocument;
+        this.setDiagnoseDocument(diagnoseDocument);
+        this.setSubmitDocument(submitDocument);
     }
 
     /**
@@ -61,8 +74,28 @@ public XQueryTaskGroup(TaskStatus status, String diagnoseDocument, String submit
      */
     public XQueryTaskGroup(Long id, TaskStatus status, String diagnoseDocument, String submitDocument) {
         super(id, status);
-        this.diagnoseDocument = diagnoseDocument;
-        this.submitDocument = submitDocument;
+        this.setDiagnoseDocument(diagnoseDocument);
+        this.setSubmitDocument(submitDocument);
+    }
+
+    /**
+     * Creates a detached task group which identifies the versions of its documents without containing them.
+     * <p>
+     * Used for evaluations, which load the documents only if they are not stored by the processors yet.
+     *
+     * @param id                   The identifier.
+     * @param status               The status.
+     * @param executor             The selected XQuery engine or {@code null}.
+     * @param diagnoseDocumentHash The hash of the diagnose document.
+     * @param submitDocumentHash   The hash of the submit document.
+     * @return The task group without documents.
+     */
+    public static XQueryTaskGroup withoutDocuments(Long id, TaskStatus status, String executor, String diagnoseDocumentHash, String submitDocumentHash) {
+        var taskGroup = new XQueryTaskGroup(id, status, null, null);
+        taskGroup.executor = executor;
+        taskGroup.diagnoseDocumentHash = diagnoseDocumentHash;
+        taskGroup.submitDocumentHash = submitDocumentHash;
+        return taskGroup;
     }
 
     /**
@@ -81,6 +114,16 @@ public String getDiagnoseDocument() {
      */
     public void setDiagnoseDocument(String diagnoseDocument) {
         this.diagnoseDocument = diagnoseDocument;
+        this.diagnoseDocumentHash = diagnoseDocument == null ? null : XQDocument.hash(diagnoseDocument);
+    }
+
+    /**
+     * Gets the hash of the diagnose document.
+     *
+     * @return The SHA-256 hash of the diagnose document.
+     */
+    public String getDiagnoseDocumentHash() {
+        return diagnoseDocumentHash;
     }
 
     /**
@@ -99,5 +142,33 @@ public String getSubmitDocument() {
      */
     public void setSubmitDocument(String submitDocument) {
         this.submitDocument = submitDocument;
+        this.submitDocumentHash = submitDocument == null ? null : XQDocument.hash(submitDocument);
+    }
+
+    /**
+     * Gets the hash of the submit document.
+     *
+     * @return The SHA-256 hash of the submit document.
+     */
+    public String getSubmitDocumentHash() {
+        return submitDocumentHash;
+    }
+
+    /**
+     * Gets the XQuery engine selected for the task group.
+     *
+     * @return The engine ("basex" or "saxon") or {@code null} if the engine is selected automatically.
+     */
+    public String getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the XQuery engine selected for the task group.
+     *
+     * @param executor The engine ("basex" or "saxon") or {@code null} if the engine should be selected automatically.
+     */
+    public void setExecutor(String executor) {
+        this.executor = executor;
     }
 }
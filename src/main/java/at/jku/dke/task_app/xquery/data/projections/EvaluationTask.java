@@ -0,0 +1,80 @@
+package at.jku.dke.task_app.xquery.data.projections;
+
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.data.entities.GradingStrategy;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The attributes of a task required to evaluate submissions.
+ * <p>
+ * Instead of the documents of the task group, only their hashes are loaded; the documents are loaded on demand if they
+ * are not stored by the processors yet.
+ *
+ * @param id                              The task identifier.
+ * @param maxPoints                       The maximum points.
+ * @param status                          The task status.
+ * @param solution                        The solution query.
+ * @param sorting                         The XPath expressions of nodes which have to be sorted.
+ * @param missingNodePenalty              The penalty for missing nodes.
+ * @param superfluousNodePenalty          The penalty for superfluous nodes.
+ * @param incorrectTextPenalty            The penalty for incorrect texts.
+ * @param displacedNodePenalty            The penalty for displaced nodes.
+ * @param missingAttributePenalty         The penalty for missing attributes.
+ * @param superfluousAttributePenalty     The penalty for superfluous attributes.
+ * @param incorrectAttributeValuePenalty  The penalty for incorrect attribute values.
+ * @param missingNodeStrategy             The grading strategy for missing nodes.
+ * @param superfluousNodeStrategy         The grading strategy for superfluous nodes.
+ * @param incorrectTextStrategy           The grading strategy for incorrect texts.
+ * @param displacedNodeStrategy           The grading strategy for displaced nodes.
+ * @param missingAttributeStrategy        The grading strategy for missing attributes.
+ * @param superfluousAttributeStrategy    The grading strategy for superfluous attributes.
+ * @param incorrectAttributeValueStrategy The grading strategy for incorrect attribute values.
+ * @param solutionElements                The element names in the solution result.
+ * @param solutionAttributes              The attribute names in the solution result.
+ * @param taskGroupId                     The task group identifier.
+ * @param taskGroupStatus                 The task group status.
+ * @param executor                        The XQuery engine selected for the task group or {@code null}.
+ * @param diagnoseDocumentHash            The hash of the diagnose document.
+ * @param submitDocumentHash              The hash of the submit document.
+ */
+public record EvaluationTask(Long id, BigDecimal maxPoints, TaskStatus status, String solution, List<String> sorting,
+                             BigDecimal missingNodePenalty, BigDecimal superfluousNodePenalty, BigDecimal incorrectTextPenalty,
+                             BigDecimal displacedNodePenalty, BigDecimal missingAttributePenalty, BigDecimal superfluousAttributePenalty,
+                             BigDecimal incorrectAttributeValuePenalty,
+                             GradingStrategy missingNodeStrategy, GradingStrategy superfluousNodeStrategy, GradingStrategy incorrectTextStrategy,
+                             GradingStrategy displacedNodeStrategy, GradingStrategy missingAttributeStrategy, GradingStrategy superfluousAttributeStrategy,
+                             GradingStrategy incorrectAttributeValueStrategy,
+                             List<String> solutionElements, List<String> solutionAttributes,
+                             Long taskGroupId, TaskStatus taskGroupStatus, String executor, String diagnoseDocumentHash, String submitDocumentHash) {
+
+    /**
+     * Creates a detached task with a task group without documents (see {@link XQueryTaskGroup#withoutDocuments}).
+     *
+     * @return The task.
+     */
+    public XQueryTask toTask() {
+        var taskGroup = XQueryTaskGroup.withoutDocuments(this.taskGroupId, this.taskGroupStatus, this.executor, this.diagnoseDocumentHash, this.submitDocumentHash);
+        var task = new XQueryTask(this.id, this.maxPoints, this.status, taskGroup, this.solution, this.sorting);
+        task.setMissingNodePenalty(this.missingNodePenalty);
+        task.setSuperfluousNodePenalty(this.superfluousNodePenalty);
+        task.setIncorrectTextPenalty(this.incorrectTextPenalty);
+        task.setDisplacedNodePenalty(this.displacedNodePenalty);
+        task.setMissingAttributePenalty(this.missingAttributePenalty);
+        task.setSuperfluousAttributePenalty(this.superfluousAttributePenalty);
+        task.setIncorrectAttributeValuePenalty(this.incorrectAttributeValuePenalty);
+        task.setMissingNodeStrategy(this.missingNodeStrategy);
+        task.setSuperfluousNodeStrategy(this.superfluousNodeStrategy);
+        task.setIncorrectTextStrategy(this.incorrectTextStrategy);
+        task.setDisplacedNodeStrategy(this.displacedNodeStrategy);
+        task.setMissingAttributeStrategy(this.missingAttributeStrategy);
+        task.setSuperfluousAttributeStrategy(this.superfluousAttributeStrategy);
+        task.setIncorrectAttributeValueStrategy(this.incorrectAttributeValueStrategy);
+        task.setSolutionElements(this.solutionElements);
+        task.setSolutionAttributes(this.solutionAttributes);
+        return task;
+    }
+}
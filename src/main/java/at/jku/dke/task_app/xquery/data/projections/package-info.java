@@ -0,0 +1,4 @@
+/**
+ * Contains the projections of database entities.
+ */
+package at.jku.dke.task_app.xquery.data.projections;
@@ -2,9 +2,40 @@
 
 import at.jku.dke.etutor.task_app.data.repositories.SubmissionRepository;
 import at.jku.dke.task_app.xquery.data.entities.XQuerySubmission;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Repository for entity {@link XQuerySubmission}.
  */
 public interface XQuerySubmissionRepository extends SubmissionRepository<XQuerySubmission> {
+    /**
+     * Returns the identifiers of all submissions of the specified task.
+     *
+     * @param taskId The task identifier.
+     * @return The submission identifiers.
+     */
+    @Query("SELECT s.id FROM XQuerySubmission s WHERE s.task.id = :taskId ORDER BY s.id")
+    List<UUID> findIdsByTaskId(Long taskId);
+
+    /**
+     * Returns the identifiers of all submissions of the specified assignment.
+     *
+     * @param assignmentId The assignment identifier.
+     * @return The submission identifiers.
+     */
+    @Query("SELECT s.id FROM XQuerySubmission s WHERE s.assignmentId = :assignmentId ORDER BY s.id")
+    List<UUID> findIdsByAssignmentId(String assignmentId);
+
+    /**
+     * Returns the identifiers of all submissions of the specified task in the specified assignment.
+     *
+     * @param taskId       The task identifier.
+     * @param assignmentId The assignment identifier.
+     * @return The submission identifiers.
+     */
+    @Query("SELECT s.id FROM XQuerySubmission s WHERE s.task.id = :taskId AND s.assignmentId = :assignmentId ORDER BY s.id")
+    List<UUID> findIdsByTaskIdAndAssignmentId(Long taskId, String assignmentId);
 }
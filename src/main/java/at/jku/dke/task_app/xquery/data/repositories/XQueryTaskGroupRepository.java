@@ -2,6 +2,7 @@
 
 import at.jku.dke.etutor.task_app.data.repositories.TaskGroupRepository;
 import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 
@@ -9,4 +10,23 @@
  * Repository for entity {@link XQueryTaskGroup}.
  */
 public interface XQueryTaskGroupRepository extends TaskGroupRepository<XQueryTaskGroup> {
+    /**
+     * Returns the diagnose document of the task group if it has the specified hash.
+     *
+     * @param id   The id of the task group.
+     * @param hash The hash of the document version.
+     * @return The diagnose document or an empty result if the task group does not exist or the document changed.
+     */
+    @Query("SELECT g.diagnoseDocument FROM XQueryTaskGroup g WHERE g.id = :id AND g.diagnoseDocumentHash = :hash")
+    Optional<String> findDiagnoseDocument(Long id, String hash);
+
+    /**
+     * Returns the submit document of the task group if it has the specified hash.
+     *
+     * @param id   The id of the task group.
+     * @param hash The hash of the document version.
+     * @return The submit document or an empty result if the task group does not exist or the document changed.
+     */
+    @Query("SELECT g.submitDocument FROM XQueryTaskGroup g WHERE g.id = :id AND g.submitDocumentHash = :hash")
+    Optional<String> findSubmitDocument(Long id, String hash);
 }
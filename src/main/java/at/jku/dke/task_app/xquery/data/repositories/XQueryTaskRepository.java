@@ -1,9 +1,12 @@
 package at.jku.dke.task_app.xquery.data.repositories;
 
 import at.jku.dke.etutor.task_app.data.repositories.TaskRepository;
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
 import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.projections.EvaluationTask;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -11,11 +14,33 @@
  */
 public interface XQueryTaskRepository extends TaskRepository<XQueryTask> {
     /**
-     * Returns the task with the specified id including the task group eagerly loaded.
+     * Returns the attributes of the task with the specified id required for evaluations.
+     * <p>
+     * The documents of the task group are not loaded, only their hashes.
      *
      * @param id The id of the task.
-     * @return The task with the specified id including the task group.
+     * @return The evaluation attributes of the task.
      */
-    @Query("SELECT t FROM XQueryTask t LEFT JOIN FETCH t.taskGroup WHERE t.id = :id")
-    Optional<XQueryTask> findByIdWithTaskGroup(Long id);
+    @Query("""
+        SELECT new at.jku.dke.task_app.xquery.data.projections.EvaluationTask(
+            t.id, t.maxPoints, t.status, t.solution, t.sorting,
+            t.missingNodePenalty, t.superfluousNodePenalty, t.incorrectTextPenalty, t.displacedNodePenalty,
+            t.missingAttributePenalty, t.superfluousAttributePenalty, t.incorrectAttributeValuePenalty,
+            t.missingNodeStrategy, t.superfluousNodeStrategy, t.incorrectTextStrategy, t.displacedNodeStrategy,
+            t.missingAttributeStrategy, t.superfluousAttributeStrategy, t.incorrectAttributeValueStrategy,
+            t.solutionElements, t.solutionAttributes,
+            g.id, g.status, g.executor, g.diagnoseDocumentHash, g.submitDocumentHash)
+        FROM XQueryTask t JOIN t.taskGroup g
+        WHERE t.id = :id
+        """)
+    Optional<EvaluationTask> findForEvaluation(Long id);
+
+    /**
+     * Returns all tasks with the specified status including the task groups eagerly loaded.
+     *
+     * @param status The status of the tasks.
+     * @return The tasks with the specified status including the task groups.
+     */
+    @Query("SELECT t FROM XQueryTask t JOIN FETCH t.taskGroup WHERE t.status = :status ORDER BY t.taskGroup.id, t.id")
+    List<XQueryTask> findByStatusWithTaskGroup(TaskStatus status);
 }
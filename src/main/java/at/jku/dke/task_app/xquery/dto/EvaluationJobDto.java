@@ -0,0 +1,44 @@
+package at.jku.dke.task_app.xquery.dto;
+
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * DTO for the state of an asynchronous evaluation.
+ *
+ * @param id      The job identifier (equals the submission identifier if the submission is persisted).
+ * @param status  The status of the evaluation.
+ * @param grading The evaluation result, if the evaluation is completed.
+ * @param error   The error message, if the evaluation failed.
+ */
+public record EvaluationJobDto(@NotNull UUID id,
+                               @NotNull Status status,
+                               GradingDto grading,
+                               @Schema(example = "Could not execute query.") String error) implements Serializable {
+
+    /**
+     * The status of an asynchronous evaluation.
+     */
+    public enum Status {
+        /**
+         * The evaluation waits for a worker.
+         */
+        QUEUED,
+        /**
+         * The evaluation is running.
+         */
+        RUNNING,
+        /**
+         * The evaluation completed; the grading is available.
+         */
+        COMPLETED,
+        /**
+         * The evaluation failed; the error is available.
+         */
+        FAILED
+    }
+}
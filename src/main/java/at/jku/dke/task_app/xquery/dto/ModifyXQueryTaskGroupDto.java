@@ -2,6 +2,7 @@
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 
 import java.io.Serializable;
 
@@ -10,7 +11,18 @@
  *
  * @param diagnoseDocument The diagnose document.
  * @param submitDocument   The submit document.
+ * @param executor         The XQuery engine to use for the task group ("basex" or "saxon"; {@code null} selects the engine automatically).
  */
 public record ModifyXQueryTaskGroupDto(@Schema(example = "<db><x>1</x></db>") @NotEmpty String diagnoseDocument,
-                                       @Schema(example = "<db><x>2</x></db>") @NotEmpty String submitDocument) implements Serializable {
+                                       @Schema(example = "<db><x>2</x></db>") @NotEmpty String submitDocument,
+                                       @Schema(example = "basex", nullable = true) @Pattern(regexp = "basex|saxon") String executor) implements Serializable {
+    /**
+     * Creates a new instance of class {@link ModifyXQueryTaskGroupDto} without selected engine.
+     *
+     * @param diagnoseDocument The diagnose document.
+     * @param submitDocument   The submit document.
+     */
+    public ModifyXQueryTaskGroupDto(String diagnoseDocument, String submitDocument) {
+        this(diagnoseDocument, submitDocument, null);
+    }
 }
@@ -0,0 +1,29 @@
+package at.jku.dke.task_app.xquery.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * DTO for the progress of a batch re-evaluation of persisted submissions.
+ *
+ * @param id           The job identifier.
+ * @param status       The status of the re-evaluation.
+ * @param taskId       The task whose submissions are re-evaluated, if restricted to a task.
+ * @param assignmentId The assignment whose submissions are re-evaluated, if restricted to an assignment.
+ * @param total        The number of submissions to re-evaluate (0 until the submissions have been counted).
+ * @param completed    The number of re-evaluated submissions, including failed ones.
+ * @param failed       The number of submissions which could not be re-evaluated; their previous result is kept.
+ * @param error        The error message, if the re-evaluation failed.
+ */
+public record RegradeJobDto(@NotNull UUID id,
+                            @NotNull EvaluationJobDto.Status status,
+                            Long taskId,
+                            String assignmentId,
+                            int total,
+                            int completed,
+                            int failed,
+                            @Schema(example = "Could not load submissions.") String error) implements Serializable {
+}
@@ -10,7 +10,18 @@
  *
  * @param diagnoseDocument The diagnose document.
  * @param submitDocument   The submit document.
+ * @param executor         The XQuery engine selected for the task group ({@code null} if the engine is selected automatically).
  */
 public record XQueryTaskGroupDto(@Schema(example = "<db><x>1</x></db>")  @NotNull String diagnoseDocument,
-                                 @Schema(example = "<db><x>2</x></db>")  @NotNull String submitDocument) implements Serializable {
+                                 @Schema(example = "<db><x>2</x></db>")  @NotNull String submitDocument,
+                                 @Schema(example = "basex", nullable = true) String executor) implements Serializable {
+    /**
+     * Creates a new instance of class {@link XQueryTaskGroupDto} without selected engine.
+     *
+     * @param diagnoseDocument The diagnose document.
+     * @param submitDocument   The submit document.
+     */
+    public XQueryTaskGroupDto(String diagnoseDocument, String submitDocument) {
+        this(diagnoseDocument, submitDocument, null);
+    }
 }
@@ -0,0 +1,347 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import at.jku.dke.etutor.task_app.dto.CriterionDto;
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationMetrics.Outcome;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the evaluation results of submissions, so that identical submissions (e.g. repeated runs of an unchanged query
+ * or the same query submitted by many students) are evaluated only once.
+ * <p>
+ * Entries are keyed by the normalized query (see {@link #normalize(String)}), the task, the engine, the submission mode,
+ * the feedback level, the language and the version of the task and the document, i.e. the hashes of the grading settings of the task
+ * and of the document content. Edited tasks and task groups therefore never return stale results; their entries are
+ * additionally removed to release the memory. Results of syntax errors contain the position of the error, so they are
+ * only returned for the exact same query; results of time limit violations depend on the load and are not cached.
+ * <p>
+ * The cache is bounded by the estimated memory of the cached results and evicts entries in least-recently-used order.
+ * The lookups ({@value #GETS}, tagged by {@code result}), the evictions ({@value #EVICTIONS}), the number of entries
+ * ({@value #SIZE}) and the estimated memory ({@value #WEIGHT}) are published as metrics.
+ */
+@Component
+public class EvaluationCache {
+    private static final Logger LOG = LoggerFactory.getLogger(EvaluationCache.class);
+
+    /**
+     * The name of the lookup counter.
+     */
+    public static final String GETS = "xquery.evaluation.cache.gets";
+    /**
+     * The name of the eviction counter.
+     */
+    public static final String EVICTIONS = "xquery.evaluation.cache.evictions";
+    /**
+     * The name of the entry gauge.
+     */
+    public static final String SIZE = "xquery.evaluation.cache.size";
+    /**
+     * The name of the memory gauge.
+     */
+    public static final String WEIGHT = "xquery.evaluation.cache.weight";
+
+    private static final long ENTRY_OVERHEAD = 512;
+    private static final long CRITERION_OVERHEAD = 64;
+    private static final Pattern VERBATIM_CONTENT = Pattern.compile("<[\\p{L}_!?]|``\\[|\\(#");
+
+    private final long maxWeight;
+    private final Map<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private long weight;
+
+    /**
+     * Creates a new instance of class {@link EvaluationCache}.
+     *
+     * @param settings The XQuery settings.
+     * @param registry The meter registry.
+     */
+    @Autowired
+    public EvaluationCache(XQuerySettings settings, MeterRegistry registry) {
+        this(settings.resultCache().maxSize().toBytes(), registry);
+    }
+
+    /**
+     * Creates a new instance of class {@link EvaluationCache}.
+     *
+     * @param maxWeight The maximum estimated memory of the cached results in bytes (0 disables caching).
+     * @param registry  The meter registry.
+     */
+    public EvaluationCache(long maxWeight, MeterRegistry registry) {
+        if (maxWeight < 0)
+            throw new IllegalArgumentException("maxWeight must not be negative.");
+
+        this.maxWeight = maxWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = Counter.builder(GETS).description("The number of evaluation cache lookups").tag("result", "hit").register(registry);
+        this.misses = Counter.builder(GETS).description("The number of evaluation cache lookups").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder(EVICTIONS).description("The number of evicted evaluation results").register(registry);
+        Gauge.builder(SIZE, this, EvaluationCache::size)
+            .description("The number of cached evaluation results")
+            .register(registry);
+        Gauge.builder(WEIGHT, this, EvaluationCache::getWeight)
+            .description("The estimated memory of the cached evaluation results")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    /**
+     * Returns the cached result of the submission.
+     *
+     * @param key   The cache key.
+     * @param query The submitted query.
+     * @return The cached result or {@code null} if the submission has not been evaluated yet.
+     */
+    public GradingDto get(Key key, String query) {
+        if (this.maxWeight <= 0)
+            return null;
+
+        Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(key);
+            if (entry == null) {
+                var exactKey = key.withQuery(XQDocument.hash(query));
+                if (!exactKey.equals(key))
+                    entry = this.entries.get(exactKey);
+            }
+        }
+
+        (entry == null ? this.misses : this.hits).increment();
+        return entry == null ? null : entry.result();
+    }
+
+    /**
+     * Caches the result of the submission if its outcome does not depend on the load or on the exact query.
+     *
+     * @param key     The cache key.
+     * @param query   The submitted query.
+     * @param result  The evaluation result.
+     * @param outcome The outcome of the evaluation.
+     */
+    public void put(Key key, String query, GradingDto result, Outcome outcome) {
+        if (this.maxWeight <= 0 || outcome == Outcome.TIMEOUT || outcome == Outcome.ERROR)
+            return;
+
+        long entryWeight = weight(result);
+        if (entryWeight > this.maxWeight)
+            return;
+
+        // syntax errors report the position of the error, which is changed by the normalization
+        Key entryKey = outcome == Outcome.SYNTAX_ERROR ? key.withQuery(XQDocument.hash(query)) : key;
+        synchronized (this.entries) {
+            var previous = this.entries.put(entryKey, new Entry(result, entryWeight));
+            this.weight += entryWeight - (previous == null ? 0 : previous.weight());
+
+            Iterator<Entry> it = this.entries.values().iterator();
+            while (this.weight > this.maxWeight && it.hasNext()) {
+                this.weight -= it.next().weight();
+                it.remove();
+                this.evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results of the specified task.
+     *
+     * @param taskId The task identifier.
+     */
+    public void invalidateTask(long taskId) {
+        LOG.debug("Invalidating cached evaluation results of task {}", taskId);
+        this.remove(k -> k.taskId() == taskId);
+    }
+
+    /**
+     * Removes all cached results of tasks of the specified task group.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    public void invalidateTaskGroup(long taskGroupId) {
+        LOG.debug("Invalidating cached evaluation results of task group {}", taskGroupId);
+        this.remove(k -> k.taskGroupId() == taskGroupId);
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Returns the estimated memory of the cached results.
+     *
+     * @return The memory in bytes.
+     */
+    public long getWeight() {
+        synchronized (this.entries) {
+            return this.weight;
+        }
+    }
+
+    private void remove(Predicate<Key> predicate) {
+        synchronized (this.entries) {
+            var it = this.entries.entrySet().iterator();
+            while (it.hasNext()) {
+                var entry = it.next();
+                if (predicate.test(entry.getKey())) {
+                    this.weight -= entry.getValue().weight();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the cache key for a submission.
+     *
+     * @param task       The task including its task group.
+     * @param document   The document the submission is executed on.
+     * @param engine     The engine executing the submission.
+     * @param submission The submission.
+     * @return The cache key.
+     */
+    public static Key key(XQueryTask task, XQDocument document, String engine, SubmitSubmissionDto<XQuerySubmissionDto> submission) {
+        String version = XQDocument.hash(String.join("\n",
+            task.getSolution(),
+            task.getSorting() == null ? "" : String.join("\n", task.getSorting()),
+            String.valueOf(task.getMaxPoints()),
+            task.getMissingNodePenalty() + ":" + task.getMissingNodeStrategy(),
+            task.getSuperfluousNodePenalty() + ":" + task.getSuperfluousNodeStrategy(),
+            task.getIncorrectTextPenalty() + ":" + task.getIncorrectTextStrategy(),
+            task.getDisplacedNodePenalty() + ":" + task.getDisplacedNodeStrategy(),
+            task.getMissingAttributePenalty() + ":" + task.getMissingAttributeStrategy(),
+            task.getSuperfluousAttributePenalty() + ":" + task.getSuperfluousAttributeStrategy(),
+            task.getIncorrectAttributeValuePenalty() + ":" + task.getIncorrectAttributeValueStrategy(),
+            document.hash()));
+        return new Key(task.getId(), document.taskGroupId(), version, engine, submission.mode(), submission.feedbackLevel(), submission.language(),
+            XQDocument.hash(normalize(submission.submission().input())));
+    }
+
+    /**
+     * Normalizes the query by removing comments and collapsing whitespace outside of string literals.
+     * <p>
+     * Whitespace and comments are content of direct element constructors, which cannot be reliably distinguished from
+     * comparisons without parsing the query, and of string constructors ({@code ``[...]``}) and pragmas
+     * ({@code (# ... #)}); queries which may contain any of them are therefore only stripped.
+     *
+     * @param query The query.
+     * @return The normalized query.
+     */
+    static String normalize(String query) {
+        String stripped = query.strip();
+        if (VERBATIM_CONTENT.matcher(stripped).find())
+            return stripped;
+
+        var sb = new StringBuilder(stripped.length());
+        int comments = 0;
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            char next = i + 1 < stripped.length() ? stripped.charAt(i + 1) : 0;
+            if (quote != 0) {
+                // doubled quotes are escapes; they close and immediately reopen the literal
+                sb.append(c);
+                if (c == quote)
+                    quote = 0;
+            } else if (c == '(' && next == ':') {
+                comments++;
+                space = true;
+                i++;
+            } else if (comments > 0) {
+                if (c == ':' && next == ')') {
+                    comments--;
+                    i++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && !sb.isEmpty())
+                    sb.append(' ');
+                space = false;
+                sb.append(c);
+                if (c == '"' || c == '\'')
+                    quote = c;
+            }
+        }
+
+        // unterminated comments or literals are syntax errors, which are only cached for the exact query
+        return comments > 0 || quote != 0 ? stripped : sb.toString();
+    }
+
+    /**
+     * Estimates the memory of a cached result.
+     *
+     * @param result The result.
+     * @return The estimated memory in bytes.
+     */
+    static long weight(GradingDto result) {
+        long weight = ENTRY_OVERHEAD + 2L * length(result.generalFeedback());
+        if (result.criteria() != null) {
+            for (CriterionDto criterion : result.criteria())
+                weight += CRITERION_OVERHEAD + 2L * (length(criterion.name()) + length(criterion.feedback()));
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * The key of a cached result.
+     *
+     * @param taskId        The task identifier.
+     * @param taskGroupId   The task group identifier.
+     * @param version       The hash of the grading settings of the task and of the document (i.e. the task version).
+     * @param engine        The engine executing the query.
+     * @param mode          The submission mode.
+     * @param feedbackLevel The feedback level.
+     * @param language      The language of the feedback.
+     * @param query         The hash of the query.
+     */
+    public record Key(long taskId, long taskGroupId, String version, String engine, SubmissionMode mode, int feedbackLevel, String language, String query) {
+        /**
+         * Returns the key for the specified query hash.
+         *
+         * @param query The hash of the query.
+         * @return The key.
+         */
+        public Key withQuery(String query) {
+            return new Key(this.taskId, this.taskGroupId, this.version, this.engine, this.mode, this.feedbackLevel, this.language, query);
+        }
+    }
+
+    /**
+     * A cached result.
+     *
+     * @param result The evaluation result.
+     * @param weight The estimated memory in bytes.
+     */
+    private record Entry(GradingDto result, long weight) {
+    }
+}
@@ -0,0 +1,441 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Node;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the metrics of the evaluation pipeline.
+ * <p>
+ * Every evaluation is recorded by a {@link Recording}, which collects the durations of the {@link Stage stages} and
+ * publishes them when the evaluation has finished, so that all meters can be tagged with the {@link Outcome outcome}.
+ * All meters are tagged with the executor (i.e. the engine which executed the queries) and the submission mode; all
+ * meters except the stage timer are tagged with the task id bucket as well. Only the evaluation timer publishes a
+ * percentile histogram, so percentiles can be computed by Prometheus; the stage timer publishes a few service level
+ * objective buckets, which keeps the number of time series independent of the number of tasks.
+ * <p>
+ * Following meters are provided:
+ * <ul>
+ *     <li>{@value #EVALUATION}: the duration of an evaluation,</li>
+ *     <li>{@value #STAGE}: the duration of a stage of an evaluation (tagged by {@code stage}),</li>
+ *     <li>{@value #RESULT_ITEMS}: the number of items in the submission result,</li>
+ *     <li>{@value #RESULT_NODES}: the number of nodes in the submission result,</li>
+ *     <li>{@value #ACTIVE}: the number of evaluations in progress.</li>
+ * </ul>
+ */
+@Component
+public class EvaluationMetrics {
+    /**
+     * The name of the evaluation timer.
+     */
+    public static final String EVALUATION = "xquery.evaluation";
+    /**
+     * The name of the stage timer.
+     */
+    public static final String STAGE = "xquery.evaluation.stage";
+    /**
+     * The name of the result item summary.
+     */
+    public static final String RESULT_ITEMS = "xquery.evaluation.result.items";
+    /**
+     * The name of the result node summary.
+     */
+    public static final String RESULT_NODES = "xquery.evaluation.result.nodes";
+    /**
+     * The name of the in-flight evaluation gauge.
+     */
+    public static final String ACTIVE = "xquery.evaluation.active";
+
+    private static final long TASK_BUCKET_SIZE = 100;
+    private static final Duration[] STAGE_OBJECTIVES = {
+        Duration.ofMillis(10), Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofSeconds(10)
+    };
+
+    private final MeterRegistry registry;
+    private final String executor;
+    private final AtomicInteger active;
+
+    /**
+     * Creates a new instance of class {@link EvaluationMetrics}.
+     *
+     * @param registry The meter registry.
+     * @param settings The XQuery settings.
+     */
+    @Autowired
+    public EvaluationMetrics(MeterRegistry registry, XQuerySettings settings) {
+        this(registry, settings.executor());
+    }
+
+    /**
+     * Creates a new instance of class {@link EvaluationMetrics}.
+     *
+     * @param registry The meter registry.
+     * @param executor The name of the executor.
+     */
+    public EvaluationMetrics(MeterRegistry registry, String executor) {
+        this.registry = registry;
+        this.executor = executor;
+        this.active = new AtomicInteger();
+        Gauge.builder(ACTIVE, this.active, AtomicInteger::get)
+            .description("The number of evaluations in progress")
+            .tag("executor", executor)
+            .register(registry);
+    }
+
+    /**
+     * Starts recording an evaluation.
+     *
+     * @param taskId The task identifier.
+     * @param mode   The submission mode.
+     * @return The recording, which has to be closed when the evaluation has finished.
+     */
+    public Recording start(long taskId, SubmissionMode mode) {
+        this.active.incrementAndGet();
+        return new Recording(taskId, mode, true);
+    }
+
+    /**
+     * Starts recording a warm-up of a task.
+     * <p>
+     * The recorded metrics are not published, so warm-ups do not distort the metrics of evaluations.
+     *
+     * @param taskId The task identifier.
+     * @return The recording.
+     */
+    public Recording startWarmUp(long taskId) {
+        return new Recording(taskId, SubmissionMode.SUBMIT, false);
+    }
+
+    /**
+     * Returns the number of evaluations in progress.
+     *
+     * @return The number of active evaluations.
+     */
+    public int getActiveCount() {
+        return this.active.get();
+    }
+
+    /**
+     * Returns the bucket of the task identifier used as tag value, e.g. {@code 100-199}.
+     * <p>
+     * Tasks are grouped to keep the number of time series bounded.
+     *
+     * @param taskId The task identifier.
+     * @return The bucket.
+     */
+    static String taskBucket(long taskId) {
+        long lower = Math.floorDiv(taskId, TASK_BUCKET_SIZE) * TASK_BUCKET_SIZE;
+        return lower + "-" + (lower + TASK_BUCKET_SIZE - 1);
+    }
+
+    /**
+     * The stages of an evaluation.
+     */
+    public enum Stage {
+        /**
+         * Waiting for a processor of the pool.
+         */
+        POOL,
+        /**
+         * Executing the submission query (including loading the document).
+         */
+        SUBMISSION_QUERY,
+        /**
+         * Executing the solution query (including loading the document); only recorded if the solution is not cached.
+         */
+        SOLUTION_QUERY,
+        /**
+         * Building the DOM of the submission result.
+         */
+        SUBMISSION_PARSE,
+        /**
+         * Building the DOM of the solution result; only recorded if the solution is not cached.
+         */
+        SOLUTION_PARSE,
+        /**
+         * Generating the DTD and its validator from the solution result; only recorded if the solution is not cached.
+         */
+        SOLUTION_DTD,
+        /**
+         * Validating and comparing the submission result with the solution result.
+         */
+        ANALYSIS,
+        /**
+         * Grading the analysis.
+         */
+        GRADING,
+        /**
+         * Creating the feedback, including highlighting the result.
+         */
+        REPORT;
+
+        /**
+         * Returns the tag value of the stage.
+         *
+         * @return The tag value.
+         */
+        public String tagValue() {
+            return this.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /**
+     * The outcomes of an evaluation.
+     */
+    public enum Outcome {
+        /**
+         * The submission could not be executed.
+         */
+        SYNTAX_ERROR,
+        /**
+         * The submission tried to load a forbidden document.
+         */
+        INVALID_DOCUMENT,
+        /**
+         * The submission exceeded a time limit.
+         */
+        TIMEOUT,
+        /**
+         * The result of the submission exceeded a size limit.
+         */
+        RESULT_LIMIT,
+        /**
+         * The submission result differs from the solution result.
+         */
+        INCORRECT,
+        /**
+         * The submission result equals the solution result.
+         */
+        CORRECT,
+        /**
+         * The submission was only executed (mode {@link SubmissionMode#RUN}).
+         */
+        EXECUTED,
+        /**
+         * The evaluation was rejected because no processor was available.
+         */
+        UNAVAILABLE,
+        /**
+         * The evaluation failed because of an internal error.
+         */
+        ERROR;
+
+        /**
+         * Returns the tag value of the outcome.
+         *
+         * @return The tag value.
+         */
+        public String tagValue() {
+            return this.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /**
+     * An action measured as stage.
+     *
+     * @param <T> The type of the result.
+     * @param <E> The type of the exception.
+     */
+    @FunctionalInterface
+    public interface StageAction<T, E extends Exception> {
+        /**
+         * Runs the action.
+         *
+         * @return The result.
+         * @throws E If the action fails.
+         */
+        T run() throws E;
+    }
+
+    /**
+     * Collects the metrics of a single evaluation.
+     * <p>
+     * Stages may be recorded by other threads (e.g. a concurrently executed solution query); stages recorded after the
+     * recording has been closed are ignored.
+     */
+    public final class Recording implements AutoCloseable {
+        private final long start;
+        private final long taskId;
+        private final SubmissionMode mode;
+        private final boolean published;
+        private final Map<Stage, Long> durations;
+        private String engine;
+        private Outcome outcome;
+        private int items;
+        private int nodes;
+        private boolean closed;
+
+        private Recording(long taskId, SubmissionMode mode, boolean published) {
+            this.start = System.nanoTime();
+            this.taskId = taskId;
+            this.mode = mode;
+            this.published = published;
+            this.durations = new EnumMap<>(Stage.class);
+            this.engine = executor;
+            this.outcome = Outcome.ERROR;
+            this.items = -1;
+            this.nodes = -1;
+        }
+
+        /**
+         * Runs the action and records its duration for the specified stage.
+         * <p>
+         * The duration is also recorded if the action fails.
+         *
+         * @param stage  The stage.
+         * @param action The action.
+         * @param <T>    The type of the result.
+         * @param <E>    The type of the exception.
+         * @return The result of the action.
+         * @throws E If the action fails.
+         */
+        public <T, E extends Exception> T time(Stage stage, StageAction<T, E> action) throws E {
+            long stageStart = System.nanoTime();
+            try {
+                return action.run();
+            } finally {
+                this.record(stage, System.nanoTime() - stageStart);
+            }
+        }
+
+        /**
+         * Records the duration of a stage; durations of the same stage are summed up.
+         *
+         * @param stage    The stage.
+         * @param duration The duration in nanoseconds.
+         */
+        public synchronized void record(Stage stage, long duration) {
+            if (!this.closed)
+                this.durations.merge(stage, duration, Long::sum);
+        }
+
+        /**
+         * Sets the engine executing the queries of the evaluation; the default engine is the configured executor.
+         *
+         * @param engine The engine.
+         */
+        public synchronized void setEngine(String engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * Sets the outcome of the evaluation; the default outcome is {@link Outcome#ERROR}.
+         *
+         * @param outcome The outcome.
+         */
+        public synchronized void setOutcome(Outcome outcome) {
+            this.outcome = outcome;
+        }
+
+        /**
+         * Returns the outcome of the evaluation.
+         *
+         * @return The outcome.
+         */
+        public synchronized Outcome getOutcome() {
+            return this.outcome;
+        }
+
+        /**
+         * Records the size of the submission result.
+         * <p>
+         * The number of nodes is taken from the subtree index, so this method should be called after the analysis, which
+         * creates the index.
+         *
+         * @param result The submission result.
+         * @throws AnalysisException If the subtree index could not be created.
+         */
+        public void recordResult(XQResult result) throws AnalysisException {
+            var document = result.getResultDocument();
+            if (document == null)
+                return;
+
+            int count = 0;
+            for (Node child = document.getDocumentElement().getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() != Node.TEXT_NODE || !child.getNodeValue().isBlank())
+                    count++;
+            }
+            int size = result.getSubtreeIndex().size();
+
+            synchronized (this) {
+                this.items = count;
+                this.nodes = size;
+            }
+        }
+
+        /**
+         * Publishes the recorded metrics.
+         */
+        @Override
+        public void close() {
+            long duration = System.nanoTime() - this.start;
+            Map<Stage, Long> stages;
+            Outcome result;
+            String resultEngine;
+            int resultItems;
+            int resultNodes;
+            synchronized (this) {
+                if (this.closed)
+                    return;
+                this.closed = true;
+                stages = new EnumMap<>(this.durations);
+                result = this.outcome;
+                resultEngine = this.engine;
+                resultItems = this.items;
+                resultNodes = this.nodes;
+            }
+            if (!this.published)
+                return;
+            active.decrementAndGet();
+
+            Tags stageTags = Tags.of(
+                "executor", resultEngine,
+                "mode", this.mode.name().toLowerCase(Locale.ROOT),
+                "outcome", result.tagValue());
+            Tags tags = stageTags.and("task", taskBucket(this.taskId));
+            Timer.builder(EVALUATION)
+                .description("The duration of an evaluation")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(duration, TimeUnit.NANOSECONDS);
+            stages.forEach((stage, nanos) -> Timer.builder(STAGE)
+                .description("The duration of a stage of an evaluation")
+                .tags(stageTags)
+                .tag("stage", stage.tagValue())
+                .serviceLevelObjectives(STAGE_OBJECTIVES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+            if (resultItems >= 0) {
+                DistributionSummary.builder(RESULT_ITEMS)
+                    .description("The number of items in the submission result")
+                    .baseUnit("items")
+                    .tags(tags)
+                    .register(registry)
+                    .record(resultItems);
+                DistributionSummary.builder(RESULT_NODES)
+                    .description("The number of nodes in the submission result")
+                    .baseUnit("nodes")
+                    .tags(tags)
+                    .register(registry)
+                    .record(resultNodes);
+            }
+        }
+    }
+}
@@ -3,10 +3,14 @@
 import at.jku.dke.etutor.task_app.dto.GradingDto;
 import at.jku.dke.etutor.task_app.dto.SubmissionMode;
 import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
 import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
 import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 /**
  * Service that evaluates submissions.
@@ -21,9 +25,33 @@ public interface EvaluationService {
      * @throws RuntimeException        If an error occurs during evaluation.
      * @throws IllegalStateException   If the executor is not supported.
      */
-    @Transactional
     GradingDto evaluate(SubmitSubmissionDto<XQuerySubmissionDto> submission);
 
+    /**
+     * Evaluates a input for a task which has already been loaded, e.g. to evaluate many submissions of the same task.
+     *
+     * @param task       The task including its task group.
+     * @param submission The input to evaluate.
+     * @return The evaluation result.
+     * @throws RuntimeException      If an error occurs during evaluation.
+     * @throws IllegalStateException If the executor is not supported.
+     */
+    GradingDto evaluate(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission);
+
+    /**
+     * Re-evaluates a persisted input for a task which has already been loaded.
+     * <p>
+     * Results of evaluations which exceeded a time limit depend on the load of the node, so they are not returned and
+     * the previous result should be kept.
+     *
+     * @param task       The task including its task group.
+     * @param submission The input to evaluate.
+     * @return The evaluation result or an empty result if the evaluation exceeded a time limit.
+     * @throws RuntimeException      If an error occurs during evaluation.
+     * @throws IllegalStateException If the executor is not supported.
+     */
+    Optional<GradingDto> reevaluate(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission);
+
     /**
      * Executes a query for the specified task.
      *
@@ -35,6 +63,14 @@ public interface EvaluationService {
      * @throws RuntimeException        If an error occurs during evaluation.
      * @throws IllegalStateException   If the executor is not supported.
      */
-    @Transactional
     XQResult execute(long taskId, SubmissionMode mode, String query);
+
+    /**
+     * Prepares the evaluation of submissions for the specified task by caching its solutions for both task group documents.
+     *
+     * @param task The task including its task group.
+     * @throws XQueryException   If the solution query could not be executed.
+     * @throws AnalysisException If the solution result could not be prepared.
+     */
+    void warmUp(XQueryTask task) throws XQueryException, AnalysisException;
 }
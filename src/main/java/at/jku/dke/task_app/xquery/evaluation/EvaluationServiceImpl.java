@@ -4,55 +4,119 @@
 import at.jku.dke.etutor.task_app.dto.GradingDto;
 import at.jku.dke.etutor.task_app.dto.SubmissionMode;
 import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import at.jku.dke.task_app.xquery.data.projections.EvaluationTask;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskGroupRepository;
 import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
 import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationMetrics.Outcome;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationMetrics.Stage;
 import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
 import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisImpl;
+import at.jku.dke.task_app.xquery.evaluation.analysis.PreparedSolution;
 import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
 import at.jku.dke.task_app.xquery.evaluation.execution.InvalidDocumentLoadException;
-import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQCancellation;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQLimits;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQOutput;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorPool;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorRouter;
 import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryLimitException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryTimeoutException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryUnavailableException;
 import at.jku.dke.task_app.xquery.evaluation.grading.XQueryGrading;
+import at.jku.dke.task_app.xquery.evaluation.report.ResultHighlighter;
 import at.jku.dke.task_app.xquery.evaluation.report.XQueryReport;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.MessageSource;
-import org.springframework.context.annotation.Scope;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service that evaluates submissions.
+ * <p>
+ * Each evaluation borrows an exclusive processor from the {@link XQProcessorPool} of the engine selected by the
+ * {@link XQProcessorRouter}, so the service can be used concurrently. The latency of successful submission executions
+ * is reported to the router.
+ * Evaluations do not run in a transaction: the task is loaded by a short read, so no database connection is held while
+ * a query executes. The task is loaded as {@link EvaluationTask} without the documents of its task group; a document is
+ * only loaded if its version is not stored by the processors yet, and only the document of the submission mode.
+ * <p>
+ * If the solution is not cached yet and a second processor is available without waiting, the solution query is executed
+ * concurrently to the submission query and cancelled if the submission fails. Otherwise, both queries are executed
+ * sequentially on the same processor.
+ * <p>
+ * The durations of the evaluation stages, the size of the submission result and the outcome are recorded by {@link EvaluationMetrics}.
+ * Results of submissions which have already been evaluated are returned from the {@link EvaluationCache} without executing
+ * any query; such evaluations are not recorded.
  */
 @Service
-@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class EvaluationServiceImpl implements EvaluationService, AutoCloseable {
     private static final Logger LOG = LoggerFactory.getLogger(EvaluationServiceImpl.class);
 
-    private final XQProcessor processor;
+    private final XQProcessorRouter processorRouter;
     private final XQueryTaskRepository taskRepository;
+    private final XQueryTaskGroupRepository taskGroupRepository;
     private final MessageSource messageSource;
+    private final SolutionCache solutionCache;
+    private final XQuerySettings settings;
+    private final ExecutorService solutionExecutor;
+    private final EvaluationMetrics metrics;
+    private final ResultHighlighter highlighter;
+    private final EvaluationCache evaluationCache;
 
     /**
      * Creates a new instance of class {@link EvaluationServiceImpl}.
      *
-     * @param processor      The XQuery processor.
-     * @param taskRepository The task repository.
-     * @param messageSource  The message source.
+     * @param processorRouter     The XQuery processor router.
+     * @param taskRepository      The task repository.
+     * @param taskGroupRepository The task group repository.
+     * @param messageSource       The message source.
+     * @param solutionCache       The cache for prepared solutions.
+     * @param settings            The XQuery settings.
+     * @param metrics             The evaluation metrics.
+     * @param highlighter         The highlighter of query results.
+     * @param evaluationCache     The cache for evaluation results of identical submissions.
      */
-    public EvaluationServiceImpl(XQProcessor processor, XQueryTaskRepository taskRepository, MessageSource messageSource) {
-        this.processor = processor;
+    public EvaluationServiceImpl(XQProcessorRouter processorRouter, XQueryTaskRepository taskRepository, XQueryTaskGroupRepository taskGroupRepository,
+                                 MessageSource messageSource, SolutionCache solutionCache, XQuerySettings settings, EvaluationMetrics metrics,
+                                 ResultHighlighter highlighter, EvaluationCache evaluationCache) {
+        this.processorRouter = processorRouter;
         this.taskRepository = taskRepository;
+        this.taskGroupRepository = taskGroupRepository;
         this.messageSource = messageSource;
+        this.solutionCache = solutionCache;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.highlighter = highlighter;
+        this.evaluationCache = evaluationCache;
+
+        // the number of concurrent solution executions is bounded by the processor pool
+        var counter = new AtomicInteger();
+        this.solutionExecutor = Executors.newCachedThreadPool(r -> {
+            var thread = new Thread(r, "xq-solution-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -65,32 +129,147 @@ public EvaluationServiceImpl(XQProcessor processor, XQueryTaskRepository taskRep
      * @throws IllegalStateException   If the executor is not supported.
      */
     @Override
-    @Transactional
     public GradingDto evaluate(SubmitSubmissionDto<XQuerySubmissionDto> submission) {
         // find task
-        var task = this.taskRepository.findByIdWithTaskGroup(submission.taskId())
+        var task = this.taskRepository.findForEvaluation(submission.taskId())
+            .map(EvaluationTask::toTask)
             .orElseThrow(() -> new EntityNotFoundException("Task " + submission.taskId() + " does not exist."));
+        return this.evaluate(task, submission);
+    }
+
+    /**
+     * Evaluates a input for a task which has already been loaded, e.g. to evaluate many submissions of the same task.
+     *
+     * @param task       The task including its task group.
+     * @param submission The input to evaluate.
+     * @return The evaluation result.
+     * @throws RuntimeException      If an error occurs during evaluation.
+     * @throws IllegalStateException If the executor is not supported.
+     */
+    @Override
+    public GradingDto evaluate(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission) {
+        return this.evaluateWithOutcome(task, submission).grading();
+    }
+
+    /**
+     * Re-evaluates a persisted input; the result is only returned if it does not depend on the load of the node.
+     *
+     * @param task       The task including its task group.
+     * @param submission The input to evaluate.
+     * @return The evaluation result or an empty result if the evaluation exceeded a time limit.
+     * @throws RuntimeException      If an error occurs during evaluation.
+     * @throws IllegalStateException If the executor is not supported.
+     */
+    @Override
+    public Optional<GradingDto> reevaluate(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission) {
+        var result = this.evaluateWithOutcome(task, submission);
+        return result.outcome() == Outcome.TIMEOUT ? Optional.empty() : Optional.of(result.grading());
+    }
+
+    /**
+     * Evaluates a input for a task which has already been loaded and returns the result including its outcome.
+     *
+     * @param task       The task including its task group.
+     * @param submission The input to evaluate.
+     * @return The evaluation result; the outcome is {@code null} if the result has been cached.
+     */
+    private GradingOutcome evaluateWithOutcome(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission) {
+        try {
+            return this.evaluateVersion(task, submission);
+        } catch (DocumentChangedException ex) {
+            // the task group has been changed while the input was evaluated, evaluate it on the current documents
+            LOG.info("Document of task group {} has been changed, evaluating input for task {} again", task.getTaskGroup().getId(), task.getId());
+            return this.evaluateVersion(this.reload(task), submission);
+        }
+    }
 
+    /**
+     * Evaluates a input on the task group documents of the version the task has been loaded with.
+     *
+     * @param task       The task including its task group.
+     * @param submission The input to evaluate.
+     * @return The evaluation result; the outcome is {@code null} if the result has been cached.
+     * @throws DocumentChangedException If a document of the task group has been changed since the task was loaded.
+     */
+    private GradingOutcome evaluateVersion(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission) {
         // prepare
+        XQDocument xmlDocument = this.getDocument(task, submission.mode());
+        String query = submission.submission().input();
+        var route = this.processorRouter.route(xmlDocument, task.getTaskGroup().getExecutor());
+        var cacheKey = EvaluationCache.key(task, xmlDocument, route.engine(), submission);
+        var cached = this.evaluationCache.get(cacheKey, query);
+        if (cached != null) {
+            LOG.info("Returning cached evaluation of user ({}) input for task {} with mode {} and feedback-level {}",
+                submission.userId(), task.getId(), submission.mode(), submission.feedbackLevel());
+            return new GradingOutcome(cached, null);
+        }
+
         LOG.info("Evaluating user ({}) input for task {} with mode {} and feedback-level {}",
-            submission.userId(), submission.taskId(), submission.mode(), submission.feedbackLevel());
+            submission.userId(), task.getId(), submission.mode(), submission.feedbackLevel());
+        try (var recording = this.metrics.start(task.getId(), submission.mode())) {
+            var result = this.evaluate(task, submission, xmlDocument, route, recording);
+            this.evaluationCache.put(cacheKey, query, result, recording.getOutcome());
+            return new GradingOutcome(result, recording.getOutcome());
+        }
+    }
+
+    /**
+     * Evaluates a input for the specified task.
+     *
+     * @param task        The task.
+     * @param submission  The input to evaluate.
+     * @param xmlDocument The document the input is executed on.
+     * @param route       The route to the engine executing the input.
+     * @param recording   The recording of the evaluation metrics.
+     * @return The evaluation result.
+     */
+    private GradingDto evaluate(XQueryTask task, SubmitSubmissionDto<XQuerySubmissionDto> submission, XQDocument xmlDocument,
+                                XQProcessorRouter.Route route, EvaluationMetrics.Recording recording) {
         Locale locale = Locale.of(submission.language());
         BigDecimal points = BigDecimal.ZERO;
         List<CriterionDto> criteria = new ArrayList<>();
-        String xmlDocument = switch (submission.mode()) {
-            case RUN, DIAGNOSE -> task.getTaskGroup().getDiagnoseDocument();
-            case SUBMIT -> task.getTaskGroup().getSubmitDocument();
-        };
+        XQLimits limits = this.settings.getLimits(submission.mode());
+        recording.setEngine(route.engine());
 
         // execute
-        String submissionResult;
-        String solutionResult;
-        try {
+        XQOutput submissionOutput;
+        long submissionNanos;
+        PreparedSolution solution;
+        SolutionCache.Key solutionKey = submission.mode() == SubmissionMode.RUN
+            ? null
+            : SolutionCache.key(task.getId(), task.getSolution(), task.getSorting(), xmlDocument, route.engine());
+        SolutionExecution solutionExecution = null;
+        try (var processor = recording.time(Stage.POOL, route.pool()::borrow)) {
+            // start solution on a second processor, so that it runs concurrently to the submission
+            if (solutionKey != null)
+                solutionExecution = this.startSolution(route.pool(), task, solutionKey, xmlDocument, limits, recording);
+
             // execute submission
             try {
-                submissionResult = this.processor.executeQuery(submission.submission().input(), xmlDocument);
+                long start = System.nanoTime();
+                submissionOutput = recording.time(Stage.SUBMISSION_QUERY, () -> processor.evaluate(submission.submission().input(), xmlDocument, limits));
+                submissionNanos = System.nanoTime() - start;
+            } catch (XQueryTimeoutException ex) {
+                LOG.warn("Query execution exceeded time limit", ex);
+                recording.setOutcome(Outcome.TIMEOUT);
+                criteria.add(new CriterionDto(
+                    this.messageSource.getMessage("criterium.syntax", null, locale),
+                    null,
+                    false,
+                    this.messageSource.getMessage("timeout", new Object[]{ex.getLimit().toSeconds()}, locale)));
+                return new GradingDto(task.getMaxPoints(), points, this.messageSource.getMessage("timeoutError", null, locale), criteria);
+            } catch (XQueryLimitException ex) {
+                LOG.warn("Query result exceeded limit", ex);
+                recording.setOutcome(Outcome.RESULT_LIMIT);
+                criteria.add(new CriterionDto(
+                    this.messageSource.getMessage("criterium.result", null, locale),
+                    null,
+                    false,
+                    this.messageSource.getMessage("resultLimit." + ex.getKind().name().toLowerCase(), new Object[]{ex.getLimit()}, locale)));
+                return new GradingDto(task.getMaxPoints(), points, this.messageSource.getMessage("resultLimitError", null, locale), criteria);
             } catch (InvalidDocumentLoadException ex) {
                 LOG.warn("Error while executing query because of invalid document load", ex);
+                recording.setOutcome(Outcome.INVALID_DOCUMENT);
                 criteria.add(new CriterionDto(
                     this.messageSource.getMessage("criterium.syntax", null, locale),
                     null,
@@ -99,6 +278,7 @@ public GradingDto evaluate(SubmitSubmissionDto<XQuerySubmissionDto> submission)
                 return new GradingDto(task.getMaxPoints(), points, this.messageSource.getMessage("syntaxError", null, locale), criteria);
             } catch (XQueryException ex) {
                 LOG.warn("Error while executing query", ex);
+                recording.setOutcome(Outcome.SYNTAX_ERROR);
                 String msg = ex.getMessage();
                 if (msg.contains("BaseXException"))
                     msg = msg.substring(msg.indexOf(',') + 1);
@@ -112,27 +292,53 @@ public GradingDto evaluate(SubmitSubmissionDto<XQuerySubmissionDto> submission)
             }
 
             // execute solution
-            if (submission.mode() == SubmissionMode.RUN) {
-                solutionResult = submissionResult;
+            if (solutionKey == null) {
+                solution = null;
             } else {
                 try {
-                    solutionResult = this.processor.executeQuery(task.getSolution(), xmlDocument);
+                    solution = solutionExecution != null
+                        ? solutionExecution.get()
+                        : this.solutionCache.get(solutionKey, () -> prepareSolution(processor, task, xmlDocument, limits, recording));
                 } catch (XQueryException ex) {
                     LOG.error("Error while executing query", ex);
                     throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not execute solution query.", ex);
                 }
             }
+        } catch (XQueryUnavailableException ex) {
+            LOG.warn("Rejected evaluation for task {} because no XQuery processor is available", task.getId());
+            recording.setOutcome(Outcome.UNAVAILABLE);
+            throw new EvaluationUnavailableException(ex.getTimeout(), ex);
+        } catch (AnalysisException ex) {
+            LOG.error("Could not analyze query result for task " + task.getId(), ex);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not analyze query result.", ex);
         } catch (Exception ex) {
+            var changed = DocumentChangedException.find(ex);
+            if (changed != null)
+                throw changed;
             LOG.error("Could not execute query for task " + task.getId(), ex);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not execute query.", ex);
+        } finally {
+            // the solution is not needed anymore if the submission failed
+            if (solutionExecution != null)
+                solutionExecution.cancel();
         }
 
         // analyze, grade, feedback
         try {
-            var analysis = new AnalysisImpl(new XQResult(submissionResult), new XQResult(solutionResult), task);
-            var grading = new XQueryGrading(task, analysis);
-            var report = new XQueryReport(this.messageSource, locale, submission.mode(), submission.feedbackLevel(), analysis, grading);
-            return new GradingDto(task.getMaxPoints(), grading.getPoints(), report.getGeneralFeedback(), report.getCriteria());
+            long start = System.nanoTime();
+            var submissionResult = recording.time(Stage.SUBMISSION_PARSE, () -> new XQResult(submissionOutput));
+            this.processorRouter.recordLatency(route, xmlDocument, submissionNanos + System.nanoTime() - start);
+            var analysis = recording.time(Stage.ANALYSIS, () -> solution == null
+                ? new AnalysisImpl(submissionResult, submissionResult.copy(), task)
+                : new AnalysisImpl(submissionResult, solution, task));
+            var grading = recording.time(Stage.GRADING, () -> new XQueryGrading(task, analysis));
+            var result = recording.time(Stage.REPORT, () -> {
+                var report = new XQueryReport(this.messageSource, locale, submission.mode(), submission.feedbackLevel(), analysis, grading, this.highlighter);
+                return new GradingDto(task.getMaxPoints(), grading.getPoints(), report.getGeneralFeedback(), report.getCriteria());
+            });
+            recording.recordResult(submissionResult);
+            recording.setOutcome(submission.mode() == SubmissionMode.RUN ? Outcome.EXECUTED : grading.isCorrect() ? Outcome.CORRECT : Outcome.INCORRECT);
+            return result;
         } catch (AnalysisException ex) {
             LOG.error("Could not analyze query result for task " + task.getId(), ex);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not analyze query result.", ex);
@@ -151,23 +357,39 @@ public GradingDto evaluate(SubmitSubmissionDto<XQuerySubmissionDto> submission)
      * @throws IllegalStateException   If the executor is not supported.
      */
     @Override
-    @Transactional
     public XQResult execute(long taskId, SubmissionMode mode, String query) {
         // find task
-        var task = this.taskRepository.findByIdWithTaskGroup(taskId)
+        var task = this.taskRepository.findForEvaluation(taskId)
+            .map(EvaluationTask::toTask)
             .orElseThrow(() -> new EntityNotFoundException("Task " + taskId + " does not exist."));
 
-        // prepare
         LOG.info("Executing query for task {} with mode {}", taskId, mode);
-        String xmlDocument = switch (mode) {
-            case RUN, DIAGNOSE -> task.getTaskGroup().getDiagnoseDocument();
-            case SUBMIT -> task.getTaskGroup().getSubmitDocument();
-        };
+        try {
+            return this.execute(task, mode, query);
+        } catch (DocumentChangedException ex) {
+            LOG.info("Document of task group {} has been changed, executing query for task {} again", task.getTaskGroup().getId(), taskId);
+            return this.execute(this.reload(task), mode, query);
+        }
+    }
+
+    /**
+     * Executes a query on the task group document of the version the task has been loaded with.
+     *
+     * @param task  The task including its task group.
+     * @param mode  The execution mode.
+     * @param query The query to execute.
+     * @return The query result.
+     * @throws DocumentChangedException If the document of the task group has been changed since the task was loaded.
+     */
+    private XQResult execute(XQueryTask task, SubmissionMode mode, String query) {
+        // prepare
+        XQDocument xmlDocument = this.getDocument(task, mode);
 
         // execute
-        try {
+        var route = this.processorRouter.route(xmlDocument, task.getTaskGroup().getExecutor());
+        try (var processor = route.pool().borrow()) {
             try {
-                return new XQResult(this.processor.executeQuery(query, xmlDocument));
+                return new XQResult(processor.evaluate(query, xmlDocument, this.settings.getLimits(mode)));
             } catch (InvalidDocumentLoadException ex) {
                 LOG.warn("Error while executing query because of invalid document load", ex);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, this.messageSource.getMessage("invalidDocument", null, Locale.ENGLISH));
@@ -175,14 +397,239 @@ public XQResult execute(long taskId, SubmissionMode mode, String query) {
                 LOG.warn("Error while executing query", ex);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
             }
+        } catch (XQueryUnavailableException ex) {
+            LOG.warn("Rejected query execution for task {} because no XQuery processor is available", task.getId());
+            throw new EvaluationUnavailableException(ex.getTimeout(), ex);
         } catch (Exception ex) {
+            var changed = DocumentChangedException.find(ex);
+            if (changed != null)
+                throw changed;
             LOG.error("Could not execute query for task " + task.getId(), ex);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not execute query.", ex);
         }
     }
 
+    /**
+     * Prepares the evaluation of submissions for the specified task by caching its solutions for both task group documents.
+     * <p>
+     * Executing the solution loads the document into the document store of the processor; preparing the solution creates
+     * the DTD, the validator and the subtree index. Metrics of the warm-up are not published.
+     *
+     * @param task The task including its task group.
+     * @throws XQueryException   If the solution query could not be executed.
+     * @throws AnalysisException If the solution result could not be prepared.
+     */
     @Override
-    public void close() throws Exception {
-        this.processor.close();
+    public void warmUp(XQueryTask task) throws XQueryException, AnalysisException {
+        for (SubmissionMode mode : List.of(SubmissionMode.DIAGNOSE, SubmissionMode.SUBMIT)) {
+            XQDocument xmlDocument = this.getDocument(task, mode);
+            XQLimits limits = this.settings.getLimits(mode);
+            var route = this.processorRouter.route(xmlDocument, task.getTaskGroup().getExecutor());
+            var key = SolutionCache.key(task.getId(), task.getSolution(), task.getSorting(), xmlDocument, route.engine());
+            if (this.solutionCache.contains(key))
+                continue;
+
+            try (var processor = route.pool().borrow(); var recording = this.metrics.startWarmUp(task.getId())) {
+                this.solutionCache.get(key, () -> prepareSolution(processor, task, xmlDocument, limits, recording));
+            }
+        }
+    }
+
+    /**
+     * Stops the threads executing solution queries.
+     */
+    @Override
+    public void close() {
+        this.solutionExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts the execution of the solution query on a second processor.
+     *
+     * @param pool      The pool of the engine executing the submission.
+     * @param task      The task.
+     * @param key       The cache key of the solution.
+     * @param document  The XML document.
+     * @param limits    The limits of the execution.
+     * @param recording The recording of the evaluation metrics.
+     * @return The running execution or {@code null} if the solution is already cached or no processor is available without waiting.
+     */
+    private SolutionExecution startSolution(XQProcessorPool pool, XQueryTask task, SolutionCache.Key key, XQDocument document, XQLimits limits, EvaluationMetrics.Recording recording) {
+        if (this.solutionCache.contains(key))
+            return null;
+
+        var lease = pool.tryBorrow();
+        if (lease == null)
+            return null;
+
+        var cancellation = new XQCancellation();
+        var solutionLimits = limits.withCancellation(cancellation);
+        try {
+            var future = CompletableFuture.supplyAsync(() -> {
+                try (lease) {
+                    return this.solutionCache.get(key, () -> prepareSolution(lease, task, document, solutionLimits, recording));
+                } catch (XQueryException | AnalysisException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, this.solutionExecutor);
+            return new SolutionExecution(future, cancellation);
+        } catch (RejectedExecutionException ex) {
+            lease.close();
+            return null;
+        }
+    }
+
+    /**
+     * Executes the solution query and prepares its result for the analysis.
+     *
+     * @param processor The processor.
+     * @param task      The task.
+     * @param document  The XML document.
+     * @param limits    The limits of the execution.
+     * @param recording The recording of the evaluation metrics.
+     * @return The prepared solution.
+     * @throws XQueryException   If the solution query could not be executed.
+     * @throws AnalysisException If the solution result could not be prepared.
+     */
+    private static PreparedSolution prepareSolution(XQProcessorPool.Lease processor, XQueryTask task, XQDocument document, XQLimits limits,
+                                                    EvaluationMetrics.Recording recording) throws XQueryException, AnalysisException {
+        var output = recording.time(Stage.SOLUTION_QUERY, () -> processor.evaluate(task.getSolution(), document, limits, true));
+        var result = recording.time(Stage.SOLUTION_PARSE, () -> new XQResult(output));
+        if (result.getParseException() == null) {
+            recording.time(Stage.SOLUTION_DTD, () -> {
+                result.getDTD();
+                return result.getDTDValidator();
+            });
+        }
+        return new PreparedSolution(result, task.getSorting());
+    }
+
+    /**
+     * Returns the task group document used for the specified submission mode.
+     * <p>
+     * The document version is identified by the stored hash; the content is only read if the document is not stored
+     * in the document store yet.
+     *
+     * @param task The task.
+     * @param mode The submission mode.
+     * @return The XML document.
+     */
+    private XQDocument getDocument(XQueryTask task, SubmissionMode mode) {
+        var type = XQDocument.Type.of(mode);
+        var taskGroup = task.getTaskGroup();
+        String hash = type == XQDocument.Type.SUBMIT ? taskGroup.getSubmitDocumentHash() : taskGroup.getDiagnoseDocumentHash();
+        return this.processorRouter.document(taskGroup.getId(), type, hash, () -> this.loadDocument(taskGroup, type, hash));
+    }
+
+    /**
+     * Returns the content of the task group document, loading it from the database if the task group has been loaded
+     * without documents.
+     *
+     * @param taskGroup The task group.
+     * @param type      The document type.
+     * @param hash      The hash of the document version.
+     * @return The XML content.
+     * @throws DocumentChangedException If the document has been changed since the task was loaded.
+     */
+    private String loadDocument(XQueryTaskGroup taskGroup, XQDocument.Type type, String hash) {
+        String content = type == XQDocument.Type.SUBMIT ? taskGroup.getSubmitDocument() : taskGroup.getDiagnoseDocument();
+        if (content != null)
+            return content;
+
+        LOG.debug("Loading {} document of task group {}", type.name().toLowerCase(), taskGroup.getId());
+        var document = type == XQDocument.Type.SUBMIT ?
+            this.taskGroupRepository.findSubmitDocument(taskGroup.getId(), hash) :
+            this.taskGroupRepository.findDiagnoseDocument(taskGroup.getId(), hash);
+        return document.orElseThrow(() -> new DocumentChangedException("Document of task group " + taskGroup.getId() + " has been changed."));
+    }
+
+    /**
+     * Reloads the task, e.g. because a document of its task group has been changed since the task was loaded.
+     *
+     * @param task The task.
+     * @return The current version of the task.
+     * @throws EntityNotFoundException If the task does not exist anymore.
+     */
+    private XQueryTask reload(XQueryTask task) {
+        return this.taskRepository.findForEvaluation(task.getId())
+            .map(EvaluationTask::toTask)
+            .orElseThrow(() -> new EntityNotFoundException("Task " + task.getId() + " does not exist."));
+    }
+
+    /**
+     * Thrown to indicate that a task group document is not available in the version the task has been loaded with.
+     * <p>
+     * The document store removes the previous version of a document once the task group has been changed, so executions
+     * which have to load the document again after the change cannot use the version the task has been loaded with.
+     */
+    private static class DocumentChangedException extends IllegalStateException {
+        /**
+         * Creates a new instance of class {@link DocumentChangedException}.
+         *
+         * @param message The detail message.
+         */
+        DocumentChangedException(String message) {
+            super(message);
+        }
+
+        /**
+         * Returns the exception if the specified exception has been caused by a changed document.
+         *
+         * @param ex The exception.
+         * @return The exception indicating the changed document or {@code null} if the exception has another cause.
+         */
+        static DocumentChangedException find(Throwable ex) {
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof DocumentChangedException changed)
+                    return changed;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A solution query executed concurrently to the submission query.
+     *
+     * @param future       The prepared solution.
+     * @param cancellation The cancellation of the execution.
+     */
+    private record SolutionExecution(CompletableFuture<PreparedSolution> future, XQCancellation cancellation) {
+        /**
+         * Waits for the prepared solution.
+         *
+         * @return The prepared solution.
+         * @throws XQueryException   If the solution query could not be executed.
+         * @throws AnalysisException If the solution result could not be prepared.
+         */
+        PreparedSolution get() throws XQueryException, AnalysisException {
+            try {
+                return this.future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof XQueryException cause)
+                    throw cause;
+                if (ex.getCause() instanceof AnalysisException cause)
+                    throw cause;
+                if (ex.getCause() instanceof RuntimeException cause)
+                    throw cause;
+                throw ex;
+            }
+        }
+
+        /**
+         * Cancels the execution if it has not completed yet.
+         */
+        void cancel() {
+            if (!this.future.isDone())
+                this.cancellation.cancel();
+        }
+    }
+
+    /**
+     * An evaluation result and its outcome.
+     *
+     * @param grading The evaluation result.
+     * @param outcome The outcome or {@code null} if unknown.
+     */
+    private record GradingOutcome(GradingDto grading, Outcome outcome) {
     }
 }
@@ -0,0 +1,49 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Thrown to indicate that an evaluation has been rejected because all XQuery processors are busy.
+ * <p>
+ * The exception results in status {@code 503} including a {@code Retry-After} header, so clients retry the
+ * evaluation once the load has decreased instead of treating it as an internal error.
+ */
+public class EvaluationUnavailableException extends ResponseStatusException {
+    private final Duration retryAfter;
+
+    /**
+     * Creates a new instance of class {@link EvaluationUnavailableException}.
+     *
+     * @param retryAfter The duration after which the client should retry the evaluation.
+     * @param cause      The cause of the exception.
+     */
+    public EvaluationUnavailableException(Duration retryAfter, Throwable cause) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "No XQuery processor available, please try again later.", cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns the duration after which the client should retry the evaluation.
+     *
+     * @return The retry duration.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Returns the headers of the response containing the {@code Retry-After} header in seconds.
+     *
+     * @return The response headers.
+     */
+    @Override
+    public HttpHeaders getHeaders() {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, this.retryAfter.toSeconds())));
+        return headers;
+    }
+}
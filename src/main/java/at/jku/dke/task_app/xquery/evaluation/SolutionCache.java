@@ -0,0 +1,224 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.analysis.PreparedSolution;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryCancelledException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Caches the prepared solutions of tasks, so that solution queries do not have to be executed and analyzed for every submission.
+ * <p>
+ * Entries are keyed by task, document type and document version and evicted in least-recently-used order if the maximum size is exceeded.
+ * Concurrent requests for the same entry wait for a single computation.
+ */
+@Component
+public class SolutionCache {
+    private static final Logger LOG = LoggerFactory.getLogger(SolutionCache.class);
+
+    private final int maxSize;
+    private final Map<Key, CompletableFuture<PreparedSolution>> entries;
+
+    /**
+     * Creates a new instance of class {@link SolutionCache}.
+     *
+     * @param settings The XQuery settings.
+     */
+    @Autowired
+    public SolutionCache(XQuerySettings settings) {
+        this(settings.solutionCacheSize());
+    }
+
+    /**
+     * Creates a new instance of class {@link SolutionCache}.
+     *
+     * @param maxSize The maximum number of cached solutions (0 disables caching).
+     */
+    public SolutionCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<PreparedSolution>> eldest) {
+                return this.size() > SolutionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached solution or loads it using the given loader.
+     * <p>
+     * If the loading of a concurrent request is cancelled, the solution is loaded again using the given loader.
+     *
+     * @param key    The cache key.
+     * @param loader The loader executing and preparing the solution.
+     * @return The prepared solution.
+     * @throws XQueryException   If the solution query could not be executed.
+     * @throws AnalysisException If the solution result could not be prepared.
+     */
+    public PreparedSolution get(Key key, Loader loader) throws XQueryException, AnalysisException {
+        if (this.maxSize <= 0)
+            return loader.load();
+
+        while (true) {
+            CompletableFuture<PreparedSolution> future;
+            boolean owner = false;
+            synchronized (this.entries) {
+                future = this.entries.get(key);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    this.entries.put(key, future);
+                    owner = true;
+                }
+            }
+
+            if (owner) {
+                try {
+                    LOG.debug("Preparing solution for {}", key);
+                    future.complete(loader.load());
+                } catch (XQueryException | AnalysisException | RuntimeException ex) {
+                    this.remove(key, future);
+                    future.completeExceptionally(ex);
+                    throw ex;
+                }
+            }
+
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof XQueryCancelledException)
+                    continue; // the owner does not need the solution anymore
+                if (ex.getCause() instanceof XQueryException cause)
+                    throw cause;
+                if (ex.getCause() instanceof AnalysisException cause)
+                    throw cause;
+                if (ex.getCause() instanceof RuntimeException cause)
+                    throw cause;
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the solution is cached or currently loaded by another request.
+     *
+     * @param key The cache key.
+     * @return {@code true} if {@link #get(Key, Loader)} will not invoke the loader unless the cached loading fails; otherwise {@code false}.
+     */
+    public boolean contains(Key key) {
+        if (this.maxSize <= 0)
+            return false;
+        synchronized (this.entries) {
+            return this.entries.containsKey(key);
+        }
+    }
+
+    /**
+     * Removes all cached solutions of the specified task.
+     *
+     * @param taskId The task identifier.
+     */
+    public void invalidateTask(long taskId) {
+        LOG.debug("Invalidating cached solutions of task {}", taskId);
+        synchronized (this.entries) {
+            this.entries.keySet().removeIf(k -> k.taskId() == taskId);
+        }
+    }
+
+    /**
+     * Removes all cached solutions of tasks of the specified task group.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    public void invalidateTaskGroup(long taskGroupId) {
+        LOG.debug("Invalidating cached solutions of task group {}", taskGroupId);
+        synchronized (this.entries) {
+            this.entries.keySet().removeIf(k -> k.taskGroupId() == taskGroupId);
+        }
+    }
+
+    /**
+     * Returns the number of cached solutions.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    private void remove(Key key, CompletableFuture<PreparedSolution> future) {
+        synchronized (this.entries) {
+            this.entries.remove(key, future);
+        }
+    }
+
+    /**
+     * Creates the cache key for a solution.
+     *
+     * @param taskId   The task identifier.
+     * @param solution The solution query.
+     * @param sorting  The sorting expressions.
+     * @param document The document the solution is executed on.
+     * @return The cache key.
+     */
+    public static Key key(long taskId, String solution, List<String> sorting, XQDocument document) {
+        return key(taskId, solution, sorting, document, null);
+    }
+
+    /**
+     * Creates the cache key for a solution executed by the specified engine.
+     * <p>
+     * The engines serialize results differently, so solutions are only compared with submissions executed by the same engine.
+     *
+     * @param taskId   The task identifier.
+     * @param solution The solution query.
+     * @param sorting  The sorting expressions.
+     * @param document The document the solution is executed on.
+     * @param engine   The engine executing the solution.
+     * @return The cache key.
+     */
+    public static Key key(long taskId, String solution, List<String> sorting, XQDocument document, String engine) {
+        String solutionHash = XQDocument.hash(solution + '\n' + (sorting == null ? "" : String.join("\n", sorting)));
+        return new Key(taskId, document.taskGroupId(), document.type(), document.hash(), solutionHash, engine);
+    }
+
+    /**
+     * The key of a cached solution.
+     *
+     * @param taskId       The task identifier.
+     * @param taskGroupId  The task group identifier.
+     * @param type         The document type.
+     * @param documentHash The hash of the document (i.e. the document version).
+     * @param solutionHash The hash of the solution query and sorting expressions.
+     * @param engine       The engine executing the solution.
+     */
+    public record Key(long taskId, long taskGroupId, XQDocument.Type type, String documentHash, String solutionHash, String engine) {
+    }
+
+    /**
+     * Loads a solution.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Executes the solution query and prepares the result.
+         *
+         * @return The prepared solution.
+         * @throws XQueryException   If the solution query could not be executed.
+         * @throws AnalysisException If the solution result could not be prepared.
+         */
+        PreparedSolution load() throws XQueryException, AnalysisException;
+    }
+}
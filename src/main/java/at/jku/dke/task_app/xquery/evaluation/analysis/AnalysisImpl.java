@@ -9,21 +9,9 @@
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-import org.xmlunit.builder.DiffBuilder;
-import org.xmlunit.builder.Input;
-import org.xmlunit.diff.*;
-
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.xpath.*;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -37,6 +25,7 @@ public class AnalysisImpl implements Analysis {
     private final XQResult submissionResult;
     private final XQResult solutionResult;
     private final XQueryTask task;
+    private final PreparedSolution solution;
     private final List<String> sorting;
 
     private boolean schemaValid;
@@ -60,15 +49,41 @@ public class AnalysisImpl implements Analysis {
      * @throws AnalysisException    If an error occurs during analysis.
      */
     public AnalysisImpl(XQResult submissionResult, XQResult solutionResult, XQueryTask task) throws AnalysisException {
+        this(submissionResult, solutionResult, new PreparedSolution(Objects.requireNonNull(solutionResult), task == null ? null : task.getSorting()), task);
+    }
+
+    /**
+     * Creates a new instance of class {@link AnalysisImpl} and analyzes the results.
+     *
+     * @param submissionResult The result of the submission.
+     * @param solution         The prepared solution (e.g. from a cache).
+     * @param task             The task that is checked.
+     * @throws NullPointerException If {@code submissionResult} or {@code solution} is {@code null}.
+     * @throws AnalysisException    If an error occurs during analysis.
+     */
+    public AnalysisImpl(XQResult submissionResult, PreparedSolution solution, XQueryTask task) throws AnalysisException {
+        this(submissionResult, Objects.requireNonNull(solution).newResult(), solution, task);
+    }
+
+    /**
+     * Creates a new instance of class {@link AnalysisImpl} and analyzes the results.
+     *
+     * @param submissionResult The result of the submission.
+     * @param solutionResult   The result of the solution exclusively used by this analysis.
+     * @param solution         The prepared solution.
+     * @param task             The task that is checked.
+     * @throws AnalysisException If an error occurs during analysis.
+     */
+    private AnalysisImpl(XQResult submissionResult, XQResult solutionResult, PreparedSolution solution, XQueryTask task) throws AnalysisException {
         Objects.requireNonNull(submissionResult);
         Objects.requireNonNull(solutionResult);
 
         this.submissionResult = submissionResult;
         this.solutionResult = solutionResult;
+        this.solution = solution;
         this.schemaValid = false;
         this.task = task;
-        this.sorting = task == null || task.getSorting() == null ? List.of() : task.getSorting();
-        this.validateSortingExpressions();
+        this.sorting = solution.getSorting();
         this.analyze();
     }
 
@@ -249,50 +264,16 @@ private void analyze() throws AnalysisException {
      * @throws RuntimeException If the submission result could not be validated against the solution DTD.
      */
     private boolean analyzeStructure() throws AnalysisException {
-        // Convert result doc to string
-        String xml = this.submissionResult.getResultDocumentRaw();
-
-        // Read DTD
-        String dtd;
-        try {
-            dtd = Files.readString(this.solutionResult.getDTDFile());
-        } catch (IOException ex) {
-            LOG.error("Could not read solution DTD.", ex);
-            throw new AnalysisException("A fatal error occurred when reading the DTD file.", ex);
+        // The submission must be well-formed to be validated
+        if (this.submissionResult.getParseException() != null) {
+            LOG.error("Could not validate submission result against solution DTD.", this.submissionResult.getParseException());
+            throw new AnalysisException("A fatal error occurred when parsing the XML document against a DTD.", this.submissionResult.getParseException());
         }
 
-        // Build XML again and validate against DTD
-        List<SAXParseException> errors = new ArrayList<>();
-        try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setValidating(true);
-            var builder = domFactory.newDocumentBuilder();
-            builder.setErrorHandler(new ErrorHandler() {
-                @Override
-                public void warning(SAXParseException exception) {
-                    LOG.debug("DTD Validation Warning: {}", exception.toString());
-                    errors.add(exception);
-                }
-
-                @Override
-                public void error(SAXParseException exception) {
-                    LOG.debug("DTD Validation Error: {}", exception.toString());
-                    errors.add(exception);
-                }
-
-                @Override
-                public void fatalError(SAXParseException exception) {
-                    LOG.debug("DTD Validation Fatal Error: {}", exception.toString());
-                    errors.add(exception);
-                }
-            });
-            String tmp = "<!DOCTYPE " + XQResult.XML_ROOT + " [" + System.lineSeparator() + dtd + System.lineSeparator() + "]>" + System.lineSeparator() + xml;
-            builder.parse(new ByteArrayInputStream(tmp.getBytes(StandardCharsets.UTF_8)));
-            return errors.isEmpty();
-        } catch (ParserConfigurationException | IOException | SAXException ex) {
-            LOG.error("Could not validate submission result against solution DTD.", ex);
-            throw new AnalysisException("A fatal error occurred when parsing the XML document against a DTD.", ex);
-        }
+        // Validate parsed submission against the compiled solution DTD
+        List<String> errors = this.solutionResult.getDTDValidator().validate(this.submissionResult.getResultDocument());
+        errors.forEach(error -> LOG.debug("DTD Validation Error: {}", error));
+        return errors.isEmpty();
     }
 
     /**
@@ -304,58 +285,15 @@ private void compare() throws AnalysisException {
         if (this.solutionResult.getResultDocument() == null || this.submissionResult.getResultDocument() == null)
             return; // cannot compare if not both are valid XML documents
 
-        // init lists
-        this.missingNodes = new ArrayList<>();
-        this.superfluousNodes = new ArrayList<>();
-        this.missingAttributes = new ArrayList<>();
-        this.superfluousAttributes = new ArrayList<>();
-        this.incorrectAttributeValues = new ArrayList<>();
-        this.incorrectTextValues = new ArrayList<>();
-        this.displacedNodes = new ArrayList<>();
-
         // analyze
-        Diff docDiff = DiffBuilder.compare(Input.fromDocument(this.solutionResult.getResultDocument()))
-            .withTest(Input.fromDocument(this.submissionResult.getResultDocument()))
-            .withNodeMatcher(new DefaultNodeMatcher(ElementSelectors.byNameAndText, ElementSelectors.byName))
-            .withDifferenceEvaluator(new BruteForceDifferenceEvaluator())
-            .ignoreComments()
-            .ignoreWhitespace()
-            .normalizeWhitespace()
-            .checkForSimilar()
-            .build();
-        for (var diff : docDiff.getDifferences()) {
-            var comparison = diff.getComparison();
-            var submissionDetails = comparison.getTestDetails();
-            var solutionDetails = comparison.getControlDetails();
-            switch (comparison.getType()) {
-                case ATTR_VALUE -> this.handleWrongAttributeValue(submissionDetails, solutionDetails);
-                case TEXT_VALUE -> this.handleWrongTextValue(submissionDetails, solutionDetails);
-                case CHILD_LOOKUP -> this.handleChildLookup(submissionDetails, solutionDetails);
-                case ATTR_NAME_LOOKUP -> this.handleAttributeLookup(submissionDetails, solutionDetails);
-            }
-        }
-
-        if (!this.incorrectAttributeValues.isEmpty()) { // try again with different matcher, if there are no matches, then only wrong sorting
-            docDiff = DiffBuilder.compare(Input.fromDocument(this.solutionResult.getResultDocument()))
-                .withTest(Input.fromDocument(this.submissionResult.getResultDocument()))
-                .withNodeMatcher(new DefaultNodeMatcher(ElementSelectors.byNameAndAllAttributes, ElementSelectors.byNameAndText, ElementSelectors.byName))
-                .withDifferenceEvaluator(new BruteForceDifferenceEvaluator())
-                .ignoreComments()
-                .ignoreWhitespace()
-                .normalizeWhitespace()
-                .checkForSimilar()
-                .build();
-            boolean found = false;
-            for (var diff : docDiff.getDifferences()) {
-                var comparison = diff.getComparison();
-                if (comparison.getType() == ComparisonType.ATTR_VALUE) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found)
-                this.incorrectAttributeValues.clear();
-        }
+        var diff = new DiffEngine(this.solutionResult.getSubtreeIndex(), this.submissionResult.getSubtreeIndex());
+        this.missingNodes = diff.getMissingNodes();
+        this.superfluousNodes = diff.getSuperfluousNodes();
+        this.missingAttributes = diff.getMissingAttributes();
+        this.superfluousAttributes = diff.getSuperfluousAttributes();
+        this.incorrectAttributeValues = diff.getIncorrectAttributeValues();
+        this.incorrectTextValues = diff.getIncorrectTextValues();
+        this.displacedNodes = new ArrayList<>();
 
         this.checkSorting();
 
@@ -386,71 +324,6 @@ private void compare() throws AnalysisException {
         }
     }
 
-    //#region --- Difference handlers ---
-
-    /**
-     * Handles wrong attribute values.
-     *
-     * @param submissionDetails The comparison details for the submission result.
-     * @param solutionDetails   The comparison details for the solution result.
-     * @see #getIncorrectAttributeValues()
-     */
-    private void handleWrongAttributeValue(Comparison.Detail submissionDetails, Comparison.Detail solutionDetails) {
-        this.incorrectAttributeValues.add(new IncorrectAttributeValueModel(submissionDetails.getParentXPath(), submissionDetails.getTarget().getNodeName(), solutionDetails.getValue().toString()));
-    }
-
-    /**
-     * Handles wrong text values.
-     *
-     * @param submissionDetails The comparison details for the submission result.
-     * @param solutionDetails   The comparison details for the solution result.
-     * @see #getIncorrectTextValues()
-     */
-    private void handleWrongTextValue(Comparison.Detail submissionDetails, Comparison.Detail solutionDetails) {
-        this.incorrectTextValues.add(new IncorrectTextValueModel(submissionDetails.getParentXPath(), solutionDetails.getValue().toString()));
-    }
-
-    /**
-     * Handles child lookup.
-     *
-     * @param submissionDetails The comparison details for the submission result.
-     * @param solutionDetails   The comparison details for the solution result.
-     * @see #getIncorrectTextValues()
-     * @see #getMissingNodes()
-     * @see #getSuperfluousNodes()
-     */
-    private void handleChildLookup(Comparison.Detail submissionDetails, Comparison.Detail solutionDetails) {
-        if (submissionDetails.getTarget() == null) { // missing node
-            if (solutionDetails.getTarget().getNodeType() == Node.TEXT_NODE)
-                this.incorrectTextValues.add(new IncorrectTextValueModel(submissionDetails.getParentXPath(), solutionDetails.getTarget().getNodeValue()));
-            else
-                this.missingNodes.add(new NodeModel(submissionDetails.getParentXPath(), solutionDetails.getValue().toString()));
-        } else if (solutionDetails.getTarget() == null) { // superfluous node
-            if (submissionDetails.getTarget().getNodeType() == Node.TEXT_NODE)
-                this.incorrectTextValues.add(new IncorrectTextValueModel(submissionDetails.getParentXPath(), ""));
-            else
-                this.superfluousNodes.add(new NodeModel(submissionDetails.getParentXPath(), submissionDetails.getValue().toString()));
-        }
-    }
-
-    /**
-     * Handles missing or superfluous attributes.
-     *
-     * @param submissionDetails The comparison details for the submission result.
-     * @param solutionDetails   The comparison details for the solution result.
-     * @see #getMissingAttributes()
-     * @see #getSuperfluousAttributes()
-     */
-    private void handleAttributeLookup(Comparison.Detail submissionDetails, Comparison.Detail solutionDetails) {
-        if (submissionDetails.getValue() == null) { // missing attribute
-            this.missingAttributes.add(new AttributeModel(submissionDetails.getXPath(), solutionDetails.getValue().toString(), solutionDetails.getTarget().getAttributes().getNamedItem(solutionDetails.getValue().toString()).getNodeValue()));
-        } else if (solutionDetails.getValue() == null) { // superfluous attribute
-            this.superfluousAttributes.add(new AttributeModel(submissionDetails.getParentXPath(), submissionDetails.getValue().toString(), submissionDetails.getTarget().getAttributes().getNamedItem(submissionDetails.getValue().toString()).getNodeValue()));
-        }
-    }
-
-    //#endregion
-
     /**
      * Checks the sorting of the result elements.
      *
@@ -462,11 +335,10 @@ private void checkSorting() throws AnalysisException {
             return;
 
         try {
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            for (String expression : this.sorting) {
-                XPathExpression xExpr = xpath.compile(expression);
-                NodeList submissionList = (NodeList) xExpr.evaluate(this.getSubmissionResult().getResultDocument(), XPathConstants.NODESET);
-                NodeList solutionList = (NodeList) xExpr.evaluate(this.getSolutionResult().getResultDocument(), XPathConstants.NODESET);
+            for (int index = 0; index < this.sorting.size(); index++) {
+                String expression = this.sorting.get(index);
+                NodeList submissionList = this.solution.evaluateSortingExpression(index, this.getSubmissionResult().getResultDocument());
+                NodeList solutionList = this.solution.evaluateSortingExpression(index, this.getSolutionResult().getResultDocument());
 
                 if (submissionList.getLength() != solutionList.getLength())
                     continue; // do not check, something else is wrong
@@ -475,7 +347,8 @@ private void checkSorting() throws AnalysisException {
                     Node submissionNode = submissionList.item(i);
                     Node solutionNode = solutionList.item(i);
 
-                    if (!submissionNode.isEqualNode(solutionNode) && !submissionNode.getNodeName().equals("xquery-result")) {
+                    // results may differ in indentation depending on how they have been built, so whitespace is normalized
+                    if (!submissionNode.getNodeName().equals("xquery-result") && !SubtreeIndex.isEqualNode(submissionNode, solutionNode)) {
                         this.displacedNodes.add(new NodeModel(expression, buildXPath(submissionNode)));
                     }
                 }
@@ -525,25 +398,4 @@ private static String buildXPath(Node xpathNode) {
 
         return '/' + String.join("/", elements.reversed());
     }
-
-    /**
-     * Validates the sorting XPath expressions against the solution.
-     *
-     * @throws AnalysisException If an expression is invalid.
-     */
-    private void validateSortingExpressions() throws AnalysisException {
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        for (String expression : this.sorting) {
-            try {
-                XPathExpression xExpr = xpath.compile(expression);
-                NodeList solutionList = (NodeList) xExpr.evaluate(this.getSolutionResult().getResultDocument(), XPathConstants.NODESET);
-
-                if (solutionList.getLength() == 0)
-                    throw new AnalysisException("The sorting expression '" + expression + "' does not match any nodes in the solution result.");
-            } catch (XPathExpressionException ex) {
-                LOG.error("Could not compile XPath expression: " + expression, ex);
-                throw new AnalysisException("A fatal error occurred while compiling XPath expression: " + expression, ex);
-            }
-        }
-    }
 }
@@ -0,0 +1,157 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.ext.LexicalHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds the result document from the SAX events of an XQuery result.
+ * <p>
+ * The events are appended to the {@link XQResult#XML_ROOT root element}. The created document equals the document
+ * created by a parser that is not namespace-aware from the serialized result: namespace declarations are added as
+ * attributes, nodes are named by their qualified names and adjacent text is merged into a single node.
+ */
+final class DOMBuilder implements ContentHandler, LexicalHandler {
+    private final Document document;
+    private final StringBuilder text;
+    private final List<String[]> prefixMappings;
+    private Node current;
+
+    /**
+     * Creates a new instance of class {@link DOMBuilder}.
+     *
+     * @param document The empty document to build.
+     */
+    DOMBuilder(Document document) {
+        this.document = Objects.requireNonNull(document);
+        this.text = new StringBuilder(System.lineSeparator());
+        this.prefixMappings = new ArrayList<>();
+        this.current = document.appendChild(document.createElement(XQResult.XML_ROOT));
+    }
+
+    /**
+     * Completes the root element and returns the document.
+     *
+     * @return The built document.
+     */
+    Document finish() {
+        this.text.append(System.lineSeparator());
+        this.flushText();
+        return this.document;
+    }
+
+    //#region --- ContentHandler ---
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+    }
+
+    @Override
+    public void startDocument() {
+    }
+
+    @Override
+    public void endDocument() {
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+        this.prefixMappings.add(new String[]{prefix, uri});
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) {
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) {
+        this.flushText();
+        Element element = this.document.createElement(qName);
+        for (String[] mapping : this.prefixMappings)
+            element.setAttribute(mapping[0].isEmpty() ? "xmlns" : "xmlns:" + mapping[0], mapping[1]);
+        this.prefixMappings.clear();
+        for (int i = 0; i < atts.getLength(); i++)
+            element.setAttribute(atts.getQName(i), atts.getValue(i));
+        this.current = this.current.appendChild(element);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        this.flushText();
+        this.current = this.current.getParentNode();
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        this.text.append(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+        this.text.append(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) {
+        this.flushText();
+        this.current.appendChild(this.document.createProcessingInstruction(target, data));
+    }
+
+    @Override
+    public void skippedEntity(String name) {
+    }
+
+    //#endregion
+
+    //#region --- LexicalHandler ---
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId) {
+    }
+
+    @Override
+    public void endDTD() {
+    }
+
+    @Override
+    public void startEntity(String name) {
+    }
+
+    @Override
+    public void endEntity(String name) {
+    }
+
+    @Override
+    public void startCDATA() {
+    }
+
+    @Override
+    public void endCDATA() {
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) {
+        this.flushText();
+        this.current.appendChild(this.document.createComment(new String(ch, start, length)));
+    }
+
+    //#endregion
+
+    /**
+     * Appends the collected text to the current node.
+     */
+    private void flushText() {
+        if (this.text.isEmpty())
+            return;
+        this.current.appendChild(this.document.createTextNode(this.text.toString()));
+        this.text.setLength(0);
+    }
+}
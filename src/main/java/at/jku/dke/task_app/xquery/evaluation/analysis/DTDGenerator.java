@@ -1,11 +1,15 @@
 // Downloaded from: https://saxon.sourceforge.net/saxon6.5.3/dtdgen.html
 package at.jku.dke.task_app.xquery.evaluation.analysis;
 
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -91,10 +95,7 @@ public DTDGenerator() {
 
     public void run(String filename) {
         try {
-            InputSource is = new InputSource(new File(filename).toURI().toURL().toString());
-            XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
-            parser.setContentHandler(this);
-            parser.parse(is);
+            run(new InputSource(new File(filename).toURI().toURL().toString()));
         } catch (java.io.FileNotFoundException nf) {
             System.err.println("File " + filename + " not found");
         } catch (Exception err) {
@@ -105,6 +106,70 @@ public void run(String filename) {
         }
     }
 
+    /**
+     * Analyses the document read from the given input source.
+     *
+     * @param is The input source
+     * @throws IOException  If the input could not be read
+     * @throws SAXException If the input could not be parsed
+     */
+
+    public void run(InputSource is) throws IOException, SAXException {
+        try {
+            XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+            parser.setContentHandler(this);
+            parser.parse(is);
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * Analyses an in-memory document by walking the tree and reporting
+     * the same events a SAX parser would report for the serialized document.
+     *
+     * @param node The document or element node to analyse
+     */
+
+    public void run(Node node) {
+        try {
+            walk(node);
+        } catch (SAXException e) {
+            throw new IllegalStateException(e); // never thrown by this handler
+        }
+    }
+
+    private void walk(Node node) throws SAXException {
+        switch (node.getNodeType()) {
+            case Node.DOCUMENT_NODE:
+            case Node.DOCUMENT_FRAGMENT_NODE:
+            case Node.ENTITY_REFERENCE_NODE:
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+                    walk(child);
+                break;
+            case Node.ELEMENT_NODE:
+                String name = node.getNodeName();
+                AttributesImpl atts = new AttributesImpl();
+                NamedNodeMap domAtts = node.getAttributes();
+                for (int i = 0; i < domAtts.getLength(); i++) {
+                    Node att = domAtts.item(i);
+                    atts.addAttribute("", "", att.getNodeName(), "CDATA", att.getNodeValue());
+                }
+                startElement("", "", name, atts);
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+                    walk(child);
+                endElement("", "", name);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                char[] ch = node.getNodeValue().toCharArray();
+                characters(ch, 0, ch.length);
+                break;
+            default:
+                // comments and processing instructions do not contribute to the DTD
+        }
+    }
+
 
     /**
      * Test whether a string is an XML name.
@@ -289,6 +354,81 @@ public String printDTD() {
     }
 
 
+    /**
+     * When the whole document has been analysed, construct a validator for the DTD.
+     * The validator applies the same declarations as the DTD returned by printDTD().
+     *
+     * @param rootName The name of the document element
+     * @return The validator
+     */
+
+    public DTDValidator compileValidator(String rootName) {
+        List declarations = new ArrayList();
+        Iterator e = elementList.keySet().iterator();
+
+        while (e.hasNext()) {
+            String elementname = (String) e.next();
+            ElementDetails ed = (ElementDetails) elementList.get(elementname);
+            Set childKeys = ed.children.keySet();
+
+            DTDValidator.ElementDeclaration declaration;
+            if (childKeys.size() == 0 && !ed.hasCharacterContent) {
+                declaration = new DTDValidator.ElementDeclaration(elementname, DTDValidator.ContentType.EMPTY, null, childKeys);
+            } else if (childKeys.size() == 0) {
+                declaration = new DTDValidator.ElementDeclaration(elementname, DTDValidator.ContentType.PCDATA, null, childKeys);
+            } else if (!ed.hasCharacterContent) {
+                List sequence = null;
+                if (ed.sequenced) {
+                    sequence = new ArrayList();
+                    Enumeration c = ed.childseq.elements();
+                    while (c.hasMoreElements()) {
+                        ChildDetails ch = (ChildDetails) c.nextElement();
+                        sequence.add(new DTDValidator.Particle(ch.name, ch.optional, ch.repeatable));
+                    }
+                }
+                declaration = new DTDValidator.ElementDeclaration(elementname, DTDValidator.ContentType.CHILDREN, sequence, childKeys);
+            } else {
+                declaration = new DTDValidator.ElementDeclaration(elementname, DTDValidator.ContentType.MIXED, null, childKeys);
+            }
+
+            // same decisions as in printDTD()
+            TreeMap attlist = ed.attributes;
+            boolean doneID = false;
+            Iterator a = attlist.keySet().iterator();
+            while (a.hasNext()) {
+                String attname = (String) a.next();
+                AttributeDetails ad = (AttributeDetails) attlist.get(attname);
+
+                boolean required = (ad.occurrences == ed.occurrences);
+                boolean isid = ad.allNames && (!doneID) && (ad.unique) && (ad.occurrences >= MIN_ID_VALUES);
+                boolean isfixed = required && ad.values.size() == 1 && ad.occurrences >= MIN_FIXED;
+                boolean isenum = ad.allNMTOKENs &&
+                                 (ad.occurrences >= MIN_ENUMERATION_INSTANCES) &&
+                                 (ad.values.size() <= ad.occurrences / MIN_ENUMERATION_RATIO) &&
+                                 (ad.values.size() <= MAX_ENUMERATION_VALUES);
+                DTDValidator.AttributeType tokentype = ad.allNMTOKENs ? DTDValidator.AttributeType.NMTOKEN : DTDValidator.AttributeType.CDATA;
+
+                if (isid) {
+                    declaration.addAttribute(new DTDValidator.AttributeDeclaration(attname, DTDValidator.AttributeType.ID, Set.of(), required, null));
+                    doneID = true;
+                } else if (isfixed) {
+                    // the printed default value is subject to attribute value normalization
+                    String val = ((String) ad.values.first()).replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+                    if (tokentype != DTDValidator.AttributeType.CDATA)
+                        val = DTDValidator.collapse(val);
+                    declaration.addAttribute(new DTDValidator.AttributeDeclaration(attname, tokentype, Set.of(), false, val));
+                } else if (isenum) {
+                    declaration.addAttribute(new DTDValidator.AttributeDeclaration(attname, DTDValidator.AttributeType.ENUMERATION, new TreeSet(ad.values), required, null));
+                } else {
+                    declaration.addAttribute(new DTDValidator.AttributeDeclaration(attname, tokentype, Set.of(), required, null));
+                }
+            }
+            declarations.add(declaration);
+        }
+
+        return new DTDValidator(rootName, declarations);
+    }
+
     /**
      * Escape special characters for display.
      *
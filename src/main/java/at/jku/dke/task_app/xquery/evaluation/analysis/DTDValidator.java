@@ -0,0 +1,375 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.*;
+
+/**
+ * Validates documents against the grammar derived by the {@link DTDGenerator}.
+ * <p>
+ * The grammar is compiled once (see {@link DTDGenerator#compileValidator(String)}) and validates already parsed DOM trees
+ * directly, which yields the same result as parsing the serialized document against the generated DTD with a
+ * validating parser. Instances are immutable and thread-safe.
+ */
+public class DTDValidator {
+    private final String rootName;
+    private final Map<String, ElementDeclaration> elements;
+    private final List<String> grammarErrors;
+    private final String grammarFatalError;
+
+    /**
+     * Creates a new instance of class {@link DTDValidator}.
+     *
+     * @param rootName The name of the document element.
+     * @param elements The element declarations.
+     */
+    DTDValidator(String rootName, Collection<ElementDeclaration> elements) {
+        this.rootName = rootName;
+        this.elements = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        String fatal = null;
+        for (ElementDeclaration element : elements) {
+            this.elements.put(element.name, element);
+            for (AttributeDeclaration attribute : element.attributes.values()) {
+                if (attribute.type == AttributeType.ENUMERATION) {
+                    for (String value : attribute.values) {
+                        if (!isNmtoken(value))
+                            fatal = "Invalid enumeration value '" + value + "' in declaration of attribute " + attribute.name;
+                    }
+                }
+                if (attribute.fixedValue != null && !attribute.type.isValid(attribute.fixedValue))
+                    errors.add("Invalid default value '" + attribute.fixedValue + "' of attribute " + attribute.name + " of element type " + element.name);
+            }
+        }
+        this.grammarErrors = List.copyOf(errors);
+        this.grammarFatalError = fatal;
+    }
+
+    /**
+     * Validates the document.
+     *
+     * @param document The document to validate.
+     * @return The validation errors; an empty list if the document is valid.
+     * @throws AnalysisException If the grammar itself is malformed.
+     */
+    public List<String> validate(Document document) throws AnalysisException {
+        if (this.grammarFatalError != null)
+            throw new AnalysisException("A fatal error occurred when parsing the XML document against a DTD.", new IllegalStateException(this.grammarFatalError));
+
+        List<String> errors = new ArrayList<>(this.grammarErrors);
+        Element root = document.getDocumentElement();
+        if (root == null) {
+            errors.add("Document has no root element.");
+            return errors;
+        }
+        if (!this.rootName.equals(root.getNodeName()))
+            errors.add("Document root element " + root.getNodeName() + " must match DOCTYPE root " + this.rootName);
+
+        new Validation(errors).validateElement(root);
+        return errors;
+    }
+
+    /**
+     * Returns whether the value is an XML NMTOKEN.
+     *
+     * @param value The value.
+     * @return {@code true} if the value is a NMTOKEN.
+     */
+    static boolean isNmtoken(String value) {
+        if (value.isEmpty())
+            return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (!isNameChar(value.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the value is an XML Name.
+     *
+     * @param value The value.
+     * @return {@code true} if the value is a Name.
+     */
+    static boolean isName(String value) {
+        if (value.isEmpty())
+            return false;
+        char first = value.charAt(0);
+        if (first != '_' && first != ':' && !Character.isLetter(first))
+            return false;
+        return isNmtoken(value);
+    }
+
+    private static boolean isNameChar(char c) {
+        if (c < 0x80)
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '_' || c == ':';
+        if (c == 0xB7 || c == 0x2D0 || c == 0x2D1 || c == 0x387 || c == 0x640 || c == 0xE46 || c == 0xEC6 || c == 0x3005
+            || (c >= 0x3031 && c <= 0x3035) || (c >= 0x309D && c <= 0x309E) || (c >= 0x30FC && c <= 0x30FE))
+            return true; // extenders
+        return switch (Character.getType(c)) {
+            case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER, Character.OTHER_LETTER,
+                 Character.LETTER_NUMBER, Character.DECIMAL_DIGIT_NUMBER, Character.NON_SPACING_MARK,
+                 Character.COMBINING_SPACING_MARK, Character.ENCLOSING_MARK -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Normalizes an attribute value of a tokenized type by removing leading and trailing spaces and collapsing sequences of spaces.
+     *
+     * @param value The CDATA-normalized value.
+     * @return The normalized value.
+     */
+    static String collapse(String value) {
+        var sb = new StringBuilder(value.length());
+        boolean space = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ' ') {
+                space = sb.length() > 0;
+            } else {
+                if (space)
+                    sb.append(' ');
+                sb.append(c);
+                space = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * State of a single validation run.
+     */
+    private final class Validation {
+        private final List<String> errors;
+        private final Set<String> ids;
+
+        Validation(List<String> errors) {
+            this.errors = errors;
+            this.ids = new HashSet<>();
+        }
+
+        void validateElement(Element element) {
+            String name = element.getNodeName();
+            ElementDeclaration declaration = DTDValidator.this.elements.get(name);
+            if (declaration == null)
+                this.errors.add("Element type " + name + " must be declared.");
+            else
+                this.validateAttributes(element, declaration);
+
+            List<String> children = new ArrayList<>();
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                switch (child.getNodeType()) {
+                    case Node.ELEMENT_NODE -> {
+                        children.add(child.getNodeName());
+                        this.validateElement((Element) child);
+                    }
+                    case Node.TEXT_NODE -> {
+                        if (declaration != null)
+                            this.validateText(declaration, child.getNodeValue());
+                    }
+                    case Node.CDATA_SECTION_NODE -> {
+                        if (declaration != null && (declaration.contentType == ContentType.EMPTY || declaration.contentType == ContentType.CHILDREN))
+                            this.errors.add("Character data is not allowed in content of element type " + name);
+                    }
+                    default -> {
+                        // comments and processing instructions are only forbidden in EMPTY elements
+                        if (declaration != null && declaration.contentType == ContentType.EMPTY)
+                            this.errors.add("Comments and processing instructions are not allowed in content of element type " + name);
+                    }
+                }
+            }
+
+            if (declaration != null && !declaration.matches(children))
+                this.errors.add("The content of element type " + name + " must match " + declaration.model());
+        }
+
+        private void validateText(ElementDeclaration declaration, String text) {
+            if (declaration.contentType == ContentType.EMPTY || (declaration.contentType == ContentType.CHILDREN && !isWhitespace(text)))
+                this.errors.add("Character data is not allowed in content of element type " + declaration.name);
+        }
+
+        private void validateAttributes(Element element, ElementDeclaration declaration) {
+            NamedNodeMap attributes = element.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Node attribute = attributes.item(i);
+                AttributeDeclaration attributeDeclaration = declaration.attributes.get(attribute.getNodeName());
+                if (attributeDeclaration == null) {
+                    this.errors.add("Attribute " + attribute.getNodeName() + " must be declared for element type " + declaration.name);
+                    continue;
+                }
+
+                String value = attributeDeclaration.type == AttributeType.CDATA ? attribute.getNodeValue() : collapse(attribute.getNodeValue());
+                if (!attributeDeclaration.type.isValid(value) || (attributeDeclaration.type == AttributeType.ENUMERATION && !attributeDeclaration.values.contains(value)))
+                    this.errors.add("Attribute " + attribute.getNodeName() + " of element type " + declaration.name + " has invalid value '" + value + "'");
+                else if (attributeDeclaration.fixedValue != null && !attributeDeclaration.fixedValue.equals(value))
+                    this.errors.add("Attribute " + attribute.getNodeName() + " of element type " + declaration.name + " must have fixed value '" + attributeDeclaration.fixedValue + "'");
+                else if (attributeDeclaration.type == AttributeType.ID && !this.ids.add(value))
+                    this.errors.add("Attribute value " + value + " of type ID must be unique within the document.");
+            }
+
+            for (AttributeDeclaration attributeDeclaration : declaration.attributes.values()) {
+                if (attributeDeclaration.required && !element.hasAttribute(attributeDeclaration.name))
+                    this.errors.add("Attribute " + attributeDeclaration.name + " is required for element type " + declaration.name);
+            }
+        }
+    }
+
+    /**
+     * The content type of an element declaration.
+     */
+    enum ContentType {
+        /**
+         * No content allowed.
+         */
+        EMPTY,
+        /**
+         * Only character data allowed.
+         */
+        PCDATA,
+        /**
+         * Only the child elements of the content model (and whitespace) allowed.
+         */
+        CHILDREN,
+        /**
+         * Character data and the listed child elements in any order allowed.
+         */
+        MIXED
+    }
+
+    /**
+     * The type of an attribute declaration.
+     */
+    enum AttributeType {
+        /**
+         * Any character data.
+         */
+        CDATA,
+        /**
+         * A name token.
+         */
+        NMTOKEN,
+        /**
+         * A name unique within the document.
+         */
+        ID,
+        /**
+         * One of the enumerated name tokens.
+         */
+        ENUMERATION;
+
+        boolean isValid(String value) {
+            return switch (this) {
+                case CDATA -> true;
+                case NMTOKEN, ENUMERATION -> isNmtoken(value);
+                case ID -> isName(value);
+            };
+        }
+    }
+
+    /**
+     * A child particle of a sequence content model.
+     *
+     * @param name       The element name.
+     * @param optional   Whether the element may be absent.
+     * @param repeatable Whether the element may occur multiple times.
+     */
+    record Particle(String name, boolean optional, boolean repeatable) {
+    }
+
+    /**
+     * Declaration of an element type.
+     */
+    static final class ElementDeclaration {
+        private final String name;
+        private final ContentType contentType;
+        private final List<Particle> sequence;
+        private final Set<String> allowedChildren;
+        private final Map<String, AttributeDeclaration> attributes;
+
+        /**
+         * Creates a new element declaration.
+         *
+         * @param name            The element name.
+         * @param contentType     The content type.
+         * @param sequence        The particles if the children always occur in this sequence; {@code null} if the children may occur in any order.
+         * @param allowedChildren The names of the allowed child elements.
+         */
+        ElementDeclaration(String name, ContentType contentType, List<Particle> sequence, Set<String> allowedChildren) {
+            this.name = name;
+            this.contentType = contentType;
+            this.sequence = sequence == null ? null : List.copyOf(sequence);
+            this.allowedChildren = Set.copyOf(allowedChildren);
+            this.attributes = new LinkedHashMap<>();
+        }
+
+        void addAttribute(AttributeDeclaration attribute) {
+            this.attributes.put(attribute.name, attribute);
+        }
+
+        /**
+         * Checks the sequence of child element names against the content model.
+         * <p>
+         * Each name occurs at most once in a sequence model, so a greedy match is sufficient.
+         */
+        boolean matches(List<String> children) {
+            return switch (this.contentType) {
+                case EMPTY, PCDATA -> children.isEmpty();
+                case MIXED -> this.allowedChildren.containsAll(children);
+                case CHILDREN -> {
+                    if (this.sequence == null)
+                        yield this.allowedChildren.containsAll(children);
+
+                    int index = 0;
+                    for (Particle particle : this.sequence) {
+                        int count = 0;
+                        while (index < children.size() && children.get(index).equals(particle.name())) {
+                            count++;
+                            index++;
+                        }
+                        if ((count == 0 && !particle.optional()) || (count > 1 && !particle.repeatable()))
+                            yield false;
+                    }
+                    yield index == children.size();
+                }
+            };
+        }
+
+        String model() {
+            return switch (this.contentType) {
+                case EMPTY -> "EMPTY";
+                case PCDATA -> "(#PCDATA)";
+                case MIXED -> "(#PCDATA|" + String.join("|", new TreeSet<>(this.allowedChildren)) + ")*";
+                case CHILDREN -> this.sequence == null
+                    ? "(" + String.join("|", new TreeSet<>(this.allowedChildren)) + ")*"
+                    : "(" + String.join(",", this.sequence.stream()
+                    .map(p -> p.name() + (p.repeatable() ? (p.optional() ? "*" : "+") : (p.optional() ? "?" : "")))
+                    .toList()) + ")";
+            };
+        }
+    }
+
+    /**
+     * Declaration of an attribute.
+     *
+     * @param name       The attribute name.
+     * @param type       The attribute type.
+     * @param values     The enumerated values (only for {@link AttributeType#ENUMERATION}).
+     * @param required   Whether the attribute is required.
+     * @param fixedValue The fixed value or {@code null} if the value is not fixed.
+     */
+    record AttributeDeclaration(String name, AttributeType type, Set<String> values, boolean required, String fixedValue) {
+    }
+}
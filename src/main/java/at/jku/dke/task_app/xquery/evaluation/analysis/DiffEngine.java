@@ -0,0 +1,318 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import java.util.*;
+
+import static at.jku.dke.task_app.xquery.evaluation.analysis.SubtreeIndex.*;
+
+/**
+ * Compares a submission result with a solution result and classifies the differences.
+ * <p>
+ * The children of two compared nodes are matched in rounds: first elements with the same name and text, then
+ * elements with the same name only (the remaining children are missing or superfluous). Text differences are not
+ * reported if the expected text occurs at the same hierarchy level of the submission, as the difference is then
+ * caused by the order of the nodes. Attribute value differences are only reported if they persist when elements with
+ * equal attributes are matched first, as the difference is otherwise caused by the order of the nodes as well.
+ * <p>
+ * The comparison works on the {@link SubtreeIndex} of both results: identical subtrees are skipped by their
+ * signatures (verified structurally, as signatures may collide) and matching candidates are looked up by their keys
+ * instead of comparing every pair of children.
+ */
+public class DiffEngine {
+    private final SubtreeIndex submission;
+
+    private final List<NodeModel> missingNodes;
+    private final List<NodeModel> superfluousNodes;
+    private final List<AttributeModel> missingAttributes;
+    private final List<AttributeModel> superfluousAttributes;
+    private final List<IncorrectAttributeValueModel> incorrectAttributeValues;
+    private final List<IncorrectTextValueModel> incorrectTextValues;
+
+    /**
+     * Creates a new instance of class {@link DiffEngine} and compares the results.
+     *
+     * @param solution   The index of the solution document.
+     * @param submission The index of the submission document.
+     */
+    public DiffEngine(SubtreeIndex solution, SubtreeIndex submission) {
+        Objects.requireNonNull(solution);
+        Objects.requireNonNull(submission);
+
+        this.submission = submission;
+        this.missingNodes = new ArrayList<>();
+        this.superfluousNodes = new ArrayList<>();
+        this.missingAttributes = new ArrayList<>();
+        this.superfluousAttributes = new ArrayList<>();
+        this.incorrectAttributeValues = new ArrayList<>();
+        this.incorrectTextValues = new ArrayList<>();
+
+        this.compare(solution.getRoot(), submission.getRoot());
+        if (!this.incorrectAttributeValues.isEmpty() && !hasAttributeValueDifference(solution.getRoot(), submission.getRoot()))
+            this.incorrectAttributeValues.clear();
+    }
+
+    //#region --- GETTER ---
+
+    /**
+     * Returns the nodes that are missing in the submission.
+     *
+     * @return The missing nodes.
+     */
+    public List<NodeModel> getMissingNodes() {
+        return missingNodes;
+    }
+
+    /**
+     * Returns the nodes that are not expected in the submission.
+     *
+     * @return The superfluous nodes.
+     */
+    public List<NodeModel> getSuperfluousNodes() {
+        return superfluousNodes;
+    }
+
+    /**
+     * Returns the attributes that are missing in the submission.
+     *
+     * @return The missing attributes.
+     */
+    public List<AttributeModel> getMissingAttributes() {
+        return missingAttributes;
+    }
+
+    /**
+     * Returns the attributes that are not expected in the submission.
+     *
+     * @return The superfluous attributes.
+     */
+    public List<AttributeModel> getSuperfluousAttributes() {
+        return superfluousAttributes;
+    }
+
+    /**
+     * Returns the attributes with incorrect values.
+     *
+     * @return The incorrect attribute values.
+     */
+    public List<IncorrectAttributeValueModel> getIncorrectAttributeValues() {
+        return incorrectAttributeValues;
+    }
+
+    /**
+     * Returns the nodes with incorrect text.
+     *
+     * @return The incorrect text values.
+     */
+    public List<IncorrectTextValueModel> getIncorrectTextValues() {
+        return incorrectTextValues;
+    }
+
+    //#endregion
+
+    //#region --- Comparison ---
+
+    /**
+     * Compares two matched nodes.
+     *
+     * @param control The solution node.
+     * @param test    The submission node.
+     */
+    private void compare(Entry control, Entry test) {
+        if (control.signature == test.signature && isEqual(control, test))
+            return; // identical subtrees, verified as equal signatures may collide
+
+        if (control.kind == TEXT) {
+            if (!control.value.equals(test.value) && !this.occursAtSameLevel(control, test))
+                this.incorrectTextValues.add(new IncorrectTextValueModel(test.parent.getXPath(), control.value));
+            return;
+        }
+        if (control.kind == ELEMENT)
+            this.compareAttributes(control, test);
+        if (control.kind == ELEMENT || control.kind == DOCUMENT)
+            this.compareChildren(control, test);
+    }
+
+    /**
+     * Compares the attributes of two matched elements.
+     *
+     * @param control The solution element.
+     * @param test    The submission element.
+     */
+    private void compareAttributes(Entry control, Entry test) {
+        for (var attribute : control.attributes.entrySet()) {
+            Attribute testAttribute = test.attributes.get(attribute.getKey());
+            if (testAttribute == null)
+                this.missingAttributes.add(new AttributeModel(test.getXPath(), attribute.getKey(), attribute.getValue().value()));
+            else if (!testAttribute.value().equals(attribute.getValue().value()))
+                this.incorrectAttributeValues.add(new IncorrectAttributeValueModel(test.getXPath(), testAttribute.name(), attribute.getValue().value()));
+        }
+        for (var attribute : test.attributes.entrySet()) {
+            if (!control.attributes.containsKey(attribute.getKey()))
+                this.superfluousAttributes.add(new AttributeModel(test.getXPath(), attribute.getKey(), attribute.getValue().value()));
+        }
+    }
+
+    /**
+     * Matches and compares the children of two matched nodes.
+     *
+     * @param control The solution node.
+     * @param test    The submission node.
+     */
+    private void compareChildren(Entry control, Entry test) {
+        int[] matches = match(control.children, test.children, Selector.BY_NAME_AND_TEXT, Selector.BY_NAME);
+        boolean[] matched = new boolean[test.children.size()];
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] < 0)
+                continue;
+            matched[matches[i]] = true;
+            this.compare(control.children.get(i), test.children.get(matches[i]));
+        }
+
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] >= 0)
+                continue;
+            Entry missing = control.children.get(i);
+            if (missing.kind == TEXT)
+                this.incorrectTextValues.add(new IncorrectTextValueModel(test.getXPath(), missing.value));
+            else
+                this.missingNodes.add(new NodeModel(test.getXPath(), missing.name));
+        }
+        for (int i = 0; i < matched.length; i++) {
+            if (matched[i])
+                continue;
+            Entry superfluous = test.children.get(i);
+            if (superfluous.kind == TEXT)
+                this.incorrectTextValues.add(new IncorrectTextValueModel(test.getXPath(), ""));
+            else
+                this.superfluousNodes.add(new NodeModel(test.getXPath(), superfluous.name));
+        }
+    }
+
+    /**
+     * Returns whether the text of the solution node occurs at the same hierarchy level of the submission.
+     * <p>
+     * Starting at the parent of the submission node, the first node equal to the solution node is looked up in the
+     * subtree of every ancestor. The text occurs at the same level if the found node has the same ancestor names as
+     * the solution node.
+     *
+     * @param control The solution text node.
+     * @param test    The submission text node.
+     * @return {@code true} if the text occurs at the same level; otherwise {@code false}.
+     */
+    private boolean occursAtSameLevel(Entry control, Entry test) {
+        for (Entry ancestor = test.parent; ancestor != null; ancestor = ancestor.parent) {
+            Entry found = this.submission.findFirstEqual(control, ancestor);
+            if (found != null && isAtSameLevel(control, found))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the documents contain an attribute value difference if elements with equal attributes are
+     * matched first.
+     *
+     * @param control The solution node.
+     * @param test    The submission node.
+     * @return {@code true} if an attribute value differs; otherwise {@code false}.
+     */
+    private static boolean hasAttributeValueDifference(Entry control, Entry test) {
+        if ((control.signature == test.signature && isEqual(control, test)) || (control.kind != ELEMENT && control.kind != DOCUMENT))
+            return false;
+
+        for (var attribute : control.attributes.entrySet()) {
+            Attribute testAttribute = test.attributes.get(attribute.getKey());
+            if (testAttribute != null && !testAttribute.value().equals(attribute.getValue().value()))
+                return true;
+        }
+
+        int[] matches = match(control.children, test.children, Selector.BY_NAME_AND_ALL_ATTRIBUTES, Selector.BY_NAME_AND_TEXT, Selector.BY_NAME);
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] >= 0 && hasAttributeValueDifference(control.children.get(i), test.children.get(matches[i])))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Matches the solution nodes with the submission nodes.
+     * <p>
+     * The selectors are applied in the specified order; each selector is applied to all nodes not matched yet. For
+     * every solution node the first available candidate after the last match is used, wrapping around to the start of
+     * the list. Nodes other than elements are matched by their type.
+     *
+     * @param control   The solution nodes.
+     * @param test      The submission nodes.
+     * @param selectors The element selectors.
+     * @return For every solution node the index of the matched submission node or {@code -1}.
+     */
+    private static int[] match(List<Entry> control, List<Entry> test, Selector... selectors) {
+        int[] matches = new int[control.size()];
+        Arrays.fill(matches, -1);
+        boolean[] taken = new boolean[test.size()];
+
+        for (int round = 0; round < selectors.length; round++) {
+            Selector selector = selectors[round];
+            boolean matchOthers = round == 0;
+
+            Map<Object, TreeSet<Integer>> candidates = new HashMap<>();
+            for (int i = 0; i < test.size(); i++) {
+                Object key = taken[i] ? null : key(test.get(i), selector, matchOthers);
+                if (key != null)
+                    candidates.computeIfAbsent(key, k -> new TreeSet<>()).add(i);
+            }
+            if (candidates.isEmpty())
+                break;
+
+            int last = -1;
+            for (int i = 0; i < control.size(); i++) {
+                if (matches[i] >= 0)
+                    continue;
+                Object key = key(control.get(i), selector, matchOthers);
+                TreeSet<Integer> available = key == null ? null : candidates.get(key);
+                if (available == null || available.isEmpty())
+                    continue;
+
+                Integer index = available.ceiling(last + 1);
+                if (index == null)
+                    index = available.first();
+                available.remove(index);
+                taken[index] = true;
+                matches[i] = index;
+                last = index;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the matching key of the node.
+     *
+     * @param node        The node.
+     * @param selector    The element selector.
+     * @param matchOthers Whether nodes other than elements should be matched.
+     * @return The key or {@code null} if the node should not be matched.
+     */
+    private static Object key(Entry node, Selector selector, boolean matchOthers) {
+        if (node.kind != ELEMENT)
+            return matchOthers ? node.nodeType : null;
+        return switch (selector) {
+            case BY_NAME -> node.name;
+            case BY_NAME_AND_TEXT -> new NodeKey(node.name, node.value);
+            case BY_NAME_AND_ALL_ATTRIBUTES -> new NodeKey(node.name, node.attributes);
+        };
+    }
+
+    //#endregion
+
+    /**
+     * The element selectors used for matching.
+     */
+    private enum Selector {
+        BY_NAME,
+        BY_NAME_AND_TEXT,
+        BY_NAME_AND_ALL_ATTRIBUTES
+    }
+
+    private record NodeKey(String name, Object detail) {
+    }
+}
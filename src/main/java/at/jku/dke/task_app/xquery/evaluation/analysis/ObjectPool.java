@@ -0,0 +1,73 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small bounded pool of objects which are expensive to create but not thread-safe, e.g. parsers or compiled
+ * expressions.
+ * <p>
+ * Unlike thread-local caches, pooled objects are reused by all threads, so they are also reused if every evaluation runs
+ * on a new virtual thread. The pool never blocks: if no object is idle, the caller creates a new one, and returned
+ * objects are discarded if the maximum number of idle objects is reached.
+ *
+ * @param <T> The type of the pooled objects.
+ */
+final class ObjectPool<T> {
+    private final Deque<T> idle;
+    private final AtomicInteger idleCount;
+    private final int maxIdle;
+
+    /**
+     * Creates a new instance of class {@link ObjectPool} keeping as many idle objects as processors are available.
+     */
+    ObjectPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of class {@link ObjectPool}.
+     *
+     * @param maxIdle The maximum number of idle objects.
+     */
+    ObjectPool(int maxIdle) {
+        this.idle = new ConcurrentLinkedDeque<>();
+        this.idleCount = new AtomicInteger();
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an idle object from the pool.
+     *
+     * @return The most recently returned object or {@code null} if no object is idle.
+     */
+    T poll() {
+        T object = this.idle.pollFirst();
+        if (object != null)
+            this.idleCount.decrementAndGet();
+        return object;
+    }
+
+    /**
+     * Returns the object to the pool, so it can be reused by another caller.
+     *
+     * @param object The object, which must not be used by the caller anymore.
+     */
+    void offer(T object) {
+        if (this.idleCount.incrementAndGet() > this.maxIdle) {
+            this.idleCount.decrementAndGet();
+            return;
+        }
+        this.idle.offerFirst(object);
+    }
+
+    /**
+     * Returns the number of idle objects.
+     *
+     * @return The number of idle objects.
+     */
+    int getIdleCount() {
+        return this.idleCount.get();
+    }
+}
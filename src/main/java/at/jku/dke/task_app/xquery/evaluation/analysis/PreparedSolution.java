@@ -0,0 +1,138 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Holds the result of a solution query and all artifacts derived from it, which are required to analyze submissions.
+ * <p>
+ * Instances are thread-safe and can be shared between analyses of the same task, e.g. in a cache.
+ * The artifacts are created once in the constructor and never modified afterwards; every analysis gets its own copy of
+ * the result document via {@link #newResult()}. The DOM is not thread-safe, so copies of the shared document are made
+ * one at a time. Compiled JAXP expressions are not guaranteed to be thread-safe, so every evaluation of a sorting
+ * expression uses compiled expressions of a small pool exclusively.
+ */
+public class PreparedSolution {
+    private static final Logger LOG = LoggerFactory.getLogger(PreparedSolution.class);
+
+    private final XQResult result;
+    private final List<String> sorting;
+    private final ObjectPool<List<XPathExpression>> sortingExpressions;
+
+    /**
+     * Creates a new instance of class {@link PreparedSolution}.
+     *
+     * @param result  The result of the solution query.
+     * @param sorting The XPath expressions of the nodes which have to be sorted.
+     * @throws NullPointerException If {@code result} is {@code null}.
+     * @throws AnalysisException    If a sorting expression is invalid or the artifacts could not be created.
+     */
+    public PreparedSolution(XQResult result, List<String> sorting) throws AnalysisException {
+        Objects.requireNonNull(result);
+        this.result = result;
+        this.sorting = sorting == null ? List.of() : List.copyOf(sorting);
+        validateSortingExpressions(result, this.sorting);
+        this.sortingExpressions = new ObjectPool<>();
+
+        if (result.getParseException() == null) {
+            result.getDTD();
+            result.getDTDValidator();
+            result.getSubtreeIndex();
+        }
+    }
+
+    /**
+     * Returns the raw result of the solution query.
+     *
+     * @return The raw result.
+     */
+    public String getRawResult() {
+        return this.result.getRawResult();
+    }
+
+    /**
+     * Returns the XPath expressions of the nodes which have to be sorted.
+     *
+     * @return The sorting expressions.
+     */
+    public List<String> getSorting() {
+        return sorting;
+    }
+
+    /**
+     * Returns a new copy of the solution result which can be used exclusively by one analysis.
+     * <p>
+     * The derived artifacts (e.g. the DTD and its validator) are shared with all copies.
+     *
+     * @return The copy of the solution result.
+     */
+    public XQResult newResult() {
+        return this.result.copy();
+    }
+
+    /**
+     * Evaluates the sorting expression with the given index on the specified node.
+     *
+     * @param index The index of the sorting expression.
+     * @param node  The context node.
+     * @return The matching nodes.
+     * @throws XPathExpressionException If the expression could not be evaluated.
+     */
+    NodeList evaluateSortingExpression(int index, Node node) throws XPathExpressionException {
+        List<XPathExpression> expressions = this.sortingExpressions.poll();
+        if (expressions == null)
+            expressions = compileSortingExpressions(this.sorting);
+        try {
+            return (NodeList) expressions.get(index).evaluate(node, XPathConstants.NODESET);
+        } finally {
+            this.sortingExpressions.offer(expressions);
+        }
+    }
+
+    /**
+     * Validates the sorting XPath expressions against the solution.
+     *
+     * @param result  The solution result.
+     * @param sorting The sorting expressions.
+     * @throws AnalysisException If an expression is invalid.
+     */
+    private static void validateSortingExpressions(XQResult result, List<String> sorting) throws AnalysisException {
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        for (String expression : sorting) {
+            try {
+                NodeList solutionList = (NodeList) xpath.compile(expression).evaluate(result.getResultDocument(), XPathConstants.NODESET);
+                if (solutionList.getLength() == 0)
+                    throw new AnalysisException("The sorting expression '" + expression + "' does not match any nodes in the solution result.");
+            } catch (XPathExpressionException ex) {
+                LOG.error("Could not compile XPath expression: " + expression, ex);
+                throw new AnalysisException("A fatal error occurred while compiling XPath expression: " + expression, ex);
+            }
+        }
+    }
+
+    /**
+     * Compiles the sorting XPath expressions.
+     *
+     * @param sorting The sorting expressions, which have already been validated.
+     * @return The compiled expressions.
+     */
+    private static List<XPathExpression> compileSortingExpressions(List<String> sorting) {
+        List<XPathExpression> expressions = new ArrayList<>();
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        for (String expression : sorting) {
+            try {
+                expressions.add(xpath.compile(expression));
+            } catch (XPathExpressionException ex) {
+                throw new IllegalStateException("Validated XPath expression could not be compiled: " + expression, ex);
+            }
+        }
+        return List.copyOf(expressions);
+    }
+}
@@ -0,0 +1,65 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * Reads a raw XQuery result embedded into the {@link XQResult#XML_ROOT root element} without creating a copy of it.
+ */
+final class ResultReader extends Reader {
+    private static final String PREFIX = '<' + XQResult.XML_ROOT + '>' + System.lineSeparator();
+    private static final String SUFFIX = System.lineSeparator() + "</" + XQResult.XML_ROOT + '>';
+
+    private final String[] segments;
+    private int segment;
+    private int position;
+    private boolean closed;
+
+    /**
+     * Creates a new instance of class {@link ResultReader}.
+     *
+     * @param rawResult The raw result of the XQuery execution.
+     */
+    ResultReader(String rawResult) {
+        this.segments = new String[]{PREFIX, Objects.requireNonNull(rawResult), SUFFIX};
+    }
+
+    /**
+     * Returns the raw result embedded into the root element as a string.
+     *
+     * @param rawResult The raw result of the XQuery execution.
+     * @return The XML document.
+     */
+    static String wrap(String rawResult) {
+        return PREFIX + rawResult + SUFFIX;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (this.closed)
+            throw new IOException("Reader is closed.");
+        if (length == 0)
+            return 0;
+
+        int read = 0;
+        while (read < length && this.segment < this.segments.length) {
+            String current = this.segments[this.segment];
+            int count = Math.min(length - read, current.length() - this.position);
+            current.getChars(this.position, this.position + count, buffer, offset + read);
+            read += count;
+            this.position += count;
+            if (this.position == current.length()) {
+                this.segment++;
+                this.position = 0;
+            }
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+}
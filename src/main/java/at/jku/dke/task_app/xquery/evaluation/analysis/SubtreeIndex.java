@@ -0,0 +1,359 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.*;
+
+/**
+ * Index of the nodes of a result document used for comparisons.
+ * <p>
+ * Comments are ignored, text is trimmed and its whitespace normalized; adjacent text is merged and blank text is
+ * dropped. Every node stores a Merkle-style signature of its subtree, its depth and a hash of the names of its
+ * ancestors, so that equal subtrees and nodes at the same hierarchy level are found by hash probes instead of
+ * comparing nodes recursively. Signatures do not depend on the document, so entries of different indexes can be
+ * compared.
+ * <p>
+ * The index does not reference the DOM after its creation and can be shared between threads.
+ */
+public final class SubtreeIndex {
+    static final int DOCUMENT = 0;
+    static final int ELEMENT = 1;
+    static final int TEXT = 2;
+    static final int OTHER = 3;
+
+    private final Entry root;
+    private int size;
+    private Map<Long, List<Entry>> bySignature;
+
+    /**
+     * Creates a new instance of class {@link SubtreeIndex}.
+     *
+     * @param document The document to index.
+     */
+    public SubtreeIndex(Document document) {
+        this((Node) document);
+    }
+
+    private SubtreeIndex(Node node) {
+        Objects.requireNonNull(node);
+        this.root = this.build(node, null);
+    }
+
+    /**
+     * Returns the entry of the document node.
+     *
+     * @return The root entry.
+     */
+    Entry getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of indexed nodes.
+     *
+     * @return The number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the first node in document order within the subtree of {@code scope} that is equal to {@code node}.
+     *
+     * @param node  The node to search for (may belong to another index).
+     * @param scope The node whose subtree (including itself) is searched.
+     * @return The first equal node or {@code null} if there is none.
+     */
+    Entry findFirstEqual(Entry node, Entry scope) {
+        List<Entry> candidates = this.getBySignature().get(node.signature);
+        if (candidates == null)
+            return null;
+
+        int low = 0;
+        int high = candidates.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (candidates.get(mid).preorder < scope.preorder)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        for (int i = low; i < candidates.size() && candidates.get(i).preorder <= scope.last; i++) {
+            if (isEqual(node, candidates.get(i)))
+                return candidates.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the nodes have ancestors with the same names.
+     *
+     * @param first  The first node.
+     * @param second The second node (may belong to another index).
+     * @return {@code true} if both nodes are at the same hierarchy level; otherwise {@code false}.
+     */
+    static boolean isAtSameLevel(Entry first, Entry second) {
+        return first.depth == second.depth && first.ancestry == second.ancestry;
+    }
+
+    /**
+     * Returns whether the subtrees of the nodes are equal.
+     *
+     * @param first  The first node.
+     * @param second The second node (may belong to another index).
+     * @return {@code true} if the subtrees are equal; otherwise {@code false}.
+     */
+    static boolean isEqual(Entry first, Entry second) {
+        if (first.signature != second.signature || first.kind != second.kind || first.children.size() != second.children.size() ||
+            !Objects.equals(first.name, second.name) || !Objects.equals(first.value, second.value) || !first.attributes.equals(second.attributes))
+            return false;
+        for (int i = 0; i < first.children.size(); i++) {
+            if (!isEqual(first.children.get(i), second.children.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the subtrees of the DOM nodes are equal after normalizing their text as in an index.
+     * <p>
+     * Unlike {@link Node#isEqualNode(Node)}, whitespace-only text and comments do not make nodes unequal, so results
+     * serialized with and without indentation are compared alike.
+     *
+     * @param first  The first node.
+     * @param second The second node (may belong to another document).
+     * @return {@code true} if the subtrees are equal; otherwise {@code false}.
+     */
+    static boolean isEqualNode(Node first, Node second) {
+        return isEqual(new SubtreeIndex(first).root, new SubtreeIndex(second).root);
+    }
+
+    private synchronized Map<Long, List<Entry>> getBySignature() {
+        if (this.bySignature == null) {
+            var index = new HashMap<Long, List<Entry>>();
+            addToIndex(this.root, index);
+            this.bySignature = index;
+        }
+        return this.bySignature;
+    }
+
+    private static void addToIndex(Entry entry, Map<Long, List<Entry>> index) {
+        index.computeIfAbsent(entry.signature, k -> new ArrayList<>(1)).add(entry);
+        for (Entry child : entry.children)
+            addToIndex(child, index);
+    }
+
+    //#region --- Creation ---
+
+    /**
+     * Converts the DOM node and its descendants into index entries.
+     *
+     * @param node   The DOM node.
+     * @param parent The parent entry.
+     * @return The entry of the node.
+     */
+    private Entry build(Node node, Entry parent) {
+        int kind = switch (node.getNodeType()) {
+            case Node.DOCUMENT_NODE -> DOCUMENT;
+            case Node.ELEMENT_NODE -> ELEMENT;
+            default -> OTHER;
+        };
+        int preorder = this.size++;
+
+        Map<String, Attribute> attributes = Map.of();
+        if (kind == ELEMENT && node.hasAttributes()) {
+            attributes = new TreeMap<>();
+            NamedNodeMap map = node.getAttributes();
+            for (int i = 0; i < map.getLength(); i++) {
+                Attr attribute = (Attr) map.item(i);
+                if (!isNamespaceDeclaration(attribute))
+                    attributes.put(qualifiedName(attribute), new Attribute(attribute.getNodeName(), attribute.getValue()));
+            }
+            attributes = Collections.unmodifiableMap(attributes);
+        }
+
+        var entry = new Entry(kind, node.getNodeType(), parent, qualifiedName(node), localName(node), node.getNodeName(), attributes);
+        entry.preorder = preorder;
+
+        // adjacent text (also separated by comments) is merged, blank text is dropped
+        List<Entry> children = new ArrayList<>();
+        StringBuilder text = null;
+        Map<String, Integer> positions = new HashMap<>();
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.COMMENT_NODE -> {
+                }
+                case Node.TEXT_NODE, Node.CDATA_SECTION_NODE -> {
+                    String value = normalize(child.getNodeValue());
+                    if (!value.isEmpty())
+                        text = text == null ? new StringBuilder(value) : text.append(value);
+                }
+                default -> {
+                    if (text != null) {
+                        children.add(this.text(text.toString(), entry));
+                        text = null;
+                    }
+                    Entry childEntry = this.build(child, entry);
+                    if (childEntry.kind == ELEMENT)
+                        childEntry.position = positions.merge(childEntry.name, 1, Integer::sum);
+                    children.add(childEntry);
+                }
+            }
+        }
+        if (text != null)
+            children.add(this.text(text.toString(), entry));
+
+        StringBuilder value = new StringBuilder();
+        long signature = hash(kind, node.getNodeName());
+        if (kind == OTHER)
+            signature = combine(signature, hash(node.getNodeType(), Objects.requireNonNullElse(node.getNodeValue(), "")));
+        for (var attribute : attributes.entrySet()) {
+            signature = combine(signature, hash(1, attribute.getKey()));
+            signature = combine(signature, hash(2, attribute.getValue().value()));
+        }
+        for (Entry child : children) {
+            signature = combine(signature, child.signature);
+            if (child.kind == TEXT)
+                value.append(child.value);
+        }
+
+        entry.children = List.copyOf(children);
+        entry.value = kind == OTHER ? Objects.requireNonNullElse(node.getNodeValue(), "") : value.toString();
+        entry.signature = signature;
+        entry.last = this.size - 1;
+        return entry;
+    }
+
+    private Entry text(String value, Entry parent) {
+        var entry = new Entry(TEXT, Node.TEXT_NODE, parent, null, null, "#text", Map.of());
+        entry.preorder = this.size++;
+        entry.last = entry.preorder;
+        entry.children = List.of();
+        entry.value = value;
+        entry.signature = hash(TEXT, value);
+        return entry;
+    }
+
+    private static String localName(Node node) {
+        return node.getLocalName() == null ? node.getNodeName() : node.getLocalName();
+    }
+
+    private static String qualifiedName(Node node) {
+        return node.getNamespaceURI() == null ? localName(node) : '{' + node.getNamespaceURI() + '}' + localName(node);
+    }
+
+    private static boolean isNamespaceDeclaration(Attr attribute) {
+        return "http://www.w3.org/2000/xmlns/".equals(attribute.getNamespaceURI()) ||
+               attribute.getNodeName().equals("xmlns") ||
+               attribute.getNodeName().startsWith("xmlns:");
+    }
+
+    /**
+     * Trims the text and replaces every sequence of whitespace with a single space.
+     *
+     * @param value The text.
+     * @return The normalized text.
+     */
+    static String normalize(String value) {
+        String trimmed = value.trim();
+        StringBuilder sb = new StringBuilder(trimmed.length());
+        boolean whitespace = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (!whitespace)
+                    sb.append(' ');
+                whitespace = true;
+            } else {
+                sb.append(c);
+                whitespace = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long hash(int seed, String value) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash ^ value.length());
+    }
+
+    private static long combine(long hash, long value) {
+        return mix(hash * 0x9e3779b97f4a7c15L + value);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    //#endregion
+
+    /**
+     * An attribute of an element.
+     *
+     * @param name  The name of the attribute as written in the document.
+     * @param value The value of the attribute.
+     */
+    record Attribute(String name, String value) {
+    }
+
+    /**
+     * An indexed node.
+     */
+    static final class Entry {
+        final int kind;
+        final short nodeType;
+        final Entry parent;
+        final String name;
+        final String localName;
+        final String nodeName;
+        final int depth;
+        final long ancestry;
+        final Map<String, Attribute> attributes;
+        List<Entry> children;
+        String value;
+        long signature;
+        int position;
+        int preorder;
+        int last;
+        private String xpath;
+
+        private Entry(int kind, short nodeType, Entry parent, String name, String localName, String nodeName, Map<String, Attribute> attributes) {
+            this.kind = kind;
+            this.nodeType = nodeType == Node.CDATA_SECTION_NODE ? Node.TEXT_NODE : nodeType;
+            this.parent = parent;
+            this.name = name;
+            this.localName = localName;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.ancestry = parent == null ? 0 : combine(parent.ancestry, hash(0, parent.nodeName));
+            this.attributes = attributes;
+            this.nodeName = nodeName;
+        }
+
+        /**
+         * Returns the XPath of the node, e.g. {@code /xquery-result[1]/person[2]}.
+         *
+         * @return The XPath.
+         */
+        String getXPath() {
+            // racy single-check: strings are immutable, computing the path twice is harmless
+            String result = this.xpath;
+            if (result == null) {
+                if (this.kind == DOCUMENT)
+                    result = "/";
+                else
+                    result = (this.parent.kind == DOCUMENT ? "" : this.parent.getXPath()) + '/' + this.localName + '[' + this.position + ']';
+                this.xpath = result;
+            }
+            return result;
+        }
+    }
+}
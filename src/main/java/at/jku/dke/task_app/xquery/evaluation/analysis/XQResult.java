@@ -1,24 +1,18 @@
 package at.jku.dke.task_app.xquery.evaluation.analysis;
 
+import at.jku.dke.task_app.xquery.evaluation.execution.XQOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Objects;
 
 /**
@@ -33,13 +27,31 @@ public class XQResult {
      */
     public static final String XML_ROOT = "xquery-result";
     private static final Logger LOG = LoggerFactory.getLogger(XQResult.class);
+    private static final ObjectPool<DocumentBuilder> DOCUMENT_BUILDERS = new ObjectPool<>();
+    private static final ErrorHandler ERROR_HANDLER = new ErrorHandler() {
+        @Override
+        public void warning(SAXParseException exception) {
+            LOG.debug("Warning while parsing XML document.", exception);
+        }
+
+        @Override
+        public void error(SAXParseException exception) {
+            LOG.debug("Error while parsing XML document.", exception);
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+    };
 
-    private final String rawResult;
+    private final XQOutput output;
+    private String rawResult;
     private Document resultDocument;
-    private String resultDocumentRaw;
     private SAXException parseException;
-    private Path dtdFile;
-    private Path resultFile;
+    private String dtd;
+    private DTDValidator dtdValidator;
+    private SubtreeIndex subtreeIndex;
 
     /**
      * Creates a new instance of class {@link XQResult}.
@@ -48,20 +60,72 @@ public class XQResult {
      * @throws AnalysisException If the raw result could not be parsed into an XML document.
      */
     public XQResult(String rawResult) throws AnalysisException {
-        Objects.requireNonNull(rawResult);
-        this.rawResult = rawResult;
-        this.parseRawResult();
+        this(XQOutput.of(rawResult));
+    }
+
+    /**
+     * Creates a new instance of class {@link XQResult}.
+     * <p>
+     * If the output can be emitted as events, the result document is built from the events and the raw result is only
+     * serialized if it is requested.
+     *
+     * @param output The output of the XQuery execution.
+     * @throws AnalysisException If the output could not be converted into an XML document.
+     */
+    public XQResult(XQOutput output) throws AnalysisException {
+        Objects.requireNonNull(output);
+        this.output = output;
+        if (output.isEmittable())
+            this.buildResultDocument();
+        else
+            this.parseRawResult();
+    }
+
+    /**
+     * Creates a copy of the given result.
+     *
+     * @param other The result to copy.
+     */
+    private XQResult(XQResult other) {
+        this.output = other.output;
+        this.rawResult = other.rawResult;
+        this.parseException = other.parseException;
+        if (other.resultDocument != null) {
+            // the DOM is not thread-safe, not even for reads, and the document may be shared, e.g. by a prepared solution
+            synchronized (other.resultDocument) {
+                this.resultDocument = (Document) other.resultDocument.cloneNode(true);
+            }
+        }
+        this.dtd = other.dtd;
+        this.dtdValidator = other.dtdValidator;
+        this.subtreeIndex = other.subtreeIndex;
+    }
+
+    /**
+     * Creates a copy of this result with a deep copy of the result document.
+     * <p>
+     * An already generated DTD, DTD validator and subtree index are shared with the copy. Concurrent copies of the same
+     * result are serialized on its result document.
+     *
+     * @return The copy.
+     */
+    public XQResult copy() {
+        return new XQResult(this);
     }
 
     //#region --- Simple Getter ---
 
     /**
      * Returns the raw result of the XQuery execution.
+     * <p>
+     * The raw result is serialized on the first call, if the result document was built without it.
      *
      * @return The raw result of the XQuery execution.
      */
     public String getRawResult() {
-        return rawResult;
+        if (this.rawResult == null)
+            this.rawResult = this.output.getRawResult();
+        return this.rawResult;
     }
 
     /**
@@ -75,11 +139,13 @@ public Document getResultDocument() {
 
     /**
      * Returns the result of the XQuery execution as an XML string.
+     * <p>
+     * The string is created on every call, as the result document is parsed without it.
      *
      * @return The result of the XQuery execution as an XML string or {@code null} if {@link #getParseException()} is not {@code null}.
      */
     public String getResultDocumentRaw() {
-        return resultDocumentRaw;
+        return this.parseException == null ? ResultReader.wrap(this.getRawResult()) : null;
     }
 
     /**
@@ -93,117 +159,107 @@ public SAXException getParseException() {
 
     //#endregion
 
-    //#region --- Result ---
+    //#region --- DTD ---
 
     /**
-     * Returns the path to the result file of the XQuery execution.
+     * Returns the DTD generated from the result document.
      *
-     * @return The path to the result file of the XQuery execution.
-     * @throws AnalysisException If the result file could not be created.
+     * @return The DTD of the result document.
+     * @throws AnalysisException If the raw result could not be parsed into an XML document.
      */
-    public Path getResultFile() throws AnalysisException {
-        return this.getResultFile(false);
+    public String getDTD() throws AnalysisException {
+        return this.getDTD(false);
     }
 
     /**
-     * Returns the path to the result file of the XQuery execution.
+     * Returns the DTD generated from the result document.
      *
-     * @param forceRegeneration If {@code true}, the result file is regenerated; otherwise, the cached result file is returned (if available).
-     * @return The path to the result file of the XQuery execution.
-     * @throws AnalysisException If the result file could not be created.
+     * @param forceRegeneration If {@code true}, the DTD is regenerated; otherwise, the cached DTD is returned (if available).
+     * @return The DTD of the result document.
+     * @throws AnalysisException If the raw result could not be parsed into an XML document.
      */
-    public Path getResultFile(boolean forceRegeneration) throws AnalysisException {
-        if (this.resultFile == null || forceRegeneration) {
-            try {
-                this.resultFile = Files.createTempFile("xq-result", ".xml");
-                if (this.resultDocument == null) {
-                    Files.writeString(this.resultFile, this.rawResult);
-                } else {
-                    DOMSource domSource = new DOMSource(this.resultDocument);
-                    TransformerFactory tf = TransformerFactory.newInstance();
-                    Transformer transformer = tf.newTransformer();
-                    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-                    transformer.transform(domSource, new StreamResult(this.resultFile.toFile()));
-                }
-            } catch (IOException | TransformerException ex) {
-                LOG.error("Could not write XML document to file.", ex);
-                throw new AnalysisException("A fatal error occurred when creating the query result file.", ex);
-            }
-        }
-        return this.resultFile;
-    }
-
-    //#endregion
+    public String getDTD(boolean forceRegeneration) throws AnalysisException {
+        if (this.parseException != null)
+            throw new AnalysisException("The raw result could not be parsed into an XML document.", this.parseException);
 
-    //#region --- DTD ---
+        if (this.dtd == null || forceRegeneration)
+            this.generateDTD();
 
-    /**
-     * Returns the path to the DTD file for the result file.
-     *
-     * @return The path to the DTD file for the result file.
-     * @throws AnalysisException If the DTD file could not be created.
-     */
-    public Path getDTDFile() throws AnalysisException {
-        return this.getDTDFile(false);
+        return this.dtd;
     }
 
     /**
-     * Returns the path to the DTD file for the result file.
+     * Returns the validator for the DTD generated from the result document.
+     * <p>
+     * The validator is compiled once and can be used to validate other results against this result's DTD
+     * without re-parsing. The validator is derived from the same generator run as the DTD.
      *
-     * @param forceRegeneration If {@code true}, the DTD file is regenerated; otherwise, the cached DTD file is returned (if available).
-     * @return The path to the DTD file for the result file.
-     * @throws AnalysisException If the DTD file could not be created.
+     * @return The DTD validator.
+     * @throws AnalysisException If the raw result could not be parsed into an XML document.
      */
-    public Path getDTDFile(boolean forceRegeneration) throws AnalysisException {
+    public DTDValidator getDTDValidator() throws AnalysisException {
         if (this.parseException != null)
             throw new AnalysisException("The raw result could not be parsed into an XML document.", this.parseException);
 
-        if (this.dtdFile == null || forceRegeneration) {
-            try {
-                this.dtdFile = this.generateDTD(this.getResultFile(forceRegeneration));
-            } catch (IOException ex) {
-                LOG.error("Could not generate DTD file.", ex);
-                throw new AnalysisException("A fatal error occurred when generating the document type definition from the query result.", ex);
-            }
-        }
+        if (this.dtdValidator == null)
+            this.generateDTD();
 
-        return this.dtdFile;
+        return this.dtdValidator;
     }
 
     /**
-     * Generates a DTD file for the result file.
-     *
-     * @param resultFile The result file.
-     * @return The path to the DTD file.
-     * @throws IOException If an I/O error occurs.
+     * Generates the DTD and compiles its validator, so the result document is only traversed once for both.
      */
-    private Path generateDTD(Path resultFile) throws IOException {
+    private void generateDTD() {
+        LOG.debug("Generating DTD");
         var gen = new DTDGenerator();
-        gen.run(resultFile.toString());
-        String dtd = gen.printDTD();
-
-        var file = Files.createTempFile("xq-dtd", ".dtd");
-        Files.writeString(file, dtd);
-
-        return file;
+        gen.run(this.resultDocument);
+        this.dtd = gen.printDTD();
+        this.dtdValidator = gen.compileValidator(XML_ROOT);
     }
 
     //#endregion
 
+    /**
+     * Returns the index of the result document used to compare it with other results.
+     * <p>
+     * The index is created once and does not reference the result document.
+     *
+     * @return The subtree index.
+     * @throws AnalysisException If the raw result could not be parsed into an XML document.
+     */
+    public SubtreeIndex getSubtreeIndex() throws AnalysisException {
+        if (this.parseException != null)
+            throw new AnalysisException("The raw result could not be parsed into an XML document.", this.parseException);
+
+        if (this.subtreeIndex == null) {
+            LOG.debug("Creating subtree index");
+            this.subtreeIndex = new SubtreeIndex(this.resultDocument);
+        }
+
+        return this.subtreeIndex;
+    }
+
     /**
      * Parses the raw result into an XML document.
+     * <p>
+     * The raw result is streamed into the parser together with the root element, so no wrapped copy of the result is
+     * created. The parser is taken from a pool shared by all threads.
      */
     private void parseRawResult() throws AnalysisException {
         try {
             LOG.debug("Parsing XML document");
-            this.resultDocumentRaw = '<' + XQResult.XML_ROOT + '>' + System.lineSeparator() + this.rawResult + System.lineSeparator() + "</" + XQResult.XML_ROOT + '>';
-            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            this.resultDocument = builder.parse(new ByteArrayInputStream(this.resultDocumentRaw.getBytes(StandardCharsets.UTF_8)));
+            DocumentBuilder documentBuilder = borrowDocumentBuilder();
+            try {
+                this.resultDocument = documentBuilder.parse(new InputSource(new ResultReader(this.getRawResult())));
+            } finally {
+                DOCUMENT_BUILDERS.offer(documentBuilder);
+            }
         } catch (ParserConfigurationException ex) {
             LOG.error("Could not create document builder.", ex);
             throw new AnalysisException("A fatal error occurred when creating the XML parser.", ex);
         } catch (IOException ex) {
-            LOG.error("Could not convert XML document to byte-stream.", ex);
+            LOG.error("Could not read XML document.", ex);
             throw new AnalysisException("A fatal error occurred when parsing the XML document.", ex);
         } catch (SAXException ex) {
             LOG.warn("Invalid XML document.", ex);
@@ -211,4 +267,52 @@ private void parseRawResult() throws AnalysisException {
             this.resultDocument = null;
         }
     }
+
+    /**
+     * Builds the XML document from the events emitted by the output.
+     */
+    private void buildResultDocument() throws AnalysisException {
+        try {
+            LOG.debug("Building XML document");
+            DocumentBuilder documentBuilder = borrowDocumentBuilder();
+            Document document = documentBuilder.newDocument();
+            DOCUMENT_BUILDERS.offer(documentBuilder);
+            var builder = new DOMBuilder(document);
+            this.output.emit(builder);
+            this.resultDocument = builder.finish();
+        } catch (ParserConfigurationException ex) {
+            LOG.error("Could not create document builder.", ex);
+            throw new AnalysisException("A fatal error occurred when creating the XML parser.", ex);
+        } catch (SAXException ex) {
+            LOG.warn("Could not build XML document.", ex);
+            this.parseException = ex;
+            this.resultDocument = null;
+        }
+    }
+
+    /**
+     * Takes a document builder from the pool or creates a new one if none is idle.
+     * <p>
+     * The builder is used exclusively by the caller and must be returned to {@link #DOCUMENT_BUILDERS} after use.
+     *
+     * @return The reset document builder.
+     * @throws ParserConfigurationException If the document builder could not be created.
+     */
+    private static DocumentBuilder borrowDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = DOCUMENT_BUILDERS.poll();
+        if (builder == null) {
+            var factory = DocumentBuilderFactory.newInstance();
+            try {
+                // the whole document is traversed anyway, so deferred nodes would only add memory
+                factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+            } catch (ParserConfigurationException ex) {
+                LOG.debug("Could not disable deferred node expansion.", ex);
+            }
+            builder = factory.newDocumentBuilder();
+        } else {
+            builder.reset();
+        }
+        builder.setErrorHandler(ERROR_HANDLER);
+        return builder;
+    }
 }
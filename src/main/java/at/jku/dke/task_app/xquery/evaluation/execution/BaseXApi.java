@@ -28,6 +28,16 @@ class BaseXApi implements AutoCloseable {
      * @param databasePath The path to the database (if {@code null} the database will be created in main memory).
      */
     public BaseXApi(Path databasePath) {
+        this(databasePath, databasePath == null);
+    }
+
+    /**
+     * Creates a new instance of class {@link BaseXApi}.
+     *
+     * @param databasePath The path to the database (if {@code null} a temporary directory will be used).
+     * @param mainMemory   Whether databases should be created in main memory.
+     */
+    public BaseXApi(Path databasePath, boolean mainMemory) {
         LOG.debug("Creating BaseX context with database path: {}", databasePath);
         var options = new StaticOptions(false);
         if (databasePath == null) {
@@ -38,10 +48,22 @@ public BaseXApi(Path databasePath) {
         } else
             options.set(StaticOptions.DBPATH, databasePath.normalize().toAbsolutePath().toString());
         this.context = new Context(options);
-        if (databasePath == null)
+        if (mainMemory)
             this.context.options.set(MainOptions.MAINMEM, true);
     }
 
+    /**
+     * Creates a new instance of class {@link BaseXApi} sharing the databases of the specified API.
+     * <p>
+     * The context is created as client context of the main context, so both use the same databases and locks.
+     *
+     * @param main The API providing the main context.
+     */
+    public BaseXApi(BaseXApi main) {
+        LOG.debug("Creating BaseX client context");
+        this.context = new Context(main.context);
+    }
+
     /**
      * Returns the context of the BaseX API.
      * <p>
@@ -66,6 +88,31 @@ public void createDatabase(String name, String document) throws BaseXException {
         cmd.execute(this.context);
     }
 
+    /**
+     * Creates a new database with the given name from the specified file.
+     * <p>
+     * BaseX parses the file directly, so the document does not have to be loaded into the heap.
+     *
+     * @param name     The name of the database.
+     * @param document The path of the XML file to be stored in the database.
+     * @throws BaseXException If an error occurs during the creation of the database.
+     */
+    public void createDatabase(String name, Path document) throws BaseXException {
+        LOG.debug("Creating database {} from {}", name, document);
+        CreateDB cmd = new CreateDB(name, document.toString());
+        cmd.execute(this.context);
+    }
+
+    /**
+     * Returns whether a database with the given name exists.
+     *
+     * @param name The name of the database.
+     * @return {@code true} if the database exists; {@code false} otherwise.
+     */
+    public boolean existsDatabase(String name) {
+        return this.context.listDBs().contains(name);
+    }
+
     /**
      * Drops the database with the given name.
      *
@@ -91,6 +138,40 @@ public String executeQuery(String query) throws BaseXException {
         return cmd.execute(this.context);
     }
 
+    /**
+     * Executes the given query within the specified limits and returns the result.
+     * <p>
+     * If a time limit is exceeded, the query job is stopped, which interrupts the evaluation. The result is serialized
+     * into a {@link MeteredOutputStream}, which stops the job as soon as a result limit is exceeded.
+     *
+     * @param query  The query to execute.
+     * @param limits The limits of the execution.
+     * @return The result of the query.
+     * @throws XQueryTimeoutException   If the query has been stopped because it exceeded a time limit.
+     * @throws XQueryLimitException     If the query has been stopped because its result exceeded a size limit.
+     * @throws XQueryCancelledException If the query has been stopped because it was cancelled.
+     * @throws BaseXException           If an error occurs during the execution of the query.
+     */
+    public String executeQuery(String query, XQLimits limits) throws BaseXException, XQueryException {
+        if (!limits.hasTimeLimit() && !limits.hasResultLimit() && !limits.isCancellable())
+            return this.executeQuery(query);
+
+        LOG.debug("Executing query: {}", query);
+        XQuery cmd = new XQuery(query);
+        var output = new MeteredOutputStream(new ResultMeter(limits), cmd::stop);
+        try (var watch = ExecutionWatchdog.watch(limits, cmd::stop)) {
+            watch.throwIfExpired(null); // cancelled before the execution started
+            try {
+                cmd.execute(this.context, output);
+                return output.toString();
+            } catch (BaseXException ex) {
+                watch.throwIfExpired(ex);
+                output.throwIfExceeded(ex);
+                throw ex;
+            }
+        }
+    }
+
     /**
      * Returns information about the database.
      *
@@ -9,18 +9,62 @@
 
 /**
  * Executes XQuery queries using the BaseX API.
+ * <p>
+ * If the document store is enabled, task group documents passed via {@link #executeQuery(String, XQDocument)} are stored
+ * in long-lived databases of a {@link BaseXProcessorStore} which are only rebuilt if the content of the document changes.
+ * Processors of a pool share the store, so the databases survive the replacement of a processor. Databases of documents
+ * backed by an {@link XQDocumentStore} are created from the stored file instead of the document content.
+ * <p>
+ * Queries containing updating expressions are rejected, so the stored databases are only read.
+ * <p>
+ * Limits passed via {@link #evaluate(String, XQDocument, XQLimits)} are enforced by stopping the query job, either when a
+ * time limit expires or when the serialized result exceeds a result limit.
  */
 public class BaseXProcessor implements XQProcessor {
     private static final Logger LOG = LoggerFactory.getLogger(BaseXProcessor.class);
     private final BaseXApi baseXApi;
+    private final BaseXProcessorStore store;
+    private final boolean ownsStore;
 
     /**
-     * Creates a new instance of class {@link BaseXProcessor}.
+     * Creates a new instance of class {@link BaseXProcessor} without document store.
      *
      * @param basexDirectory The directory where to store the BaseX databases.
      */
     public BaseXProcessor(Path basexDirectory) {
-        this.baseXApi = new BaseXApi(basexDirectory);
+        this(basexDirectory, false);
+    }
+
+    /**
+     * Creates a new instance of class {@link BaseXProcessor}.
+     *
+     * @param basexDirectory The directory where to store the BaseX databases.
+     * @param documentStore  Whether task group documents should be kept in long-lived databases.
+     */
+    public BaseXProcessor(Path basexDirectory, boolean documentStore) {
+        if (documentStore) {
+            this.store = new BaseXProcessorStore(basexDirectory);
+            this.baseXApi = this.store.newSession();
+        } else {
+            this.store = null;
+            this.baseXApi = new BaseXApi(basexDirectory, basexDirectory == null);
+        }
+        this.ownsStore = documentStore;
+    }
+
+    /**
+     * Creates a new instance of class {@link BaseXProcessor} using a document store shared with other processors.
+     * <p>
+     * The store is not closed when this processor is closed.
+     *
+     * @param store The document store.
+     */
+    public BaseXProcessor(BaseXProcessorStore store) {
+        if (store == null)
+            throw new IllegalArgumentException("store must not be null.");
+        this.store = store;
+        this.baseXApi = store.newSession();
+        this.ownsStore = false;
     }
 
     /**
@@ -33,6 +77,83 @@ public BaseXProcessor(Path basexDirectory) {
      */
     @Override
     public String executeQuery(String query, String xmlDocument) throws XQueryException {
+        return this.executeQuery(query, xmlDocument, XQLimits.NONE);
+    }
+
+    /**
+     * Executes an XQuery query on the given task group document.
+     * <p>
+     * If the document store is enabled, the document is stored in a database named after {@link XQDocument#key()}
+     * which is reused by all subsequent executions on the same document version, also by other processors sharing the store.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will replace 'etutor.xml' with correct db name).
+     * @return A String representing the result as it is returned by the BaseX XQuery processor.
+     * @throws XQueryException If an error occurs during the execution of the query.
+     */
+    @Override
+    public String executeQuery(String query, XQDocument document) throws XQueryException {
+        return this.executeQuery(query, document, XQLimits.NONE);
+    }
+
+    /**
+     * Executes an XQuery query on the given task group document within the specified limits.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will replace 'etutor.xml' with correct db name).
+     * @param limits   The limits of the execution.
+     * @return The output of the query.
+     * @throws XQueryTimeoutException If the query has been stopped because it exceeded a time limit.
+     * @throws XQueryLimitException   If the query has been stopped because its result exceeded a size limit.
+     * @throws XQueryException        If an error occurs during the execution of the query.
+     */
+    @Override
+    public XQOutput evaluate(String query, XQDocument document, XQLimits limits) throws XQueryException {
+        return XQOutput.of(this.executeQuery(query, document, limits));
+    }
+
+    /**
+     * Executes an XQuery query on the given task group document within the specified limits.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use.
+     * @param limits   The limits of the execution.
+     * @return The query result.
+     * @throws XQueryException If an error occurs during the execution of the query.
+     */
+    private String executeQuery(String query, XQDocument document, XQLimits limits) throws XQueryException {
+        if (this.store != null) {
+            try (var database = this.store.open(document)) {
+                return this.execute(query, database.name(), limits);
+            }
+        }
+
+        // Prepare database
+        String dbName = "etutor" + UUID.randomUUID().toString().replace("-", "");
+        BaseXProcessorStore.createDatabase(this.baseXApi, dbName, document);
+
+        // Execute query
+        try {
+            return this.execute(query, dbName, limits);
+        } finally {
+            try {
+                this.baseXApi.dropDatabase(dbName);
+            } catch (BaseXException ex) {
+                LOG.error("Could not drop database.", ex);
+            }
+        }
+    }
+
+    /**
+     * Executes an XQuery query on a temporary database containing the XML document.
+     *
+     * @param query       The query to evaluate.
+     * @param xmlDocument The XML document to use.
+     * @param limits      The limits of the execution.
+     * @return The query result.
+     * @throws XQueryException If an error occurs during the execution of the query.
+     */
+    private String executeQuery(String query, String xmlDocument, XQLimits limits) throws XQueryException {
         // Prepare database
         String dbName = "etutor" + UUID.randomUUID().toString().replace("-", "");
         try {
@@ -42,16 +163,9 @@ public String executeQuery(String query, String xmlDocument) throws XQueryExcept
             throw new XQueryException("Could not initialize database.", ex);
         }
 
-        // Prepare query
-        query = XQProcessor.replaceXmlFileName(query, dbName);  // call this method only for checking if invalid document loaded in query
-
         // Execute query
         try {
-            LOG.info("Executing query: {}", query);
-            return this.baseXApi.executeQuery(query);
-        } catch (BaseXException ex) {
-            LOG.warn("Could not execute query.", ex);
-            throw new XQueryException(ex);
+            return this.execute(query, dbName, limits);
         } finally {
             try {
                 this.baseXApi.dropDatabase(dbName);
@@ -61,6 +175,17 @@ public String executeQuery(String query, String xmlDocument) throws XQueryExcept
         }
     }
 
+    /**
+     * Drops all stored databases of the specified task group.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    @Override
+    public void evictDocuments(long taskGroupId) {
+        if (this.store != null)
+            this.store.evictDocuments(taskGroupId);
+    }
+
     @Override
     public String getVersion() throws XQueryException {
         try {
@@ -76,5 +201,33 @@ public String getVersion() throws XQueryException {
     @Override
     public void close() {
         this.baseXApi.close();
+        if (this.ownsStore)
+            this.store.close();
+    }
+
+    /**
+     * Executes the query on the specified database.
+     *
+     * @param query  The query to evaluate.
+     * @param dbName The name of the database to use instead of 'etutor.xml'.
+     * @param limits The limits of the execution.
+     * @return The query result.
+     * @throws XQueryException If an error occurs during the execution of the query.
+     */
+    private String execute(String query, String dbName, XQLimits limits) throws XQueryException {
+        // Prepare query; stored databases are shared by all submissions, so they must never be updated
+        var analysis = XQueryAnalyzer.analyze(query);
+        if (analysis.updating())
+            throw new XQueryException("Updating expressions are not allowed, the XML document is read-only.");
+        query = analysis.bind(dbName);
+
+        // Execute query
+        try {
+            LOG.info("Executing query: {}", query);
+            return this.baseXApi.executeQuery(query, limits);
+        } catch (BaseXException ex) {
+            LOG.warn("Could not execute query.", ex);
+            throw new XQueryException(ex);
+        }
     }
 }
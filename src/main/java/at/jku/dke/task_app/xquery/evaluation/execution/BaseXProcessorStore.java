@@ -0,0 +1,300 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.basex.core.BaseXException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Stores task group documents in long-lived BaseX databases shared by all {@link BaseXProcessor}s of a pool.
+ * <p>
+ * The databases belong to the main context of the store; processors execute their queries in client contexts of the
+ * main context. A database is only rebuilt if the content of the document changes. Databases of previous document
+ * versions are dropped once no execution uses them anymore, so executions running while a document changes are not
+ * affected. The lock of the store only guards this bookkeeping; databases are created outside of it.
+ */
+public class BaseXProcessorStore implements XQProcessorStore {
+    private static final Logger LOG = LoggerFactory.getLogger(BaseXProcessorStore.class);
+
+    private final BaseXApi baseXApi;
+    private final String prefix;
+    private final Map<String, Database> current;
+    private final Map<String, Database> databases;
+    private final Map<String, CompletableFuture<Void>> creations;
+
+    /**
+     * Creates a new instance of class {@link BaseXProcessorStore}.
+     *
+     * @param basexDirectory The directory where to store the BaseX databases (if {@code null} a temporary directory will be used).
+     */
+    public BaseXProcessorStore(Path basexDirectory) {
+        // stored databases must survive other database creations, so they cannot be kept in main memory
+        this.baseXApi = new BaseXApi(basexDirectory, false);
+        this.prefix = "etutor" + UUID.randomUUID().toString().replace("-", "").substring(0, 8) + "_";
+        this.current = new HashMap<>();
+        this.databases = new HashMap<>();
+        this.creations = new HashMap<>();
+    }
+
+    /**
+     * Creates a new API whose context shares the databases of this store.
+     *
+     * @return The API.
+     */
+    BaseXApi newSession() {
+        return new BaseXApi(this.baseXApi);
+    }
+
+    /**
+     * Opens the stored database of the given document and creates the database if it does not exist yet.
+     * <p>
+     * If the document of the same task group and type changed, the database of the previous version is dropped as soon
+     * as it is not used anymore. The returned database must be closed after the execution.
+     * <p>
+     * Databases are created outside the lock of the store, so the creation of a large database only blocks executions
+     * waiting for the same database. Concurrent openings of a database that is being created wait for its creation.
+     *
+     * @param document The document.
+     * @return The opened database.
+     * @throws XQueryException If the database could not be created.
+     */
+    Database open(XQDocument document) throws XQueryException {
+        String slot = document.taskGroupId() + "_" + document.type().name().toLowerCase();
+        String name = this.prefix + document.key();
+        CompletableFuture<Void> creation;
+        boolean creator = false;
+        synchronized (this) {
+            Database database = this.acquire(slot, name);
+            if (database != null)
+                return database;
+
+            creation = this.creations.get(name);
+            if (creation == null) {
+                creation = new CompletableFuture<>();
+                this.creations.put(name, creation);
+                creator = true;
+            }
+        }
+
+        if (creator)
+            this.create(name, document, creation);
+        try {
+            creation.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof XQueryException xqe)
+                throw new XQueryException(xqe.getMessage(), xqe);
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw ex;
+        }
+
+        synchronized (this) {
+            Database database = this.acquire(slot, name);
+            if (database == null) {
+                database = new Database(name);
+                this.databases.put(name, database);
+                this.activate(slot, database);
+            }
+            return database;
+        }
+    }
+
+    /**
+     * Drops all stored databases of the specified task group once they are not used anymore.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    @Override
+    public synchronized void evictDocuments(long taskGroupId) {
+        String slotPrefix = taskGroupId + "_";
+        var it = this.current.entrySet().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            if (entry.getKey().startsWith(slotPrefix)) {
+                it.remove();
+                this.retire(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drops all stored databases and closes the main context.
+     */
+    @Override
+    public synchronized void close() {
+        List.copyOf(this.databases.keySet()).forEach(this::drop);
+        this.current.clear();
+        this.baseXApi.close();
+    }
+
+    /**
+     * Creates a database containing the document.
+     * <p>
+     * Documents backed by a store are parsed from the stored file; if the file cannot be used, e.g. because a newer
+     * version of the document replaced it in the meantime, the content is used.
+     *
+     * @param baseXApi The API to use.
+     * @param dbName   The database name.
+     * @param document The document.
+     * @throws XQueryException If the database could not be created.
+     */
+    static void createDatabase(BaseXApi baseXApi, String dbName, XQDocument document) throws XQueryException {
+        try {
+            Path file = null;
+            try {
+                file = document.file();
+            } catch (IOException ex) {
+                LOG.warn("Could not store document {}, using its content.", document.key(), ex);
+            }
+
+            if (file != null) {
+                try {
+                    baseXApi.createDatabase(dbName, file);
+                    return;
+                } catch (BaseXException ex) {
+                    if (Files.exists(file))
+                        throw ex;
+                    LOG.info("Stored document {} has been removed, using its content.", document.key());
+                }
+            }
+            baseXApi.createDatabase(dbName, document.content());
+        } catch (BaseXException ex) {
+            LOG.error("Could not create database.", ex);
+            throw new XQueryException("Could not initialize database.", ex);
+        }
+    }
+
+    /**
+     * Acquires a usage of the registered database with the given name and makes it the current database of the slot.
+     * <p>
+     * A previous version may still be registered if the document has been reverted while the version was in use.
+     *
+     * @param slot The slot of the task group document.
+     * @param name The database name.
+     * @return The database or {@code null} if the database is not registered.
+     */
+    private Database acquire(String slot, String name) {
+        Database previous = this.current.get(slot);
+        if (previous != null && previous.name.equals(name)) {
+            previous.usages++;
+            return previous;
+        }
+
+        Database database = this.databases.get(name);
+        if (database == null)
+            return null;
+        this.activate(slot, database);
+        return database;
+    }
+
+    /**
+     * Makes the database the current database of the slot, acquires a usage and retires the previous database.
+     *
+     * @param slot     The slot of the task group document.
+     * @param database The database.
+     */
+    private void activate(String slot, Database database) {
+        database.retired = false;
+        database.usages++;
+        Database previous = this.current.put(slot, database);
+        if (previous != null && previous != database)
+            this.retire(previous);
+    }
+
+    /**
+     * Creates the database unless it exists and completes the creation.
+     *
+     * @param name     The database name.
+     * @param document The document.
+     * @param creation The creation to complete.
+     */
+    private void create(String name, XQDocument document, CompletableFuture<Void> creation) {
+        try {
+            if (!this.baseXApi.existsDatabase(name)) {
+                LOG.info("Storing document {} in database {}", document.key(), name);
+                createDatabase(this.baseXApi, name, document);
+            }
+            creation.complete(null);
+        } catch (XQueryException | RuntimeException ex) {
+            creation.completeExceptionally(ex);
+        } finally {
+            synchronized (this) {
+                this.creations.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Marks a database as outdated and drops it if it is not used anymore.
+     *
+     * @param database The database.
+     */
+    private void retire(Database database) {
+        database.retired = true;
+        if (database.usages == 0)
+            this.drop(database.name);
+    }
+
+    /**
+     * Releases a usage of the database and drops the database if it is outdated and not used anymore.
+     *
+     * @param database The database.
+     */
+    private synchronized void release(Database database) {
+        database.usages--;
+        if (database.retired && database.usages == 0)
+            this.drop(database.name);
+    }
+
+    /**
+     * Drops a stored database.
+     *
+     * @param dbName The database name.
+     */
+    private void drop(String dbName) {
+        this.databases.remove(dbName);
+        try {
+            this.baseXApi.dropDatabase(dbName);
+        } catch (BaseXException ex) {
+            LOG.error("Could not drop database {}.", dbName, ex);
+        }
+    }
+
+    /**
+     * A stored database used by executions.
+     * <p>
+     * Closing the database releases the usage of the execution.
+     */
+    final class Database implements AutoCloseable {
+        private final String name;
+        private int usages;
+        private boolean retired;
+
+        private Database(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the database.
+         *
+         * @return The database name.
+         */
+        String name() {
+            return this.name;
+        }
+
+        @Override
+        public void close() {
+            BaseXProcessorStore.this.release(this);
+        }
+    }
+}
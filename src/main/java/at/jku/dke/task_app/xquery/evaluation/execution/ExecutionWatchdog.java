@@ -0,0 +1,154 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitors the time limits of query executions.
+ * <p>
+ * Executions run on the calling thread. A shared daemon thread periodically checks the elapsed time and the CPU time of
+ * the executing thread and cancels the execution via the processor specific interrupt if a limit is exceeded. The
+ * processor has to check {@link Watch#isExpired()} cooperatively or stop the execution when it is interrupted.
+ * Executions with an {@link XQCancellation} are interrupted the same way when they are cancelled.
+ */
+final class ExecutionWatchdog {
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionWatchdog.class);
+    private static final long CHECK_INTERVAL_MILLIS = 50;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "xq-execution-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ExecutionWatchdog() {
+    }
+
+    /**
+     * Starts monitoring the execution on the current thread.
+     * <p>
+     * The returned watch must be closed when the execution has finished, preferably using try-with-resources.
+     *
+     * @param limits    The limits of the execution.
+     * @param interrupt Cancels the execution; called at most once by the watchdog thread.
+     * @return The watch of the execution.
+     */
+    static Watch watch(XQLimits limits, Runnable interrupt) {
+        var watch = new Watch(limits, interrupt);
+        if (limits.hasTimeLimit())
+            watch.future = SCHEDULER.scheduleWithFixedDelay(watch::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (limits.isCancellable())
+            watch.unregister = limits.cancellation().register(() -> watch.expire(new XQueryCancelledException()));
+        return watch;
+    }
+
+    /**
+     * Monitors a single execution.
+     */
+    static final class Watch implements AutoCloseable {
+        private final XQLimits limits;
+        private final Runnable interrupt;
+        private final long threadId;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private volatile ScheduledFuture<?> future;
+        private volatile Runnable unregister;
+        private volatile XQueryException expired;
+
+        private Watch(XQLimits limits, Runnable interrupt) {
+            this.limits = limits;
+            this.interrupt = interrupt;
+            this.threadId = Thread.currentThread().threadId();
+            this.startNanos = System.nanoTime();
+            this.startCpuNanos = XQLimits.isSet(limits.cpuTime()) ? cpuTime(this.threadId) : -1;
+        }
+
+        /**
+         * Returns whether a limit has been exceeded or the execution has been cancelled.
+         *
+         * @return {@code true} if the execution has been cancelled; otherwise {@code false}.
+         */
+        boolean isExpired() {
+            return this.expired != null;
+        }
+
+        /**
+         * Throws the timeout or cancellation exception if the execution has been cancelled.
+         *
+         * @param cause The exception thrown by the cancelled execution.
+         * @throws XQueryTimeoutException   If a limit has been exceeded.
+         * @throws XQueryCancelledException If the execution has been cancelled on request.
+         */
+        void throwIfExpired(Throwable cause) throws XQueryException {
+            XQueryException ex = this.expired;
+            if (ex != null) {
+                if (cause != null && ex.getCause() == null)
+                    ex.initCause(cause);
+                throw ex;
+            }
+        }
+
+        /**
+         * Stops monitoring the execution.
+         */
+        @Override
+        public void close() {
+            ScheduledFuture<?> f = this.future;
+            if (f != null)
+                f.cancel(false);
+            Runnable r = this.unregister;
+            if (r != null)
+                r.run();
+        }
+
+        private void check() {
+            if (this.expired != null)
+                return;
+
+            Duration wallClock = this.limits.wallClock();
+            if (XQLimits.isSet(wallClock) && System.nanoTime() - this.startNanos > wallClock.toNanos()) {
+                this.expire(new XQueryTimeoutException("The query exceeded the time limit of " + wallClock.toMillis() + " ms.", wallClock));
+                return;
+            }
+
+            Duration cpuTime = this.limits.cpuTime();
+            if (this.startCpuNanos >= 0) {
+                long current = cpuTime(this.threadId);
+                if (current >= 0 && current - this.startCpuNanos > cpuTime.toNanos())
+                    this.expire(new XQueryTimeoutException("The query exceeded the CPU time limit of " + cpuTime.toMillis() + " ms.", cpuTime));
+            }
+        }
+
+        private void expire(XQueryException ex) {
+            synchronized (this) {
+                if (this.expired != null)
+                    return;
+                this.expired = ex;
+            }
+            if (ex instanceof XQueryCancelledException)
+                LOG.debug("Cancelling query execution on request");
+            else
+                LOG.warn("Cancelling query execution: {}", ex.getMessage());
+            this.close();
+            try {
+                this.interrupt.run();
+            } catch (RuntimeException e) {
+                LOG.error("Could not cancel query execution.", e);
+            }
+        }
+    }
+
+    private static long cpuTime(long threadId) {
+        if (!THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled())
+            return -1;
+        return THREADS.getThreadCpuTime(threadId);
+    }
+}
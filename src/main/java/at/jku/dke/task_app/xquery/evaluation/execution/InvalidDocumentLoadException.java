@@ -9,4 +9,13 @@ public class InvalidDocumentLoadException extends XQueryException {
      */
     public InvalidDocumentLoadException() {
     }
+
+    /**
+     * Creates a new instance of class {@link InvalidDocumentLoadException}.
+     *
+     * @param message The detail message.
+     */
+    public InvalidDocumentLoadException(String message) {
+        super(message);
+    }
 }
@@ -0,0 +1,161 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Collects the serialized result of a query and aborts the serialization as soon as a result limit is exceeded.
+ * <p>
+ * The markup is scanned while it is written to count the elements and their nesting depth, so the limits are enforced
+ * before the whole result has been serialized. If a limit is exceeded, the abort action is called and the write fails
+ * with an {@link IOException}; the exceeded limit is available via {@link #throwIfExceeded(Throwable)}.
+ */
+final class MeteredOutputStream extends OutputStream {
+    private static final int TEXT = 0;
+    private static final int OPEN = 1;
+    private static final int START_TAG = 2;
+    private static final int END_TAG = 3;
+    private static final int BANG = 4;
+    private static final int COMMENT = 5;
+    private static final int CDATA = 6;
+    private static final int PROCESSING_INSTRUCTION = 7;
+    private static final int DECLARATION = 8;
+
+    private final ResultMeter meter;
+    private final Runnable abort;
+    private final ByteArrayOutputStream buffer;
+    private int state;
+    private int depth;
+    private int quote;
+    private int previous;
+    private int beforePrevious;
+    private XQueryLimitException exceeded;
+
+    /**
+     * Creates a new instance of class {@link MeteredOutputStream}.
+     *
+     * @param meter The meter enforcing the limits.
+     * @param abort Stops the serialization; called at most once if a limit is exceeded.
+     */
+    MeteredOutputStream(ResultMeter meter, Runnable abort) {
+        this.meter = Objects.requireNonNull(meter);
+        this.abort = Objects.requireNonNull(abort);
+        this.buffer = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (this.exceeded != null)
+            throw new IOException(this.exceeded.getMessage(), this.exceeded);
+
+        try {
+            this.meter.addBytes(len);
+            for (int i = off; i < off + len; i++)
+                this.scan(b[i] & 0xFF);
+        } catch (XQueryLimitException ex) {
+            this.exceeded = ex;
+            this.abort.run();
+            throw new IOException(ex.getMessage(), ex);
+        }
+        this.buffer.write(b, off, len);
+    }
+
+    /**
+     * Throws the limit exception if a result limit has been exceeded.
+     *
+     * @param cause The exception thrown by the aborted execution.
+     * @throws XQueryLimitException If a result limit has been exceeded.
+     */
+    void throwIfExceeded(Throwable cause) throws XQueryLimitException {
+        XQueryLimitException ex = this.exceeded;
+        if (ex != null) {
+            if (cause != null && ex.getCause() == null)
+                ex.initCause(cause);
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the collected result.
+     *
+     * @return The UTF-8 decoded result.
+     */
+    @Override
+    public String toString() {
+        return this.buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Processes the next byte of the markup.
+     *
+     * @param c The byte.
+     * @throws XQueryLimitException If the node count or depth limit is exceeded.
+     */
+    private void scan(int c) throws XQueryLimitException {
+        switch (this.state) {
+            case TEXT -> {
+                if (c == '<')
+                    this.state = OPEN;
+            }
+            case OPEN -> {
+                if (c == '/') {
+                    this.state = END_TAG;
+                } else if (c == '!') {
+                    this.state = BANG;
+                } else if (c == '?') {
+                    this.state = PROCESSING_INSTRUCTION;
+                } else {
+                    this.state = START_TAG;
+                    this.quote = 0;
+                    this.meter.addElement(this.depth + 1);
+                }
+            }
+            case START_TAG -> {
+                if (this.quote != 0) {
+                    if (c == this.quote)
+                        this.quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    this.quote = c;
+                } else if (c == '>') {
+                    if (this.previous != '/')
+                        this.depth++;
+                    this.state = TEXT;
+                }
+            }
+            case END_TAG -> {
+                if (c == '>') {
+                    this.depth--;
+                    this.state = TEXT;
+                }
+            }
+            case BANG -> this.state = c == '-' ? COMMENT : c == '[' ? CDATA : DECLARATION;
+            case COMMENT -> {
+                if (c == '>' && this.previous == '-' && this.beforePrevious == '-')
+                    this.state = TEXT;
+            }
+            case CDATA -> {
+                if (c == '>' && this.previous == ']' && this.beforePrevious == ']')
+                    this.state = TEXT;
+            }
+            case PROCESSING_INSTRUCTION -> {
+                if (c == '>' && this.previous == '?')
+                    this.state = TEXT;
+            }
+            default -> {
+                if (c == '>')
+                    this.state = TEXT;
+            }
+        }
+        this.beforePrevious = this.previous;
+        this.previous = c;
+    }
+}
@@ -0,0 +1,65 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+/**
+ * Measures the result of a query while it is produced and aborts as soon as a result limit is exceeded.
+ * <p>
+ * Counts the bytes of the serialized result as well as the number of elements and their nesting depth.
+ */
+final class ResultMeter {
+    private final XQLimits limits;
+    private long bytes;
+    private long nodes;
+
+    /**
+     * Creates a new instance of class {@link ResultMeter}.
+     *
+     * @param limits The limits to enforce.
+     */
+    ResultMeter(XQLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Adds the specified number of bytes to the result size.
+     *
+     * @param count The number of bytes.
+     * @throws XQueryLimitException If the size limit is exceeded.
+     */
+    void addBytes(long count) throws XQueryLimitException {
+        this.bytes += count;
+        if (this.limits.maxBytes() > 0 && this.bytes > this.limits.maxBytes())
+            throw new XQueryLimitException(XQueryLimitException.Kind.BYTES, this.limits.maxBytes());
+    }
+
+    /**
+     * Adds an element at the specified depth.
+     *
+     * @param depth The nesting depth of the element (top-level elements have depth 1).
+     * @throws XQueryLimitException If the node count or depth limit is exceeded.
+     */
+    void addElement(int depth) throws XQueryLimitException {
+        this.nodes++;
+        if (this.limits.maxNodes() > 0 && this.nodes > this.limits.maxNodes())
+            throw new XQueryLimitException(XQueryLimitException.Kind.NODES, this.limits.maxNodes());
+        if (this.limits.maxDepth() > 0 && depth > this.limits.maxDepth())
+            throw new XQueryLimitException(XQueryLimitException.Kind.DEPTH, this.limits.maxDepth());
+    }
+
+    /**
+     * Returns the measured result size.
+     *
+     * @return The number of bytes.
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the measured number of elements.
+     *
+     * @return The number of elements.
+     */
+    long getNodes() {
+        return nodes;
+    }
+}
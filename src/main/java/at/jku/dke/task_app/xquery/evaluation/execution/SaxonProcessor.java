@@ -1,34 +1,124 @@
 package at.jku.dke.task_app.xquery.evaluation.execution;
 
+import net.sf.saxon.Controller;
+import net.sf.saxon.event.PipelineConfiguration;
+import net.sf.saxon.event.ProxyReceiver;
+import net.sf.saxon.event.Receiver;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.lib.TraceListener;
+import net.sf.saxon.om.AttributeInfo;
+import net.sf.saxon.om.AttributeMap;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.NamespaceMap;
+import net.sf.saxon.om.NodeName;
 import net.sf.saxon.s9api.*;
+import net.sf.saxon.s9api.Location;
+import net.sf.saxon.serialize.SerializationProperties;
+import net.sf.saxon.str.UnicodeString;
+import net.sf.saxon.trace.Traceable;
+import net.sf.saxon.trans.UncheckedXPathException;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.type.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Executes XQuery queries using the Saxon API.
+ * <p>
+ * Documents are parsed into in-memory trees and bound to 'etutor.xml' via an {@link URIResolver}, so no files are written
+ * for regular queries. If the document store is enabled, the trees of task group documents passed via
+ * {@link #executeQuery(String, XQDocument)} are kept in a pool bounded by the size of the documents. Compiled reusable
+ * queries (i.e. solution queries) are kept in a bounded LRU cache. Both are kept in a {@link SaxonProcessorStore}, which processors of a pool share, so they survive the replacement of a
+ * processor.
+ * Documents backed by an {@link XQDocumentStore} are parsed from the memory-mapped file, and queries accessing them via
+ * {@code collection()} read the stored file instead of a temporary copy.
+ * <p>
+ * {@link #evaluate(String, XQDocument)} returns the result as node sequence, which is only serialized if requested.
+ * Time limits are enforced by a trace listener installed on the controller of the query, which cancels the evaluation
+ * once the {@link ExecutionWatchdog} reports an exceeded limit. As tracing slows down the evaluation, only queries
+ * executed with a time limit or cancellation are compiled with tracing. If result limits are set, the result is measured while
+ * its nodes are constructed, so the evaluation is aborted before an oversized result is materialized, even if the
+ * result consists of a single element.
  */
 public class SaxonProcessor implements XQProcessor {
     private static final Logger LOG = LoggerFactory.getLogger(SaxonProcessor.class);
+    private static final String DOCUMENT_NAME = "etutor.xml";
+
+    private final SaxonProcessorStore store;
+    private final boolean ownsStore;
+    private final Processor processor;
     private final XQueryCompiler compiler;
+    private final XQueryCompiler tracingCompiler;
     private final Path basePath;
+    private final boolean documentStore;
 
     /**
-     * Creates a new instance of class {@link SaxonProcessor}.
+     * Creates a new instance of class {@link SaxonProcessor} without document store.
      *
      * @param tempPath The path where to store temporary files.
      */
     public SaxonProcessor(Path tempPath) {
+        this(tempPath, false);
+    }
+
+    /**
+     * Creates a new instance of class {@link SaxonProcessor}.
+     *
+     * @param tempPath      The path where to store temporary files.
+     * @param documentStore Whether the parsed task group documents should be kept in memory.
+     */
+    public SaxonProcessor(Path tempPath, boolean documentStore) {
+        this(tempPath, documentStore, new SaxonProcessorStore(), true);
+    }
+
+    /**
+     * Creates a new instance of class {@link SaxonProcessor} using a store shared with other processors.
+     * <p>
+     * The store is not closed when this processor is closed.
+     *
+     * @param tempPath      The path where to store temporary files.
+     * @param documentStore Whether the parsed task group documents should be kept in the store.
+     * @param store         The store of parsed documents and compiled queries.
+     */
+    public SaxonProcessor(Path tempPath, boolean documentStore, SaxonProcessorStore store) {
+        this(tempPath, documentStore, store, false);
+    }
+
+    private SaxonProcessor(Path tempPath, boolean documentStore, SaxonProcessorStore store, boolean ownsStore) {
         if (tempPath == null)
             throw new IllegalArgumentException("tempPath must not be null.");
+        if (store == null)
+            throw new IllegalArgumentException("store must not be null.");
 
+        this.store = store;
+        this.ownsStore = ownsStore;
         this.basePath = tempPath.normalize().toAbsolutePath();
-        this.compiler = new Processor(false).newXQueryCompiler();
+        this.processor = store.getProcessor();
+        this.compiler = this.processor.newXQueryCompiler();
         this.compiler.setBaseURI(this.basePath.toUri());
+        this.tracingCompiler = this.processor.newXQueryCompiler();
+        this.tracingCompiler.setBaseURI(this.basePath.toUri());
+        this.tracingCompiler.setCompileWithTracing(true); // required to cancel queries exceeding a time limit
+        this.documentStore = documentStore;
 
         if (!this.basePath.toFile().exists())
             this.basePath.toFile().mkdirs();
@@ -41,12 +131,399 @@ public SaxonProcessor(Path tempPath) {
      * Executes the given query on the given XML document.
      *
      * @param query       The query to evaluate.
-     * @param xmlDocument ThThe XML document to use (the method will replace 'etutor.xml' with correct path).
+     * @param xmlDocument The XML document to use (the method will bind 'etutor.xml' to this document).
      * @return A String representing the result as it is returned by the Saxon XQuery processor.
      * @throws XQueryException If an error occurs during query execution.
      */
     @Override
     public String executeQuery(String query, String xmlDocument) throws XQueryException {
+        if (usesCollection(query))
+            return this.executeOnFile(query, xmlDocument, XQLimits.NONE);
+
+        XQProcessor.checkDocumentAccess(query);
+        var resolver = new DocumentResolver(() -> this.parseDocument(xmlDocument));
+        return this.execute(query, resolver, XQLimits.NONE, false).toString();
+    }
+
+    /**
+     * Executes the given query on the given task group document.
+     * <p>
+     * If the document store is enabled, the parsed document is kept in memory and reused by all subsequent executions
+     * on the same document version.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will bind 'etutor.xml' to this document).
+     * @return A String representing the result as it is returned by the Saxon XQuery processor.
+     * @throws XQueryException If an error occurs during query execution.
+     */
+    @Override
+    public String executeQuery(String query, XQDocument document) throws XQueryException {
+        return this.evaluate(query, document, XQLimits.NONE).getRawResult();
+    }
+
+    /**
+     * Executes the given query on the given task group document and returns the result without serializing it.
+     * <p>
+     * Results of queries using {@code collection()} are serialized, as they are executed on a temporary file.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will bind 'etutor.xml' to this document).
+     * @return The output of the query.
+     * @throws XQueryException If an error occurs during query execution.
+     */
+    @Override
+    public XQOutput evaluate(String query, XQDocument document) throws XQueryException {
+        return this.evaluate(query, document, XQLimits.NONE);
+    }
+
+    /**
+     * Executes the given query on the given task group document within the specified limits and returns the result
+     * without serializing it.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will bind 'etutor.xml' to this document).
+     * @param limits   The limits of the execution.
+     * @return The output of the query.
+     * @throws XQueryTimeoutException If the query has been cancelled because it exceeded a time limit.
+     * @throws XQueryLimitException   If the query has been aborted because its result exceeded a size limit.
+     * @throws XQueryException        If an error occurs during query execution.
+     */
+    @Override
+    public XQOutput evaluate(String query, XQDocument document, XQLimits limits) throws XQueryException {
+        return this.evaluate(query, document, limits, false);
+    }
+
+    /**
+     * Executes the given query on the given task group document within the specified limits and returns the result
+     * without serializing it.
+     * <p>
+     * The executables of reusable queries are kept in the store of compiled queries; other queries are compiled for
+     * every execution, so unique queries do not evict the executables of reusable ones.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will bind 'etutor.xml' to this document).
+     * @param limits   The limits of the execution.
+     * @param reusable Whether the query is executed repeatedly, e.g. a solution query.
+     * @return The output of the query.
+     * @throws XQueryTimeoutException If the query has been cancelled because it exceeded a time limit.
+     * @throws XQueryLimitException   If the query has been aborted because its result exceeded a size limit.
+     * @throws XQueryException        If an error occurs during query execution.
+     */
+    @Override
+    public XQOutput evaluate(String query, XQDocument document, XQLimits limits, boolean reusable) throws XQueryException {
+        if (usesCollection(query))
+            return XQOutput.of(this.executeOnFile(query, document, limits));
+
+        XQProcessor.checkDocumentAccess(query);
+        URIResolver resolver = this.documentStore ?
+            this.getDocumentResolver(document) :
+            new DocumentResolver(() -> this.parseDocument(document));
+        return new SaxonOutput(this.processor, this.execute(query, resolver, limits, reusable));
+    }
+
+    /**
+     * Removes all stored documents of the specified task group.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    @Override
+    public void evictDocuments(long taskGroupId) {
+        this.store.evictDocuments(taskGroupId);
+    }
+
+    @Override
+    public String getVersion() {
+        return "Saxon " + this.processor.getSaxonProductVersion()
+               + " " + this.processor.getSaxonEdition();
+    }
+
+    @Override
+    public void close() {
+        if (this.ownsStore)
+            this.store.close();
+    }
+
+    /**
+     * Returns the resolver providing the stored tree of the task group document.
+     * <p>
+     * The document is parsed and stored if it is not stored yet.
+     *
+     * @param document The task group document.
+     * @return The resolver providing 'etutor.xml'.
+     * @throws XQueryException If the document could not be parsed.
+     */
+    private URIResolver getDocumentResolver(XQDocument document) throws XQueryException {
+        XdmNode node = this.store.getDocument(document.key());
+        if (node == null) {
+            long size;
+            try {
+                if (document.store() == null) {
+                    String content = document.content();
+                    node = this.parseDocument(content);
+                    size = content.length();
+                } else {
+                    node = this.parseDocument(document);
+                    size = document.size();
+                }
+            } catch (SaxonApiException ex) {
+                LOG.error("Could not parse XML document.", ex);
+                throw new XQueryException("Could not load XML document.", ex);
+            }
+            this.store.putDocument(document.key(), node, size);
+        }
+
+        final XdmNode doc = node;
+        return new DocumentResolver(() -> doc);
+    }
+
+    /**
+     * Compiles (or loads the cached executable of) the query and evaluates it.
+     *
+     * @param query    The query to evaluate.
+     * @param resolver The resolver providing 'etutor.xml'.
+     * @param limits   The limits of the execution.
+     * @param reusable Whether the executable should be cached.
+     * @return The query result.
+     * @throws XQueryException If an error occurs during query execution.
+     */
+    private XdmValue execute(String query, URIResolver resolver, XQLimits limits, boolean reusable) throws XQueryException {
+        try {
+            LOG.info("Executing query {}", query);
+            boolean traced = needsTracing(limits);
+            XQueryExecutable executable = reusable ? this.compile(query, traced) : this.compileUncached(query, traced);
+            XQueryEvaluator evaluator = executable.load();
+            evaluator.setURIResolver(resolver);
+            return evaluate(evaluator, limits);
+        } catch (SaxonApiException ex) {
+            LOG.warn("Error during query execution.", ex);
+            throw new XQueryException(ex);
+        }
+    }
+
+    /**
+     * Evaluates the loaded query within the specified limits.
+     *
+     * @param evaluator The evaluator of the query.
+     * @param limits    The limits of the execution.
+     * @return The query result.
+     * @throws XQueryTimeoutException   If the query has been cancelled because it exceeded a time limit.
+     * @throws XQueryLimitException     If the query has been aborted because its result exceeded a size limit.
+     * @throws XQueryCancelledException If the query has been cancelled on request.
+     * @throws SaxonApiException        If an error occurs during query execution.
+     */
+    private static XdmValue evaluate(XQueryEvaluator evaluator, XQLimits limits) throws XQueryException, SaxonApiException {
+        if (!limits.hasTimeLimit() && !limits.hasResultLimit() && !limits.isCancellable())
+            return evaluator.evaluate(); // internally ensures that the query is not an updating query
+
+        try (var watch = ExecutionWatchdog.watch(limits, () -> {
+        })) {
+            if (needsTracing(limits))
+                evaluator.setTraceListener(new CancellationListener(watch));
+            try {
+                return limits.hasResultLimit() ? collect(evaluator, new ResultMeter(limits)) : evaluator.evaluate();
+            } catch (SaxonApiException | SaxonApiUncheckedException ex) {
+                watch.throwIfExpired(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the query in push mode and collects the result items.
+     * <p>
+     * Constructed nodes are measured event by event while their trees are built, so the evaluation is aborted as soon
+     * as a limit is exceeded instead of after a complete item has been built.
+     *
+     * @param evaluator The evaluator of the query.
+     * @param meter     The meter enforcing the result limits.
+     * @return The query result.
+     * @throws XQueryLimitException If the result exceeded a size limit.
+     * @throws SaxonApiException    If an error occurs during query execution.
+     */
+    private static XdmValue collect(XQueryEvaluator evaluator, ResultMeter meter) throws XQueryLimitException, SaxonApiException {
+        var destination = new MeteredDestination(meter);
+        try {
+            evaluator.run(destination);
+        } catch (SaxonApiException | SaxonApiUncheckedException ex) {
+            destination.throwIfExceeded(ex);
+            throw ex;
+        }
+        return destination.getXdmValue();
+    }
+
+    /**
+     * Measures the serialized size, the number of elements and the depth of an existing node or an atomic value.
+     * <p>
+     * The size is estimated from the names and string values of the nodes, as the result is only serialized if it is
+     * requested.
+     *
+     * @param item  The item.
+     * @param meter The meter enforcing the result limits.
+     * @throws XQueryLimitException If the result exceeded a size limit.
+     */
+    private static void measure(XdmItem item, ResultMeter meter) throws XQueryLimitException {
+        if (!(item instanceof XdmNode root)) {
+            meter.addBytes(item.getStringValue().length());
+            return;
+        }
+
+        Deque<XdmNode> nodes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        nodes.push(root);
+        depths.push(root.getNodeKind() == XdmNodeKind.DOCUMENT ? 0 : 1);
+        while (!nodes.isEmpty()) {
+            XdmNode node = nodes.pop();
+            int depth = depths.pop();
+            switch (node.getNodeKind()) {
+                case DOCUMENT -> {
+                    for (XdmNode child : node.children()) {
+                        nodes.push(child);
+                        depths.push(depth + 1);
+                    }
+                }
+                case ELEMENT -> {
+                    meter.addElement(depth);
+                    meter.addBytes(2L * node.getNodeName().toString().length() + 5);
+                    XdmSequenceIterator<XdmNode> attributes = node.axisIterator(Axis.ATTRIBUTE);
+                    while (attributes.hasNext()) {
+                        XdmNode attribute = attributes.next();
+                        meter.addBytes(attribute.getNodeName().toString().length() + attribute.getStringValue().length() + 4L);
+                    }
+                    for (XdmNode child : node.children()) {
+                        nodes.push(child);
+                        depths.push(depth + 1);
+                    }
+                }
+                default -> meter.addBytes(node.getStringValue().length());
+            }
+        }
+    }
+
+    /**
+     * Returns the compiled query from the cache or compiles it.
+     *
+     * @param query  The query.
+     * @param traced Whether the query has to be compiled with tracing.
+     * @return The compiled query.
+     * @throws SaxonApiException If the query could not be compiled.
+     */
+    private XQueryExecutable compile(String query, boolean traced) throws SaxonApiException {
+        XQueryExecutable executable = this.store.getExecutable(query, traced);
+        if (executable == null) {
+            executable = this.compileUncached(query, traced);
+            this.store.putExecutable(query, traced, executable);
+        }
+        return executable;
+    }
+
+    /**
+     * Compiles the query.
+     *
+     * @param query  The query.
+     * @param traced Whether the query has to be compiled with tracing.
+     * @return The compiled query.
+     * @throws SaxonApiException If the query could not be compiled.
+     */
+    private XQueryExecutable compileUncached(String query, boolean traced) throws SaxonApiException {
+        XQueryCompiler queryCompiler = traced ? this.tracingCompiler : this.compiler;
+        synchronized (queryCompiler) { // compiler is not thread-safe, executables are
+            return queryCompiler.compile(query);
+        }
+    }
+
+    /**
+     * Returns whether the query has to be compiled with tracing, which is required to cancel the evaluation.
+     * <p>
+     * Tracing slows down the evaluation, so it is only enabled if the execution has a time limit or may be cancelled.
+     *
+     * @param limits The limits of the execution.
+     * @return {@code true} if the query has to be compiled with tracing; {@code false} otherwise.
+     */
+    private static boolean needsTracing(XQLimits limits) {
+        return limits.hasTimeLimit() || limits.isCancellable();
+    }
+
+    /**
+     * Parses the XML document into an in-memory tree.
+     *
+     * @param xmlDocument The XML document.
+     * @return The document node.
+     * @throws SaxonApiException If the document could not be parsed.
+     */
+    private XdmNode parseDocument(String xmlDocument) throws SaxonApiException {
+        var source = new StreamSource(new StringReader(xmlDocument));
+        source.setSystemId(this.basePath.resolve(DOCUMENT_NAME).toUri().toString());
+        return this.processor.newDocumentBuilder().build(source);
+    }
+
+    /**
+     * Parses the task group document into an in-memory tree.
+     * <p>
+     * Documents backed by a store are parsed from the memory-mapped file without copying the content into the heap.
+     *
+     * @param document The task group document.
+     * @return The document node.
+     * @throws SaxonApiException If the document could not be read or parsed.
+     */
+    private XdmNode parseDocument(XQDocument document) throws SaxonApiException {
+        if (document.store() == null)
+            return this.parseDocument(document.content());
+
+        try (InputStream in = document.open()) {
+            var source = new StreamSource(in);
+            source.setSystemId(this.basePath.resolve(DOCUMENT_NAME).toUri().toString());
+            return this.processor.newDocumentBuilder().build(source);
+        } catch (IOException ex) {
+            throw new SaxonApiException("Could not read stored document " + document.key() + ".", ex);
+        }
+    }
+
+    /**
+     * Executes the query on the stored file of the task group document or on a temporary copy if the document is not
+     * backed by a store or its file has been removed.
+     *
+     * @param query    The query to evaluate.
+     * @param document The task group document.
+     * @param limits   The limits of the execution.
+     * @return The query result.
+     * @throws XQueryException If an error occurs during query execution.
+     */
+    private String executeOnFile(String query, XQDocument document, XQLimits limits) throws XQueryException {
+        Path file;
+        try {
+            file = document.file();
+        } catch (IOException ex) {
+            LOG.warn("Could not store document {}, using a temporary file.", document.key(), ex);
+            file = null;
+        }
+        if (file == null)
+            return this.executeOnFile(query, document.content(), limits);
+
+        try {
+            return this.executeCompiled(XQProcessor.replaceXmlFileName(query, this.basePath.relativize(file).toString()), limits);
+        } catch (XQueryTimeoutException | XQueryLimitException | XQueryCancelledException ex) {
+            throw ex;
+        } catch (XQueryException ex) {
+            // a newer version of the document may have replaced the file in the meantime
+            if (Files.exists(file))
+                throw ex;
+            LOG.info("Stored document {} has been removed, using a temporary file.", document.key());
+            return this.executeOnFile(query, document.content(), limits);
+        }
+    }
+
+    /**
+     * Executes the query on a temporary file containing the XML document.
+     * <p>
+     * Used for queries accessing the document via {@code collection()}, which is not resolved by {@link URIResolver}s.
+     *
+     * @param query       The query to evaluate.
+     * @param xmlDocument The XML document to use.
+     * @param limits      The limits of the execution.
+     * @return The query result.
+     * @throws XQueryException If an error occurs during query execution.
+     */
+    private String executeOnFile(String query, String xmlDocument, XQLimits limits) throws XQueryException {
         // Create file
         Path xmlPath = this.basePath.resolve(UUID.randomUUID() + ".xml");
         LOG.debug("Creating temporary file for XML document: {}", xmlPath);
@@ -63,13 +540,7 @@ public String executeQuery(String query, String xmlDocument) throws XQueryExcept
         // Execute query
         try {
             LOG.info("Executing query {} on document: {}", query, xmlPath);
-            XQueryExecutable executable = this.compiler.compile(query);
-            XQueryEvaluator evaluator = executable.load();
-            XdmValue result = evaluator.evaluate(); // internally ensures that the query is not an updating query
-            return result.toString();
-        } catch (SaxonApiException ex) {
-            LOG.warn("Error during query execution.", ex);
-            throw new XQueryException(ex);
+            return this.executeCompiled(query, limits);
         } finally {
             // Clean up
             try {
@@ -80,14 +551,434 @@ public String executeQuery(String query, String xmlDocument) throws XQueryExcept
         }
     }
 
-    @Override
-    public String getVersion() {
-        return "Saxon " + this.compiler.getProcessor().getSaxonProductVersion()
-               + " " + this.compiler.getProcessor().getSaxonEdition();
+    /**
+     * Compiles the query without caching the executable and evaluates it.
+     * <p>
+     * Used for queries referring to a document file, whose names differ between executions on temporary files.
+     *
+     * @param query  The query to evaluate.
+     * @param limits The limits of the execution.
+     * @return The serialized query result.
+     * @throws XQueryException If an error occurs during query execution.
+     */
+    private String executeCompiled(String query, XQLimits limits) throws XQueryException {
+        try {
+            XQueryExecutable executable = this.compileUncached(query, needsTracing(limits));
+            return evaluate(executable.load(), limits).toString();
+        } catch (SaxonApiException ex) {
+            LOG.warn("Error during query execution.", ex);
+            throw new XQueryException(ex);
+        }
     }
 
-    @Override
-    public void close() {
-        // Nothing to do
+    /**
+     * Returns whether the query accesses the document via {@code collection()}.
+     *
+     * @param query The query.
+     * @return {@code true} if the query uses the collection function.
+     * @throws InvalidDocumentLoadException If the query contains invalid document load functions.
+     */
+    private static boolean usesCollection(String query) throws InvalidDocumentLoadException {
+        return XQueryAnalyzer.analyze(query).collection();
+    }
+
+    /**
+     * Result of a query kept as node sequence.
+     * <p>
+     * The result is serialized on the first call of {@link #getRawResult()}. Sequences consisting of nodes other than
+     * attributes and namespaces can be emitted as SAX events.
+     */
+    private static final class SaxonOutput implements XQOutput {
+        private final Processor processor;
+        private final XdmValue value;
+        private volatile String rawResult;
+
+        SaxonOutput(Processor processor, XdmValue value) {
+            this.processor = processor;
+            this.value = value;
+        }
+
+        @Override
+        public String getRawResult() {
+            String result = this.rawResult;
+            if (result == null) {
+                result = this.value.toString();
+                this.rawResult = result;
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isEmittable() {
+            for (XdmItem item : this.value) {
+                if (!(item instanceof XdmNode node) ||
+                    node.getNodeKind() == XdmNodeKind.ATTRIBUTE ||
+                    node.getNodeKind() == XdmNodeKind.NAMESPACE)
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void emit(ContentHandler handler) throws SAXException {
+            if (!this.isEmittable())
+                throw new UnsupportedOperationException("The output contains items that cannot be emitted as events.");
+
+            var filter = handler instanceof LexicalHandler lexicalHandler ?
+                new LexicalContentFilter(handler, lexicalHandler) :
+                new ContentFilter(handler);
+            boolean first = true;
+            for (XdmItem item : this.value) {
+                if (!first)
+                    handler.characters(new char[]{'\n'}, 0, 1);
+                first = false;
+                try {
+                    this.processor.writeXdmValue(item, new SAXDestination(filter));
+                } catch (SaxonApiException ex) {
+                    throw new SAXException("Could not emit query result.", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the raw result of a query and measures it while it is produced.
+     * <p>
+     * If a limit is exceeded, the receiver fails with an {@link XPathException}, which aborts the evaluation; the exceeded
+     * limit is available via {@link #throwIfExceeded(Throwable)}.
+     */
+    private static final class MeteredDestination extends AbstractDestination {
+        private final RawDestination target;
+        private final ResultMeter meter;
+        private XQueryLimitException exceeded;
+
+        MeteredDestination(ResultMeter meter) {
+            this.target = new RawDestination();
+            this.meter = meter;
+        }
+
+        @Override
+        public Receiver getReceiver(PipelineConfiguration pipe, SerializationProperties params) throws SaxonApiException {
+            return new MeteringReceiver(this.target.getReceiver(pipe, params));
+        }
+
+        @Override
+        public void close() throws SaxonApiException {
+            this.target.closeAndNotify();
+        }
+
+        XdmValue getXdmValue() {
+            return this.target.getXdmValue();
+        }
+
+        void throwIfExceeded(Throwable cause) throws XQueryLimitException {
+            XQueryLimitException ex = this.exceeded;
+            if (ex != null) {
+                if (cause != null && ex.getCause() == null)
+                    ex.initCause(cause);
+                throw ex;
+            }
+        }
+
+        /**
+         * Measures the events of the result before they are forwarded to the tree builder.
+         */
+        private final class MeteringReceiver extends ProxyReceiver {
+            private int depth;
+            private int level;
+            private long items;
+
+            MeteringReceiver(Receiver next) {
+                super(next);
+            }
+
+            @Override
+            public void startDocument(int properties) throws XPathException {
+                this.startItem();
+                this.level++;
+                super.startDocument(properties);
+            }
+
+            @Override
+            public void endDocument() throws XPathException {
+                this.level--;
+                super.endDocument();
+            }
+
+            @Override
+            public void startElement(NodeName elemName, SchemaType type, AttributeMap attributes, NamespaceMap namespaces,
+                                     Location location, int properties) throws XPathException {
+                this.startItem();
+                this.level++;
+                this.depth++;
+                long size = 2L * elemName.getDisplayName().length() + 5;
+                for (AttributeInfo attribute : attributes)
+                    size += attribute.getNodeName().getDisplayName().length() + attribute.getValue().length() + 4L;
+                final long bytes = size;
+                final int depth = this.depth;
+                this.check(() -> {
+                    MeteredDestination.this.meter.addElement(depth);
+                    MeteredDestination.this.meter.addBytes(bytes);
+                });
+                super.startElement(elemName, type, attributes, namespaces, location, properties);
+            }
+
+            @Override
+            public void endElement() throws XPathException {
+                this.level--;
+                this.depth--;
+                super.endElement();
+            }
+
+            @Override
+            public void characters(UnicodeString chars, Location locationId, int properties) throws XPathException {
+                this.startItem();
+                this.check(() -> MeteredDestination.this.meter.addBytes(chars.length()));
+                super.characters(chars, locationId, properties);
+            }
+
+            @Override
+            public void processingInstruction(String target, UnicodeString data, Location locationId, int properties) throws XPathException {
+                this.startItem();
+                this.check(() -> MeteredDestination.this.meter.addBytes(target.length() + data.length() + 5));
+                super.processingInstruction(target, data, locationId, properties);
+            }
+
+            @Override
+            public void comment(UnicodeString chars, Location locationId, int properties) throws XPathException {
+                this.startItem();
+                this.check(() -> MeteredDestination.this.meter.addBytes(chars.length() + 7));
+                super.comment(chars, locationId, properties);
+            }
+
+            @Override
+            public void append(Item item, Location locationId, int copyNamespaces) throws XPathException {
+                // existing nodes and atomic values are appended as a whole
+                this.startItem();
+                this.check(() -> measure(XdmItem.wrapItem(item), MeteredDestination.this.meter));
+                super.append(item, locationId, copyNamespaces);
+            }
+
+            /**
+             * Counts the separator of a new top-level item.
+             *
+             * @throws XPathException If the size limit is exceeded.
+             */
+            private void startItem() throws XPathException {
+                if (this.level == 0 && this.items++ > 0)
+                    this.check(() -> MeteredDestination.this.meter.addBytes(1));
+            }
+
+            /**
+             * Runs a measurement and aborts the evaluation if a limit is exceeded.
+             *
+             * @param measurement The measurement.
+             * @throws XPathException If a limit is exceeded.
+             */
+            private void check(Measurement measurement) throws XPathException {
+                if (MeteredDestination.this.exceeded != null)
+                    throw new XPathException(MeteredDestination.this.exceeded.getMessage());
+                try {
+                    measurement.run();
+                } catch (XQueryLimitException ex) {
+                    MeteredDestination.this.exceeded = ex;
+                    throw new XPathException(ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A measurement of a part of the result.
+     */
+    @FunctionalInterface
+    private interface Measurement {
+        void run() throws XQueryLimitException;
+    }
+
+    /**
+     * Cancels the evaluation of a query if its watch expired.
+     * <p>
+     * The check is performed whenever an instruction is entered, so loops and recursive functions are cancelled as well.
+     */
+    private static final class CancellationListener implements TraceListener {
+        private final ExecutionWatchdog.Watch watch;
+
+        CancellationListener(ExecutionWatchdog.Watch watch) {
+            this.watch = watch;
+        }
+
+        @Override
+        public void setOutputDestination(net.sf.saxon.lib.Logger stream) {
+        }
+
+        @Override
+        public void open(Controller controller) {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void enter(Traceable traceable, Map<String, Object> properties, XPathContext context) {
+            if (this.watch.isExpired())
+                throw new UncheckedXPathException(new XPathException("Query execution has been cancelled."));
+        }
+
+        @Override
+        public void leave(Traceable traceable) {
+        }
+
+        @Override
+        public void startCurrentItem(Item currentItem) {
+        }
+
+        @Override
+        public void endCurrentItem(Item currentItem) {
+        }
+    }
+
+    /**
+     * Forwards content events to a handler, except the document events of the single items.
+     */
+    private static class ContentFilter implements ContentHandler {
+        private final ContentHandler handler;
+
+        ContentFilter(ContentHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+        }
+
+        @Override
+        public void startDocument() {
+        }
+
+        @Override
+        public void endDocument() {
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            this.handler.startPrefixMapping(prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            this.handler.endPrefixMapping(prefix);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            this.handler.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            this.handler.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            this.handler.characters(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            this.handler.ignorableWhitespace(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            this.handler.processingInstruction(target, data);
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+            this.handler.skippedEntity(name);
+        }
+    }
+
+    /**
+     * Forwards content and lexical events to a handler, except the document events of the single items.
+     */
+    private static final class LexicalContentFilter extends ContentFilter implements LexicalHandler {
+        private final LexicalHandler handler;
+
+        LexicalContentFilter(ContentHandler contentHandler, LexicalHandler lexicalHandler) {
+            super(contentHandler);
+            this.handler = lexicalHandler;
+        }
+
+        @Override
+        public void startDTD(String name, String publicId, String systemId) {
+        }
+
+        @Override
+        public void endDTD() {
+        }
+
+        @Override
+        public void startEntity(String name) throws SAXException {
+            this.handler.startEntity(name);
+        }
+
+        @Override
+        public void endEntity(String name) throws SAXException {
+            this.handler.endEntity(name);
+        }
+
+        @Override
+        public void startCDATA() throws SAXException {
+            this.handler.startCDATA();
+        }
+
+        @Override
+        public void endCDATA() throws SAXException {
+            this.handler.endCDATA();
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) throws SAXException {
+            this.handler.comment(ch, start, length);
+        }
+    }
+
+    /**
+     * Resolves 'etutor.xml' to a lazily provided document node.
+     */
+    private static final class DocumentResolver implements URIResolver {
+        private final DocumentSupplier supplier;
+        private XdmNode document;
+
+        DocumentResolver(DocumentSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public Source resolve(String href, String base) throws TransformerException {
+            if (!DOCUMENT_NAME.equals(href) && !href.endsWith('/' + DOCUMENT_NAME))
+                return null;
+
+            if (this.document == null) {
+                try {
+                    this.document = this.supplier.get();
+                } catch (SaxonApiException ex) {
+                    throw new TransformerException("Could not load XML document.", ex);
+                }
+            }
+            return this.document.asSource();
+        }
+    }
+
+    /**
+     * Supplies a document node.
+     */
+    @FunctionalInterface
+    private interface DocumentSupplier {
+        XdmNode get() throws SaxonApiException;
     }
 }
@@ -0,0 +1,216 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.XQueryExecutable;
+import net.sf.saxon.s9api.XdmNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores parsed task group documents and compiled solution queries shared by all {@link SaxonProcessor}s of a pool.
+ * <p>
+ * Trees and executables are bound to the configuration they have been created with, so the store also provides the
+ * Saxon processor used by all processors of the pool. Both are immutable and may be used by concurrent executions.
+ * The documents are kept in an LRU cache bounded by the total size of the documents, the executables in an LRU cache
+ * bounded by their number.
+ */
+public class SaxonProcessorStore implements XQProcessorStore {
+    private static final Logger LOG = LoggerFactory.getLogger(SaxonProcessorStore.class);
+
+    /**
+     * The default maximum number of cached executables.
+     */
+    public static final int DEFAULT_MAX_EXECUTABLES = 256;
+
+    /**
+     * The default maximum total size of the stored documents in bytes.
+     */
+    public static final long DEFAULT_MAX_DOCUMENT_SIZE = 256L * 1024 * 1024;
+
+    private final Processor processor;
+    private final long maxDocumentSize;
+    private final LinkedHashMap<String, StoredDocument> documents;
+    private final Map<ExecutableKey, XQueryExecutable> executables;
+    private long documentSize;
+
+    /**
+     * Creates a new instance of class {@link SaxonProcessorStore} with the default bounds.
+     */
+    public SaxonProcessorStore() {
+        this(DEFAULT_MAX_EXECUTABLES, DEFAULT_MAX_DOCUMENT_SIZE);
+    }
+
+    /**
+     * Creates a new instance of class {@link SaxonProcessorStore}.
+     *
+     * @param maxExecutables  The maximum number of cached executables (0 disables the cache).
+     * @param maxDocumentSize The maximum total size of the stored documents in bytes (0 disables the store).
+     */
+    public SaxonProcessorStore(int maxExecutables, long maxDocumentSize) {
+        if (maxExecutables < 0)
+            throw new IllegalArgumentException("maxExecutables must not be negative.");
+        if (maxDocumentSize < 0)
+            throw new IllegalArgumentException("maxDocumentSize must not be negative.");
+
+        this.processor = new Processor(false);
+        this.maxDocumentSize = maxDocumentSize;
+        this.documents = new LinkedHashMap<>(16, 0.75f, true);
+        this.executables = Collections.synchronizedMap(new LruMap<>(maxExecutables));
+    }
+
+    /**
+     * Returns the Saxon processor creating the stored trees and executables.
+     *
+     * @return The processor.
+     */
+    Processor getProcessor() {
+        return this.processor;
+    }
+
+    /**
+     * Returns the stored tree of the document.
+     *
+     * @param key The document key.
+     * @return The document node or {@code null} if the document is not stored.
+     */
+    synchronized XdmNode getDocument(String key) {
+        StoredDocument document = this.documents.get(key);
+        return document == null ? null : document.node();
+    }
+
+    /**
+     * Stores the tree of a document.
+     * <p>
+     * The least recently used documents are removed until the total size fits the bound; documents larger than the
+     * bound are not stored.
+     *
+     * @param key      The document key.
+     * @param document The document node.
+     * @param size     The size of the document in bytes.
+     */
+    synchronized void putDocument(String key, XdmNode document, long size) {
+        if (size > this.maxDocumentSize) {
+            LOG.info("Not storing document {} because its size {} exceeds the maximum size {}", key, size, this.maxDocumentSize);
+            return;
+        }
+
+        LOG.info("Storing document {}", key);
+        StoredDocument previous = this.documents.put(key, new StoredDocument(document, size));
+        if (previous != null)
+            this.documentSize -= previous.size();
+        this.documentSize += size;
+
+        var it = this.documents.entrySet().iterator();
+        while (this.documentSize > this.maxDocumentSize && it.hasNext()) {
+            var eldest = it.next();
+            if (eldest.getKey().equals(key))
+                continue;
+            it.remove();
+            this.documentSize -= eldest.getValue().size();
+            LOG.debug("Evicted document {}", eldest.getKey());
+        }
+    }
+
+    /**
+     * Returns the total size of the stored documents.
+     *
+     * @return The size in bytes.
+     */
+    synchronized long getDocumentSize() {
+        return this.documentSize;
+    }
+
+    /**
+     * Returns the compiled query.
+     *
+     * @param query  The query.
+     * @param traced Whether the query has been compiled with tracing.
+     * @return The executable or {@code null} if the query has not been compiled yet.
+     */
+    XQueryExecutable getExecutable(String query, boolean traced) {
+        return this.executables.get(new ExecutableKey(query, traced));
+    }
+
+    /**
+     * Stores a compiled query.
+     *
+     * @param query      The query.
+     * @param traced     Whether the query has been compiled with tracing.
+     * @param executable The executable.
+     */
+    void putExecutable(String query, boolean traced, XQueryExecutable executable) {
+        this.executables.put(new ExecutableKey(query, traced), executable);
+    }
+
+    /**
+     * Removes all stored documents of the specified task group.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    @Override
+    public synchronized void evictDocuments(long taskGroupId) {
+        String prefix = taskGroupId + "_";
+        var it = this.documents.entrySet().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                it.remove();
+                this.documentSize -= entry.getValue().size();
+            }
+        }
+    }
+
+    /**
+     * Removes all stored documents and executables.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.documents.clear();
+            this.documentSize = 0;
+        }
+        this.executables.clear();
+    }
+
+    /**
+     * A stored document tree.
+     *
+     * @param node The document node.
+     * @param size The size of the document in bytes.
+     */
+    private record StoredDocument(XdmNode node, long size) {
+    }
+
+    /**
+     * Key of a compiled query.
+     *
+     * @param query  The query.
+     * @param traced Whether the query has been compiled with tracing.
+     */
+    private record ExecutableKey(String query, boolean traced) {
+    }
+
+    /**
+     * Map evicting the least recently used entry if the maximum size is exceeded.
+     *
+     * @param <K> The key type.
+     * @param <V> The value type.
+     */
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return this.size() > this.maxSize;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancels query executions on request, e.g. if their result is no longer needed.
+ * <p>
+ * Executions using {@link XQLimits} with this cancellation are stopped with an {@link XQueryCancelledException} once
+ * {@link #cancel()} is called. Executions started after the cancellation fail immediately.
+ */
+public final class XQCancellation {
+    private final List<Runnable> listeners;
+    private boolean cancelled;
+
+    /**
+     * Creates a new instance of class {@link XQCancellation}.
+     */
+    public XQCancellation() {
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Cancels all executions using this cancellation.
+     * <p>
+     * Subsequent calls have no effect.
+     */
+    public void cancel() {
+        List<Runnable> notify;
+        synchronized (this) {
+            if (this.cancelled)
+                return;
+            this.cancelled = true;
+            notify = new ArrayList<>(this.listeners);
+            this.listeners.clear();
+        }
+        notify.forEach(Runnable::run);
+    }
+
+    /**
+     * Returns whether the executions have been cancelled.
+     *
+     * @return {@code true} if {@link #cancel()} has been called; otherwise {@code false}.
+     */
+    public synchronized boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Registers a listener that is called when the executions are cancelled.
+     * <p>
+     * If the executions have already been cancelled, the listener is called immediately.
+     *
+     * @param listener The listener.
+     * @return Removes the listener again.
+     */
+    Runnable register(Runnable listener) {
+        synchronized (this) {
+            if (!this.cancelled) {
+                this.listeners.add(listener);
+                return () -> this.unregister(listener);
+            }
+        }
+        listener.run();
+        return () -> {
+        };
+    }
+
+    private synchronized void unregister(Runnable listener) {
+        this.listeners.remove(listener);
+    }
+}
@@ -0,0 +1,168 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Represents an XML document of a task group that is queried via 'etutor.xml'.
+ * <p>
+ * Processors supporting a document store use {@link #key()} to keep the document loaded across query executions.
+ * The key contains the content hash, so a changed document always results in a new key.
+ * <p>
+ * Documents backed by an {@link XQDocumentStore} are read from the stored file; the content supplier is only called if
+ * the document version is not stored yet.
+ *
+ * @param taskGroupId     The task group identifier.
+ * @param type            The document type.
+ * @param hash            The hash of the document content.
+ * @param contentSupplier The supplier of the document content.
+ * @param store           The store containing the document or {@code null} if the document is kept in memory.
+ */
+public record XQDocument(long taskGroupId, Type type, String hash, Supplier<String> contentSupplier, XQDocumentStore store) {
+    /**
+     * Creates a new instance of class {@link XQDocument}.
+     *
+     * @param taskGroupId     The task group identifier.
+     * @param type            The document type.
+     * @param hash            The hash of the document content.
+     * @param contentSupplier The supplier of the document content.
+     * @param store           The store containing the document or {@code null} if the document is kept in memory.
+     */
+    public XQDocument {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(hash);
+        Objects.requireNonNull(contentSupplier);
+    }
+
+    /**
+     * Creates a new document with the given content.
+     *
+     * @param taskGroupId The task group identifier.
+     * @param type        The document type.
+     * @param content     The XML content.
+     * @return The document.
+     */
+    public static XQDocument of(long taskGroupId, Type type, String content) {
+        Objects.requireNonNull(content);
+        return new XQDocument(taskGroupId, type, hash(content), () -> content, null);
+    }
+
+    /**
+     * Creates a new document backed by the store.
+     *
+     * @param taskGroupId     The task group identifier.
+     * @param type            The document type.
+     * @param hash            The hash of the document content.
+     * @param contentSupplier The supplier of the document content, called only if the document is not stored yet.
+     * @param store           The store.
+     * @return The document.
+     */
+    public static XQDocument stored(long taskGroupId, Type type, String hash, Supplier<String> contentSupplier, XQDocumentStore store) {
+        Objects.requireNonNull(store);
+        return new XQDocument(taskGroupId, type, hash, contentSupplier, store);
+    }
+
+    /**
+     * Returns the key identifying this document version.
+     *
+     * @return The key consisting of task group identifier, type and content hash.
+     */
+    public String key() {
+        return this.taskGroupId + "_" + this.type.name().toLowerCase() + "_" + this.hash;
+    }
+
+    /**
+     * Returns the XML content of the document.
+     *
+     * @return The XML content.
+     */
+    public String content() {
+        return this.contentSupplier.get();
+    }
+
+    /**
+     * Returns the file containing the document.
+     *
+     * @return The absolute path of the stored file or {@code null} if the document is not backed by a store.
+     * @throws IOException If the document could not be stored.
+     */
+    public Path file() throws IOException {
+        return this.store == null ? null : this.store.materialize(this);
+    }
+
+    /**
+     * Opens a stream reading the UTF-8 encoded content of the document.
+     *
+     * @return The stream.
+     * @throws IOException If the stored document could not be read.
+     */
+    public InputStream open() throws IOException {
+        return this.store == null ?
+            new ByteArrayInputStream(this.content().getBytes(StandardCharsets.UTF_8)) :
+            this.store.open(this);
+    }
+
+    /**
+     * Returns the size of the document.
+     *
+     * @return The size of the stored file in bytes or the number of characters if the document is not backed by a store.
+     */
+    public long size() {
+        if (this.store != null) {
+            try {
+                return this.store.size(this);
+            } catch (IOException ignore) {
+                // fall back to the content
+            }
+        }
+        return this.content().length();
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the given content.
+     *
+     * @param content The content.
+     * @return The hex-encoded hash.
+     */
+    public static String hash(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not supported.", ex);
+        }
+    }
+
+    /**
+     * The type of the document.
+     */
+    public enum Type {
+        /**
+         * The document used for RUN and DIAGNOSE submissions.
+         */
+        DIAGNOSE,
+        /**
+         * The document used for SUBMIT submissions.
+         */
+        SUBMIT;
+
+        /**
+         * Returns the document type used for the given submission mode.
+         *
+         * @param mode The submission mode.
+         * @return The document type.
+         */
+        public static Type of(SubmissionMode mode) {
+            return mode == SubmissionMode.SUBMIT ? SUBMIT : DIAGNOSE;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed store of task group documents on the local file system.
+ * <p>
+ * Every document version is written once to a file named after its hash and memory-mapped, so processors read the
+ * document from the page cache instead of copying it from the heap for every execution: BaseX creates its databases
+ * from the file, Saxon parses the mapped file and queries accessing the document via {@code collection()} read the file
+ * directly. Documents shared by several task groups are stored once.
+ * <p>
+ * The store keeps track of the current version of every task group document; if a newer version is stored, the
+ * previous version is removed unless it is still used by another task group. Executions which already read the removed
+ * version keep their mapping; executions which have to load it again cannot, because the content of the previous version
+ * is not available anymore, and are repeated by the evaluation service on the current version of the task group. The
+ * directory is cleared when the store is created.
+ */
+public class XQDocumentStore implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(XQDocumentStore.class);
+    private static final String EXTENSION = ".xml";
+
+    private final Path directory;
+    private final Map<String, MappedByteBuffer> mappings;
+    private final Map<String, String> versions;
+
+    /**
+     * Creates a new instance of class {@link XQDocumentStore}.
+     *
+     * @param directory The directory storing the documents.
+     * @throws IOException If the directory could not be created or cleared.
+     */
+    public XQDocumentStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory.normalize().toAbsolutePath());
+        this.mappings = new ConcurrentHashMap<>();
+        this.versions = new HashMap<>();
+
+        try (var files = Files.list(this.directory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList())
+                Files.deleteIfExists(file);
+        }
+        LOG.info("Created XML document store in {}", this.directory);
+    }
+
+    /**
+     * Returns the file containing the document and writes the document if it is not stored yet.
+     *
+     * @param document The document.
+     * @return The absolute path of the file.
+     * @throws IOException If the document could not be written or its content does not match its hash.
+     */
+    public Path materialize(XQDocument document) throws IOException {
+        Path path = this.directory.resolve(document.hash() + EXTENSION);
+        if (!Files.exists(path)) {
+            String content = document.content();
+            if (!XQDocument.hash(content).equals(document.hash()))
+                throw new IOException("Content of document " + document.key() + " does not match its hash.");
+
+            // write to a temporary file first, so concurrent readers never see a partially written document
+            LOG.info("Storing document {} in {}", document.key(), path);
+            Path tmp = Files.createTempFile(this.directory, document.hash(), ".tmp");
+            try {
+                Files.writeString(tmp, content, StandardCharsets.UTF_8);
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        this.updateVersion(document);
+        return path;
+    }
+
+    /**
+     * Returns the memory-mapped content of the document and stores the document if it is not stored yet.
+     *
+     * @param document The document.
+     * @return A read-only buffer positioned at the start of the UTF-8 encoded content.
+     * @throws IOException If the document could not be stored or mapped.
+     */
+    public ByteBuffer map(XQDocument document) throws IOException {
+        MappedByteBuffer buffer = this.mappings.get(document.hash());
+        if (buffer == null) {
+            Path path = this.materialize(document);
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            var previous = this.mappings.putIfAbsent(document.hash(), buffer);
+            if (previous != null)
+                buffer = previous;
+        } else {
+            this.updateVersion(document);
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Opens a stream reading the memory-mapped content of the document.
+     *
+     * @param document The document.
+     * @return The stream of the UTF-8 encoded content.
+     * @throws IOException If the document could not be stored or mapped.
+     */
+    public InputStream open(XQDocument document) throws IOException {
+        return new BufferInputStream(this.map(document));
+    }
+
+    /**
+     * Returns the size of the stored document.
+     *
+     * @param document The document.
+     * @return The size in bytes.
+     * @throws IOException If the document could not be stored or mapped.
+     */
+    public long size(XQDocument document) throws IOException {
+        return this.map(document).capacity();
+    }
+
+    /**
+     * Removes all stored documents of the specified task group which are not used by other task groups.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    public void evictDocuments(long taskGroupId) {
+        String prefix = taskGroupId + "_";
+        synchronized (this.versions) {
+            var it = this.versions.entrySet().iterator();
+            while (it.hasNext()) {
+                var entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    it.remove();
+                    this.releaseIfUnused(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of mapped documents.
+     *
+     * @return The number of documents.
+     */
+    public int size() {
+        return this.mappings.size();
+    }
+
+    /**
+     * Returns the directory storing the documents.
+     *
+     * @return The absolute path of the directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Releases all mappings; the stored files are kept until the store is created again.
+     */
+    @Override
+    public void close() {
+        this.mappings.clear();
+        synchronized (this.versions) {
+            this.versions.clear();
+        }
+    }
+
+    /**
+     * Records the document as current version of its task group document and releases the previous version.
+     *
+     * @param document The document.
+     */
+    private void updateVersion(XQDocument document) {
+        String slot = document.taskGroupId() + "_" + document.type().name().toLowerCase();
+        synchronized (this.versions) {
+            String previous = this.versions.put(slot, document.hash());
+            if (previous != null && !previous.equals(document.hash()))
+                this.releaseIfUnused(previous);
+        }
+    }
+
+    /**
+     * Removes the mapping and the file of the document version if no task group document uses it; access must be
+     * synchronized on the versions.
+     *
+     * @param hash The hash of the document version.
+     */
+    private void releaseIfUnused(String hash) {
+        if (this.versions.containsValue(hash))
+            return;
+
+        // the mapping stays valid for current readers, the memory is released when it is garbage collected
+        this.mappings.remove(hash);
+        try {
+            Files.deleteIfExists(this.directory.resolve(hash + EXTENSION));
+        } catch (IOException ex) {
+            LOG.warn("Could not delete stored document {}", hash, ex);
+        }
+    }
+
+    /**
+     * Input stream reading a byte buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!this.buffer.hasRemaining())
+                return -1;
+
+            int count = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Resource limits of a single query execution.
+ * <p>
+ * A zero or negative value disables the respective limit.
+ *
+ * @param wallClock    The maximum elapsed time of the execution.
+ * @param cpuTime      The maximum CPU time consumed by the executing thread.
+ * @param maxBytes     The maximum size of the serialized result in bytes.
+ * @param maxNodes     The maximum number of elements in the result.
+ * @param maxDepth     The maximum nesting depth of elements in the result.
+ * @param cancellation The cancellation stopping the execution on request; {@code null} if the execution cannot be cancelled.
+ */
+public record XQLimits(Duration wallClock, Duration cpuTime, long maxBytes, long maxNodes, int maxDepth, XQCancellation cancellation) {
+    /**
+     * Limits that do not restrict the execution.
+     */
+    public static final XQLimits NONE = new XQLimits(Duration.ZERO, Duration.ZERO);
+
+    /**
+     * Creates a new instance of class {@link XQLimits}.
+     *
+     * @param wallClock    The maximum elapsed time of the execution.
+     * @param cpuTime      The maximum CPU time consumed by the executing thread.
+     * @param maxBytes     The maximum size of the serialized result in bytes.
+     * @param maxNodes     The maximum number of elements in the result.
+     * @param maxDepth     The maximum nesting depth of elements in the result.
+     * @param cancellation The cancellation stopping the execution on request; {@code null} if the execution cannot be cancelled.
+     */
+    public XQLimits {
+        Objects.requireNonNull(wallClock);
+        Objects.requireNonNull(cpuTime);
+    }
+
+    /**
+     * Creates a new instance of class {@link XQLimits} that cannot be cancelled.
+     *
+     * @param wallClock The maximum elapsed time of the execution.
+     * @param cpuTime   The maximum CPU time consumed by the executing thread.
+     * @param maxBytes  The maximum size of the serialized result in bytes.
+     * @param maxNodes  The maximum number of elements in the result.
+     * @param maxDepth  The maximum nesting depth of elements in the result.
+     */
+    public XQLimits(Duration wallClock, Duration cpuTime, long maxBytes, long maxNodes, int maxDepth) {
+        this(wallClock, cpuTime, maxBytes, maxNodes, maxDepth, null);
+    }
+
+    /**
+     * Creates a new instance of class {@link XQLimits} without result limits.
+     *
+     * @param wallClock The maximum elapsed time of the execution.
+     * @param cpuTime   The maximum CPU time consumed by the executing thread.
+     */
+    public XQLimits(Duration wallClock, Duration cpuTime) {
+        this(wallClock, cpuTime, 0, 0, 0);
+    }
+
+    /**
+     * Returns a copy of these limits using the specified cancellation.
+     *
+     * @param cancellation The cancellation.
+     * @return The limits with the cancellation.
+     */
+    public XQLimits withCancellation(XQCancellation cancellation) {
+        return new XQLimits(this.wallClock, this.cpuTime, this.maxBytes, this.maxNodes, this.maxDepth, cancellation);
+    }
+
+    /**
+     * Returns whether the execution time is limited.
+     *
+     * @return {@code true} if at least one time limit is set; otherwise {@code false}.
+     */
+    public boolean hasTimeLimit() {
+        return isSet(this.wallClock) || isSet(this.cpuTime);
+    }
+
+    /**
+     * Returns whether the execution can be cancelled on request.
+     *
+     * @return {@code true} if a cancellation is set; otherwise {@code false}.
+     */
+    public boolean isCancellable() {
+        return this.cancellation != null;
+    }
+
+    /**
+     * Returns whether the result is limited.
+     *
+     * @return {@code true} if at least one result limit is set; otherwise {@code false}.
+     */
+    public boolean hasResultLimit() {
+        return this.maxBytes > 0 || this.maxNodes > 0 || this.maxDepth > 0;
+    }
+
+    static boolean isSet(Duration duration) {
+        return !duration.isZero() && !duration.isNegative();
+    }
+}
@@ -0,0 +1,59 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.util.Objects;
+
+/**
+ * Output of an XQuery execution.
+ * <p>
+ * Processors that keep the result as a node sequence can emit it as SAX events, so it can be analyzed without
+ * serializing and re-parsing it. The serialized form is only created if it is requested.
+ */
+public interface XQOutput {
+    /**
+     * Returns the result as it is returned by the underlying XQuery processor.
+     * <p>
+     * The string may be created on the first call.
+     *
+     * @return The serialized result.
+     */
+    String getRawResult();
+
+    /**
+     * Returns whether the result can be emitted via {@link #emit(ContentHandler)}.
+     * <p>
+     * If not, the result has to be parsed from {@link #getRawResult()}.
+     *
+     * @return {@code true} if the result can be emitted as events; otherwise {@code false}.
+     */
+    default boolean isEmittable() {
+        return false;
+    }
+
+    /**
+     * Emits the items of the result as SAX events.
+     * <p>
+     * Only the content is emitted: the handler does not receive {@code startDocument}/{@code endDocument} events. If the
+     * handler implements {@link org.xml.sax.ext.LexicalHandler}, it also receives comments.
+     *
+     * @param handler The handler receiving the events.
+     * @throws SAXException                  If the handler or the processor reports an error.
+     * @throws UnsupportedOperationException If the output is not {@link #isEmittable() emittable}.
+     */
+    default void emit(ContentHandler handler) throws SAXException {
+        throw new UnsupportedOperationException("The output cannot be emitted as events.");
+    }
+
+    /**
+     * Creates an output from an already serialized result.
+     *
+     * @param rawResult The serialized result.
+     * @return The output.
+     */
+    static XQOutput of(String rawResult) {
+        Objects.requireNonNull(rawResult);
+        return () -> rawResult;
+    }
+}
@@ -1,16 +1,9 @@
 package at.jku.dke.task_app.xquery.evaluation.execution;
 
-import java.util.regex.Pattern;
-
 /**
  * Executes XQuery queries.
  */
 public interface XQProcessor extends AutoCloseable {
-    /**
-     * The pattern to match forbidden document load functions.
-     */
-    Pattern forbiddenPattern = Pattern.compile("doc\\((?!['\"]etutor\\.xml['\"]).*\\)|collection\\((?!['\"]etutor\\.xml['\"]).*\\)", Pattern.CASE_INSENSITIVE & Pattern.MULTILINE);
-
     /**
      * Executes an XQuery query.
      *
@@ -22,6 +15,80 @@ public interface XQProcessor extends AutoCloseable {
      */
     String executeQuery(String query, String xmlDocument) throws XQueryException;
 
+    /**
+     * Executes an XQuery query on a task group document.
+     * <p>
+     * Processors supporting a document store keep the document loaded across executions (identified by {@link XQDocument#key()}).
+     * The default implementation loads the document for every execution.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will replace 'etutor.xml' with correct path/db name).
+     * @return A String representing the result as it is returned by the underlying XQuery processor.
+     * @throws XQueryException If an error occurs during the execution of the query.
+     * @see #executeQuery(String, String)
+     */
+    default String executeQuery(String query, XQDocument document) throws XQueryException {
+        return this.executeQuery(query, document.content());
+    }
+
+    /**
+     * Executes an XQuery query on a task group document and returns the output without serializing it, if supported.
+     * <p>
+     * The default implementation wraps the result of {@link #executeQuery(String, XQDocument)}.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will replace 'etutor.xml' with correct path/db name).
+     * @return The output of the query.
+     * @throws XQueryException If an error occurs during the execution of the query.
+     */
+    default XQOutput evaluate(String query, XQDocument document) throws XQueryException {
+        return XQOutput.of(this.executeQuery(query, document));
+    }
+
+    /**
+     * Executes an XQuery query on a task group document within the specified limits.
+     * <p>
+     * Implementations must enforce all limits, as the limits protect the application from runaway queries.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will replace 'etutor.xml' with correct path/db name).
+     * @param limits   The limits of the execution.
+     * @return The output of the query.
+     * @throws XQueryTimeoutException If the execution has been cancelled because it exceeded a time limit.
+     * @throws XQueryLimitException   If the execution has been aborted because its result exceeded a size limit.
+     * @throws XQueryException        If an error occurs during the execution of the query.
+     */
+    XQOutput evaluate(String query, XQDocument document, XQLimits limits) throws XQueryException;
+
+    /**
+     * Executes an XQuery query on a task group document within the specified limits.
+     * <p>
+     * Reusable queries are executed repeatedly, e.g. solution queries, so processors may keep their compiled form for
+     * later executions. The default implementation does not keep compiled queries.
+     *
+     * @param query    The query to evaluate.
+     * @param document The XML document to use (the method will replace 'etutor.xml' with correct path/db name).
+     * @param limits   The limits of the execution.
+     * @param reusable Whether the query is executed repeatedly.
+     * @return The output of the query.
+     * @throws XQueryTimeoutException If the execution has been cancelled because it exceeded a time limit.
+     * @throws XQueryLimitException   If the execution has been aborted because its result exceeded a size limit.
+     * @throws XQueryException        If an error occurs during the execution of the query.
+     */
+    default XQOutput evaluate(String query, XQDocument document, XQLimits limits, boolean reusable) throws XQueryException {
+        return this.evaluate(query, document, limits);
+    }
+
+    /**
+     * Removes all stored documents of the specified task group from the document store.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    default void evictDocuments(long taskGroupId) {
+    }
+
     /**
      * Returns the version of the XQuery processor.
      *
@@ -31,17 +98,28 @@ public interface XQProcessor extends AutoCloseable {
     String getVersion() throws XQueryException;
 
     /**
-     * Replaces all occurrences of 'etutor.xml' with the given xmlFileName.
+     * Replaces the 'etutor.xml' arguments of {@code doc()} and {@code collection()} with the given xmlFileName.
+     * <p>
+     * Other occurrences of 'etutor.xml' (e.g. in string literals or comments) are kept.
      *
      * @param query       The query to evaluate.
      * @param xmlFileName The XML file name to use.
-     * @return The query with all occurrences of 'etutor.xml' replaced with the given xmlFileName.
+     * @return The query loading the given xmlFileName instead of 'etutor.xml'.
      * @throws InvalidDocumentLoadException If the query contains invalid document load functions.
+     * @see XQueryAnalyzer
      */
     static String replaceXmlFileName(String query, String xmlFileName) throws InvalidDocumentLoadException {
-        if (forbiddenPattern.matcher(query).find())
-            throw new InvalidDocumentLoadException();
+        return XQueryAnalyzer.analyze(query).bind(xmlFileName);
+    }
 
-        return query.replaceAll("etutor\\.xml", xmlFileName);
+    /**
+     * Checks that the query does not load documents other than 'etutor.xml' and does not call functions which are not allowed.
+     *
+     * @param query The query to check.
+     * @throws InvalidDocumentLoadException If the query contains invalid document load functions.
+     * @see XQueryAnalyzer
+     */
+    static void checkDocumentAccess(String query) throws InvalidDocumentLoadException {
+        XQueryAnalyzer.analyze(query);
     }
 }
@@ -0,0 +1,638 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Pool of {@link XQProcessor}s.
+ * <p>
+ * Processors are not shared between concurrent executions: a processor is borrowed exclusively via {@link #borrow()}
+ * and returned by closing the {@link Lease}. Processors are replaced by new instances after a configurable number of
+ * executions or if an unexpected error occurred. Leases that are not returned within the leak threshold are reported.
+ * State shared by the processors, e.g. stored documents, is kept in an optional {@link XQProcessorStore} owned by the
+ * pool, so it survives the replacement of processors; the store is closed after the last processor.
+ * <p>
+ * Optionally, executions are offloaded to dedicated platform threads of the pool. Callers running on virtual threads
+ * then only wait for the result, so they never pin their carrier thread while a processor holds a monitor, and the
+ * CPU time limit can be measured on the executing thread.
+ */
+public class XQProcessorPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(XQProcessorPool.class);
+    private static final String WARM_UP_QUERY = "count(doc('etutor.xml')/*)";
+
+    private final Supplier<XQProcessor> factory;
+    private final XQProcessorStore store;
+    private final int size;
+    private final int maxExecutions;
+    private final Duration borrowTimeout;
+    private final Duration leakThreshold;
+
+    private final Semaphore permits;
+    private final Deque<PooledProcessor> idle;
+    private final Set<PooledProcessor> all;
+    private final Set<Lease> leases;
+    private final ScheduledExecutorService leakDetector;
+    private final ExecutorService executionThreads;
+    private final AtomicLong created;
+    private final AtomicLong recycled;
+    private final AtomicLong leaked;
+    private final AtomicLong aborted;
+    private final AtomicBoolean storeClosed;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance of class {@link XQProcessorPool} without recycling and leak detection.
+     *
+     * @param factory The factory creating new processors.
+     * @param size    The maximum number of processors.
+     */
+    public XQProcessorPool(Supplier<XQProcessor> factory, int size) {
+        this(factory, size, 0, Duration.ofSeconds(30), Duration.ZERO);
+    }
+
+    /**
+     * Creates a new instance of class {@link XQProcessorPool}.
+     *
+     * @param factory       The factory creating new processors.
+     * @param size          The maximum number of processors (0 uses the number of available processors).
+     * @param maxExecutions The number of executions after which a processor is replaced (0 disables recycling).
+     * @param borrowTimeout The maximum time to wait for an available processor.
+     * @param leakThreshold The time after which a not returned lease is reported as leaked (0 disables leak detection).
+     */
+    public XQProcessorPool(Supplier<XQProcessor> factory, int size, int maxExecutions, Duration borrowTimeout, Duration leakThreshold) {
+        this(factory, size, maxExecutions, borrowTimeout, leakThreshold, false);
+    }
+
+    /**
+     * Creates a new instance of class {@link XQProcessorPool}.
+     *
+     * @param factory       The factory creating new processors.
+     * @param size          The maximum number of processors (0 uses the number of available processors).
+     * @param maxExecutions The number of executions after which a processor is replaced (0 disables recycling).
+     * @param borrowTimeout The maximum time to wait for an available processor.
+     * @param leakThreshold The time after which a not returned lease is reported as leaked (0 disables leak detection).
+     * @param offload       Whether executions run on dedicated platform threads instead of the calling thread.
+     */
+    public XQProcessorPool(Supplier<XQProcessor> factory, int size, int maxExecutions, Duration borrowTimeout, Duration leakThreshold, boolean offload) {
+        this(factory, size, maxExecutions, borrowTimeout, leakThreshold, offload, null);
+    }
+
+    /**
+     * Creates a new instance of class {@link XQProcessorPool}.
+     *
+     * @param factory       The factory creating new processors.
+     * @param size          The maximum number of processors (0 uses the number of available processors).
+     * @param maxExecutions The number of executions after which a processor is replaced (0 disables recycling).
+     * @param borrowTimeout The maximum time to wait for an available processor.
+     * @param leakThreshold The time after which a not returned lease is reported as leaked (0 disables leak detection).
+     * @param offload       Whether executions run on dedicated platform threads instead of the calling thread.
+     * @param store         The store shared by the processors created by the factory or {@code null}; the pool takes ownership of the store.
+     */
+    public XQProcessorPool(Supplier<XQProcessor> factory, int size, int maxExecutions, Duration borrowTimeout, Duration leakThreshold, boolean offload,
+                           XQProcessorStore store) {
+        if (factory == null)
+            throw new IllegalArgumentException("factory must not be null.");
+        if (size < 0)
+            throw new IllegalArgumentException("size must not be negative.");
+
+        this.factory = factory;
+        this.store = store;
+        this.size = size == 0 ? Runtime.getRuntime().availableProcessors() : size;
+        this.maxExecutions = maxExecutions;
+        this.borrowTimeout = borrowTimeout;
+        this.leakThreshold = leakThreshold;
+
+        this.permits = new Semaphore(this.size, true);
+        this.idle = new ConcurrentLinkedDeque<>();
+        this.all = ConcurrentHashMap.newKeySet();
+        this.leases = ConcurrentHashMap.newKeySet();
+        this.created = new AtomicLong();
+        this.recycled = new AtomicLong();
+        this.leaked = new AtomicLong();
+        this.aborted = new AtomicLong();
+        this.storeClosed = new AtomicBoolean();
+
+        if (leakThreshold.isZero() || leakThreshold.isNegative()) {
+            this.leakDetector = null;
+        } else {
+            this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "xq-pool-leak-detector");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1000, leakThreshold.toMillis() / 2);
+            this.leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        if (offload) {
+            // one thread per processor: the number of leases is bounded by the permits, so executions never wait for a thread
+            var counter = new AtomicInteger();
+            this.executionThreads = Executors.newFixedThreadPool(this.size, r -> {
+                var thread = new Thread(r, "xq-execution-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executionThreads = null;
+        }
+        LOG.info("Created XQuery processor pool with size {}{}", this.size, offload ? " on dedicated execution threads" : "");
+    }
+
+    /**
+     * Borrows a processor from the pool.
+     * <p>
+     * The returned lease must be closed after use, preferably using try-with-resources.
+     *
+     * @return The lease of the processor.
+     * @throws XQueryUnavailableException If no processor is available within the borrow timeout.
+     * @throws XQueryException            If the thread has been interrupted while waiting for a processor.
+     */
+    public Lease borrow() throws XQueryException {
+        if (this.closed)
+            throw new IllegalStateException("The processor pool is closed.");
+
+        try {
+            if (!this.permits.tryAcquire(this.borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOG.warn("No XQuery processor available within {} (active: {})", this.borrowTimeout, this.getActiveCount());
+                throw new XQueryUnavailableException("No XQuery processor available.", this.borrowTimeout);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new XQueryException("Interrupted while waiting for an XQuery processor.", ex);
+        }
+
+        return this.lease();
+    }
+
+    /**
+     * Borrows a processor from the pool if one is available without waiting.
+     * <p>
+     * The returned lease must be closed after use, preferably using try-with-resources. Callers already holding a lease
+     * should use this method for additional processors, so they never wait for each other.
+     *
+     * @return The lease of the processor or {@code null} if no processor is available or other callers are waiting.
+     */
+    public Lease tryBorrow() {
+        if (this.closed)
+            throw new IllegalStateException("The processor pool is closed.");
+
+        try {
+            // respects the fairness of the semaphore, so waiting callers are served first
+            if (!this.permits.tryAcquire(0, TimeUnit.MILLISECONDS))
+                return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return this.lease();
+    }
+
+    /**
+     * Creates a lease for an idle or a new processor; the caller must have acquired a permit.
+     *
+     * @return The lease.
+     */
+    private Lease lease() {
+        PooledProcessor processor = this.idle.pollFirst();
+        if (processor == null) {
+            try {
+                processor = this.create();
+            } catch (RuntimeException ex) {
+                this.permits.release();
+                throw ex;
+            }
+        }
+
+        var lease = new Lease(processor, this.leakThreshold.isZero() ? null : new Throwable("Lease borrowed here"));
+        this.leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * Removes all stored documents of the specified task group from the shared store or the document stores of all processors.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    public void evictDocuments(long taskGroupId) {
+        if (this.store != null)
+            this.store.evictDocuments(taskGroupId);
+        else
+            this.all.forEach(p -> p.processor.evictDocuments(taskGroupId));
+    }
+
+    /**
+     * Creates the processors of the pool and loads the documents into their document stores.
+     * <p>
+     * Only processors available without waiting are warmed up, so concurrent executions are not delayed. Documents that
+     * could not be loaded are skipped.
+     *
+     * @param documents The XML documents to load.
+     * @return The number of warmed-up processors.
+     */
+    public int warmUp(List<XQDocument> documents) {
+        List<Lease> leases = new ArrayList<>(this.size);
+        try {
+            Lease lease;
+            while (leases.size() < this.size && (lease = this.tryBorrow()) != null)
+                leases.add(lease);
+
+            for (Lease l : leases) {
+                for (XQDocument document : documents) {
+                    try {
+                        l.executeQuery(WARM_UP_QUERY, document);
+                    } catch (XQueryException ex) {
+                        LOG.warn("Could not load document {} during warm-up", document.key(), ex);
+                    }
+                }
+            }
+            return leases.size();
+        } finally {
+            leases.forEach(Lease::close);
+        }
+    }
+
+    /**
+     * Returns the version of the XQuery processor.
+     *
+     * @return The version of the XQuery processor.
+     * @throws XQueryException If an error occurs during the retrieval of the version.
+     */
+    public String getVersion() throws XQueryException {
+        try (var lease = this.borrow()) {
+            return lease.getVersion();
+        }
+    }
+
+    /**
+     * Returns the maximum number of processors.
+     *
+     * @return The pool size.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether executions run on dedicated platform threads of the pool.
+     *
+     * @return {@code true} if executions are offloaded; otherwise {@code false}.
+     */
+    public boolean isOffloading() {
+        return this.executionThreads != null;
+    }
+
+    /**
+     * Returns the number of currently borrowed processors.
+     *
+     * @return The number of active processors.
+     */
+    public int getActiveCount() {
+        return this.leases.size();
+    }
+
+    /**
+     * Returns the number of processors waiting to be borrowed.
+     *
+     * @return The number of idle processors.
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    /**
+     * Returns the total number of processors created by this pool.
+     *
+     * @return The number of created processors.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * Returns the number of processors that have been replaced by new instances.
+     *
+     * @return The number of recycled processors.
+     */
+    public long getRecycledCount() {
+        return recycled.get();
+    }
+
+    /**
+     * Returns the number of leases that have been reported as leaked.
+     *
+     * @return The number of leaked leases.
+     */
+    public long getLeakedCount() {
+        return leaked.get();
+    }
+
+    /**
+     * Returns the number of executions that have been aborted because they exceeded a time or result limit.
+     *
+     * @return The number of aborted executions.
+     */
+    public long getAbortedCount() {
+        return aborted.get();
+    }
+
+    /**
+     * Closes all processors.
+     * <p>
+     * Processors that are currently borrowed are closed when they are returned; the shared store is closed after the
+     * last processor has been closed.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if (this.leakDetector != null)
+            this.leakDetector.shutdownNow();
+        if (this.executionThreads != null)
+            this.executionThreads.shutdown();
+
+        PooledProcessor processor;
+        while ((processor = this.idle.pollFirst()) != null)
+            this.destroy(processor);
+        this.closeStoreIfUnused();
+    }
+
+    /**
+     * Reports all leases which have been borrowed longer than the leak threshold.
+     */
+    void detectLeaks() {
+        Instant threshold = Instant.now().minus(this.leakThreshold);
+        for (Lease lease : this.leases) {
+            if (lease.borrowedAt.isBefore(threshold) && lease.leakReported.compareAndSet(false, true)) {
+                this.leaked.incrementAndGet();
+                LOG.warn("XQuery processor has been borrowed for more than {} and was not returned.", this.leakThreshold, lease.origin);
+            }
+        }
+    }
+
+    private PooledProcessor create() {
+        LOG.debug("Creating new XQuery processor");
+        var processor = new PooledProcessor(this.factory.get());
+        this.created.incrementAndGet();
+        this.all.add(processor);
+        return processor;
+    }
+
+    private void destroy(PooledProcessor processor) {
+        this.all.remove(processor);
+        try {
+            processor.processor.close();
+        } catch (Exception ex) {
+            LOG.warn("Could not close XQuery processor.", ex);
+        }
+        if (this.closed)
+            this.closeStoreIfUnused();
+    }
+
+    private void closeStoreIfUnused() {
+        if (this.store != null && this.all.isEmpty() && this.storeClosed.compareAndSet(false, true)) {
+            try {
+                this.store.close();
+            } catch (RuntimeException ex) {
+                LOG.warn("Could not close XQuery processor store.", ex);
+            }
+        }
+    }
+
+    private void giveBack(Lease lease) {
+        this.leases.remove(lease);
+        if (lease.leakReported.get())
+            LOG.info("Leaked XQuery processor has been returned after {}", Duration.between(lease.borrowedAt, Instant.now()));
+
+        PooledProcessor processor = lease.processor;
+        if (this.closed) {
+            this.destroy(processor);
+        } else if (lease.broken || (this.maxExecutions > 0 && processor.executions >= this.maxExecutions)) {
+            LOG.debug("Recycling XQuery processor after {} executions", processor.executions);
+            this.recycled.incrementAndGet();
+            this.destroy(processor);
+        } else {
+            this.idle.offerFirst(processor);
+        }
+        this.permits.release();
+    }
+
+    /**
+     * Runs the execution on a dedicated execution thread, if executions are offloaded, and waits for its result.
+     * <p>
+     * The calling thread waits for the execution even if it is interrupted, because the processor must not be returned
+     * to the pool while it is still in use. Executions are bounded by their execution limits.
+     *
+     * @param execution The execution.
+     * @param <T>       The type of the result.
+     * @return The result of the execution.
+     * @throws XQueryException If the execution fails.
+     */
+    private <T> T run(Execution<T> execution) throws XQueryException {
+        if (this.executionThreads == null)
+            return execution.run();
+
+        Future<T> future = this.executionThreads.submit(execution::run);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof XQueryException xqe)
+                        throw xqe;
+                    if (cause instanceof RuntimeException re)
+                        throw re;
+                    if (cause instanceof Error err)
+                        throw err;
+                    throw new XQueryException("Query execution failed.", cause);
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An execution using a processor.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    private interface Execution<T> {
+        T run() throws XQueryException;
+    }
+
+    /**
+     * A processor managed by the pool.
+     */
+    private static final class PooledProcessor {
+        private final XQProcessor processor;
+        private int executions;
+
+        PooledProcessor(XQProcessor processor) {
+            this.processor = processor;
+        }
+    }
+
+    /**
+     * Exclusive lease of a pooled processor.
+     * <p>
+     * Closing the lease returns the processor to the pool. A lease must not be used after it has been closed.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledProcessor processor;
+        private final Throwable origin;
+        private final Instant borrowedAt;
+        private final AtomicBoolean returned;
+        private final AtomicBoolean leakReported;
+        private boolean broken;
+
+        private Lease(PooledProcessor processor, Throwable origin) {
+            this.processor = processor;
+            this.origin = origin;
+            this.borrowedAt = Instant.now();
+            this.returned = new AtomicBoolean();
+            this.leakReported = new AtomicBoolean();
+        }
+
+        /**
+         * Executes an XQuery query.
+         *
+         * @param query       The query to evaluate.
+         * @param xmlDocument The XML document to use.
+         * @return A String representing the result as it is returned by the underlying XQuery processor.
+         * @throws XQueryException If an error occurs during the execution of the query.
+         * @see XQProcessor#executeQuery(String, String)
+         */
+        public String executeQuery(String query, String xmlDocument) throws XQueryException {
+            this.ensureNotReturned();
+            this.processor.executions++;
+            try {
+                return XQProcessorPool.this.run(() -> this.processor.processor.executeQuery(query, xmlDocument));
+            } catch (RuntimeException ex) {
+                this.broken = true;
+                throw ex;
+            }
+        }
+
+        /**
+         * Executes an XQuery query on a task group document.
+         *
+         * @param query    The query to evaluate.
+         * @param document The XML document to use.
+         * @return A String representing the result as it is returned by the underlying XQuery processor.
+         * @throws XQueryException If an error occurs during the execution of the query.
+         * @see XQProcessor#executeQuery(String, XQDocument)
+         */
+        public String executeQuery(String query, XQDocument document) throws XQueryException {
+            this.ensureNotReturned();
+            this.processor.executions++;
+            try {
+                return XQProcessorPool.this.run(() -> this.processor.processor.executeQuery(query, document));
+            } catch (RuntimeException ex) {
+                this.broken = true;
+                throw ex;
+            }
+        }
+
+        /**
+         * Executes an XQuery query on a task group document and returns the output without serializing it, if supported.
+         *
+         * @param query    The query to evaluate.
+         * @param document The XML document to use.
+         * @return The output of the query.
+         * @throws XQueryException If an error occurs during the execution of the query.
+         * @see XQProcessor#evaluate(String, XQDocument)
+         */
+        public XQOutput evaluate(String query, XQDocument document) throws XQueryException {
+            return this.evaluate(query, document, XQLimits.NONE);
+        }
+
+        /**
+         * Executes an XQuery query on a task group document within the specified limits.
+         *
+         * @param query    The query to evaluate.
+         * @param document The XML document to use.
+         * @param limits   The limits of the execution.
+         * @return The output of the query.
+         * @throws XQueryTimeoutException If the execution has been cancelled because it exceeded a time limit.
+         * @throws XQueryLimitException   If the execution has been aborted because its result exceeded a size limit.
+         * @throws XQueryException        If an error occurs during the execution of the query.
+         * @see XQProcessor#evaluate(String, XQDocument, XQLimits)
+         */
+        public XQOutput evaluate(String query, XQDocument document, XQLimits limits) throws XQueryException {
+            return this.evaluate(() -> this.processor.processor.evaluate(query, document, limits));
+        }
+
+        /**
+         * Executes an XQuery query on a task group document within the specified limits.
+         *
+         * @param query    The query to evaluate.
+         * @param document The XML document to use.
+         * @param limits   The limits of the execution.
+         * @param reusable Whether the query is executed repeatedly, e.g. a solution query.
+         * @return The output of the query.
+         * @throws XQueryTimeoutException If the execution has been cancelled because it exceeded a time limit.
+         * @throws XQueryLimitException   If the execution has been aborted because its result exceeded a size limit.
+         * @throws XQueryException        If an error occurs during the execution of the query.
+         * @see XQProcessor#evaluate(String, XQDocument, XQLimits, boolean)
+         */
+        public XQOutput evaluate(String query, XQDocument document, XQLimits limits, boolean reusable) throws XQueryException {
+            return this.evaluate(() -> this.processor.processor.evaluate(query, document, limits, reusable));
+        }
+
+        private XQOutput evaluate(Execution<XQOutput> execution) throws XQueryException {
+            this.ensureNotReturned();
+            this.processor.executions++;
+            try {
+                return XQProcessorPool.this.run(execution);
+            } catch (XQueryTimeoutException | XQueryLimitException ex) {
+                XQProcessorPool.this.aborted.incrementAndGet();
+                throw ex;
+            } catch (RuntimeException ex) {
+                this.broken = true;
+                throw ex;
+            }
+        }
+
+        /**
+         * Returns the version of the XQuery processor.
+         *
+         * @return The version of the XQuery processor.
+         * @throws XQueryException If an error occurs during the retrieval of the version.
+         */
+        public String getVersion() throws XQueryException {
+            this.ensureNotReturned();
+            return this.processor.processor.getVersion();
+        }
+
+        /**
+         * Returns the processor to the pool.
+         */
+        @Override
+        public void close() {
+            if (this.returned.compareAndSet(false, true))
+                XQProcessorPool.this.giveBack(this);
+        }
+
+        private void ensureNotReturned() {
+            if (this.returned.get())
+                throw new IllegalStateException("The processor has already been returned to the pool.");
+        }
+    }
+}
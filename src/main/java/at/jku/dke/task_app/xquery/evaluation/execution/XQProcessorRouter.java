@@ -0,0 +1,382 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Selects the {@link XQProcessorPool} of the XQuery engine that executes the queries on a document.
+ * <p>
+ * An engine explicitly selected for a task group is always used if it is available. Otherwise, if latency routing is
+ * enabled, the engine with the lower measured latency for the document is used; if not enough executions of both
+ * engines have been measured for the document, the measurements of documents of the same size class are used. Until
+ * enough executions have been measured, the engines are used alternately. To notice if the slower engine becomes
+ * faster, it is still used for one in {@code explorationInterval} executions. Without latency routing, the default
+ * engine is used.
+ * <p>
+ * The routing decisions ({@value #DECISIONS}) and the measured latencies ({@value #LATENCY}) are published as metrics.
+ * <p>
+ * If an {@link XQDocumentStore} is configured, the documents created via
+ * {@link #document(long, XQDocument.Type, String, Supplier)} are shared by all pools through the store.
+ */
+public class XQProcessorRouter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(XQProcessorRouter.class);
+
+    /**
+     * The supported engines.
+     */
+    public static final List<String> ENGINES = List.of("basex", "saxon");
+    /**
+     * The name of the routing decision counter.
+     */
+    public static final String DECISIONS = "xquery.routing.decisions";
+    /**
+     * The name of the latency timer.
+     */
+    public static final String LATENCY = "xquery.routing.latency";
+
+    private static final double SMOOTHING = 0.2;
+    private static final int MAX_DOCUMENTS = 1000;
+    private static final long[] SIZE_CLASSES = {64 * 1024, 1024 * 1024, 16 * 1024 * 1024};
+    private static final String[] SIZE_CLASS_NAMES = {"<64KB", "<1MB", "<16MB", ">=16MB"};
+
+    private final Map<String, XQProcessorPool> pools;
+    private final String defaultEngine;
+    private final boolean latencyRouting;
+    private final int minSamples;
+    private final int explorationInterval;
+    private final MeterRegistry registry;
+    private final XQDocumentStore documentStore;
+    private final Map<String, Statistics> documentStatistics;
+    private final Map<String, Statistics> sizeClassStatistics;
+
+    /**
+     * Creates a new instance of class {@link XQProcessorRouter}.
+     *
+     * @param pools               The pools by engine name.
+     * @param defaultEngine       The engine used if no other engine is selected.
+     * @param latencyRouting      Whether the engine is selected by the measured latency.
+     * @param minSamples          The number of measured executions per engine required to compare the latencies.
+     * @param explorationInterval The interval in which the slower engine is used (0 disables exploration).
+     * @param registry            The meter registry.
+     */
+    public XQProcessorRouter(Map<String, XQProcessorPool> pools, String defaultEngine, boolean latencyRouting, int minSamples, int explorationInterval,
+                             MeterRegistry registry) {
+        this(pools, defaultEngine, latencyRouting, minSamples, explorationInterval, registry, null);
+    }
+
+    /**
+     * Creates a new instance of class {@link XQProcessorRouter}.
+     *
+     * @param pools               The pools by engine name.
+     * @param defaultEngine       The engine used if no other engine is selected.
+     * @param latencyRouting      Whether the engine is selected by the measured latency.
+     * @param minSamples          The number of measured executions per engine required to compare the latencies.
+     * @param explorationInterval The interval in which the slower engine is used (0 disables exploration).
+     * @param registry            The meter registry.
+     * @param documentStore       The store of the task group documents or {@code null} if documents are kept in memory.
+     */
+    public XQProcessorRouter(Map<String, XQProcessorPool> pools, String defaultEngine, boolean latencyRouting, int minSamples, int explorationInterval,
+                             MeterRegistry registry, XQDocumentStore documentStore) {
+        if (!pools.containsKey(defaultEngine))
+            throw new IllegalArgumentException("No pool for default engine " + defaultEngine + ".");
+        if (minSamples < 1)
+            throw new IllegalArgumentException("minSamples must be positive.");
+
+        this.pools = Collections.unmodifiableMap(new LinkedHashMap<>(pools));
+        this.defaultEngine = defaultEngine;
+        this.latencyRouting = latencyRouting && pools.size() > 1;
+        this.minSamples = minSamples;
+        this.explorationInterval = explorationInterval;
+        this.registry = registry;
+        this.documentStore = documentStore;
+        this.documentStatistics = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Statistics> eldest) {
+                return this.size() > MAX_DOCUMENTS;
+            }
+        };
+        this.sizeClassStatistics = new LinkedHashMap<>();
+        LOG.info("Created XQuery processor router for engines {} (default: {}, latency routing: {})", this.pools.keySet(), defaultEngine, this.latencyRouting);
+    }
+
+    /**
+     * Creates a router which always uses the specified pool.
+     *
+     * @param engine The engine name.
+     * @param pool   The pool.
+     * @return The router.
+     */
+    public static XQProcessorRouter of(String engine, XQProcessorPool pool) {
+        return new XQProcessorRouter(Map.of(engine, pool), engine, false, 1, 0, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Creates the document of a task group.
+     * <p>
+     * If a document store is configured, the document is backed by the store and the content is only loaded if the
+     * document version is not stored yet.
+     *
+     * @param taskGroupId The task group identifier.
+     * @param type        The document type.
+     * @param hash        The hash of the document content.
+     * @param content     The supplier of the document content.
+     * @return The document.
+     */
+    public XQDocument document(long taskGroupId, XQDocument.Type type, String hash, Supplier<String> content) {
+        if (this.documentStore == null)
+            return XQDocument.of(taskGroupId, type, content.get());
+        return XQDocument.stored(taskGroupId, type, hash, content, this.documentStore);
+    }
+
+    /**
+     * Selects the engine executing queries on the specified document.
+     *
+     * @param document The XML document.
+     * @param override The engine selected for the task group or {@code null} if the engine should be selected automatically.
+     * @return The route.
+     */
+    public Route route(XQDocument document, String override) {
+        Route route;
+        if (override != null && this.pools.containsKey(override)) {
+            route = new Route(override, this.pools.get(override), Reason.OVERRIDE);
+        } else {
+            if (override != null)
+                LOG.warn("Engine {} selected for task group {} is not available, selecting engine automatically", override, document.taskGroupId());
+            route = this.latencyRouting ? this.routeByLatency(document) : new Route(this.defaultEngine, this.pools.get(this.defaultEngine), Reason.DEFAULT);
+        }
+
+        Counter.builder(DECISIONS)
+            .description("The number of routing decisions")
+            .tag("engine", route.engine())
+            .tag("reason", route.reason().tagValue())
+            .register(this.registry)
+            .increment();
+        return route;
+    }
+
+    /**
+     * Returns the engines which may be selected for a task group.
+     *
+     * @param override The engine selected for the task group or {@code null} if the engine is selected automatically.
+     * @return The engines.
+     */
+    public List<String> candidates(String override) {
+        if (override != null && this.pools.containsKey(override))
+            return List.of(override);
+        return this.latencyRouting ? List.copyOf(this.pools.keySet()) : List.of(this.defaultEngine);
+    }
+
+    /**
+     * Records the latency of a successful execution on the specified document.
+     *
+     * @param route    The route used for the execution.
+     * @param document The XML document.
+     * @param nanos    The latency in nanoseconds.
+     */
+    public void recordLatency(Route route, XQDocument document, long nanos) {
+        String sizeClass = sizeClass(document);
+        Timer.builder(LATENCY)
+            .description("The latency of query executions by engine")
+            .tag("engine", route.engine())
+            .tag("size", sizeClass)
+            .publishPercentileHistogram()
+            .register(this.registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+
+        if (!this.latencyRouting)
+            return;
+        synchronized (this) {
+            this.documentStatistics.computeIfAbsent(document.key(), k -> new Statistics()).record(route.engine(), nanos);
+            this.sizeClassStatistics.computeIfAbsent(sizeClass, k -> new Statistics()).record(route.engine(), nanos);
+        }
+    }
+
+    /**
+     * Removes all stored documents of the specified task group from the document stores of all pools and from the
+     * shared document store.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    public void evictDocuments(long taskGroupId) {
+        this.pools.values().forEach(p -> p.evictDocuments(taskGroupId));
+        if (this.documentStore != null)
+            this.documentStore.evictDocuments(taskGroupId);
+    }
+
+    /**
+     * Returns the pools by engine name.
+     *
+     * @return The pools.
+     */
+    public Map<String, XQProcessorPool> getPools() {
+        return pools;
+    }
+
+    /**
+     * Returns the engine used if no other engine is selected.
+     *
+     * @return The default engine.
+     */
+    public String getDefaultEngine() {
+        return defaultEngine;
+    }
+
+    /**
+     * Returns the pool of the default engine.
+     *
+     * @return The default pool.
+     */
+    public XQProcessorPool getDefaultPool() {
+        return this.pools.get(this.defaultEngine);
+    }
+
+    /**
+     * Returns the store of the task group documents.
+     *
+     * @return The document store or {@code null} if documents are kept in memory.
+     */
+    public XQDocumentStore getDocumentStore() {
+        return documentStore;
+    }
+
+    /**
+     * Closes all pools and the document store.
+     */
+    @Override
+    public void close() {
+        this.pools.values().forEach(XQProcessorPool::close);
+        if (this.documentStore != null)
+            this.documentStore.close();
+    }
+
+    /**
+     * Returns the size class of the document used to group latencies.
+     *
+     * @param document The XML document.
+     * @return The size class.
+     */
+    static String sizeClass(XQDocument document) {
+        long length = document.size();
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (length < SIZE_CLASSES[i])
+                return SIZE_CLASS_NAMES[i];
+        }
+        return SIZE_CLASS_NAMES[SIZE_CLASS_NAMES.length - 1];
+    }
+
+    private synchronized Route routeByLatency(XQDocument document) {
+        var statistics = this.documentStatistics.computeIfAbsent(document.key(), k -> new Statistics());
+        statistics.decisions++;
+
+        String fastest = statistics.fastest();
+        if (fastest == null) {
+            var sizeClass = this.sizeClassStatistics.get(sizeClass(document));
+            fastest = sizeClass == null ? null : sizeClass.fastest();
+        }
+
+        if (fastest == null) {
+            // not enough measurements: use the engine with the fewest measurements of this document
+            String engine = this.defaultEngine;
+            for (String candidate : this.pools.keySet()) {
+                if (statistics.samples(candidate) < statistics.samples(engine))
+                    engine = candidate;
+            }
+            return new Route(engine, this.pools.get(engine), Reason.EXPLORATION);
+        }
+
+        if (this.explorationInterval > 0 && statistics.decisions % this.explorationInterval == 0) {
+            for (String engine : this.pools.keySet()) {
+                if (!engine.equals(fastest))
+                    return new Route(engine, this.pools.get(engine), Reason.EXPLORATION);
+            }
+        }
+        return new Route(fastest, this.pools.get(fastest), Reason.LATENCY);
+    }
+
+    /**
+     * The reason of a routing decision.
+     */
+    public enum Reason {
+        /**
+         * The engine has been selected for the task group.
+         */
+        OVERRIDE,
+        /**
+         * The engine has the lower measured latency.
+         */
+        LATENCY,
+        /**
+         * The engine is used to measure its latency.
+         */
+        EXPLORATION,
+        /**
+         * The default engine is used.
+         */
+        DEFAULT;
+
+        /**
+         * Returns the tag value of the reason.
+         *
+         * @return The tag value.
+         */
+        public String tagValue() {
+            return this.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The engine selected for an execution.
+     *
+     * @param engine The engine name.
+     * @param pool   The pool of the engine.
+     * @param reason The reason for the selection.
+     */
+    public record Route(String engine, XQProcessorPool pool, Reason reason) {
+    }
+
+    /**
+     * The exponentially weighted moving average latencies of the engines; access must be synchronized by the router.
+     */
+    private final class Statistics {
+        private final Map<String, Double> latencies = new LinkedHashMap<>();
+        private final Map<String, Integer> samples = new LinkedHashMap<>();
+        private long decisions;
+
+        void record(String engine, long nanos) {
+            this.latencies.merge(engine, (double) nanos, (old, value) -> old + SMOOTHING * (value - old));
+            this.samples.merge(engine, 1, Integer::sum);
+        }
+
+        int samples(String engine) {
+            return this.samples.getOrDefault(engine, 0);
+        }
+
+        /**
+         * Returns the engine with the lowest latency if enough executions of all engines have been measured.
+         *
+         * @return The fastest engine or {@code null}.
+         */
+        String fastest() {
+            String fastest = null;
+            for (String engine : pools.keySet()) {
+                if (this.samples(engine) < minSamples)
+                    return null;
+                if (fastest == null || this.latencies.get(engine) < this.latencies.get(fastest))
+                    fastest = engine;
+            }
+            return fastest;
+        }
+    }
+}
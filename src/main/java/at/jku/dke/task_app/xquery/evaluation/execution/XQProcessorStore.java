@@ -0,0 +1,23 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+/**
+ * State shared by all processors of a {@link XQProcessorPool}, e.g. stored task group documents and compiled queries.
+ * <p>
+ * The store is owned by the pool and outlives its processors, so processors replaced after their maximum number of
+ * executions do not lose the stored documents. Implementations must be thread-safe, as all processors of the pool use
+ * the store concurrently.
+ */
+public interface XQProcessorStore extends AutoCloseable {
+    /**
+     * Removes all stored documents of the specified task group.
+     *
+     * @param taskGroupId The task group identifier.
+     */
+    void evictDocuments(long taskGroupId);
+
+    /**
+     * Releases all stored documents.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,673 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static analysis of queries before their execution.
+ * <p>
+ * The analysis consists of two passes over the query, both linear in its length:
+ * <ol>
+ *     <li>The <em>access check</em> inspects every function call and named function reference in the query text,
+ *     including string literals and comments, so it cannot be bypassed by misleading the scanner. Only calls of
+ *     {@code doc()} and {@code collection()} with the literal argument {@code 'etutor.xml'}, other functions of the
+ *     {@code fn}, {@code math}, {@code map}, {@code array}, {@code xs} and {@code local} namespaces are allowed. Module and schema imports, other function namespaces (e.g. {@code file:},
+ *     {@code db:}, {@code fetch:}, Java bindings) and functions reading other resources (e.g. {@code unparsed-text()},
+ *     {@code json-doc()}, {@code function-lookup()}) are rejected.</li>
+ *     <li>The <em>binding</em> tokenizes the query (comments, string literals, string constructors, direct constructors
+ *     and enclosed expressions) and records the positions of the {@code 'etutor.xml'} literals passed to
+ *     {@code doc()} and {@code collection()}, so only these literals are replaced by the actual document and other
+ *     literals containing {@code etutor.xml} are kept.</li>
+ * </ol>
+ * The result of the analysis is cached by query, so repeated executions of the same query (e.g. the solution of a task
+ * or identical submissions) are analyzed once. The cache is bounded by the number of queries and by their total length
+ * and evicts the least recently used queries.
+ */
+final class XQueryAnalyzer {
+    /**
+     * The name of the document queries may load.
+     */
+    static final String DOCUMENT_NAME = "etutor.xml";
+
+    private static final String FN_URI = "http://www.w3.org/2005/xpath-functions";
+    private static final int MAX_ANALYSES = 1024;
+    private static final int MAX_CACHED_LENGTH = 16 * 1024;
+    private static final long MAX_CACHED_CHARS = 1024 * 1024;
+    private static final int MAX_NESTING = 256;
+    private static final int MAX_URI_LENGTH = 1024;
+
+    private static final Set<String> DOCUMENT_FUNCTIONS = Set.of("doc", "collection");
+    private static final Set<String> FORBIDDEN_FUNCTIONS = Set.of(
+        "doc-available", "uri-collection", "unparsed-text", "unparsed-text-lines", "unparsed-text-available",
+        "json-doc", "environment-variable", "available-environment-variables", "function-lookup",
+        "load-xquery-module", "transform", "put");
+    private static final Map<String, String> BUILT_IN_NAMESPACES = Map.of(
+        "fn", FN_URI,
+        "math", "http://www.w3.org/2005/xpath-functions/math",
+        "map", "http://www.w3.org/2005/xpath-functions/map",
+        "array", "http://www.w3.org/2005/xpath-functions/array",
+        "xs", "http://www.w3.org/2001/XMLSchema",
+        "local", "http://www.w3.org/2005/xquery-local-functions");
+    private static final Set<String> UPDATE_KEYWORDS = Set.of("insert", "delete", "replace", "rename");
+    private static final Set<String> UPDATE_TARGETS = Set.of("node", "nodes", "value");
+    private static final Set<String> OPERATOR_KEYWORDS = Set.of(
+        "return", "then", "else", "in", "satisfies", "and", "or", "div", "idiv", "mod", "union", "intersect", "except",
+        "to", "eq", "ne", "lt", "le", "gt", "ge", "is", "where", "by", "case", "default", "otherwise", "ascending",
+        "descending");
+
+    private static final Map<String, Analysis> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    private static long cachedChars;
+
+    private XQueryAnalyzer() {
+    }
+
+    /**
+     * Analyzes the query.
+     *
+     * @param query The query to analyze.
+     * @return The analysis of the query.
+     * @throws InvalidDocumentLoadException If the query accesses resources other than 'etutor.xml' or calls a function which is not allowed.
+     */
+    static Analysis analyze(String query) throws InvalidDocumentLoadException {
+        Analysis analysis;
+        synchronized (CACHE) {
+            analysis = CACHE.get(query);
+        }
+        if (analysis == null) {
+            analysis = analyzeUncached(query);
+            if (query.length() <= MAX_CACHED_LENGTH)
+                cache(analysis);
+        }
+
+        if (analysis.violation() != null)
+            throw new InvalidDocumentLoadException(analysis.violation());
+        return analysis;
+    }
+
+    /**
+     * Analyzes the query without using the cache.
+     *
+     * @param query The query to analyze.
+     * @return The analysis of the query; contains the violation if the query must not be executed.
+     */
+    static Analysis analyzeUncached(String query) {
+        var scanner = new Scanner(query);
+        try {
+            scanner.code(false, 0);
+        } catch (NestingException ex) {
+            return new Analysis(query, new int[0], false, false, "Query is nested too deeply.");
+        }
+
+        String violation = checkAccess(query);
+        int[] literals = new int[scanner.literals.size() * 2];
+        for (int i = 0; i < scanner.literals.size(); i++) {
+            literals[2 * i] = scanner.literals.get(i)[0];
+            literals[2 * i + 1] = scanner.literals.get(i)[1];
+        }
+        return new Analysis(query, literals, scanner.collection, scanner.updating, violation);
+    }
+
+    /**
+     * Removes all cached analyses.
+     */
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            cachedChars = 0;
+        }
+    }
+
+    /**
+     * Returns the total length of the cached queries.
+     *
+     * @return The number of characters.
+     */
+    static long getCachedChars() {
+        synchronized (CACHE) {
+            return cachedChars;
+        }
+    }
+
+    /**
+     * Caches the analysis and evicts the least recently used analyses until the cache is within its bounds.
+     *
+     * @param analysis The analysis.
+     */
+    private static void cache(Analysis analysis) {
+        synchronized (CACHE) {
+            if (CACHE.put(analysis.query(), analysis) == null)
+                cachedChars += analysis.query().length();
+
+            var it = CACHE.values().iterator();
+            while (CACHE.size() > MAX_ANALYSES || cachedChars > MAX_CACHED_CHARS) {
+                cachedChars -= it.next().query().length();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks all function calls, named function references and imports in the query text.
+     *
+     * @param query The query.
+     * @return The violation or {@code null} if the query is allowed.
+     */
+    private static String checkAccess(String query) {
+        int length = query.length();
+        int i = 0;
+        int brace = -1; // index of the next closing brace, searched once per brace to keep the check linear
+        while (i < length) {
+            char c = query.charAt(i);
+            if (!isNameStart(c)) {
+                i++;
+                continue;
+            }
+
+            // read names greedily like the XQuery tokenizer, so hyphenated names are not split
+            boolean variable = i > 0 && query.charAt(i - 1) == '$';
+            int start = i;
+            i = nameEnd(query, i);
+            String prefix = null;
+            String local = query.substring(start, i);
+            int uriStart = -1;
+            int resume = -1;
+            if (local.equals("Q") && i < length && query.charAt(i) == '{') {
+                // the braces might enclose text the processor reads as code (e.g. if the name is part of a literal), so
+                // scanning resumes inside the braces after the name has been checked
+                uriStart = i + 1;
+                resume = i + 1;
+                if (brace < i && brace != length) {
+                    brace = query.indexOf('}', i);
+                    if (brace < 0)
+                        brace = length;
+                }
+                if (brace + 1 >= length || !isNameStart(query.charAt(brace + 1))) {
+                    i = resume;
+                    continue;
+                }
+                i = nameEnd(query, brace + 1);
+                local = query.substring(brace + 1, i);
+            } else if (i + 1 < length && query.charAt(i) == ':' && isNameStart(query.charAt(i + 1))) {
+                prefix = local;
+                int localStart = i + 1;
+                i = nameEnd(query, localStart);
+                local = query.substring(localStart, i);
+            }
+
+            if (prefix == null && uriStart < 0) {
+                String violation = checkDeclaration(query, local, i);
+                if (violation != null)
+                    return violation;
+            }
+            if ("xmlns".equals(prefix) && BUILT_IN_NAMESPACES.containsKey(local))
+                return "Redeclaration of namespace prefix " + local + " is not allowed.";
+
+            int next = skipWhitespace(query, i);
+            if (resume >= 0)
+                i = resume;
+            if (variable || next >= length || (query.charAt(next) != '(' && query.charAt(next) != '#'))
+                continue;
+
+            // the length of namespace URIs is limited, so nested EQNames sharing a closing brace cannot make the check quadratic
+            if (uriStart >= 0 && brace - uriStart > MAX_URI_LENGTH)
+                return "Function " + local + " is not allowed.";
+            String uri = uriStart < 0 ? null : query.substring(uriStart, brace).strip();
+            String name = uri != null ? "Q{" + uri + '}' + local : prefix != null ? prefix + ':' + local : local;
+            boolean fn = uri != null ? uri.equals(FN_URI) : prefix == null || prefix.equals("fn");
+            if (fn) {
+                if (FORBIDDEN_FUNCTIONS.contains(local))
+                    return "Function " + name + " is not allowed.";
+                if (DOCUMENT_FUNCTIONS.contains(local) && !isDocumentArgument(query, next))
+                    return "Function " + name + " may only load '" + DOCUMENT_NAME + "'.";
+            } else if (uri == null ? !BUILT_IN_NAMESPACES.containsKey(prefix) : !BUILT_IN_NAMESPACES.containsValue(uri)) {
+                // user-defined functions of main modules are declared in the local namespace
+                return "Function " + name + " is not allowed.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the keyword at the specified position starts a forbidden declaration.
+     *
+     * @param query   The query.
+     * @param keyword The keyword.
+     * @param end     The end index of the keyword.
+     * @return The violation or {@code null} if the keyword does not start a forbidden declaration.
+     */
+    private static String checkDeclaration(String query, String keyword, int end) {
+        switch (keyword) {
+            case "import", "function", "namespace" -> {
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        // comments are not skipped to keep the check linear, a comment after these keywords is rejected instead
+        int start = skipWhitespace(query, end);
+        if (query.startsWith("(:", start))
+            return "Comment after keyword " + keyword + " is not allowed.";
+        if (start >= query.length() || !isNameStart(query.charAt(start)))
+            return null;
+        String next = query.substring(start, nameEnd(query, start));
+        return switch (keyword) {
+            case "import" -> next.equals("module") || next.equals("schema") ? "Import of " + next + "s is not allowed." : null;
+            case "function" -> next.equals("namespace") ? "Declaration of a default function namespace is not allowed." : null;
+            default -> BUILT_IN_NAMESPACES.containsKey(next) ? "Redeclaration of namespace prefix " + next + " is not allowed." : null;
+        };
+    }
+
+    /**
+     * Returns whether the call at the specified position passes the literal 'etutor.xml' as only argument.
+     * <p>
+     * Only whitespace is allowed around the argument, so the check takes constant time apart from the whitespace.
+     *
+     * @param query The query.
+     * @param paren The index of the opening parenthesis.
+     * @return {@code true} if the argument is the document literal.
+     */
+    private static boolean isDocumentArgument(String query, int paren) {
+        if (paren >= query.length() || query.charAt(paren) != '(')
+            return false;
+
+        int start = skipWhitespace(query, paren + 1);
+        if (start >= query.length() || (query.charAt(start) != '\'' && query.charAt(start) != '"'))
+            return false;
+        char quote = query.charAt(start);
+        int end = start + DOCUMENT_NAME.length() + 2;
+        if (!query.startsWith(DOCUMENT_NAME + quote, start + 1) || (end < query.length() && query.charAt(end) == quote))
+            return false;
+
+        int close = skipWhitespace(query, end);
+        return close < query.length() && query.charAt(close) == ')';
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == '\u00b7';
+    }
+
+    /**
+     * Returns the end index of the NCName starting at the specified index.
+     */
+    private static int nameEnd(String query, int start) {
+        int i = start + 1;
+        while (i < query.length() && isNameChar(query.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Returns the index of the first non-whitespace character starting at the specified index.
+     */
+    private static int skipWhitespace(String query, int start) {
+        int i = start;
+        while (i < query.length() && Character.isWhitespace(query.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Returns the index of the first character after whitespace and (nested) comments starting at the specified index.
+     */
+    private static int skipIgnorable(String query, int start) {
+        int i = start;
+        int comments = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (query.startsWith("(:", i)) {
+                comments++;
+                i += 2;
+            } else if (comments > 0 && query.startsWith(":)", i)) {
+                comments--;
+                i += 2;
+            } else if (comments > 0 || Character.isWhitespace(c)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index after the string literal starting at the specified index or -1 if it is not terminated.
+     */
+    private static int literalEnd(String query, int start) {
+        char quote = query.charAt(start);
+        int i = start + 1;
+        while (i < query.length()) {
+            if (query.charAt(i) == quote) {
+                // doubled quotes are escapes
+                if (i + 1 < query.length() && query.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * The result of the analysis of a query.
+     *
+     * @param query      The analyzed query.
+     * @param literals   The start (inclusive) and end (exclusive) indices of the contents of the 'etutor.xml' literals passed to {@code doc()} and {@code collection()}.
+     * @param collection Whether the query calls {@code collection()}.
+     * @param updating   Whether the query might contain updating expressions.
+     * @param violation  The reason why the query must not be executed or {@code null} if it may be executed.
+     */
+    record Analysis(String query, int[] literals, boolean collection, boolean updating, String violation) {
+        /**
+         * Binds 'etutor.xml' to the specified document name.
+         *
+         * @param documentName The document name (e.g. path or database name).
+         * @return The query loading the specified document instead of 'etutor.xml'.
+         */
+        String bind(String documentName) {
+            if (this.literals.length == 0)
+                return this.query;
+
+            var sb = new StringBuilder(this.query.length() + this.literals.length * documentName.length());
+            int last = 0;
+            for (int i = 0; i < this.literals.length; i += 2) {
+                String quote = String.valueOf(this.query.charAt(this.literals[i] - 1));
+                sb.append(this.query, last, this.literals[i]).append(documentName.replace(quote, quote + quote));
+                last = this.literals[i + 1];
+            }
+            return sb.append(this.query, last, this.query.length()).toString();
+        }
+    }
+
+    /**
+     * Thrown if the query exceeds the maximum nesting of constructors and enclosed expressions.
+     */
+    private static final class NestingException extends RuntimeException {
+        NestingException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Tokenizer recording the document literals and updating expressions of a query.
+     * <p>
+     * Updating expressions ({@code insert}, {@code delete}, {@code replace} or {@code rename} followed by {@code node},
+     * {@code nodes} or {@code value}) are only detected in code, so keywords in literals, comments or the text of direct
+     * constructors are not reported.
+     * <p>
+     * Unterminated comments, literals and constructors end the scan; such queries are rejected by the XQuery processor.
+     */
+    private static final class Scanner {
+        private final String query;
+        private final List<int[]> literals;
+        private boolean collection;
+        private boolean updating;
+        private int pos;
+
+        Scanner(String query) {
+            this.query = query;
+            this.literals = new ArrayList<>();
+        }
+
+        /**
+         * Scans an expression until the end of the query or, if enclosed, the closing brace.
+         *
+         * @param enclosed Whether the expression is enclosed in braces.
+         * @param nesting  The nesting level.
+         */
+        void code(boolean enclosed, int nesting) {
+            if (nesting > MAX_NESTING)
+                throw new NestingException();
+
+            int braces = 0;
+            boolean operand = false; // whether the previous token ends an operand, i.e. '<' is a comparison
+            while (this.pos < this.query.length()) {
+                char c = this.query.charAt(this.pos);
+                if (this.query.startsWith("(:", this.pos)) {
+                    this.pos = skipIgnorable(this.query, this.pos);
+                    continue;
+                } else if (Character.isWhitespace(c)) {
+                    this.pos++;
+                    continue;
+                } else if (this.query.startsWith("(#", this.pos)) {
+                    this.skipTo("#)");
+                    operand = false;
+                } else if (c == '\'' || c == '"') {
+                    int end = literalEnd(this.query, this.pos);
+                    this.pos = end < 0 ? this.query.length() : end;
+                    operand = true;
+                } else if (this.query.startsWith("``[", this.pos)) {
+                    this.stringConstructor(nesting);
+                    operand = true;
+                } else if (c == '{') {
+                    braces++;
+                    this.pos++;
+                    operand = false;
+                } else if (c == '}') {
+                    this.pos++;
+                    if (braces == 0 && enclosed)
+                        return;
+                    braces = Math.max(0, braces - 1);
+                    operand = true;
+                } else if (c == '<' && !operand && this.startsConstructor()) {
+                    this.constructor(nesting);
+                    operand = true;
+                } else if (c == '$') {
+                    this.pos++;
+                    if (this.pos < this.query.length() && isNameStart(this.query.charAt(this.pos)))
+                        this.qName();
+                    operand = true;
+                } else if (isNameStart(c)) {
+                    String name = this.qName();
+                    if (UPDATE_KEYWORDS.contains(name) && this.isUpdateTarget())
+                        this.updating = true;
+                    operand = this.documentCall(name) || !OPERATOR_KEYWORDS.contains(name);
+                } else if (Character.isDigit(c) || c == '.') {
+                    while (this.pos < this.query.length() && (isNameChar(this.query.charAt(this.pos))))
+                        this.pos++;
+                    operand = true;
+                } else {
+                    this.pos++;
+                    operand = c == ')' || c == ']' || c == '*';
+                }
+            }
+        }
+
+        /**
+         * Reads a lexical QName or EQName at the current position.
+         *
+         * @return The name.
+         */
+        private String qName() {
+            int start = this.pos;
+            this.pos = nameEnd(this.query, this.pos);
+            if (this.pos - start == 1 && this.query.charAt(start) == 'Q' && this.pos < this.query.length() && this.query.charAt(this.pos) == '{') {
+                int close = this.query.indexOf('}', this.pos);
+                if (close < 0) {
+                    this.pos = this.query.length();
+                    return this.query.substring(start);
+                }
+                String uri = this.query.substring(this.pos + 1, close).strip();
+                this.pos = close + 1;
+                int localStart = this.pos;
+                if (this.pos < this.query.length() && isNameStart(this.query.charAt(this.pos)))
+                    this.pos = nameEnd(this.query, this.pos);
+                return "Q{" + uri + '}' + this.query.substring(localStart, this.pos);
+            }
+            if (this.pos + 1 < this.query.length() && this.query.charAt(this.pos) == ':' && isNameStart(this.query.charAt(this.pos + 1)))
+                this.pos = nameEnd(this.query, this.pos + 1);
+            return this.query.substring(start, this.pos);
+        }
+
+        /**
+         * Returns whether the name following the current position, skipping whitespace and comments, is the target of an
+         * updating expression.
+         */
+        private boolean isUpdateTarget() {
+            int next = skipIgnorable(this.query, this.pos);
+            return next < this.query.length() && isNameStart(this.query.charAt(next))
+                && UPDATE_TARGETS.contains(this.query.substring(next, nameEnd(this.query, next)));
+        }
+
+        /**
+         * Records the document literal if the name before the current position is a call of {@code doc()} or {@code collection()}.
+         *
+         * @param name The name.
+         * @return {@code true} if the name is a document function call whose argument has been consumed.
+         */
+        private boolean documentCall(String name) {
+            String local = name.startsWith("fn:") ? name.substring(3) : name.startsWith("Q{" + FN_URI + "}") ? name.substring(FN_URI.length() + 2) : name;
+            if (!DOCUMENT_FUNCTIONS.contains(local))
+                return false;
+
+            int paren = skipWhitespace(this.query, this.pos);
+            if (!isDocumentArgument(this.query, paren))
+                return false;
+
+            int literal = skipWhitespace(this.query, paren + 1) + 1;
+            int end = literal + DOCUMENT_NAME.length();
+            this.literals.add(new int[]{literal, end});
+            this.collection |= local.equals("collection");
+            this.pos = skipWhitespace(this.query, end + 1) + 1;
+            return true;
+        }
+
+        /**
+         * Returns whether the '&lt;' at the current position starts a direct constructor.
+         */
+        private boolean startsConstructor() {
+            if (this.pos + 1 >= this.query.length())
+                return false;
+            char next = this.query.charAt(this.pos + 1);
+            return isNameStart(next) || this.query.startsWith("<!--", this.pos) || (next == '?' && this.pos + 2 < this.query.length() && isNameStart(this.query.charAt(this.pos + 2)));
+        }
+
+        /**
+         * Scans a direct element, comment or processing instruction constructor.
+         *
+         * @param nesting The nesting level.
+         */
+        private void constructor(int nesting) {
+            if (nesting > MAX_NESTING)
+                throw new NestingException();
+            if (this.query.startsWith("<!--", this.pos)) {
+                this.skipTo("-->");
+                return;
+            }
+            if (this.query.startsWith("<?", this.pos)) {
+                this.skipTo("?>");
+                return;
+            }
+
+            // start tag and attributes
+            this.pos++;
+            this.qName();
+            while (this.pos < this.query.length()) {
+                char c = this.query.charAt(this.pos);
+                if (Character.isWhitespace(c)) {
+                    this.pos++;
+                } else if (this.query.startsWith("/>", this.pos)) {
+                    this.pos += 2;
+                    return;
+                } else if (c == '>') {
+                    this.pos++;
+                    break;
+                } else if (isNameStart(c)) {
+                    this.qName();
+                    while (this.pos < this.query.length() && this.query.charAt(this.pos) != '\'' && this.query.charAt(this.pos) != '"' && this.query.charAt(this.pos) != '>')
+                        this.pos++;
+                    if (this.pos < this.query.length() && this.query.charAt(this.pos) != '>')
+                        this.attributeValue(nesting);
+                } else {
+                    // malformed constructor, the processor reports the syntax error
+                    return;
+                }
+            }
+
+            // content
+            while (this.pos < this.query.length()) {
+                if (this.query.startsWith("</", this.pos)) {
+                    this.skipTo(">");
+                    return;
+                } else if (this.query.startsWith("<![CDATA[", this.pos)) {
+                    this.skipTo("]]>");
+                } else if (this.query.startsWith("<!--", this.pos) || this.query.startsWith("<?", this.pos) || this.query.charAt(this.pos) == '<') {
+                    this.constructor(nesting + 1);
+                } else if (this.query.startsWith("{{", this.pos) || this.query.startsWith("}}", this.pos)) {
+                    this.pos += 2;
+                } else if (this.query.charAt(this.pos) == '{') {
+                    this.pos++;
+                    this.code(true, nesting + 1);
+                } else {
+                    this.pos++;
+                }
+            }
+        }
+
+        /**
+         * Scans an attribute value of a direct constructor including its enclosed expressions.
+         *
+         * @param nesting The nesting level.
+         */
+        private void attributeValue(int nesting) {
+            char quote = this.query.charAt(this.pos++);
+            while (this.pos < this.query.length()) {
+                char c = this.query.charAt(this.pos);
+                if (c == quote) {
+                    this.pos++;
+                    if (this.pos >= this.query.length() || this.query.charAt(this.pos) != quote)
+                        return;
+                    this.pos++;
+                } else if (this.query.startsWith("{{", this.pos) || this.query.startsWith("}}", this.pos)) {
+                    this.pos += 2;
+                } else if (c == '{') {
+                    this.pos++;
+                    this.code(true, nesting + 1);
+                } else {
+                    this.pos++;
+                }
+            }
+        }
+
+        /**
+         * Scans a string constructor including its interpolations.
+         *
+         * @param nesting The nesting level.
+         */
+        private void stringConstructor(int nesting) {
+            this.pos += 3;
+            while (this.pos < this.query.length()) {
+                if (this.query.startsWith("]``", this.pos)) {
+                    this.pos += 3;
+                    return;
+                } else if (this.query.startsWith("`{", this.pos)) {
+                    this.pos += 2;
+                    this.code(true, nesting + 1);
+                    if (this.pos < this.query.length() && this.query.charAt(this.pos) == '`')
+                        this.pos++;
+                } else {
+                    this.pos++;
+                }
+            }
+        }
+
+        /**
+         * Moves the position after the next occurrence of the terminator or to the end of the query.
+         *
+         * @param terminator The terminator.
+         */
+        private void skipTo(String terminator) {
+            int end = this.query.indexOf(terminator, this.pos + 1);
+            this.pos = end < 0 ? this.query.length() : end + terminator.length();
+        }
+    }
+}
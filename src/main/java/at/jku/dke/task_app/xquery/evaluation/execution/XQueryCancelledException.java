@@ -0,0 +1,13 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+/**
+ * Thrown to indicate that the execution of a query has been cancelled on request via its {@link XQCancellation}.
+ */
+public class XQueryCancelledException extends XQueryException {
+    /**
+     * Creates a new instance of class {@link XQueryCancelledException}.
+     */
+    public XQueryCancelledException() {
+        super("The query execution has been cancelled.");
+    }
+}
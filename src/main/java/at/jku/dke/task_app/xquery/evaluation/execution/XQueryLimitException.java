@@ -0,0 +1,63 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+/**
+ * Thrown to indicate that the execution of a query has been aborted because its result exceeded a size limit.
+ */
+public class XQueryLimitException extends XQueryException {
+    private final Kind kind;
+    private final long limit;
+
+    /**
+     * Creates a new instance of class {@link XQueryLimitException}.
+     *
+     * @param kind  The kind of the exceeded limit.
+     * @param limit The exceeded limit.
+     */
+    public XQueryLimitException(Kind kind, long limit) {
+        super("The query result exceeded the " + kind.description + " limit of " + limit + ".");
+        this.kind = kind;
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the kind of the exceeded limit.
+     *
+     * @return The kind of the exceeded limit.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the exceeded limit.
+     *
+     * @return The exceeded limit.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * The kinds of result limits.
+     */
+    public enum Kind {
+        /**
+         * The size of the serialized result.
+         */
+        BYTES("size"),
+        /**
+         * The number of elements.
+         */
+        NODES("node count"),
+        /**
+         * The nesting depth of elements.
+         */
+        DEPTH("depth");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import java.time.Duration;
+
+/**
+ * Thrown to indicate that the execution of a query has been cancelled because it exceeded a time limit.
+ */
+public class XQueryTimeoutException extends XQueryException {
+    private final Duration limit;
+
+    /**
+     * Creates a new instance of class {@link XQueryTimeoutException}.
+     *
+     * @param message The message of the exception.
+     * @param limit   The exceeded limit.
+     */
+    public XQueryTimeoutException(String message, Duration limit) {
+        super(message);
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the exceeded limit.
+     *
+     * @return The exceeded limit.
+     */
+    public Duration getLimit() {
+        return limit;
+    }
+}
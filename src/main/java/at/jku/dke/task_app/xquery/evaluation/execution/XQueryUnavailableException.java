@@ -0,0 +1,30 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import java.time.Duration;
+
+/**
+ * Thrown to indicate that no processor was available to execute a query within the borrow timeout of the pool.
+ */
+public class XQueryUnavailableException extends XQueryException {
+    private final Duration timeout;
+
+    /**
+     * Creates a new instance of class {@link XQueryUnavailableException}.
+     *
+     * @param message The message of the exception.
+     * @param timeout The elapsed borrow timeout.
+     */
+    public XQueryUnavailableException(String message, Duration timeout) {
+        super(message);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the elapsed borrow timeout.
+     *
+     * @return The borrow timeout.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -4,17 +4,24 @@
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * This class is a health indicator providing the XQuery executor version.
+ * This class is a health indicator providing the XQuery executor version and the state of the processor pool.
+ * <p>
+ * If multiple engines are available, the details of each engine are provided under the name of the engine.
  */
 @Component
 public class XqHealthIndicator implements HealthIndicator {
 
-    private final XQProcessor executor;
-    private String version;
+    private final XQProcessorRouter router;
+    private final Map<String, String> versions;
 
-    public XqHealthIndicator(XQProcessor executor) {
-        this.executor = executor;
+    public XqHealthIndicator(XQProcessorRouter router) {
+        this.router = router;
+        this.versions = new ConcurrentHashMap<>();
     }
 
     /**
@@ -25,14 +32,38 @@ public XqHealthIndicator(XQProcessor executor) {
     @Override
     public Health health() {
         try {
-            this.version = this.version == null ? this.executor.getVersion() : this.version;
-            return Health.up()
-                .withDetail("version", version)
-                .build();
+            var pools = this.router.getPools();
+            if (pools.size() == 1) {
+                var entry = pools.entrySet().iterator().next();
+                return Health.up().withDetails(this.details(entry.getKey(), entry.getValue())).build();
+            }
+
+            var health = Health.up().withDetail("default", this.router.getDefaultEngine());
+            for (var entry : pools.entrySet())
+                health.withDetail(entry.getKey(), this.details(entry.getKey(), entry.getValue()));
+            return health.build();
         } catch (Exception ex) {
             return Health.down()
                 .withException(ex)
                 .build();
         }
     }
+
+    private Map<String, Object> details(String engine, XQProcessorPool pool) throws XQueryException {
+        String version = this.versions.get(engine);
+        if (version == null) {
+            version = pool.getVersion();
+            this.versions.put(engine, version);
+        }
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("version", version);
+        details.put("poolSize", pool.getSize());
+        details.put("active", pool.getActiveCount());
+        details.put("idle", pool.getIdleCount());
+        details.put("recycled", pool.getRecycledCount());
+        details.put("leaked", pool.getLeakedCount());
+        details.put("aborted", pool.getAbortedCount());
+        return details;
+    }
 }
@@ -0,0 +1,209 @@
+package at.jku.dke.task_app.xquery.evaluation.report;
+
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import org.codelibs.jhighlight.renderer.XhtmlRendererFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+/**
+ * Highlights raw query results as HTML.
+ * <p>
+ * Results longer than the maximum length are truncated before highlighting, preferably at the end of a line, so the
+ * size of the response and the rendering time are bounded. The rendered HTML is cached by the hash of the result, so
+ * identical results (e.g. repeated runs of the same query) are rendered only once. The cache is bounded by the number of
+ * entries and the total length of the cached HTML, which is several times longer than the result. The style sheet is
+ * not part of the cached HTML; it is emitted once in front of the highlighted result.
+ */
+@Component
+public class ResultHighlighter {
+    private static final Logger LOG = LoggerFactory.getLogger(ResultHighlighter.class);
+
+    /**
+     * The style sheet of the highlighted result.
+     */
+    static final String CSS = """
+        <style>
+        .xml {font-family: monospace;}
+        .xml_tag_symbols {color: #000000;}
+        .xml_tag_name {color: #008080;}
+        .xml_plain {color: #000000;}
+        .xml_attribute_value {color: #a31515;}
+        </style>
+        """;
+
+    /**
+     * The default maximum total length of the cached HTML.
+     */
+    static final long DEFAULT_MAX_CACHED_LENGTH = 16L * 1024 * 1024;
+
+    private final int maxLength;
+    private final int cacheSize;
+    private final long maxCachedLength;
+    private final LinkedHashMap<String, String> cache;
+    private long cachedLength;
+
+    /**
+     * Creates a new instance of class {@link ResultHighlighter}.
+     *
+     * @param settings The XQuery settings.
+     */
+    @Autowired
+    public ResultHighlighter(XQuerySettings settings) {
+        this((int) Math.min(Integer.MAX_VALUE, settings.highlighting().maxSize().toBytes()), settings.highlighting().cacheSize(),
+            settings.highlighting().cacheMaxSize().toBytes());
+    }
+
+    /**
+     * Creates a new instance of class {@link ResultHighlighter} with the default maximum length of the cached HTML.
+     *
+     * @param maxLength The maximum number of highlighted characters (0 disables truncation).
+     * @param cacheSize The maximum number of cached results (0 disables caching).
+     */
+    public ResultHighlighter(int maxLength, int cacheSize) {
+        this(maxLength, cacheSize, DEFAULT_MAX_CACHED_LENGTH);
+    }
+
+    /**
+     * Creates a new instance of class {@link ResultHighlighter}.
+     *
+     * @param maxLength       The maximum number of highlighted characters (0 disables truncation).
+     * @param cacheSize       The maximum number of cached results (0 disables caching).
+     * @param maxCachedLength The maximum total length of the cached HTML (0 disables caching).
+     */
+    public ResultHighlighter(int maxLength, int cacheSize, long maxCachedLength) {
+        if (maxLength < 0)
+            throw new IllegalArgumentException("maxLength must not be negative.");
+        if (maxCachedLength < 0)
+            throw new IllegalArgumentException("maxCachedLength must not be negative.");
+
+        this.maxLength = maxLength;
+        this.cacheSize = maxCachedLength == 0 ? 0 : cacheSize;
+        this.maxCachedLength = maxCachedLength;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Highlights the XML code as HTML, truncating it if it exceeds the maximum length.
+     *
+     * @param code The code to highlight.
+     * @return The highlighted code.
+     */
+    public String highlight(String code) {
+        String truncated = this.truncate(code);
+        if (this.cacheSize <= 0)
+            return CSS + render(truncated);
+
+        // the hash is computed over the truncated code, so different results with the same prefix share an entry
+        String key = XQDocument.hash(truncated);
+        String html;
+        synchronized (this.cache) {
+            html = this.cache.get(key);
+        }
+        if (html == null) {
+            html = render(truncated);
+            this.cache(key, html);
+        }
+        return CSS + html;
+    }
+
+    /**
+     * Returns whether the code exceeds the maximum length and will be truncated.
+     *
+     * @param code The code.
+     * @return {@code true} if the code will be truncated; otherwise {@code false}.
+     */
+    public boolean isTruncated(String code) {
+        return this.maxLength > 0 && code.length() > this.maxLength;
+    }
+
+    /**
+     * Returns the maximum number of highlighted characters.
+     *
+     * @return The maximum length (0 if truncation is disabled).
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return The number of entries.
+     */
+    public int getCacheCount() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Returns the total length of the cached HTML.
+     *
+     * @return The number of cached characters.
+     */
+    long getCachedLength() {
+        synchronized (this.cache) {
+            return this.cachedLength;
+        }
+    }
+
+    /**
+     * Caches the rendered HTML and evicts the least recently used entries exceeding the bounds.
+     * <p>
+     * HTML longer than the maximum total length is not cached.
+     *
+     * @param key  The hash of the highlighted code.
+     * @param html The rendered HTML.
+     */
+    private void cache(String key, String html) {
+        if (html.length() > this.maxCachedLength)
+            return;
+
+        synchronized (this.cache) {
+            String previous = this.cache.put(key, html);
+            this.cachedLength += html.length() - (previous == null ? 0 : previous.length());
+
+            var it = this.cache.values().iterator();
+            while (this.cache.size() > this.cacheSize || this.cachedLength > this.maxCachedLength) {
+                this.cachedLength -= it.next().length();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Truncates the code to the maximum length, at the end of the last complete line if possible.
+     *
+     * @param code The code.
+     * @return The truncated code.
+     */
+    String truncate(String code) {
+        if (!this.isTruncated(code))
+            return code;
+
+        int end = code.lastIndexOf('\n', this.maxLength - 1);
+        return code.substring(0, end > 0 ? end : this.maxLength);
+    }
+
+    /**
+     * Renders the XML code as HTML without style sheet.
+     *
+     * @param code The code to render.
+     * @return The rendered code.
+     */
+    static String render(String code) {
+        try {
+            return "<div class=\"xml\">" + XhtmlRendererFactory.getRenderer(XhtmlRendererFactory.XML).highlight("result.xml", code, "UTF-8", true) + "</div>";
+        } catch (IOException ex) {
+            LOG.warn("Could not highlight result", ex);
+            return "<pre>" + HtmlUtils.htmlEscape(code) + "</pre>";
+        }
+    }
+}
@@ -6,11 +6,9 @@
 import at.jku.dke.task_app.xquery.evaluation.analysis.NodeModel;
 import at.jku.dke.task_app.xquery.evaluation.grading.GradingEntry;
 import at.jku.dke.task_app.xquery.evaluation.grading.XQueryGrading;
-import org.codelibs.jhighlight.renderer.XhtmlRendererFactory;
 import org.springframework.context.MessageSource;
 import org.springframework.web.util.HtmlUtils;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -27,9 +25,10 @@ public class XQueryReport {
     private final int feedbackLevel;
     private final Analysis analysis;
     private final XQueryGrading grading;
+    private final ResultHighlighter highlighter;
 
     /**
-     * Creates a new instance of class {@link XQueryReport}.
+     * Creates a new instance of class {@link XQueryReport} which highlights the complete result without caching.
      *
      * @param messageSource The message source.
      * @param locale        The locale.
@@ -39,6 +38,22 @@ public class XQueryReport {
      * @param grading       The grading.
      */
     public XQueryReport(MessageSource messageSource, Locale locale, SubmissionMode mode, int feedbackLevel, Analysis analysis, XQueryGrading grading) {
+        this(messageSource, locale, mode, feedbackLevel, analysis, grading, new ResultHighlighter(0, 0));
+    }
+
+    /**
+     * Creates a new instance of class {@link XQueryReport}.
+     *
+     * @param messageSource The message source.
+     * @param locale        The locale.
+     * @param mode          The submission mode.
+     * @param feedbackLevel The feedback level.
+     * @param analysis      The analysis.
+     * @param grading       The grading.
+     * @param highlighter   The highlighter of the query result.
+     */
+    public XQueryReport(MessageSource messageSource, Locale locale, SubmissionMode mode, int feedbackLevel, Analysis analysis, XQueryGrading grading,
+                        ResultHighlighter highlighter) {
         if (feedbackLevel < 0 || feedbackLevel > 3)
             throw new IllegalArgumentException("feedbackLevel must be between 0 and 3");
 
@@ -48,6 +63,7 @@ public XQueryReport(MessageSource messageSource, Locale locale, SubmissionMode m
         this.feedbackLevel = mode == SubmissionMode.SUBMIT ? (feedbackLevel == 0 ? 0 : 1) : feedbackLevel;
         this.analysis = analysis;
         this.grading = grading;
+        this.highlighter = highlighter;
     }
 
     /**
@@ -122,7 +138,7 @@ public List<CriterionDto> getCriteria() {
                 this.messageSource.getMessage("criterium.result", null, locale),
                 null,
                 this.mode == SubmissionMode.RUN || analysis.isCorrect(),
-                highlightCode(this.analysis.getSubmissionResult().getRawResult())
+                this.highlightResult(this.analysis.getSubmissionResult().getRawResult())
             ));
         }
 
@@ -180,21 +196,17 @@ private String createDetailsString(List<?> list) {
         return sb.append("</ul>").toString();
     }
 
-    private static String highlightCode(String code) {
-        String css = """
-            <style>
-            .xml {font-family: monospace;}
-            .xml_tag_symbols {color: #000000;}
-            .xml_tag_name {color: #008080;}
-            .xml_plain {color: #000000;}
-            .xml_attribute_value {color: #a31515;}
-            </style>
-            """;
-        try {
-            return css + "<div class=\"xml\">" + XhtmlRendererFactory.getRenderer(XhtmlRendererFactory.XML).highlight("result.xml", code, "UTF-8", true) + "</div>";
-        } catch (IOException e) {
-            return "<pre>" + HtmlUtils.htmlEscape(code) + "</pre>";
-        }
+    /**
+     * Highlights the query result as HTML; a note is appended if the result has been truncated.
+     *
+     * @param result The raw query result.
+     * @return The highlighted result.
+     */
+    private String highlightResult(String result) {
+        String html = this.highlighter.highlight(result);
+        if (!this.highlighter.isTruncated(result))
+            return html;
+        return html + "<p>" + this.messageSource.getMessage("criterium.result.truncated", new Object[]{this.highlighter.getMaxLength(), result.length()}, this.locale) + "</p>";
     }
 
 }
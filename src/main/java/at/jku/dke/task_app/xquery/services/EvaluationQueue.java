@@ -0,0 +1,272 @@
+package at.jku.dke.task_app.xquery.services;
+
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.data.entities.XQuerySubmission;
+import at.jku.dke.task_app.xquery.data.repositories.XQuerySubmissionRepository;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
+import at.jku.dke.task_app.xquery.dto.EvaluationJobDto;
+import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationUnavailableException;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue for asynchronous evaluations of submissions.
+ * <p>
+ * Submissions are evaluated by a fixed number of workers. The number of waiting submissions is bounded; if the queue is
+ * saturated, further submissions are rejected with status {@code 429 Too Many Requests}. The database is only accessed
+ * for short reads and writes before and after the evaluation, so no connection is held while a query executes.
+ * Results can be polled until the retention time after the evaluation has elapsed.
+ * <p>
+ * If virtual threads are enabled, the workers are virtual threads; they only wait for the query executions, which run
+ * on the platform threads of the processor pool.
+ */
+@Service
+public class EvaluationQueue implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EvaluationQueue.class);
+
+    private final EvaluationService evaluationService;
+    private final XQuerySubmissionRepository submissionRepository;
+    private final XQueryTaskRepository taskRepository;
+    private final int workers;
+    private final int capacity;
+    private final Duration retention;
+
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService cleaner;
+    private final Map<UUID, Job> jobs;
+
+    /**
+     * Creates a new instance of class {@link EvaluationQueue}.
+     *
+     * @param evaluationService    The evaluation service.
+     * @param submissionRepository The submission repository.
+     * @param taskRepository       The task repository.
+     * @param settings             The XQuery settings.
+     * @param environment          The environment.
+     */
+    @Autowired
+    public EvaluationQueue(EvaluationService evaluationService, XQuerySubmissionRepository submissionRepository, XQueryTaskRepository taskRepository,
+                           XQuerySettings settings, Environment environment) {
+        this(evaluationService, submissionRepository, taskRepository, settings.queue().workers(), settings.queue().capacity(), settings.queue().resultRetention(),
+            Threading.VIRTUAL.isActive(environment));
+    }
+
+    /**
+     * Creates a new instance of class {@link EvaluationQueue} with platform worker threads.
+     *
+     * @param evaluationService    The evaluation service.
+     * @param submissionRepository The submission repository.
+     * @param taskRepository       The task repository.
+     * @param workers              The number of concurrent evaluations (0 uses the number of available processors).
+     * @param capacity             The maximum number of waiting evaluations.
+     * @param retention            The time the result of a finished evaluation can be polled.
+     */
+    public EvaluationQueue(EvaluationService evaluationService, XQuerySubmissionRepository submissionRepository, XQueryTaskRepository taskRepository,
+                           int workers, int capacity, Duration retention) {
+        this(evaluationService, submissionRepository, taskRepository, workers, capacity, retention, false);
+    }
+
+    /**
+     * Creates a new instance of class {@link EvaluationQueue}.
+     *
+     * @param evaluationService    The evaluation service.
+     * @param submissionRepository The submission repository.
+     * @param taskRepository       The task repository.
+     * @param workers              The number of concurrent evaluations (0 uses the number of available processors).
+     * @param capacity             The maximum number of waiting evaluations.
+     * @param retention            The time the result of a finished evaluation can be polled.
+     * @param virtualThreads       Whether the workers are virtual threads.
+     */
+    public EvaluationQueue(EvaluationService evaluationService, XQuerySubmissionRepository submissionRepository, XQueryTaskRepository taskRepository,
+                           int workers, int capacity, Duration retention, boolean virtualThreads) {
+        if (workers < 0)
+            throw new IllegalArgumentException("workers must not be negative.");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive.");
+
+        this.evaluationService = evaluationService;
+        this.submissionRepository = submissionRepository;
+        this.taskRepository = taskRepository;
+        this.workers = workers == 0 ? Runtime.getRuntime().availableProcessors() : workers;
+        this.capacity = capacity;
+        this.retention = retention;
+
+        // the permits bound running and waiting evaluations, so the work queue itself never rejects
+        this.permits = new Semaphore(this.workers + capacity);
+        var counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, virtualThreads
+            ? Thread.ofVirtual().name("xq-evaluation-", 1).factory()
+            : r -> new Thread(r, "xq-evaluation-" + counter.incrementAndGet()));
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "xq-evaluation-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = new ConcurrentHashMap<>();
+
+        long period = Math.max(1000, retention.toMillis() / 2);
+        this.cleaner.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+        LOG.info("Created evaluation queue with {} {} workers and capacity {}", this.workers, virtualThreads ? "virtual" : "platform", capacity);
+    }
+
+    /**
+     * Enqueues the submission for evaluation.
+     * <p>
+     * If the submission is persisted, it is stored before it is enqueued and the job identifier equals the submission
+     * identifier. The evaluation result is stored after the evaluation.
+     *
+     * @param submission The submission to evaluate.
+     * @param persist    Whether to persist the submission and its result.
+     * @return The state of the enqueued job.
+     * @throws EntityNotFoundException If the task does not exist.
+     * @throws ResponseStatusException If the queue is saturated (status {@code 429}) or has been closed (status {@code 503}).
+     */
+    public EvaluationJobDto enqueue(SubmitSubmissionDto<XQuerySubmissionDto> submission, boolean persist) {
+        if (!this.permits.tryAcquire()) {
+            LOG.warn("Rejected submission for task {} because the evaluation queue is saturated", submission.taskId());
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "The evaluation queue is saturated.");
+        }
+
+        try {
+            XQuerySubmission entity = null;
+            UUID id;
+            if (persist) {
+                var task = this.taskRepository.findById(submission.taskId())
+                    .orElseThrow(() -> new EntityNotFoundException("Task " + submission.taskId() + " does not exist."));
+                entity = this.submissionRepository.save(new XQuerySubmission(submission.userId(), submission.assignmentId(), task,
+                    submission.language(), submission.feedbackLevel(), submission.mode(), submission.submission().input()));
+                id = entity.getId();
+            } else {
+                if (!this.taskRepository.existsById(submission.taskId()))
+                    throw new EntityNotFoundException("Task " + submission.taskId() + " does not exist.");
+                id = UUID.randomUUID();
+            }
+
+            var job = new Job(id);
+            this.jobs.put(id, job);
+            XQuerySubmission persisted = entity;
+            try {
+                this.executor.execute(() -> this.run(job, submission, persisted));
+            } catch (RejectedExecutionException ex) {
+                // the queue has been closed; the job would never leave the QUEUED state
+                this.jobs.remove(id);
+                LOG.warn("Rejected submission for task {} because the evaluation queue has been closed", submission.taskId());
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The evaluation queue has been closed.", ex);
+            }
+            return job.toDto();
+        } catch (RuntimeException ex) {
+            this.permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the state of the job with the specified identifier.
+     *
+     * @param id The job identifier.
+     * @return The state of the job or an empty result if the job does not exist or has been evicted.
+     */
+    public Optional<EvaluationJobDto> getJob(UUID id) {
+        return Optional.ofNullable(this.jobs.get(id)).map(Job::toDto);
+    }
+
+    /**
+     * Returns the number of evaluations that are running or waiting.
+     *
+     * @return The number of pending evaluations.
+     */
+    public int getPendingCount() {
+        return this.workers + this.capacity - this.permits.availablePermits();
+    }
+
+    /**
+     * Stops the workers; running evaluations are interrupted.
+     */
+    @Override
+    public void close() {
+        this.cleaner.shutdownNow();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Evaluates the submission of a job.
+     *
+     * @param job        The job.
+     * @param submission The submission.
+     * @param entity     The persisted submission or {@code null} if the submission is not persisted.
+     */
+    private void run(Job job, SubmitSubmissionDto<XQuerySubmissionDto> submission, XQuerySubmission entity) {
+        job.status = EvaluationJobDto.Status.RUNNING;
+        var status = EvaluationJobDto.Status.FAILED;
+        try {
+            GradingDto grading = this.evaluationService.evaluate(submission);
+            if (entity != null) {
+                entity.setEvaluationResult(grading);
+                this.submissionRepository.save(entity);
+            }
+            job.grading = grading;
+            status = EvaluationJobDto.Status.COMPLETED;
+        } catch (EvaluationUnavailableException ex) {
+            LOG.warn("Asynchronous evaluation of submission {} was rejected because no XQuery processor is available", job.id);
+            job.error = ex.getReason();
+        } catch (Exception ex) {
+            LOG.error("Asynchronous evaluation of submission " + job.id + " failed", ex);
+            job.error = ex instanceof ResponseStatusException rse && rse.getReason() != null ? rse.getReason() : ex.getMessage();
+        } finally {
+            // release the permit before publishing the result, so a polling client can submit again immediately
+            job.finishedAt = Instant.now();
+            this.permits.release();
+            job.status = status;
+        }
+    }
+
+    /**
+     * Removes finished jobs whose retention time has elapsed.
+     */
+    private void evictExpired() {
+        Instant threshold = Instant.now().minus(this.retention);
+        this.jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    /**
+     * The state of an asynchronous evaluation.
+     */
+    private static final class Job {
+        private final UUID id;
+        private volatile EvaluationJobDto.Status status;
+        private volatile GradingDto grading;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private Job(UUID id) {
+            this.id = id;
+            this.status = EvaluationJobDto.Status.QUEUED;
+        }
+
+        private EvaluationJobDto toDto() {
+            // read the status first; the result fields are written before the status is set
+            var status = this.status;
+            return new EvaluationJobDto(this.id, status, this.grading, this.error);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package at.jku.dke.task_app.xquery.services;
+
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.data.entities.XQuerySubmission;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.projections.EvaluationTask;
+import at.jku.dke.task_app.xquery.data.repositories.XQuerySubmissionRepository;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
+import at.jku.dke.task_app.xquery.dto.EvaluationJobDto;
+import at.jku.dke.task_app.xquery.dto.RegradeJobDto;
+import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Re-evaluates all persisted submissions of a task or an assignment, e.g. after the solution or the penalties of a task have been corrected.
+ * <p>
+ * Re-evaluations run one after another in the background. The submissions are loaded in batches and evaluated in parallel
+ * by a fixed number of workers; the solution of each task is prepared once before its first submission is evaluated and
+ * shared via the solution cache. The results of a batch are written back in a single JDBC batch while the next batch is
+ * evaluated. Submissions which could not be evaluated or whose evaluation exceeded a time limit keep their previous result
+ * and are counted as failed, because a timeout depends on the load of the node rather than on the submission. The progress can be polled until the
+ * retention time after the re-evaluation has elapsed.
+ */
+@Service
+public class RegradeService implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(RegradeService.class);
+    private static final String UPDATE_RESULT = "UPDATE submission SET evaluation_result = CAST(? AS jsonb) WHERE id = ?";
+
+    private final XQuerySubmissionRepository submissionRepository;
+    private final XQueryTaskRepository taskRepository;
+    private final EvaluationService evaluationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration retention;
+
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final Map<UUID, Job> jobs;
+
+    /**
+     * Creates a new instance of class {@link RegradeService}.
+     *
+     * @param submissionRepository The submission repository.
+     * @param taskRepository       The task repository.
+     * @param evaluationService    The evaluation service.
+     * @param jdbcTemplate         The JDBC template.
+     * @param objectMapper         The object mapper serializing the evaluation results.
+     * @param settings             The XQuery settings.
+     */
+    @Autowired
+    public RegradeService(XQuerySubmissionRepository submissionRepository, XQueryTaskRepository taskRepository, EvaluationService evaluationService,
+                          JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, XQuerySettings settings) {
+        this(submissionRepository, taskRepository, evaluationService, jdbcTemplate, objectMapper,
+            settings.regrade().workers(), settings.regrade().batchSize(), settings.regrade().resultRetention());
+    }
+
+    /**
+     * Creates a new instance of class {@link RegradeService}.
+     *
+     * @param submissionRepository The submission repository.
+     * @param taskRepository       The task repository.
+     * @param evaluationService    The evaluation service.
+     * @param jdbcTemplate         The JDBC template.
+     * @param objectMapper         The object mapper serializing the evaluation results.
+     * @param workers              The number of concurrent evaluations (0 uses the number of available processors).
+     * @param batchSize            The number of submissions loaded and written back at once.
+     * @param retention            The time the progress of a finished re-evaluation can be polled.
+     */
+    public RegradeService(XQuerySubmissionRepository submissionRepository, XQueryTaskRepository taskRepository, EvaluationService evaluationService,
+                          JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, int workers, int batchSize, Duration retention) {
+        if (workers < 0)
+            throw new IllegalArgumentException("workers must not be negative.");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive.");
+
+        this.submissionRepository = submissionRepository;
+        this.taskRepository = taskRepository;
+        this.evaluationService = evaluationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.retention = retention;
+
+        int size = workers == 0 ? Runtime.getRuntime().availableProcessors() : workers;
+        var counter = new AtomicInteger();
+        this.coordinator = Executors.newSingleThreadExecutor(r -> new Thread(r, "xq-regrade"));
+        this.workers = Executors.newFixedThreadPool(size, r -> new Thread(r, "xq-regrade-" + counter.incrementAndGet()));
+        this.jobs = new ConcurrentHashMap<>();
+        LOG.info("Created regrade service with {} workers and batch size {}", size, batchSize);
+    }
+
+    /**
+     * Starts the re-evaluation of all persisted submissions of the specified task and/or assignment.
+     *
+     * @param taskId       The task identifier or {@code null} to re-evaluate the submissions of all tasks of the assignment.
+     * @param assignmentId The assignment identifier or {@code null} to re-evaluate the submissions of all assignments of the task.
+     * @return The state of the started job.
+     * @throws ResponseStatusException If neither a task nor an assignment is specified (status {@code 400}).
+     * @throws EntityNotFoundException  If the task does not exist.
+     */
+    public RegradeJobDto start(Long taskId, String assignmentId) {
+        if (taskId == null && (assignmentId == null || assignmentId.isBlank()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either a task or an assignment must be specified.");
+        if (taskId != null && !this.taskRepository.existsById(taskId))
+            throw new EntityNotFoundException("Task " + taskId + " does not exist.");
+
+        this.evictExpired();
+        var job = new Job(UUID.randomUUID(), taskId, assignmentId);
+        this.jobs.put(job.id, job);
+        this.coordinator.execute(() -> this.run(job));
+        return job.toDto();
+    }
+
+    /**
+     * Returns the state of the job with the specified identifier.
+     *
+     * @param id The job identifier.
+     * @return The state of the job or an empty result if the job does not exist or has been evicted.
+     */
+    public Optional<RegradeJobDto> getJob(UUID id) {
+        this.evictExpired();
+        return Optional.ofNullable(this.jobs.get(id)).map(Job::toDto);
+    }
+
+    /**
+     * Stops the coordinator and the workers; running re-evaluations are interrupted.
+     */
+    @Override
+    public void close() {
+        this.coordinator.shutdownNow();
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Re-evaluates the submissions of a job.
+     *
+     * @param job The job.
+     */
+    void run(Job job) {
+        job.status = EvaluationJobDto.Status.RUNNING;
+        var status = EvaluationJobDto.Status.FAILED;
+        long start = System.nanoTime();
+        try {
+            List<UUID> ids = job.taskId == null
+                ? this.submissionRepository.findIdsByAssignmentId(job.assignmentId)
+                : job.assignmentId == null
+                ? this.submissionRepository.findIdsByTaskId(job.taskId)
+                : this.submissionRepository.findIdsByTaskIdAndAssignmentId(job.taskId, job.assignmentId);
+            job.total = ids.size();
+            LOG.info("Re-evaluating {} submissions (task: {}, assignment: {})", ids.size(), job.taskId, job.assignmentId);
+
+            Map<Long, Optional<XQueryTask>> tasks = new HashMap<>();
+            List<Evaluation> pending = List.of();
+            for (int from = 0; from < ids.size(); from += this.batchSize) {
+                var batchIds = ids.subList(from, Math.min(from + this.batchSize, ids.size()));
+                var batch = this.submissionRepository.findAllById(batchIds);
+
+                List<Evaluation> started = new ArrayList<>(batchIds.size());
+                for (XQuerySubmission submission : batch)
+                    started.add(this.startEvaluation(tasks, submission));
+
+                // submissions deleted in the meantime are skipped
+                job.completed.addAndGet(batchIds.size() - started.size());
+
+                // the previous batch is written while the current batch is evaluated
+                this.write(job, pending);
+                pending = started;
+            }
+            this.write(job, pending);
+
+            status = EvaluationJobDto.Status.COMPLETED;
+            LOG.info("Re-evaluated {} submissions ({} failed) in {} ms", job.total, job.failed.get(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception ex) {
+            LOG.error("Re-evaluation " + job.id + " failed", ex);
+            job.error = ex.getMessage();
+        } finally {
+            job.finishedAt = Instant.now();
+            job.status = status;
+        }
+    }
+
+    /**
+     * Starts the evaluation of a submission on a worker.
+     *
+     * @param tasks      The tasks loaded by this job.
+     * @param submission The submission.
+     * @return The running evaluation.
+     */
+    private Evaluation startEvaluation(Map<Long, Optional<XQueryTask>> tasks, XQuerySubmission submission) {
+        var task = submission.getTask() == null
+            ? Optional.<XQueryTask>empty()
+            : tasks.computeIfAbsent(submission.getTask().getId(), this::loadTask);
+        if (task.isEmpty())
+            return new Evaluation(submission.getId(), CompletableFuture.failedFuture(new EntityNotFoundException("Task of submission " + submission.getId() + " does not exist.")));
+
+        var dto = new SubmitSubmissionDto<>(submission.getUserId(), submission.getAssignmentId(), task.get().getId(), submission.getLanguage(),
+            submission.getMode(), submission.getFeedbackLevel(), new XQuerySubmissionDto(submission.getSubmission()));
+        try {
+            return new Evaluation(submission.getId(), CompletableFuture.supplyAsync(() -> this.evaluationService.reevaluate(task.get(), dto), this.workers));
+        } catch (RejectedExecutionException ex) {
+            return new Evaluation(submission.getId(), CompletableFuture.failedFuture(ex));
+        }
+    }
+
+    /**
+     * Loads a task and prepares its solution, so that concurrent evaluations share the prepared solution.
+     *
+     * @param taskId The task identifier.
+     * @return The task including its task group without documents or an empty result if the task does not exist.
+     */
+    private Optional<XQueryTask> loadTask(long taskId) {
+        var task = this.taskRepository.findForEvaluation(taskId).map(EvaluationTask::toTask);
+        task.ifPresent(t -> {
+            try {
+                this.evaluationService.warmUp(t);
+            } catch (Exception ex) {
+                LOG.warn("Could not prepare solution of task {}", taskId, ex);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Waits for the evaluations and writes their results back in a single batch.
+     *
+     * @param job         The job.
+     * @param evaluations The evaluations.
+     */
+    private void write(Job job, List<Evaluation> evaluations) {
+        if (evaluations.isEmpty())
+            return;
+
+        List<Object[]> rows = new ArrayList<>(evaluations.size());
+        for (Evaluation evaluation : evaluations) {
+            try {
+                Optional<GradingDto> grading = evaluation.result().join();
+                if (grading.isEmpty()) {
+                    job.failed.incrementAndGet();
+                    LOG.warn("Re-evaluation of submission {} exceeded the time limit, keeping the previous result", evaluation.id());
+                    continue;
+                }
+                rows.add(new Object[]{this.objectMapper.writeValueAsString(grading.get()), evaluation.id()});
+            } catch (CompletionException | CancellationException | JsonProcessingException ex) {
+                job.failed.incrementAndGet();
+                LOG.warn("Could not re-evaluate submission {}", evaluation.id(), ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        }
+
+        if (!rows.isEmpty())
+            this.jdbcTemplate.batchUpdate(UPDATE_RESULT, rows);
+        job.completed.addAndGet(evaluations.size());
+    }
+
+    /**
+     * Removes finished jobs whose retention time has elapsed.
+     */
+    private void evictExpired() {
+        Instant threshold = Instant.now().minus(this.retention);
+        this.jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    /**
+     * The evaluation of a submission.
+     *
+     * @param id     The submission identifier.
+     * @param result The evaluation result or an empty result if the evaluation exceeded a time limit.
+     */
+    private record Evaluation(UUID id, CompletableFuture<Optional<GradingDto>> result) {
+    }
+
+    /**
+     * The state of a re-evaluation.
+     */
+    static final class Job {
+        private final UUID id;
+        private final Long taskId;
+        private final String assignmentId;
+        private final AtomicInteger completed;
+        private final AtomicInteger failed;
+        private volatile EvaluationJobDto.Status status;
+        private volatile int total;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        Job(UUID id, Long taskId, String assignmentId) {
+            this.id = id;
+            this.taskId = taskId;
+            this.assignmentId = assignmentId;
+            this.completed = new AtomicInteger();
+            this.failed = new AtomicInteger();
+            this.status = EvaluationJobDto.Status.QUEUED;
+        }
+
+        RegradeJobDto toDto() {
+            // read the status first; the progress fields are written before the status is set
+            var status = this.status;
+            return new RegradeJobDto(this.id, status, this.taskId, this.assignmentId, this.total, this.completed.get(), this.failed.get(), this.error);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package at.jku.dke.task_app.xquery.services;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class is a health indicator providing the progress of the warm-up.
+ * <p>
+ * The indicator is part of the readiness group, so the application does not accept traffic before enough tasks have been warmed up.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final WarmUpService warmUpService;
+
+    public WarmUpHealthIndicator(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    /**
+     * Return an indication of health.
+     *
+     * @return the health
+     */
+    @Override
+    public Health health() {
+        var health = this.warmUpService.isReady() ? Health.up() : Health.down();
+        return health
+            .withDetail("finished", this.warmUpService.isFinished())
+            .withDetail("tasks", this.warmUpService.getTotalCount())
+            .withDetail("completed", this.warmUpService.getCompletedCount())
+            .withDetail("failed", this.warmUpService.getFailedCount())
+            .build();
+    }
+}
@@ -0,0 +1,199 @@
+package at.jku.dke.task_app.xquery.services;
+
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.config.XQuerySettings;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up the evaluation of approved tasks after the application has started.
+ * <p>
+ * The warm-up runs in the background: first, the processors of all pools which may execute queries of a task group are
+ * created and the task group documents are loaded into their document stores; then, the solutions of all approved tasks
+ * are executed and cached. The {@link WarmUpHealthIndicator} keeps the readiness state {@code DOWN} until the configured
+ * percentage of tasks has been warmed up. Tasks that could not be warmed up are counted as warmed up, so a broken
+ * task does not block the readiness.
+ */
+@Service
+public class WarmUpService {
+    private static final Logger LOG = LoggerFactory.getLogger(WarmUpService.class);
+
+    private final XQueryTaskRepository taskRepository;
+    private final EvaluationService evaluationService;
+    private final XQProcessorRouter processorRouter;
+    private final boolean enabled;
+    private final int readyPercentage;
+
+    private final AtomicInteger total;
+    private final AtomicInteger completed;
+    private final AtomicInteger failed;
+    private volatile boolean finished;
+
+    /**
+     * Creates a new instance of class {@link WarmUpService}.
+     *
+     * @param taskRepository    The task repository.
+     * @param evaluationService The evaluation service.
+     * @param processorRouter   The XQuery processor router.
+     * @param settings          The XQuery settings.
+     */
+    @Autowired
+    public WarmUpService(XQueryTaskRepository taskRepository, EvaluationService evaluationService, XQProcessorRouter processorRouter, XQuerySettings settings) {
+        this(taskRepository, evaluationService, processorRouter, settings.warmUp().enabled(), settings.warmUp().readyPercentage());
+    }
+
+    /**
+     * Creates a new instance of class {@link WarmUpService}.
+     *
+     * @param taskRepository    The task repository.
+     * @param evaluationService The evaluation service.
+     * @param processorRouter   The XQuery processor router.
+     * @param enabled           Whether the warm-up is executed.
+     * @param readyPercentage   The percentage of warmed-up tasks required to be ready.
+     */
+    public WarmUpService(XQueryTaskRepository taskRepository, EvaluationService evaluationService, XQProcessorRouter processorRouter, boolean enabled, int readyPercentage) {
+        this.taskRepository = taskRepository;
+        this.evaluationService = evaluationService;
+        this.processorRouter = processorRouter;
+        this.enabled = enabled;
+        this.readyPercentage = readyPercentage;
+
+        this.total = new AtomicInteger();
+        this.completed = new AtomicInteger();
+        this.failed = new AtomicInteger();
+        this.finished = !enabled;
+    }
+
+    /**
+     * Starts the warm-up in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!this.enabled) {
+            LOG.info("Warm-up is disabled");
+            return;
+        }
+
+        var thread = new Thread(this::warmUp, "xq-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Warms up all approved tasks.
+     */
+    void warmUp() {
+        long start = System.nanoTime();
+        try {
+            List<XQueryTask> tasks = this.taskRepository.findByStatusWithTaskGroup(TaskStatus.APPROVED);
+            this.total.set(tasks.size());
+            LOG.info("Warming up {} approved tasks", tasks.size());
+
+            this.warmUpPools(tasks);
+            for (XQueryTask task : tasks) {
+                try {
+                    this.evaluationService.warmUp(task);
+                } catch (Exception ex) {
+                    this.failed.incrementAndGet();
+                    LOG.warn("Could not warm up task {}", task.getId(), ex);
+                }
+                this.completed.incrementAndGet();
+            }
+            LOG.info("Warmed up {} tasks ({} failed) in {} ms", this.completed.get(), this.failed.get(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception ex) {
+            LOG.error("Warm-up failed", ex);
+        } finally {
+            this.finished = true;
+        }
+    }
+
+    /**
+     * Creates the processors of the pools and loads the documents of the task groups of the tasks.
+     *
+     * @param tasks The tasks.
+     */
+    private void warmUpPools(List<XQueryTask> tasks) {
+        Map<Long, XQueryTaskGroup> taskGroups = new LinkedHashMap<>();
+        tasks.forEach(t -> taskGroups.putIfAbsent(t.getTaskGroup().getId(), t.getTaskGroup()));
+
+        Map<String, List<XQDocument>> documents = new LinkedHashMap<>();
+        for (XQueryTaskGroup taskGroup : taskGroups.values()) {
+            for (String engine : this.processorRouter.candidates(taskGroup.getExecutor())) {
+                var list = documents.computeIfAbsent(engine, k -> new ArrayList<>());
+                list.add(this.processorRouter.document(taskGroup.getId(), XQDocument.Type.DIAGNOSE, taskGroup.getDiagnoseDocumentHash(), taskGroup::getDiagnoseDocument));
+                list.add(this.processorRouter.document(taskGroup.getId(), XQDocument.Type.SUBMIT, taskGroup.getSubmitDocumentHash(), taskGroup::getSubmitDocument));
+            }
+        }
+        if (documents.isEmpty())
+            documents.put(this.processorRouter.getDefaultEngine(), List.of());
+
+        documents.forEach((engine, list) -> {
+            int processors = this.processorRouter.getPools().get(engine).warmUp(list);
+            LOG.info("Warmed up {} {} processors with {} documents", processors, engine, list.size());
+        });
+    }
+
+    /**
+     * Returns whether enough tasks have been warmed up to accept traffic.
+     *
+     * @return {@code true} if the warm-up is disabled, finished or has reached the ready percentage; otherwise {@code false}.
+     */
+    public boolean isReady() {
+        if (this.finished)
+            return true;
+        int tasks = this.total.get();
+        return tasks > 0 && this.completed.get() * 100L >= (long) tasks * this.readyPercentage;
+    }
+
+    /**
+     * Returns whether the warm-up has finished.
+     *
+     * @return {@code true} if the warm-up is disabled or finished; otherwise {@code false}.
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * Returns the number of tasks to warm up.
+     *
+     * @return The number of tasks.
+     */
+    public int getTotalCount() {
+        return this.total.get();
+    }
+
+    /**
+     * Returns the number of warmed-up tasks, including failed tasks.
+     *
+     * @return The number of warmed-up tasks.
+     */
+    public int getCompletedCount() {
+        return this.completed.get();
+    }
+
+    /**
+     * Returns the number of tasks which could not be warmed up.
+     *
+     * @return The number of failed tasks.
+     */
+    public int getFailedCount() {
+        return this.failed.get();
+    }
+}
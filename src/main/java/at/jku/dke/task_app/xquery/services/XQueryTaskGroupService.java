@@ -7,13 +7,17 @@
 import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
 import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskGroupRepository;
 import at.jku.dke.task_app.xquery.dto.ModifyXQueryTaskGroupDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationCache;
+import at.jku.dke.task_app.xquery.evaluation.SolutionCache;
 import at.jku.dke.task_app.xquery.evaluation.analysis.DTDGenerator;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorRouter;
 import jakarta.validation.ValidationException;
 import org.springframework.context.MessageSource;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.HtmlUtils;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -21,8 +25,8 @@
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.Locale;
 
 /**
@@ -33,18 +37,28 @@ public class XQueryTaskGroupService extends BaseTaskGroupService<XQueryTaskGroup
 
     private final MessageSource messageSource;
     private final XQuerySettings settings;
+    private final SolutionCache solutionCache;
+    private final EvaluationCache evaluationCache;
+    private final XQProcessorRouter processorRouter;
 
     /**
      * Creates a new instance of class {@link XQueryTaskGroupService}.
      *
-     * @param repository    The task group repository.
-     * @param messageSource The message source.
-     * @param settings      The XQuery settings.
+     * @param repository      The task group repository.
+     * @param messageSource   The message source.
+     * @param settings        The XQuery settings.
+     * @param solutionCache   The cache for prepared solutions.
+     * @param evaluationCache The cache for evaluation results of identical submissions.
+     * @param processorRouter The XQuery processor router.
      */
-    public XQueryTaskGroupService(XQueryTaskGroupRepository repository, MessageSource messageSource, XQuerySettings settings) {
+    public XQueryTaskGroupService(XQueryTaskGroupRepository repository, MessageSource messageSource, XQuerySettings settings, SolutionCache solutionCache,
+                                  EvaluationCache evaluationCache, XQProcessorRouter processorRouter) {
         super(repository);
         this.messageSource = messageSource;
         this.settings = settings;
+        this.solutionCache = solutionCache;
+        this.evaluationCache = evaluationCache;
+        this.processorRouter = processorRouter;
     }
 
     @Override
@@ -56,7 +70,9 @@ protected XQueryTaskGroup createTaskGroup(long id, ModifyTaskGroupDto<ModifyXQue
         validateXml(modifyTaskGroupDto.additionalData());
 
         // Create
-        return new XQueryTaskGroup(modifyTaskGroupDto.additionalData().diagnoseDocument(), modifyTaskGroupDto.additionalData().submitDocument());
+        var taskGroup = new XQueryTaskGroup(modifyTaskGroupDto.additionalData().diagnoseDocument(), modifyTaskGroupDto.additionalData().submitDocument());
+        taskGroup.setExecutor(modifyTaskGroupDto.additionalData().executor());
+        return taskGroup;
     }
 
     @Override
@@ -70,6 +86,12 @@ protected void updateTaskGroup(XQueryTaskGroup taskGroup, ModifyTaskGroupDto<Mod
         // Update
         taskGroup.setDiagnoseDocument(modifyTaskGroupDto.additionalData().diagnoseDocument());
         taskGroup.setSubmitDocument(modifyTaskGroupDto.additionalData().submitDocument());
+        taskGroup.setExecutor(modifyTaskGroupDto.additionalData().executor());
+        if (taskGroup.getId() != null) {
+            this.solutionCache.invalidateTaskGroup(taskGroup.getId());
+            this.evaluationCache.invalidateTaskGroup(taskGroup.getId());
+            this.processorRouter.evictDocuments(taskGroup.getId());
+        }
     }
 
     @Override
@@ -78,11 +100,8 @@ protected TaskGroupModificationResponseDto mapToReturnData(XQueryTaskGroup taskG
         String dtd = "";
 
         try {
-            var file = Files.createTempFile("tg-dtd", ".dtd");
-            Files.writeString(file, taskGroup.getDiagnoseDocument(), StandardCharsets.UTF_8);
-
             var gen = new DTDGenerator();
-            gen.run(file.toString());
+            gen.run(new InputSource(new StringReader(taskGroup.getDiagnoseDocument())));
             dtd = HtmlUtils.htmlEscape(gen.printDTD());
         } catch (Exception ex) {
             LOG.error("Could not generate DTD", ex);
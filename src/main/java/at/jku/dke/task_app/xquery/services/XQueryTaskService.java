@@ -9,6 +9,8 @@
 import at.jku.dke.task_app.xquery.dto.ModifyXQueryTaskDto;
 import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
 import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationCache;
+import at.jku.dke.task_app.xquery.evaluation.SolutionCache;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XdmItem;
@@ -27,6 +29,8 @@
 public class XQueryTaskService extends BaseTaskInGroupService<XQueryTask, XQueryTaskGroup, ModifyXQueryTaskDto> {
 
     private final EvaluationService evaluationService;
+    private final SolutionCache solutionCache;
+    private final EvaluationCache evaluationCache;
 
     /**
      * Creates a new instance of class {@link XQueryTaskService}.
@@ -34,10 +38,15 @@ public class XQueryTaskService extends BaseTaskInGroupService<XQueryTask, XQuery
      * @param repository          The task repository.
      * @param taskGroupRepository The task group repository.
      * @param evaluationService   The evaluation service.
+     * @param solutionCache       The cache for prepared solutions.
+     * @param evaluationCache     The cache for evaluation results of identical submissions.
      */
-    public XQueryTaskService(XQueryTaskRepository repository, XQueryTaskGroupRepository taskGroupRepository, EvaluationService evaluationService) {
+    public XQueryTaskService(XQueryTaskRepository repository, XQueryTaskGroupRepository taskGroupRepository, EvaluationService evaluationService, SolutionCache solutionCache,
+                             EvaluationCache evaluationCache) {
         super(repository, taskGroupRepository);
         this.evaluationService = evaluationService;
+        this.solutionCache = solutionCache;
+        this.evaluationCache = evaluationCache;
     }
 
     @Override
@@ -98,6 +107,8 @@ protected void afterCreate(XQueryTask task, ModifyTaskDto<ModifyXQueryTaskDto> d
 
     @Override
     protected void afterUpdate(XQueryTask task, ModifyTaskDto<ModifyXQueryTaskDto> dto) {
+        this.solutionCache.invalidateTask(task.getId());
+        this.evaluationCache.invalidateTask(task.getId());
         this.afterCreate(task, dto);
     }
 
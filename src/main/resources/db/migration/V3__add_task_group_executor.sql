@@ -0,0 +1,3 @@
+ALTER TABLE task_group
+    ADD COLUMN executor VARCHAR(10) NULL,
+    ADD CONSTRAINT task_group_executor_check CHECK (executor IN ('basex', 'saxon'));
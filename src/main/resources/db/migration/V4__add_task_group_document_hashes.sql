@@ -0,0 +1,11 @@
+ALTER TABLE task_group
+    ADD COLUMN doc_diagnose_hash CHAR(64) NULL,
+    ADD COLUMN doc_submit_hash   CHAR(64) NULL;
+
+UPDATE task_group
+SET doc_diagnose_hash = encode(sha256(convert_to(doc_diagnose, 'UTF8')), 'hex'),
+    doc_submit_hash   = encode(sha256(convert_to(doc_submit, 'UTF8')), 'hex');
+
+ALTER TABLE task_group
+    ALTER COLUMN doc_diagnose_hash SET NOT NULL,
+    ALTER COLUMN doc_submit_hash SET NOT NULL;
@@ -207,6 +207,250 @@ void submitParallel() {
     }
     //#endregion
 
+    //#region --- SUBMIT ASYNC ---
+    @Test
+    void submitAsyncWithPersist() {
+        String id = given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+            .contentType(ContentType.JSON)
+            .body(new SubmitSubmissionDto<>("test-user", "test-id", this.taskId, "de", SubmissionMode.SUBMIT, 3, new XQuerySubmissionDto("let $db := doc('etutor.xml')\nreturn $db//a")))
+            // WHEN
+            .when()
+            .post("/api/submission/async")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(202)
+            .contentType(ContentType.JSON)
+            .header("Location", containsString("/api/submission/async/"))
+            .body("id", hasLength(36))
+            .body("status", any(String.class))
+            .extract().path("id");
+
+        // the persisted submission can be awaited via the result endpoint
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+            .accept(ContentType.JSON)
+            .header("X-API-TIMEOUT", 10)
+            // WHEN
+            .when()
+            .get("/api/submission/{id}/result", id)
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(200)
+            .body("maxPoints", equalTo(2f))
+            .body("points", equalTo(2f));
+    }
+
+    @Test
+    void submitAsyncWithoutPersist() throws InterruptedException {
+        String id = given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+            .queryParams("persist", false)
+            .contentType(ContentType.JSON)
+            .body(new SubmitSubmissionDto<>("test-user", "test-id", this.taskId, "de", SubmissionMode.SUBMIT, 3, new XQuerySubmissionDto("let $db := doc('etutor.xml')\nreturn $db//a")))
+            // WHEN
+            .when()
+            .post("/api/submission/async")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(202)
+            .extract().path("id");
+
+        String status = null;
+        for (int i = 0; i < 100 && !"COMPLETED".equals(status); i++) {
+            Thread.sleep(100);
+            status = given()
+                .port(port)
+                .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+                .accept(ContentType.JSON)
+                // WHEN
+                .when()
+                .get("/api/submission/async/{id}", id)
+                // THEN
+                .then()
+                .log().ifValidationFails()
+                .statusCode(200)
+                .extract().path("status");
+        }
+        Assertions.assertEquals("COMPLETED", status);
+        assertFalse(this.submissionRepository.existsById(UUID.fromString(id)));
+    }
+
+    @Test
+    void getAsyncReturnsNotFound() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .get("/api/submission/async/{id}", UUID.randomUUID().toString())
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(404);
+    }
+
+    @Test
+    void submitAsyncShouldReturnForbidden() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+            .contentType(ContentType.JSON)
+            .body(new SubmitSubmissionDto<>("test-user", "test-id", this.taskId, "de", SubmissionMode.SUBMIT, 3, new XQuerySubmissionDto("let $db := doc('etutor.xml')\nreturn $db//a")))
+            // WHEN
+            .when()
+            .post("/api/submission/async")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(403);
+    }
+
+    @Test
+    void getAsyncShouldReturnForbidden() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .get("/api/submission/async/{id}", UUID.randomUUID().toString())
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(403);
+    }
+    //#endregion
+
+    //#region --- REGRADE ---
+    @Test
+    void regradeTask() throws InterruptedException {
+        String id = given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+            .queryParams("taskId", this.taskId)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .post("/api/submission/regrade")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(202)
+            .contentType(ContentType.JSON)
+            .header("Location", containsString("/api/submission/regrade/"))
+            .body("id", hasLength(36))
+            .body("taskId", equalTo((int) this.taskId))
+            .extract().path("id");
+
+        String status = null;
+        for (int i = 0; i < 100 && !"COMPLETED".equals(status); i++) {
+            Thread.sleep(100);
+            status = given()
+                .port(port)
+                .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+                .accept(ContentType.JSON)
+                // WHEN
+                .when()
+                .get("/api/submission/regrade/{id}", id)
+                // THEN
+                .then()
+                .log().ifValidationFails()
+                .statusCode(200)
+                .extract().path("status");
+        }
+        Assertions.assertEquals("COMPLETED", status);
+
+        var result = this.submissionRepository.findById(this.ungraded).orElseThrow().getEvaluationResult();
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(0, BigDecimal.TWO.compareTo(result.points()));
+    }
+
+    @Test
+    void regradeShouldReturnBadRequest() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .post("/api/submission/regrade")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(400);
+    }
+
+    @Test
+    void regradeShouldReturnNotFoundOnInvalidTaskId() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+            .queryParams("taskId", this.taskId + 1)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .post("/api/submission/regrade")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(404);
+    }
+
+    @Test
+    void getRegradeReturnsNotFound() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.CRUD_API_KEY)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .get("/api/submission/regrade/{id}", UUID.randomUUID().toString())
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(404);
+    }
+
+    @Test
+    void regradeShouldReturnForbidden() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+            .queryParams("taskId", this.taskId)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .post("/api/submission/regrade")
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(403);
+    }
+
+    @Test
+    void getRegradeShouldReturnForbidden() {
+        given()
+            .port(port)
+            .header(AuthConstants.AUTH_TOKEN_HEADER_NAME, ClientSetupExtension.SUBMIT_API_KEY)
+            .accept(ContentType.JSON)
+            // WHEN
+            .when()
+            .get("/api/submission/regrade/{id}", UUID.randomUUID().toString())
+            // THEN
+            .then()
+            .log().ifValidationFails()
+            .statusCode(403);
+    }
+    //#endregion
+
     //#region --- GET ALL ---
     @Test
     void getAllShouldReturnOk() {
@@ -1,6 +1,7 @@
 package at.jku.dke.task_app.xquery.data.entities;
 
 import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -92,4 +93,19 @@ void testGetSetSubmitDocument() {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void testDocumentHashes() {
+        // Arrange
+        final String diagnose = "<db><diagnose>42</diagnose></db>";
+        final String submit = "<db><submit>42</submit></db>";
+
+        // Act
+        XQueryTaskGroup xqueryTaskGroup = new XQueryTaskGroup(diagnose, "<db/>");
+        xqueryTaskGroup.setSubmitDocument(submit);
+
+        // Assert
+        assertEquals(XQDocument.hash(diagnose), xqueryTaskGroup.getDiagnoseDocumentHash());
+        assertEquals(XQDocument.hash(submit), xqueryTaskGroup.getSubmitDocumentHash());
+    }
+
 }
@@ -0,0 +1,47 @@
+package at.jku.dke.task_app.xquery.data.projections;
+
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.data.entities.GradingStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationTaskTest {
+
+    @Test
+    void toTask() {
+        // Arrange
+        var projection = new EvaluationTask(1L, BigDecimal.TEN, TaskStatus.APPROVED, "//a", List.of("//b"),
+            BigDecimal.valueOf(1), BigDecimal.valueOf(2), BigDecimal.valueOf(3), BigDecimal.valueOf(4),
+            BigDecimal.valueOf(5), BigDecimal.valueOf(6), BigDecimal.valueOf(7),
+            GradingStrategy.EACH, GradingStrategy.GROUP, GradingStrategy.KO, GradingStrategy.EACH,
+            GradingStrategy.GROUP, GradingStrategy.KO, GradingStrategy.EACH,
+            List.of("a"), List.of("id"),
+            2L, TaskStatus.APPROVED, "saxon", "diagnose-hash", "submit-hash");
+
+        // Act
+        var task = projection.toTask();
+
+        // Assert
+        assertEquals(1L, task.getId());
+        assertEquals(BigDecimal.TEN, task.getMaxPoints());
+        assertEquals(TaskStatus.APPROVED, task.getStatus());
+        assertEquals("//a", task.getSolution());
+        assertEquals(List.of("//b"), task.getSorting());
+        assertEquals(BigDecimal.valueOf(1), task.getMissingNodePenalty());
+        assertEquals(BigDecimal.valueOf(7), task.getIncorrectAttributeValuePenalty());
+        assertEquals(GradingStrategy.GROUP, task.getSuperfluousNodeStrategy());
+        assertEquals(GradingStrategy.EACH, task.getIncorrectAttributeValueStrategy());
+        assertEquals(List.of("a"), task.getSolutionElements());
+        assertEquals(List.of("id"), task.getSolutionAttributes());
+        assertEquals(2L, task.getTaskGroup().getId());
+        assertEquals("saxon", task.getTaskGroup().getExecutor());
+        assertEquals("diagnose-hash", task.getTaskGroup().getDiagnoseDocumentHash());
+        assertEquals("submit-hash", task.getTaskGroup().getSubmitDocumentHash());
+        assertNull(task.getTaskGroup().getDiagnoseDocument());
+        assertNull(task.getTaskGroup().getSubmitDocument());
+    }
+}
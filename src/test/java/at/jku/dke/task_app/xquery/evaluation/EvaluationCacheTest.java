@@ -0,0 +1,197 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import at.jku.dke.etutor.task_app.dto.CriterionDto;
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationMetrics.Outcome;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationCacheTest {
+
+    private static final XQueryTaskGroup GROUP = new XQueryTaskGroup(2L, TaskStatus.APPROVED, "<db/>", "<db/>");
+    private static final XQDocument DOCUMENT = XQDocument.of(2L, XQDocument.Type.DIAGNOSE, "<db/>");
+
+    private static XQueryTask task(String solution) {
+        return new XQueryTask(1L, BigDecimal.TWO, TaskStatus.APPROVED, GROUP, solution, null);
+    }
+
+    private static SubmitSubmissionDto<XQuerySubmissionDto> submission(String query) {
+        return new SubmitSubmissionDto<>("user", "assignment", 1L, "de", SubmissionMode.DIAGNOSE, 3, new XQuerySubmissionDto(query));
+    }
+
+    private static GradingDto grading(String feedback) {
+        return new GradingDto(BigDecimal.TWO, BigDecimal.ONE, feedback, new ArrayList<>(List.of(new CriterionDto("criterion", null, true, feedback))));
+    }
+
+    @Test
+    void get_cached() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var cache = new EvaluationCache(1024 * 1024, registry);
+        var task = task("/db");
+        var result = grading("feedback");
+        cache.put(EvaluationCache.key(task, DOCUMENT, "basex", submission("/db/a")), "/db/a", result, Outcome.INCORRECT);
+
+        // Act
+        var sameQuery = cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("/db/a")), "/db/a");
+        var formatted = cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission(" /db/a (: comment :)\n")), " /db/a (: comment :)\n");
+        var otherQuery = cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("/db/b")), "/db/b");
+
+        // Assert
+        assertSame(result, sameQuery);
+        assertSame(result, formatted);
+        assertNull(otherQuery);
+        assertEquals(2, registry.find(EvaluationCache.GETS).tag("result", "hit").counter().count());
+        assertEquals(1, registry.find(EvaluationCache.GETS).tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_changedTask() {
+        // Arrange
+        var cache = new EvaluationCache(1024 * 1024, new SimpleMeterRegistry());
+        cache.put(EvaluationCache.key(task("/db"), DOCUMENT, "basex", submission("/db/a")), "/db/a", grading("feedback"), Outcome.INCORRECT);
+        var changedPenalty = task("/db");
+        changedPenalty.setMissingNodePenalty(BigDecimal.TEN);
+
+        // Act
+        var changedSolution = cache.get(EvaluationCache.key(task("/db/a"), DOCUMENT, "basex", submission("/db/a")), "/db/a");
+        var changedGrading = cache.get(EvaluationCache.key(changedPenalty, DOCUMENT, "basex", submission("/db/a")), "/db/a");
+        var changedDocument = cache.get(EvaluationCache.key(task("/db"), XQDocument.of(2L, XQDocument.Type.DIAGNOSE, "<db><a/></db>"), "basex", submission("/db/a")), "/db/a");
+        var changedEngine = cache.get(EvaluationCache.key(task("/db"), DOCUMENT, "saxon", submission("/db/a")), "/db/a");
+
+        // Assert
+        assertNull(changedSolution);
+        assertNull(changedGrading);
+        assertNull(changedDocument);
+        assertNull(changedEngine);
+    }
+
+    @Test
+    void put_syntaxErrorOnlyForExactQuery() {
+        // Arrange
+        var cache = new EvaluationCache(1024 * 1024, new SimpleMeterRegistry());
+        var task = task("/db");
+        var result = grading("syntax error in line 1");
+        cache.put(EvaluationCache.key(task, DOCUMENT, "basex", submission("/db/")), "/db/", result, Outcome.SYNTAX_ERROR);
+
+        // Act
+        var exact = cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("/db/")), "/db/");
+        var formatted = cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("\n/db/")), "\n/db/");
+
+        // Assert
+        assertSame(result, exact);
+        assertNull(formatted);
+    }
+
+    @Test
+    void put_timeoutNotCached() {
+        // Arrange
+        var cache = new EvaluationCache(1024 * 1024, new SimpleMeterRegistry());
+        var key = EvaluationCache.key(task("/db"), DOCUMENT, "basex", submission("/db"));
+
+        // Act
+        cache.put(key, "/db", grading("timeout"), Outcome.TIMEOUT);
+
+        // Assert
+        assertEquals(0, cache.size());
+        assertNull(cache.get(key, "/db"));
+    }
+
+    @Test
+    void put_evictsByWeight() {
+        // Arrange
+        var result = grading("x".repeat(1000));
+        long weight = EvaluationCache.weight(result);
+        var registry = new SimpleMeterRegistry();
+        var cache = new EvaluationCache(2 * weight, registry);
+        var task = task("/db");
+
+        // Act
+        cache.put(EvaluationCache.key(task, DOCUMENT, "basex", submission("1")), "1", result, Outcome.EXECUTED);
+        cache.put(EvaluationCache.key(task, DOCUMENT, "basex", submission("2")), "2", result, Outcome.EXECUTED);
+        cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("1")), "1");
+        cache.put(EvaluationCache.key(task, DOCUMENT, "basex", submission("3")), "3", result, Outcome.EXECUTED);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(2 * weight, cache.getWeight());
+        assertNotNull(cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("1")), "1"));
+        assertNull(cache.get(EvaluationCache.key(task, DOCUMENT, "basex", submission("2")), "2"));
+        assertEquals(1, registry.find(EvaluationCache.EVICTIONS).counter().count());
+    }
+
+    @Test
+    void invalidateTask() {
+        // Arrange
+        var cache = new EvaluationCache(1024 * 1024, new SimpleMeterRegistry());
+        cache.put(EvaluationCache.key(task("/db"), DOCUMENT, "basex", submission("/db")), "/db", grading("feedback"), Outcome.CORRECT);
+
+        // Act
+        cache.invalidateTask(1L);
+
+        // Assert
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    void invalidateTaskGroup() {
+        // Arrange
+        var cache = new EvaluationCache(1024 * 1024, new SimpleMeterRegistry());
+        cache.put(EvaluationCache.key(task("/db"), DOCUMENT, "basex", submission("/db")), "/db", grading("feedback"), Outcome.CORRECT);
+
+        // Act
+        cache.invalidateTaskGroup(3L);
+        int sizeOtherGroup = cache.size();
+        cache.invalidateTaskGroup(2L);
+
+        // Assert
+        assertEquals(1, sizeOtherGroup);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_disabled() {
+        // Arrange
+        var cache = new EvaluationCache(0, new SimpleMeterRegistry());
+        var key = EvaluationCache.key(task("/db"), DOCUMENT, "basex", submission("/db"));
+
+        // Act
+        cache.put(key, "/db", grading("feedback"), Outcome.CORRECT);
+
+        // Assert
+        assertNull(cache.get(key, "/db"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void normalize() {
+        // Act & Assert
+        assertEquals("for $p in //person return $p/name", EvaluationCache.normalize("  for $p in //person\n\treturn   $p/name  "));
+        assertEquals("//a return 1", EvaluationCache.normalize("//a (: outer (: nested :) :) return 1"));
+        assertEquals("concat('a  (: b :)', \"c  d\")", EvaluationCache.normalize("concat('a  (: b :)',   \"c  d\")"));
+        assertEquals("'it''s  me'", EvaluationCache.normalize("'it''s  me'"));
+        assertEquals("<a>  x  </a>", EvaluationCache.normalize(" <a>  x  </a> "));
+        assertEquals("//a (: unterminated", EvaluationCache.normalize("//a (: unterminated"));
+    }
+
+    @Test
+    void normalize_stringConstructorsAndPragmas() {
+        // Act & Assert
+        assertEquals("``[a  (: b :)  `{//c}`]``", EvaluationCache.normalize(" ``[a  (: b :)  `{//c}`]`` "));
+        assertEquals("(# saxon:x  a  b #) { //a }", EvaluationCache.normalize("(# saxon:x  a  b #) { //a }\n"));
+    }
+}
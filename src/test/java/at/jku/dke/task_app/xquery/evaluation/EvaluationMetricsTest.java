@@ -0,0 +1,131 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationMetricsTest {
+
+    @Test
+    void start_tracksActiveEvaluations() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var metrics = new EvaluationMetrics(registry, "basex");
+
+        // Act
+        var recording = metrics.start(1, SubmissionMode.RUN);
+        double active = registry.get(EvaluationMetrics.ACTIVE).gauge().value();
+        recording.close();
+
+        // Assert
+        assertEquals(1, active);
+        assertEquals(0, registry.get(EvaluationMetrics.ACTIVE).gauge().value());
+    }
+
+    @Test
+    void close_publishesTaggedMeters() throws AnalysisException {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var metrics = new EvaluationMetrics(registry, "saxon");
+
+        // Act
+        try (var recording = metrics.start(123, SubmissionMode.DIAGNOSE)) {
+            recording.record(EvaluationMetrics.Stage.SUBMISSION_QUERY, TimeUnit.MILLISECONDS.toNanos(5));
+            recording.record(EvaluationMetrics.Stage.SUBMISSION_QUERY, TimeUnit.MILLISECONDS.toNanos(5));
+            recording.recordResult(new XQResult("<a><b/></a>\n<a/>\ntext"));
+            recording.setOutcome(EvaluationMetrics.Outcome.INCORRECT);
+        }
+
+        // Assert
+        var tags = new String[]{"executor", "saxon", "mode", "diagnose", "task", "100-199", "outcome", "incorrect"};
+        assertEquals(1, registry.get(EvaluationMetrics.EVALUATION).tags(tags).timer().count());
+        var stage = registry.get(EvaluationMetrics.STAGE).tags("executor", "saxon", "mode", "diagnose", "outcome", "incorrect")
+            .tag("stage", "submission-query").timer();
+        assertNull(stage.getId().getTag("task"));
+        assertEquals(1, stage.count());
+        assertEquals(10, stage.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(3, registry.get(EvaluationMetrics.RESULT_ITEMS).tags(tags).summary().totalAmount());
+        assertTrue(registry.get(EvaluationMetrics.RESULT_NODES).tags(tags).summary().totalAmount() >= 5);
+    }
+
+    @Test
+    void close_defaultOutcomeIsError() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var metrics = new EvaluationMetrics(registry, "basex");
+
+        // Act
+        metrics.start(1, SubmissionMode.SUBMIT).close();
+
+        // Assert
+        assertNotNull(registry.find(EvaluationMetrics.EVALUATION).tag("outcome", "error").timer());
+        assertNull(registry.find(EvaluationMetrics.RESULT_ITEMS).summary());
+    }
+
+    @Test
+    void record_afterCloseIsIgnored() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var metrics = new EvaluationMetrics(registry, "basex");
+        var recording = metrics.start(1, SubmissionMode.SUBMIT);
+        recording.close();
+
+        // Act
+        recording.record(EvaluationMetrics.Stage.SOLUTION_QUERY, 1000);
+        recording.close();
+
+        // Assert
+        assertNull(registry.find(EvaluationMetrics.STAGE).timer());
+        assertEquals(1, registry.get(EvaluationMetrics.EVALUATION).timer().count());
+        assertEquals(0, metrics.getActiveCount());
+    }
+
+    @Test
+    void time_recordsFailedAction() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var metrics = new EvaluationMetrics(registry, "basex");
+
+        // Act
+        try (var recording = metrics.start(1, SubmissionMode.SUBMIT)) {
+            assertThrows(AnalysisException.class, () -> recording.time(EvaluationMetrics.Stage.ANALYSIS, () -> {
+                throw new AnalysisException("failed");
+            }));
+        }
+
+        // Assert
+        assertEquals(1, registry.get(EvaluationMetrics.STAGE).tag("stage", "analysis").timer().count());
+    }
+
+    @Test
+    void startWarmUp_isNotPublished() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var metrics = new EvaluationMetrics(registry, "basex");
+
+        // Act
+        try (var recording = metrics.startWarmUp(1)) {
+            recording.record(EvaluationMetrics.Stage.SOLUTION_QUERY, 1000);
+            recording.setOutcome(EvaluationMetrics.Outcome.CORRECT);
+        }
+
+        // Assert
+        assertNull(registry.find(EvaluationMetrics.EVALUATION).timer());
+        assertNull(registry.find(EvaluationMetrics.STAGE).timer());
+        assertEquals(0, metrics.getActiveCount());
+    }
+
+    @Test
+    void taskBucket() {
+        // Act & Assert
+        assertEquals("0-99", EvaluationMetrics.taskBucket(0));
+        assertEquals("0-99", EvaluationMetrics.taskBucket(99));
+        assertEquals("100-199", EvaluationMetrics.taskBucket(100));
+    }
+}
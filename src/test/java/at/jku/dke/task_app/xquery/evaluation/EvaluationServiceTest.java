@@ -6,21 +6,40 @@
 import at.jku.dke.task_app.xquery.config.XQuerySettings;
 import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
 import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import at.jku.dke.task_app.xquery.data.projections.EvaluationTask;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskGroupRepository;
 import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
 import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
 import at.jku.dke.task_app.xquery.evaluation.execution.BaseXProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQLimits;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQOutput;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorPool;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorRouter;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryCancelledException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
+import at.jku.dke.task_app.xquery.evaluation.report.ResultHighlighter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.basex.BaseX;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.MessageSource;
 
 import java.math.BigDecimal;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class EvaluationServiceTest {
@@ -29,13 +48,13 @@ class EvaluationServiceTest {
     void evaluate_invalidLoad() {
         // Arrange
         var taskRepository = mock(XQueryTaskRepository.class);
-        var processor = new BaseXProcessor(Path.of("./basex"));
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
         var ms = mock(MessageSource.class);
-        var service = new EvaluationServiceImpl(processor, taskRepository, ms);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
 
         var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
         var task = new XQueryTask(1L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
-        when(taskRepository.findByIdWithTaskGroup(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(projection(task)));
         when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
 
         // Act
@@ -53,13 +72,13 @@ void evaluate_invalidLoad() {
     void evaluate_invalidSubmissionSyntax() {
         // Arrange
         var taskRepository = mock(XQueryTaskRepository.class);
-        var processor = new BaseXProcessor(Path.of("./basex"));
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
         var ms = mock(MessageSource.class);
-        var service = new EvaluationServiceImpl(processor, taskRepository, ms);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
 
         var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
         var task = new XQueryTask(1L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
-        when(taskRepository.findByIdWithTaskGroup(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(projection(task)));
         when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
 
         // Act
@@ -73,13 +92,91 @@ void evaluate_invalidSubmissionSyntax() {
         assertNotNull(result.criteria().getFirst().feedback());
     }
 
+    @Test
+    void evaluate_updatingSubmission() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(null, true), 1);
+        var ms = mock(MessageSource.class);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(1L, BigDecimal.ONE, TaskStatus.APPROVED, group, "count(doc('etutor.xml')//person)", null);
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        var updating = service.evaluate(new SubmitSubmissionDto<>(null, null, 1L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("delete node doc('etutor.xml')//person")));
+        var correct = service.evaluate(new SubmitSubmissionDto<>(null, null, 1L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("count(doc('etutor.xml')//person)")));
+
+        // Assert
+        assertEquals(BigDecimal.ZERO, updating.points());
+        assertEquals("syntaxError", updating.generalFeedback());
+        assertEquals(0, BigDecimal.ONE.compareTo(correct.points()));
+    }
+
+    @Test
+    void evaluate_recordsMetrics() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
+        var ms = mock(MessageSource.class);
+        var registry = new SimpleMeterRegistry();
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(registry, SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(1L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        service.evaluate(new SubmitSubmissionDto<>(null, null, 1L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("return doc('etutor.xml')/db@+1")));
+
+        // Assert
+        var timer = registry.find(EvaluationMetrics.EVALUATION)
+            .tags("executor", "basex", "mode", "submit", "task", "0-99", "outcome", "syntax-error")
+            .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertNotNull(registry.find(EvaluationMetrics.STAGE).tags("stage", "submission-query", "outcome", "syntax-error").timer());
+        assertNull(registry.find(EvaluationMetrics.STAGE).tags("stage", "analysis").timer());
+        assertEquals(0, registry.get(EvaluationMetrics.ACTIVE).gauge().value());
+    }
+
+    @Test
+    void warmUp_cachesSolutions() throws Exception {
+        // Arrange
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
+        var cache = new SolutionCache(10);
+        var registry = new SimpleMeterRegistry();
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), mock(XQueryTaskRepository.class), taskGroupRepository(), mock(MessageSource.class), cache, SETTINGS,
+            new EvaluationMetrics(registry, SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(5L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(6L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+
+        // Act
+        service.warmUp(task);
+        service.warmUp(task);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains(SolutionCache.key(6L, task.getSolution(), null, XQDocument.of(5L, XQDocument.Type.DIAGNOSE, DIAGNOSE), "basex")));
+        assertTrue(cache.contains(SolutionCache.key(6L, task.getSolution(), null, XQDocument.of(5L, XQDocument.Type.SUBMIT, SUBMIT), "basex")));
+        assertEquals(1, processor.getCreatedCount());
+        assertNull(registry.find(EvaluationMetrics.EVALUATION).timer());
+    }
+
     @Test
     void evaluate() {
         // Arrange
         var taskRepository = mock(XQueryTaskRepository.class);
-        var processor = new BaseXProcessor(Path.of("./basex"));
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
         var ms = mock(MessageSource.class);
-        var service = new EvaluationServiceImpl(processor, taskRepository, ms);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
 
         var group = new XQueryTaskGroup(3L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
         var task = new XQueryTask(2L, BigDecimal.ONE, TaskStatus.APPROVED, group, """
@@ -95,7 +192,7 @@ void evaluate() {
               <sum-preis>{sum($ma/preis)}</sum-preis>
               <qm-preis>{avg($qms)}</qm-preis>
              </mietstatistik>""", null);
-        when(taskRepository.findByIdWithTaskGroup(2L)).thenReturn(Optional.of(task));
+        when(taskRepository.findForEvaluation(2L)).thenReturn(Optional.of(projection(task)));
         when(ms.getMessage(anyString(), any(), any())).thenReturn("unknown");
 
         // Act
@@ -118,13 +215,44 @@ void evaluate() {
         assertEquals(4, result.criteria().size());
     }
 
+    @Test
+    void evaluate_cached() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
+        var ms = mock(MessageSource.class);
+        var registry = new SimpleMeterRegistry();
+        var cache = new EvaluationCache(1024 * 1024, registry);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(registry, SETTINGS), HIGHLIGHTER, cache);
+
+        var group = new XQueryTaskGroup(7L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(8L, BigDecimal.ONE, TaskStatus.APPROVED, group, "doc('etutor.xml')//person/name", null);
+        when(taskRepository.findForEvaluation(8L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenReturn("unknown");
+
+        // Act
+        var first = service.evaluate(new SubmitSubmissionDto<>(null, null, 8L, "de", SubmissionMode.RUN, 3,
+            new XQuerySubmissionDto("doc('etutor.xml')//person/name")));
+        var second = service.evaluate(new SubmitSubmissionDto<>(null, null, 8L, "de", SubmissionMode.RUN, 3,
+            new XQuerySubmissionDto("  doc('etutor.xml')//person/name (: names :)\n")));
+        var otherLevel = service.evaluate(new SubmitSubmissionDto<>(null, null, 8L, "de", SubmissionMode.RUN, 2,
+            new XQuerySubmissionDto("doc('etutor.xml')//person/name")));
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, otherLevel);
+        assertEquals(2, registry.find(EvaluationMetrics.EVALUATION).timer().count());
+        assertEquals(1, registry.find(EvaluationCache.GETS).tag("result", "hit").counter().count());
+        assertEquals(2, cache.size());
+    }
+
     @Test
     void evaluate_inMemory() {
         // Arrange
         var taskRepository = mock(XQueryTaskRepository.class);
-        var processor = new BaseXProcessor(null);
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(null), 1);
         var ms = mock(MessageSource.class);
-        var service = new EvaluationServiceImpl(processor, taskRepository, ms);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
 
         var group = new XQueryTaskGroup(3L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
         var task = new XQueryTask(2L, BigDecimal.ONE, TaskStatus.APPROVED, group, """
@@ -140,7 +268,7 @@ void evaluate_inMemory() {
               <sum-preis>{sum($ma/preis)}</sum-preis>
               <qm-preis>{avg($qms)}</qm-preis>
              </mietstatistik>""", null);
-        when(taskRepository.findByIdWithTaskGroup(2L)).thenReturn(Optional.of(task));
+        when(taskRepository.findForEvaluation(2L)).thenReturn(Optional.of(projection(task)));
         when(ms.getMessage(anyString(), any(), any())).thenReturn("unknown");
 
         // Act
@@ -163,6 +291,242 @@ void evaluate_inMemory() {
         assertEquals(4, result.criteria().size());
     }
 
+    @Test
+    void evaluate_timeout() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(null), 1);
+        var ms = mock(MessageSource.class);
+        var timeout = new XQuerySettings.Timeout(Duration.ofMillis(500), Duration.ZERO);
+        var settings = new XQuerySettings("basex", null, "https://example.com/xml", true, 10, null,
+            new XQuerySettings.Timeouts(timeout, timeout, timeout), null, null, null, null, null, null, null, null);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), settings, new EvaluationMetrics(new SimpleMeterRegistry(), settings), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(4L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(3L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+        when(taskRepository.findForEvaluation(3L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        var result = service.evaluate(new SubmitSubmissionDto<>(null, null, 3L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("""
+                declare function local:loop($n) { local:loop($n + 1) };
+                local:loop(0)""")));
+
+        // Assert
+        assertEquals(BigDecimal.ZERO, result.points());
+        assertEquals("timeoutError", result.generalFeedback());
+        assertEquals(1, result.criteria().size());
+        assertEquals("timeout", result.criteria().getFirst().feedback());
+    }
+
+    @Test
+    void reevaluate_timeout() {
+        // Arrange
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(null), 1);
+        var ms = mock(MessageSource.class);
+        var timeout = new XQuerySettings.Timeout(Duration.ofMillis(500), Duration.ZERO);
+        var settings = new XQuerySettings("basex", null, "https://example.com/xml", true, 10, null,
+            new XQuerySettings.Timeouts(timeout, timeout, timeout), null, null, null, null, null, null, null, null);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), mock(XQueryTaskRepository.class), taskGroupRepository(), ms, new SolutionCache(10), settings, new EvaluationMetrics(new SimpleMeterRegistry(), settings), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(4L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(3L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        var timedOut = service.reevaluate(task, new SubmitSubmissionDto<>(null, null, 3L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("""
+                declare function local:loop($n) { local:loop($n + 1) };
+                local:loop(0)""")));
+        var evaluated = service.reevaluate(task, new SubmitSubmissionDto<>(null, null, 3L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("return doc('etutor.xml')/db")));
+
+        // Assert
+        assertTrue(timedOut.isEmpty());
+        assertTrue(evaluated.isPresent());
+        assertEquals(0, BigDecimal.ONE.compareTo(evaluated.get().points()));
+    }
+
+    @Test
+    void evaluate_solutionRunsConcurrently() throws Exception {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var processor = mock(XQProcessor.class);
+        when(processor.evaluate(anyString(), any(), any(), anyBoolean())).thenCallRealMethod();
+        var solutionStarted = new CountDownLatch(1);
+        var concurrent = new AtomicBoolean();
+        when(processor.evaluate(anyString(), any(), any())).thenAnswer(i -> {
+            if (i.getArgument(0).equals("solution")) {
+                solutionStarted.countDown();
+            } else {
+                // the submission only sees the solution start if both run at the same time
+                concurrent.set(solutionStarted.await(5, TimeUnit.SECONDS));
+            }
+            return XQOutput.of("<a>1</a>");
+        });
+        var ms = mock(MessageSource.class);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", new XQProcessorPool(() -> processor, 2)), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(5L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(5L, BigDecimal.ONE, TaskStatus.APPROVED, group, "solution", null);
+        when(taskRepository.findForEvaluation(5L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        var result = service.evaluate(new SubmitSubmissionDto<>(null, null, 5L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("submission")));
+
+        // Assert
+        assertTrue(concurrent.get());
+        assertEquals(0, BigDecimal.ONE.compareTo(result.points()));
+        service.close();
+    }
+
+    @Test
+    void evaluate_syntaxErrorCancelsSolution() throws Exception {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var processor = mock(XQProcessor.class);
+        when(processor.evaluate(anyString(), any(), any(), anyBoolean())).thenCallRealMethod();
+        var solutionStarted = new CountDownLatch(1);
+        var cancelled = new CountDownLatch(1);
+        when(processor.evaluate(anyString(), any(), any())).thenAnswer(i -> {
+            if (i.getArgument(0).equals("solution")) {
+                solutionStarted.countDown();
+                XQLimits limits = i.getArgument(2);
+                while (!limits.cancellation().isCancelled())
+                    Thread.sleep(10);
+                cancelled.countDown();
+                throw new XQueryCancelledException();
+            }
+            solutionStarted.await(5, TimeUnit.SECONDS);
+            throw new XQueryException("syntax error");
+        });
+        var ms = mock(MessageSource.class);
+        var pool = new XQProcessorPool(() -> processor, 2);
+        var cache = new SolutionCache(10);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", pool), taskRepository, taskGroupRepository(), ms, cache, SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(6L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(6L, BigDecimal.ONE, TaskStatus.APPROVED, group, "solution", null);
+        when(taskRepository.findForEvaluation(6L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        var result = service.evaluate(new SubmitSubmissionDto<>(null, null, 6L, "de", SubmissionMode.SUBMIT, 0,
+            new XQuerySubmissionDto("submission")));
+
+        // Assert
+        assertEquals("syntaxError", result.generalFeedback());
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        service.close();
+    }
+
+    @Test
+    void evaluate_loadsOnlyDocumentOfMode() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var taskGroupRepository = taskGroupRepository();
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
+        var ms = mock(MessageSource.class);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository, ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(9L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(9L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+        when(taskRepository.findForEvaluation(9L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        service.evaluate(new SubmitSubmissionDto<>(null, null, 9L, "de", SubmissionMode.RUN, 0,
+            new XQuerySubmissionDto("return doc('etutor.xml')/db")));
+
+        // Assert
+        verify(taskGroupRepository).findDiagnoseDocument(9L, group.getDiagnoseDocumentHash());
+        verify(taskGroupRepository, never()).findSubmitDocument(any(), any());
+    }
+
+    @Test
+    void evaluate_documentChanged() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var taskGroupRepository = taskGroupRepository();
+        var processor = new XQProcessorPool(() -> new BaseXProcessor(Path.of("./basex")), 1);
+        var ms = mock(MessageSource.class);
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", processor), taskRepository, taskGroupRepository, ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(new SimpleMeterRegistry(), SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var staleGroup = new XQueryTaskGroup(10L, TaskStatus.APPROVED, "<db/>", SUBMIT);
+        var staleTask = new XQueryTask(10L, BigDecimal.ONE, TaskStatus.APPROVED, staleGroup, "return doc('etutor.xml')/db", null);
+        var group = new XQueryTaskGroup(10L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(10L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+        when(taskGroupRepository.findDiagnoseDocument(10L, staleGroup.getDiagnoseDocumentHash())).thenReturn(Optional.empty());
+        when(taskRepository.findForEvaluation(10L)).thenReturn(Optional.of(projection(task)));
+        when(ms.getMessage(anyString(), any(), any())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        var result = service.evaluate(projection(staleTask).toTask(), new SubmitSubmissionDto<>(null, null, 10L, "de", SubmissionMode.DIAGNOSE, 0,
+            new XQuerySubmissionDto("return doc('etutor.xml')/db")));
+
+        // Assert
+        assertEquals(BigDecimal.ONE, result.points());
+        verify(taskGroupRepository).findDiagnoseDocument(10L, group.getDiagnoseDocumentHash());
+    }
+
+    @Test
+    void evaluate_noProcessorAvailable() throws Exception {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 1, 0, Duration.ofMillis(10), Duration.ZERO);
+        var ms = mock(MessageSource.class);
+        var registry = new SimpleMeterRegistry();
+        var service = new EvaluationServiceImpl(XQProcessorRouter.of("basex", pool), taskRepository, taskGroupRepository(), ms, new SolutionCache(10), SETTINGS, new EvaluationMetrics(registry, SETTINGS), HIGHLIGHTER, new EvaluationCache(0, new SimpleMeterRegistry()));
+
+        var group = new XQueryTaskGroup(11L, TaskStatus.APPROVED, DIAGNOSE, SUBMIT);
+        var task = new XQueryTask(11L, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+        when(taskRepository.findForEvaluation(11L)).thenReturn(Optional.of(projection(task)));
+
+        // Act
+        EvaluationUnavailableException ex;
+        try (var ignored = pool.borrow()) {
+            ex = assertThrows(EvaluationUnavailableException.class, () -> service.evaluate(new SubmitSubmissionDto<>(null, null, 11L, "de", SubmissionMode.SUBMIT, 0,
+                new XQuerySubmissionDto("return doc('etutor.xml')/db"))));
+        }
+
+        // Assert
+        assertEquals(503, ex.getStatusCode().value());
+        assertEquals("1", ex.getHeaders().getFirst("Retry-After"));
+        assertNotNull(registry.find(EvaluationMetrics.EVALUATION).tag("outcome", "unavailable").timer());
+    }
+
+    /**
+     * Creates the evaluation projection of the task, whose task group does not contain the documents.
+     */
+    private static EvaluationTask projection(XQueryTask task) {
+        var group = task.getTaskGroup();
+        return new EvaluationTask(task.getId(), task.getMaxPoints(), task.getStatus(), task.getSolution(), task.getSorting(),
+            task.getMissingNodePenalty(), task.getSuperfluousNodePenalty(), task.getIncorrectTextPenalty(), task.getDisplacedNodePenalty(),
+            task.getMissingAttributePenalty(), task.getSuperfluousAttributePenalty(), task.getIncorrectAttributeValuePenalty(),
+            task.getMissingNodeStrategy(), task.getSuperfluousNodeStrategy(), task.getIncorrectTextStrategy(), task.getDisplacedNodeStrategy(),
+            task.getMissingAttributeStrategy(), task.getSuperfluousAttributeStrategy(), task.getIncorrectAttributeValueStrategy(),
+            task.getSolutionElements(), task.getSolutionAttributes(),
+            group.getId(), group.getStatus(), group.getExecutor(), group.getDiagnoseDocumentHash(), group.getSubmitDocumentHash());
+    }
+
+    /**
+     * Creates a task group repository providing the test documents.
+     */
+    private static XQueryTaskGroupRepository taskGroupRepository() {
+        var repository = mock(XQueryTaskGroupRepository.class);
+        when(repository.findDiagnoseDocument(any(), any())).thenReturn(Optional.of(DIAGNOSE));
+        when(repository.findSubmitDocument(any(), any())).thenReturn(Optional.of(SUBMIT));
+        return repository;
+    }
+
+    private static final XQuerySettings SETTINGS = new XQuerySettings("basex", null, "https://example.com/xml", true, 10, null,
+        null, null, null, null, null, null, null, null, null);
+
+    private static final ResultHighlighter HIGHLIGHTER = new ResultHighlighter(1024 * 1024, 10);
+
     private static final String DIAGNOSE = """
         <db>
              <person nr="p1">
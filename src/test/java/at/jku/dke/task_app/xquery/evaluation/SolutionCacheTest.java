@@ -0,0 +1,189 @@
+package at.jku.dke.task_app.xquery.evaluation;
+
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.analysis.PreparedSolution;
+import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryCancelledException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionCacheTest {
+
+    @Test
+    void get_cached() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(10);
+        var key = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>"));
+        var calls = new AtomicInteger();
+        SolutionCache.Loader loader = () -> {
+            calls.incrementAndGet();
+            return new PreparedSolution(new XQResult("<db/>"), List.of());
+        };
+
+        // Act
+        var first = cache.get(key, loader);
+        var second = cache.get(key, loader);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void get_changedDocument() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(10);
+        var key1 = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>"));
+        var key2 = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db><a/></db>"));
+
+        // Act
+        var first = cache.get(key1, () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+        var second = cache.get(key2, () -> new PreparedSolution(new XQResult("<db><a/></db>"), List.of()));
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void get_failedLoadNotCached() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(10);
+        var key = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.SUBMIT, "<db/>"));
+
+        // Act & Assert
+        assertThrows(XQueryException.class, () -> cache.get(key, () -> {
+            throw new XQueryException("failed");
+        }));
+        assertEquals(0, cache.size());
+        assertNotNull(cache.get(key, () -> new PreparedSolution(new XQResult("<db/>"), List.of())));
+    }
+
+    @Test
+    void get_reloadsAfterCancelledLoad() throws Exception {
+        // Arrange
+        var cache = new SolutionCache(10);
+        var key = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.SUBMIT, "<db/>"));
+        var started = new CountDownLatch(1);
+        var proceed = new CountDownLatch(1);
+        var owner = CompletableFuture.runAsync(() -> assertThrows(XQueryCancelledException.class, () -> cache.get(key, () -> {
+            started.countDown();
+            proceed.await();
+            throw new XQueryCancelledException();
+        })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        var waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get(key, () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+            } catch (XQueryException | AnalysisException ex) {
+                throw new CompletionException(ex);
+            }
+        });
+        Thread.sleep(100);
+        proceed.countDown();
+
+        // Assert
+        owner.get(5, TimeUnit.SECONDS);
+        assertNotNull(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void contains() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(10);
+        var key = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>"));
+
+        // Act
+        boolean before = cache.contains(key);
+        cache.get(key, () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+
+        // Assert
+        assertFalse(before);
+        assertTrue(cache.contains(key));
+        assertFalse(new SolutionCache(0).contains(key));
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsed() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(2);
+        var doc = XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>");
+
+        // Act
+        for (int i = 0; i < 3; i++)
+            cache.get(SolutionCache.key(i, "/db", List.of(), doc), () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+
+        // Assert
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void get_disabled() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(0);
+        var key = SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>"));
+
+        // Act
+        var first = cache.get(key, () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+        var second = cache.get(key, () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateTask() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(10);
+        var doc = XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>");
+        cache.get(SolutionCache.key(1, "/db", List.of(), doc), () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+        cache.get(SolutionCache.key(3, "/db", List.of(), doc), () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+
+        // Act
+        cache.invalidateTask(1);
+
+        // Assert
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void invalidateTaskGroup() throws XQueryException, AnalysisException {
+        // Arrange
+        var cache = new SolutionCache(10);
+        cache.get(SolutionCache.key(1, "/db", List.of(), XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>")), () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+        cache.get(SolutionCache.key(3, "/db", List.of(), XQDocument.of(4, XQDocument.Type.DIAGNOSE, "<db/>")), () -> new PreparedSolution(new XQResult("<db/>"), List.of()));
+
+        // Act
+        cache.invalidateTaskGroup(2);
+
+        // Assert
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void key_differentSorting() {
+        // Arrange
+        var doc = XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<db/>");
+
+        // Act
+        var key1 = SolutionCache.key(1, "/db", List.of("//a"), doc);
+        var key2 = SolutionCache.key(1, "/db", List.of("//b"), doc);
+
+        // Assert
+        assertNotEquals(key1, key2);
+    }
+}
@@ -526,6 +526,31 @@ void compare_displacedNodesWithValues() throws AnalysisException {
             .anyMatch(node -> node.getPath().equals("//child2") && node.getName().equals("/root[1]/sub[1]/child2[2]"));
     }
 
+    @Test
+    void compare_sortedNodesIgnoreIndentation() throws AnalysisException {
+        // Arrange
+        var submission = """
+            <xquery-result>
+                <root>
+                    <child>
+                        <name>1</name>
+                    </child>
+                    <child>
+                        <name>2</name>
+                    </child>
+                </root>
+            </xquery-result>
+            """;
+        var solution = "<xquery-result><root><child><name>1</name></child><child><name>2</name></child></root></xquery-result>";
+        var sorting = List.of("//child");
+
+        // Act
+        var analysis = new AnalysisImpl(new XQResult(submission), new XQResult(solution), new XQueryTask(sorting));
+
+        // Assert
+        assertEquals(0, analysis.getDisplacedNodes().size());
+    }
+
     @Test
     void compare_displacedNodesWithValues_withoutSorting() throws AnalysisException {
         // Arrange
@@ -0,0 +1,78 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DOMBuilderTest {
+
+    @Test
+    void finish_emptyResult() throws Exception {
+        // Arrange
+        var builder = new DOMBuilder(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+
+        // Act
+        var document = builder.finish();
+
+        // Assert
+        var root = document.getDocumentElement();
+        assertEquals(XQResult.XML_ROOT, root.getNodeName());
+        assertEquals(1, root.getChildNodes().getLength());
+        assertTrue(root.getTextContent().isBlank());
+    }
+
+    @Test
+    void characters_mergesAdjacentText() throws Exception {
+        // Arrange
+        var builder = new DOMBuilder(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+
+        // Act
+        builder.startElement("", "a", "a", new AttributesImpl());
+        builder.characters("x".toCharArray(), 0, 1);
+        builder.characters("yz".toCharArray(), 0, 2);
+        builder.endElement("", "a", "a");
+        var document = builder.finish();
+
+        // Assert
+        var a = document.getElementsByTagName("a").item(0);
+        assertEquals(1, a.getChildNodes().getLength());
+        assertEquals("xyz", a.getFirstChild().getNodeValue());
+    }
+
+    @Test
+    void startElement_namespaceDeclarations() throws Exception {
+        // Arrange
+        var builder = new DOMBuilder(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+
+        // Act
+        builder.startPrefixMapping("p", "urn:test");
+        builder.startElement("urn:test", "a", "p:a", new AttributesImpl());
+        builder.endElement("urn:test", "a", "p:a");
+        builder.endPrefixMapping("p");
+        var document = builder.finish();
+
+        // Assert
+        var a = document.getElementsByTagName("p:a").item(0);
+        assertNotNull(a);
+        assertEquals("urn:test", a.getAttributes().getNamedItem("xmlns:p").getNodeValue());
+    }
+
+    @Test
+    void comment() throws Exception {
+        // Arrange
+        var builder = new DOMBuilder(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+
+        // Act
+        builder.comment("c".toCharArray(), 0, 1);
+        var document = builder.finish();
+
+        // Assert
+        var root = document.getDocumentElement();
+        assertEquals(3, root.getChildNodes().getLength());
+        assertEquals(Node.COMMENT_NODE, root.getChildNodes().item(1).getNodeType());
+    }
+}
@@ -0,0 +1,133 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DTDValidatorTest {
+
+    private static boolean isValid(String solution, String submission) throws AnalysisException {
+        var validator = new XQResult(solution).getDTDValidator();
+        return validator.validate(new XQResult(submission).getResultDocument()).isEmpty();
+    }
+
+    @Test
+    void validate_sameResult() throws AnalysisException {
+        // Arrange
+        var xml = """
+            <person id="1"><name>Max</name><age>20</age></person>
+            <person id="2"><name>Eva</name></person>""";
+
+        // Act & Assert
+        assertTrue(isValid(xml, xml));
+    }
+
+    @Test
+    void validate_whitespaceInElementContent() throws AnalysisException {
+        // Act & Assert
+        assertTrue(isValid("<a><b>1</b></a>", """
+            <a>
+                <b>2</b>
+            </a>"""));
+    }
+
+    @Test
+    void validate_textInElementContent() throws AnalysisException {
+        // Act & Assert
+        assertFalse(isValid("<a><b>1</b></a>", "<a>text<b>2</b></a>"));
+    }
+
+    @Test
+    void validate_undeclaredElement() throws AnalysisException {
+        // Act & Assert
+        assertFalse(isValid("<a><b>1</b></a>", "<a><c>1</c></a>"));
+    }
+
+    @Test
+    void validate_wrongSequence() throws AnalysisException {
+        // Act & Assert
+        assertFalse(isValid("<a><b>1</b><c>2</c></a>", "<a><c>2</c><b>1</b></a>"));
+    }
+
+    @Test
+    void validate_optionalAndRepeatable() throws AnalysisException {
+        // Arrange
+        var solution = "<a><b>1</b><b>2</b><c>3</c></a><a><b>1</b></a>";
+
+        // Act & Assert
+        assertTrue(isValid(solution, "<a><b>1</b><b>1</b><b>1</b></a>"));
+        assertFalse(isValid(solution, "<a><c>3</c></a>"));
+    }
+
+    @Test
+    void validate_choice() throws AnalysisException {
+        // Act & Assert
+        assertTrue(isValid("<a><b/><c/><b/></a>", "<a><c/><c/></a>"));
+    }
+
+    @Test
+    void validate_mixedContent() throws AnalysisException {
+        // Act & Assert
+        assertTrue(isValid("<a>text <b>1</b></a>", "<a><b>2</b> text</a>"));
+        assertFalse(isValid("<a>text <b>1</b></a>", "<a><c/></a>"));
+    }
+
+    @Test
+    void validate_empty() throws AnalysisException {
+        // Act & Assert
+        assertTrue(isValid("<a/>", "<a></a>"));
+        assertFalse(isValid("<a/>", "<a> </a>"));
+        assertFalse(isValid("<a/>", "<a><!-- comment --></a>"));
+    }
+
+    @Test
+    void validate_requiredAttribute() throws AnalysisException {
+        // Act & Assert
+        assertFalse(isValid("<a x=\"1\"/>", "<a/>"));
+    }
+
+    @Test
+    void validate_undeclaredAttribute() throws AnalysisException {
+        // Act & Assert
+        assertFalse(isValid("<a/>", "<a x=\"1\"/>"));
+    }
+
+    @Test
+    void validate_nmtokenAttribute() throws AnalysisException {
+        // Act & Assert
+        assertTrue(isValid("<a x=\"1\"/>", "<a x=\" 2 \"/>"));
+        assertFalse(isValid("<a x=\"1\"/>", "<a x=\"1 2\"/>"));
+    }
+
+    @Test
+    void validate_fixedAttribute() throws AnalysisException {
+        // Arrange
+        var solution = "<a x=\"v\"/>".repeat(5);
+
+        // Act & Assert
+        assertTrue(isValid(solution, "<a/><a x=\"v\"/>"));
+        assertFalse(isValid(solution, "<a x=\"w\"/>"));
+    }
+
+    @Test
+    void validate_enumerationAttribute() throws AnalysisException {
+        // Arrange
+        var solution = "<a x=\"m\"/><a x=\"f\"/>".repeat(5);
+
+        // Act & Assert
+        assertTrue(isValid(solution, "<a x=\"f\"/>"));
+        assertFalse(isValid(solution, "<a x=\"d\"/>"));
+    }
+
+    @Test
+    void validate_idAttribute() throws AnalysisException {
+        // Arrange
+        var sb = new StringBuilder();
+        for (int i = 0; i < 10; i++)
+            sb.append("<a x=\"i").append(i).append("\"/>");
+
+        // Act & Assert
+        assertTrue(isValid(sb.toString(), "<a x=\"i1\"/><a x=\"j1\"/>"));
+        assertFalse(isValid(sb.toString(), "<a x=\"i1\"/><a x=\"i1\"/>"));
+    }
+}
@@ -0,0 +1,146 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiffEngineTest {
+
+    private static DiffEngine compare(String solution, String submission) throws AnalysisException {
+        return new DiffEngine(new XQResult(solution).getSubtreeIndex(), new XQResult(submission).getSubtreeIndex());
+    }
+
+    @Test
+    void compare_identical() throws AnalysisException {
+        // Arrange
+        var xml = """
+            <person id="1"><name>Max</name><age>20</age></person>
+            <person id="2"><name>Eva</name></person>""";
+
+        // Act
+        var diff = compare(xml, xml);
+
+        // Assert
+        assertThat(diff.getMissingNodes()).isEmpty();
+        assertThat(diff.getSuperfluousNodes()).isEmpty();
+        assertThat(diff.getMissingAttributes()).isEmpty();
+        assertThat(diff.getSuperfluousAttributes()).isEmpty();
+        assertThat(diff.getIncorrectAttributeValues()).isEmpty();
+        assertThat(diff.getIncorrectTextValues()).isEmpty();
+    }
+
+    @Test
+    void compare_ignoresCommentsAndWhitespace() throws AnalysisException {
+        // Arrange
+        var solution = "<a><b>x y</b></a>";
+        var submission = """
+            <a>
+                <!-- comment -->
+                <b>  x
+                  y  </b>
+            </a>""";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getSuperfluousNodes()).isEmpty();
+        assertThat(diff.getIncorrectTextValues()).isEmpty();
+    }
+
+    @Test
+    void compare_missingAndSuperfluousNodes() throws AnalysisException {
+        // Arrange
+        var solution = "<a><b/><c/></a>";
+        var submission = "<a><b/><d/></a>";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getMissingNodes())
+            .hasSize(1)
+            .anyMatch(node -> node.getPath().equals("/a[1]") && node.getName().equals("c"));
+        assertThat(diff.getSuperfluousNodes())
+            .hasSize(1)
+            .anyMatch(node -> node.getPath().equals("/a[1]") && node.getName().equals("d"));
+    }
+
+    @Test
+    void compare_matchesByTextBeforeName() throws AnalysisException {
+        // Arrange
+        var solution = "<a><b>1</b><b>2</b></a>";
+        var submission = "<a><b>2</b></a>";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getIncorrectTextValues()).isEmpty();
+        assertThat(diff.getMissingNodes())
+            .hasSize(1)
+            .anyMatch(node -> node.getPath().equals("/a[1]") && node.getName().equals("b"));
+    }
+
+    @Test
+    void compare_textAtSameLevelIsNotIncorrect() throws AnalysisException {
+        // Arrange
+        var solution = "<p><x>1</x><y>2</y></p><p><x>3</x><y>4</y></p>";
+        var submission = "<p><x>3</x><y>4</y></p><p><x>1</x><y>2</y></p>";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getIncorrectTextValues()).isEmpty();
+    }
+
+    @Test
+    void compare_incorrectText() throws AnalysisException {
+        // Arrange
+        var solution = "<p><x>1</x></p>";
+        var submission = "<p><x>2</x></p>";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getIncorrectTextValues())
+            .hasSize(1)
+            .anyMatch(node -> node.getPath().equals("/p[1]/x[1]") && node.getExpectedValue().equals("1"));
+    }
+
+    @Test
+    void compare_attributeValuesOfDisplacedElements() throws AnalysisException {
+        // Arrange
+        var solution = "<a id=\"2\"/><a id=\"1\"/>";
+        var submission = "<a id=\"1\"/><a id=\"2\"/>";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getIncorrectAttributeValues()).isEmpty();
+    }
+
+    @Test
+    void compare_attributes() throws AnalysisException {
+        // Arrange
+        var solution = "<a id=\"1\" name=\"x\"/>";
+        var submission = "<a id=\"2\" type=\"y\"/>";
+
+        // Act
+        var diff = compare(solution, submission);
+
+        // Assert
+        assertThat(diff.getIncorrectAttributeValues())
+            .hasSize(1)
+            .anyMatch(attr -> attr.getPath().equals("/a[1]") && attr.getName().equals("id") && attr.getExpectedValue().equals("1"));
+        assertThat(diff.getMissingAttributes())
+            .hasSize(1)
+            .anyMatch(attr -> attr.getPath().equals("/a[1]") && attr.getName().equals("name") && attr.getValue().equals("x"));
+        assertThat(diff.getSuperfluousAttributes())
+            .hasSize(1)
+            .anyMatch(attr -> attr.getPath().equals("/a[1]") && attr.getName().equals("type") && attr.getValue().equals("y"));
+    }
+}
@@ -0,0 +1,52 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectPoolTest {
+
+    @Test
+    void poll_empty() {
+        // Arrange
+        var pool = new ObjectPool<Object>(2);
+
+        // Act
+        var result = pool.poll();
+
+        // Assert
+        assertNull(result);
+    }
+
+    @Test
+    void poll_reusesReturnedObject() {
+        // Arrange
+        var pool = new ObjectPool<Object>(2);
+        var object = new Object();
+
+        // Act
+        pool.offer(object);
+        var result = pool.poll();
+
+        // Assert
+        assertSame(object, result);
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void offer_boundedByMaxIdle() {
+        // Arrange
+        var pool = new ObjectPool<Object>(2);
+
+        // Act
+        pool.offer(new Object());
+        pool.offer(new Object());
+        pool.offer(new Object());
+
+        // Assert
+        assertEquals(2, pool.getIdleCount());
+        assertNotNull(pool.poll());
+        assertNotNull(pool.poll());
+        assertNull(pool.poll());
+    }
+}
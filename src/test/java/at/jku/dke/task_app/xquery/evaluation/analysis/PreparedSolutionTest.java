@@ -0,0 +1,70 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreparedSolutionTest {
+
+    @Test
+    void newResult_independentDocuments() throws AnalysisException {
+        // Arrange
+        var solution = new PreparedSolution(new XQResult("<a>1</a><b>2</b>"), List.of());
+
+        // Act
+        var result1 = solution.newResult();
+        var result2 = solution.newResult();
+
+        // Assert
+        assertNotSame(result1.getResultDocument(), result2.getResultDocument());
+        assertEquals(result1.getRawResult(), result2.getRawResult());
+        assertSame(result1.getDTD(), result2.getDTD());
+    }
+
+    @Test
+    void evaluateSortingExpression_concurrentThreads() throws AnalysisException {
+        // Arrange
+        var solution = new PreparedSolution(new XQResult("<a>1</a><a>2</a>"), List.of("//a"));
+        var document = solution.newResult().getResultDocument();
+
+        // Act
+        var results = CompletableFuture.supplyAsync(() -> {
+            try {
+                return solution.evaluateSortingExpression(0, document).getLength();
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        // Assert
+        assertEquals(2, results.join());
+        assertDoesNotThrow(() -> assertEquals(2, solution.evaluateSortingExpression(0, document).getLength()));
+    }
+
+    @Test
+    void constructor_invalidSorting() {
+        // Act & Assert
+        assertThrows(AnalysisException.class, () -> new PreparedSolution(new XQResult("<a>1</a>"), List.of("//c")));
+    }
+
+    @Test
+    void constructor_invalidSortingSyntax() {
+        // Act & Assert
+        assertThrows(AnalysisException.class, () -> new PreparedSolution(new XQResult("<a>1</a>"), List.of("//[")));
+    }
+
+    @Test
+    void getSorting() throws AnalysisException {
+        // Arrange
+        var solution = new PreparedSolution(new XQResult("<a>1</a>"), List.of("//a"));
+
+        // Act
+        var result = solution.getSorting();
+
+        // Assert
+        assertEquals(List.of("//a"), result);
+    }
+}
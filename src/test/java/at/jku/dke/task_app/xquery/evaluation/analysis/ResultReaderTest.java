@@ -0,0 +1,53 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultReaderTest {
+
+    @Test
+    void read_wrapsResult() throws IOException {
+        // Arrange
+        var raw = "<a>1</a><b/>";
+        var sb = new StringBuilder();
+        char[] buffer = new char[3];
+
+        // Act
+        try (var reader = new ResultReader(raw)) {
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1)
+                sb.append(buffer, 0, read);
+        }
+
+        // Assert
+        assertEquals(ResultReader.wrap(raw), sb.toString());
+        assertEquals("<" + XQResult.XML_ROOT + ">" + System.lineSeparator() + raw + System.lineSeparator() + "</" + XQResult.XML_ROOT + ">", sb.toString());
+    }
+
+    @Test
+    void read_emptyResult() throws IOException {
+        // Arrange
+        var reader = new ResultReader("");
+
+        // Act
+        char[] buffer = new char[100];
+        int read = reader.read(buffer, 0, buffer.length);
+
+        // Assert
+        assertEquals(ResultReader.wrap("").length(), read);
+        assertEquals(-1, reader.read(buffer, 0, buffer.length));
+    }
+
+    @Test
+    void read_closed() {
+        // Arrange
+        var reader = new ResultReader("<a/>");
+        reader.close();
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> reader.read(new char[10], 0, 10));
+    }
+}
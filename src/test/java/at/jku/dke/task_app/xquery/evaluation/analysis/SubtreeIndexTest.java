@@ -0,0 +1,114 @@
+package at.jku.dke.task_app.xquery.evaluation.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubtreeIndexTest {
+
+    private static SubtreeIndex.Entry child(SubtreeIndex.Entry entry, int... path) {
+        for (int index : path)
+            entry = entry.children.get(index);
+        return entry;
+    }
+
+    @Test
+    void constructor_ignoresCommentsAndBlankText() throws AnalysisException {
+        // Arrange
+        var result = new XQResult("""
+            <a>
+                <!-- comment -->
+                <b>x <!-- c --> y</b>
+            </a>""");
+
+        // Act
+        var index = new SubtreeIndex(result.getResultDocument());
+
+        // Assert
+        var b = child(index.getRoot(), 0, 0, 0);
+        assertEquals(5, index.size()); // document, xquery-result, a, b, text
+        assertEquals("b", b.name);
+        assertEquals("xy", b.value);
+        assertEquals("/xquery-result[1]/a[1]/b[1]", b.getXPath());
+    }
+
+    @Test
+    void signature_equalSubtrees() throws AnalysisException {
+        // Arrange
+        var first = new XQResult("<a id=\"1\"><b>x</b></a>").getSubtreeIndex();
+        var second = new XQResult("<c/><a  id=\"1\">\n  <b> x </b>\n</a>").getSubtreeIndex();
+
+        // Act
+        var a1 = child(first.getRoot(), 0, 0);
+        var a2 = child(second.getRoot(), 0, 1);
+
+        // Assert
+        assertEquals(a1.signature, a2.signature);
+        assertTrue(SubtreeIndex.isEqual(a1, a2));
+        assertNotEquals(first.getRoot().signature, second.getRoot().signature);
+    }
+
+    @Test
+    void signature_differentAttributeValue() throws AnalysisException {
+        // Arrange
+        var first = new XQResult("<a id=\"1\"/>").getSubtreeIndex();
+        var second = new XQResult("<a id=\"2\"/>").getSubtreeIndex();
+
+        // Act & Assert
+        assertNotEquals(first.getRoot().signature, second.getRoot().signature);
+        assertFalse(SubtreeIndex.isEqual(first.getRoot(), second.getRoot()));
+    }
+
+    @Test
+    void findFirstEqual_withinScope() throws AnalysisException {
+        // Arrange
+        var index = new XQResult("<p><x>1</x></p><p><x>2</x><y>1</y></p>").getSubtreeIndex();
+        var search = child(new XQResult("<x>1</x>").getSubtreeIndex().getRoot(), 0, 0, 0);
+        var secondP = child(index.getRoot(), 0, 1);
+
+        // Act
+        var inDocument = index.findFirstEqual(search, index.getRoot());
+        var inSecondP = index.findFirstEqual(search, secondP);
+        var inY = index.findFirstEqual(search, child(secondP, 1));
+
+        // Assert
+        assertSame(child(index.getRoot(), 0, 0, 0, 0), inDocument);
+        assertSame(child(secondP, 1, 0), inSecondP);
+        assertSame(inSecondP, inY);
+        assertNull(index.findFirstEqual(search, child(secondP, 0)));
+    }
+
+    @Test
+    void isAtSameLevel() throws AnalysisException {
+        // Arrange
+        var first = new XQResult("<p><x>1</x></p>").getSubtreeIndex();
+        var second = new XQResult("<q/><p><x>2</x></p><p><y>1</y></p>").getSubtreeIndex();
+
+        // Act & Assert
+        assertTrue(SubtreeIndex.isAtSameLevel(child(first.getRoot(), 0, 0, 0, 0), child(second.getRoot(), 0, 1, 0, 0)));
+        assertFalse(SubtreeIndex.isAtSameLevel(child(first.getRoot(), 0, 0, 0, 0), child(second.getRoot(), 0, 2, 0, 0)));
+        assertFalse(SubtreeIndex.isAtSameLevel(child(first.getRoot(), 0, 0), child(second.getRoot(), 0, 1, 0)));
+    }
+
+    @Test
+    void getSubtreeIndex_sharedWithCopy() throws AnalysisException {
+        // Arrange
+        var result = new XQResult("<a/>");
+        var index = result.getSubtreeIndex();
+
+        // Act
+        var copy = result.copy();
+
+        // Assert
+        assertSame(index, copy.getSubtreeIndex());
+    }
+
+    @Test
+    void getSubtreeIndex_invalidXml() throws AnalysisException {
+        // Arrange
+        var result = new XQResult("<a>");
+
+        // Act & Assert
+        assertThrows(AnalysisException.class, result::getSubtreeIndex);
+    }
+}
@@ -1,9 +1,10 @@
 package at.jku.dke.task_app.xquery.evaluation.analysis;
 
+import at.jku.dke.task_app.xquery.evaluation.execution.XQOutput;
 import org.junit.jupiter.api.Test;
-
-import java.io.IOException;
-import java.nio.file.Files;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -92,86 +93,49 @@ void getParseException_invalidXml() throws AnalysisException {
     }
 
     @Test
-    void getResultFile_generate() throws AnalysisException {
+    void getResultDocumentRaw_validXml() throws AnalysisException {
         // Arrange
-        var xml = """
-            <root>
-                <child>test</child>
-            </root>""";
+        var xml = "<root><child>test</child></root>";
         var xqResult = new XQResult(xml);
 
         // Act
-        var result = xqResult.getResultFile();
+        var result = xqResult.getResultDocumentRaw();
 
         // Assert
-        assertNotNull(result);
         assertThat(result)
-            .exists()
-            .isNotEmptyFile()
-            .content()
-            .contains("test")
-            .contains("child");
+            .startsWith("<" + XQResult.XML_ROOT + ">")
+            .contains(xml)
+            .endsWith("</" + XQResult.XML_ROOT + ">");
     }
 
     @Test
-    void getResultFile_regenerate() throws AnalysisException {
+    void getResultDocumentRaw_invalidXml() throws AnalysisException {
         // Arrange
-        var xml = """
-            <root>
-                <child>test</child>
-            </root>""";
-        var xqResult = new XQResult(xml);
+        var xqResult = new XQResult("<root>");
 
         // Act
-        var result = xqResult.getResultFile();
-        var lastModified = result.toFile().lastModified();
-        result = xqResult.getResultFile(true);
+        var result = xqResult.getResultDocumentRaw();
 
         // Assert
-        assertNotEquals(lastModified, result.toFile().lastModified());
-    }
-
-    @Test
-    void getResultFile_dontRegenerate() throws AnalysisException {
-        // Arrange
-        var xml = """
-            <root>
-                <child>test</child>
-            </root>""";
-        var xqResult = new XQResult(xml);
-
-        // Act
-        var result = xqResult.getResultFile();
-        var lastModified = result.toFile().lastModified();
-        result = xqResult.getResultFile();
-
-        // Assert
-        assertEquals(lastModified, result.toFile().lastModified());
+        assertNull(result);
     }
 
     @Test
-    void getResultFile_invalidXml() throws AnalysisException {
+    void constructor_reusesParser() throws AnalysisException {
         // Arrange
-        var xml = """
-            <root>
-                <child>test</child
-            </root>""";
-        var xqResult = new XQResult(xml);
+        var invalid = new XQResult("<root>");
 
         // Act
-        var result = xqResult.getResultFile();
+        var valid = new XQResult("<root><child/></root>");
 
         // Assert
-        assertNotNull(result);
-        assertThat(result)
-            .exists()
-            .isNotEmptyFile()
-            .content()
-            .isEqualTo(xml);
+        assertNotNull(invalid.getParseException());
+        assertNull(valid.getParseException());
+        assertEquals("root", valid.getResultDocument().getDocumentElement().getFirstChild().getNextSibling().getNodeName());
     }
 
     @Test
-    void getDTDFile_generate() throws AnalysisException {
+    void getDTD_generate() throws AnalysisException {
         // Arrange
         var xml = """
             <mietstatistik>
@@ -184,14 +148,11 @@ void getDTDFile_generate() throws AnalysisException {
         var xqResult = new XQResult(xml);
 
         // Act
-        var result = xqResult.getDTDFile();
+        var result = xqResult.getDTD();
 
         // Assert
-        assertNotNull(result);
         assertThat(result)
-            .exists()
-            .isNotEmptyFile()
-            .content()
+            .isNotBlank()
             .containsIgnoringWhitespaces("<!ELEMENT xquery-result (mietstatistik)>")
             .containsIgnoringWhitespaces("<!ELEMENT mietstatistik (sum-preis,qm-preis,other)>")
             .containsIgnoringWhitespaces("<!ELEMENT sum-preis (#PCDATA)>")
@@ -201,51 +162,61 @@ void getDTDFile_generate() throws AnalysisException {
     }
 
     @Test
-    void getDTDFile_regenerate() throws AnalysisException {
+    void getDTD_attributes() throws AnalysisException {
+        // Arrange
+        var xml = """
+            <person id="p1" name="A"/>
+            <person id="p2"/>""";
+        var xqResult = new XQResult(xml);
+
+        // Act
+        var result = xqResult.getDTD();
+
+        // Assert
+        assertThat(result)
+            .containsIgnoringWhitespaces("<!ELEMENT xquery-result (person+)>")
+            .containsIgnoringWhitespaces("<!ELEMENT person EMPTY>")
+            .containsIgnoringWhitespaces("<!ATTLIST person id NMTOKEN #REQUIRED>")
+            .containsIgnoringWhitespaces("<!ATTLIST person name NMTOKEN #IMPLIED>");
+    }
+
+    @Test
+    void getDTD_regenerate() throws AnalysisException {
         // Arrange
         var xml = """
             <mietstatistik>
                 <sum-preis>7450</sum-preis>
-                <qm-preis>14.269041218637993</qm-preis>
-                <other>
-                    <child>1</child>
-                </other>
             </mietstatistik>""";
         var xqResult = new XQResult(xml);
 
         // Act
-        var result = xqResult.getDTDFile();
-        var lastModified = result.toFile().lastModified();
-        result = xqResult.getDTDFile(true);
+        var result = xqResult.getDTD();
+        var result2 = xqResult.getDTD(true);
 
         // Assert
-        assertNotEquals(lastModified, result.toFile().lastModified());
+        assertNotSame(result, result2);
+        assertEquals(result, result2);
     }
 
     @Test
-    void getDTDFile_dontRegenerate() throws AnalysisException {
+    void getDTD_dontRegenerate() throws AnalysisException {
         // Arrange
         var xml = """
             <mietstatistik>
                 <sum-preis>7450</sum-preis>
-                <qm-preis>14.269041218637993</qm-preis>
-                <other>
-                    <child>1</child>
-                </other>
             </mietstatistik>""";
         var xqResult = new XQResult(xml);
 
         // Act
-        var result = xqResult.getDTDFile();
-        var lastModified = result.toFile().lastModified();
-        result = xqResult.getDTDFile(false);
+        var result = xqResult.getDTD();
+        var result2 = xqResult.getDTD(false);
 
         // Assert
-        assertEquals(lastModified, result.toFile().lastModified());
+        assertSame(result, result2);
     }
 
     @Test
-    void getDTDFile_invalidXml() throws AnalysisException {
+    void getDTD_invalidXml() throws AnalysisException {
         // Arrange
         var xml = """
             <root>
@@ -254,7 +225,75 @@ void getDTDFile_invalidXml() throws AnalysisException {
         var xqResult = new XQResult(xml);
 
         // Act & Assert
-        assertThrows(AnalysisException.class, xqResult::getDTDFile);
+        assertThrows(AnalysisException.class, xqResult::getDTD);
+    }
+
+    @Test
+    void constructor_emittableOutput() throws AnalysisException {
+        // Arrange
+        var output = new EmittingOutput();
+
+        // Act
+        var xqResult = new XQResult(output);
+
+        // Assert
+        assertNull(xqResult.getParseException());
+        assertEquals(0, output.serialized);
+        var root = xqResult.getResultDocument().getDocumentElement();
+        assertEquals(XQResult.XML_ROOT, root.getNodeName());
+        assertEquals("b", root.getElementsByTagName("a").item(0).getTextContent());
+        assertEquals("1", root.getElementsByTagName("a").item(0).getAttributes().getNamedItem("id").getNodeValue());
+    }
+
+    @Test
+    void getRawResult_emittableOutput() throws AnalysisException {
+        // Arrange
+        var output = new EmittingOutput();
+        var xqResult = new XQResult(output);
+
+        // Act
+        var result = xqResult.getRawResult();
+        var result2 = xqResult.getRawResult();
+
+        // Assert
+        assertEquals("<a id=\"1\">b</a>", result);
+        assertSame(result, result2);
+        assertEquals(1, output.serialized);
+    }
+
+    @Test
+    void constructor_emittableOutput_equalsParsedDocument() throws AnalysisException {
+        // Arrange
+        var emitted = new XQResult(new EmittingOutput());
+        var parsed = new XQResult("<a id=\"1\">b</a>");
+
+        // Act & Assert
+        assertTrue(emitted.getResultDocument().isEqualNode(parsed.getResultDocument()));
+        assertTrue(SubtreeIndex.isEqual(emitted.getSubtreeIndex().getRoot(), parsed.getSubtreeIndex().getRoot()));
+    }
+
+    private static final class EmittingOutput implements XQOutput {
+        int serialized;
+
+        @Override
+        public String getRawResult() {
+            serialized++;
+            return "<a id=\"1\">b</a>";
+        }
+
+        @Override
+        public boolean isEmittable() {
+            return true;
+        }
+
+        @Override
+        public void emit(ContentHandler handler) throws SAXException {
+            var attributes = new AttributesImpl();
+            attributes.addAttribute("", "id", "id", "CDATA", "1");
+            handler.startElement("", "a", "a", attributes);
+            handler.characters("b".toCharArray(), 0, 1);
+            handler.endElement("", "a", "a");
+        }
     }
 
 }
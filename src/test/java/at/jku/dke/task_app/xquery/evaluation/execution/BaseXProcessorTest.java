@@ -2,7 +2,14 @@
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -33,6 +40,62 @@ void executeQuery_valid() throws XQueryException {
         }
     }
 
+    @Test
+    void evaluate_timeout() {
+        try (var processor = new BaseXProcessor(null)) {
+            // Arrange
+            var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+            var limits = new XQLimits(Duration.ofMillis(500), Duration.ZERO);
+            var query = """
+                declare function local:loop($n) { local:loop($n + 1) };
+                local:loop(0)""";
+
+            // Act & Assert
+            assertThrows(XQueryTimeoutException.class, () -> processor.evaluate(query, document, limits));
+        }
+    }
+
+    @Test
+    void evaluate_cancelled() throws InterruptedException {
+        try (var processor = new BaseXProcessor(null)) {
+            // Arrange
+            var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+            var cancellation = new XQCancellation();
+            var limits = XQLimits.NONE.withCancellation(cancellation);
+            var query = """
+                declare function local:loop($n) { local:loop($n + 1) };
+                local:loop(0)""";
+            var canceller = Thread.ofPlatform().start(() -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ignored) {
+                }
+                cancellation.cancel();
+            });
+
+            // Act & Assert
+            assertThrows(XQueryCancelledException.class, () -> processor.evaluate(query, document, limits));
+            canceller.join();
+        }
+    }
+
+    @Test
+    void evaluate_resultLimits() throws XQueryException {
+        try (var processor = new BaseXProcessor(null)) {
+            // Arrange
+            var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+            var limits = new XQLimits(Duration.ZERO, Duration.ZERO, 1000, 0, 0);
+
+            // Act
+            var bytes = assertThrows(XQueryLimitException.class, () -> processor.evaluate("for $i in 1 to 10000000 return <x/>", document, limits));
+            var valid = processor.evaluate("<a><b/></a>", document, limits);
+
+            // Assert
+            assertEquals(XQueryLimitException.Kind.BYTES, bytes.getKind());
+            assertEquals(processor.executeQuery("<a><b/></a>", "<docs/>"), valid.getRawResult());
+        }
+    }
+
     @Test
     void executeQuery_invalidFile() {
         try (var processor = new BaseXProcessor(Path.of("./basex"))) {
@@ -71,6 +134,227 @@ void executeQuery_invalidQuery() {
         }
     }
 
+    @Test
+    void executeQuery_documentStore() throws XQueryException {
+        try (var processor = new BaseXProcessor(Path.of("./basex"), true)) {
+            // Arrange
+            var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, """
+                <docs>
+                    <a>1</a>
+                    <b>2</b>
+                    <a>3</a>
+                </docs>
+                """);
+            var query = """
+                for $x in doc('etutor.xml')/docs/a
+                return $x/text()
+                """;
+
+            // Act
+            var result = processor.executeQuery(query, document);
+            var result2 = processor.executeQuery(query, document);
+
+            // Assert
+            assertEquals("1\n3", result);
+            assertEquals("1\n3", result2);
+        }
+    }
+
+    @Test
+    void executeQuery_documentStore_changedDocument() throws XQueryException {
+        try (var processor = new BaseXProcessor(null, true)) {
+            // Arrange
+            var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>1</a></docs>");
+            var changed = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>2</a></docs>");
+            var query = "doc('etutor.xml')/docs/a/text()";
+
+            // Act
+            var result = processor.executeQuery(query, document);
+            var result2 = processor.executeQuery(query, changed);
+
+            // Assert
+            assertEquals("1", result);
+            assertEquals("2", result2);
+        }
+    }
+
+    @Test
+    void executeQuery_storedDocument() throws XQueryException, IOException {
+        try (var processor = new BaseXProcessor(null, false);
+             var store = new XQDocumentStore(Files.createTempDirectory("etutor-documents"))) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<docs><a>1</a></docs>"), () -> "<docs><a>1</a></docs>", store);
+            var query = "doc('etutor.xml')/docs/a/text()";
+
+            // Act
+            var result = processor.executeQuery(query, document);
+
+            // Assert
+            assertEquals("1", result);
+        }
+    }
+
+    @Test
+    void executeQuery_storedDocument_fileRemoved() throws XQueryException, IOException {
+        var directory = Files.createTempDirectory("etutor-documents");
+        try (var processor = new BaseXProcessor(null, false);
+             var store = new XQDocumentStore(directory) {
+                 @Override
+                 public Path materialize(XQDocument document) {
+                     // simulates a newer version replacing the file after it has been materialized
+                     return directory.resolve("removed.xml");
+                 }
+             }) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<docs><a>1</a></docs>"), () -> "<docs><a>1</a></docs>", store);
+            var query = "doc('etutor.xml')/docs/a/text()";
+
+            // Act
+            var result = processor.executeQuery(query, document);
+
+            // Assert
+            assertEquals("1", result);
+        }
+    }
+
+    @Test
+    void executeQuery_documentStore_evict() throws XQueryException {
+        try (var processor = new BaseXProcessor(null, true)) {
+            // Arrange
+            var document = XQDocument.of(2, XQDocument.Type.SUBMIT, "<docs><a>1</a></docs>");
+            var query = "doc('etutor.xml')/docs/a/text()";
+            processor.executeQuery(query, document);
+
+            // Act
+            processor.evictDocuments(2);
+            var result = processor.executeQuery(query, document);
+
+            // Assert
+            assertEquals("1", result);
+        }
+    }
+
+    @Test
+    void executeQuery_documentStore_updateRejected() throws XQueryException {
+        try (var processor = new BaseXProcessor(null, true)) {
+            // Arrange
+            var document = XQDocument.of(3, XQDocument.Type.DIAGNOSE, "<docs><a>1</a><a>2</a></docs>");
+            var query = "count(doc('etutor.xml')//a)";
+            processor.executeQuery(query, document);
+
+            // Act
+            var ex = assertThrows(XQueryException.class, () -> processor.executeQuery("delete node doc('etutor.xml')//a", document));
+            var result = processor.executeQuery(query, document);
+
+            // Assert
+            assertFalse(ex instanceof InvalidDocumentLoadException);
+            assertEquals("2", result);
+        }
+    }
+
+    @Test
+    void executeQuery_documentStore_otherDatabasesRejected() throws XQueryException {
+        try (var processor = new BaseXProcessor(null, true)) {
+            // Arrange
+            processor.executeQuery("doc('etutor.xml')", XQDocument.of(4, XQDocument.Type.SUBMIT, "<secret/>"));
+            var document = XQDocument.of(5, XQDocument.Type.DIAGNOSE, "<docs/>");
+
+            // Act & Assert
+            assertThrows(InvalidDocumentLoadException.class, () -> processor.executeQuery("db:list()", document));
+            assertThrows(InvalidDocumentLoadException.class, () -> processor.executeQuery("db:get(db:list()[1])", document));
+        }
+    }
+
+    @Test
+    void executeQuery_sharedStore_survivesProcessor() throws XQueryException {
+        try (var store = new BaseXProcessorStore(null)) {
+            // Arrange
+            var loaded = new AtomicInteger();
+            var content = "<docs><a>1</a></docs>";
+            var document = new XQDocument(6, XQDocument.Type.DIAGNOSE, XQDocument.hash(content), () -> {
+                loaded.incrementAndGet();
+                return content;
+            }, null);
+            var query = "doc('etutor.xml')/docs/a/text()";
+            try (var processor = new BaseXProcessor(store)) {
+                processor.executeQuery(query, document);
+            }
+
+            // Act
+            String result;
+            try (var processor = new BaseXProcessor(store)) {
+                result = processor.executeQuery(query, document);
+            }
+
+            // Assert
+            assertEquals("1", result);
+            assertEquals(1, loaded.get());
+        }
+    }
+
+    @Test
+    void open_changedDocument_dropsPreviousVersionAfterUse() throws XQueryException {
+        try (var store = new BaseXProcessorStore(null);
+             var session = store.newSession()) {
+            // Arrange
+            var document = XQDocument.of(7, XQDocument.Type.DIAGNOSE, "<docs><a>1</a></docs>");
+            var changed = XQDocument.of(7, XQDocument.Type.DIAGNOSE, "<docs><a>2</a></docs>");
+            var previous = store.open(document);
+
+            // Act
+            try (var current = store.open(changed)) {
+                // Assert
+                assertTrue(session.existsDatabase(previous.name()));
+                previous.close();
+                assertFalse(session.existsDatabase(previous.name()));
+                assertTrue(session.existsDatabase(current.name()));
+            }
+        }
+    }
+
+    @Test
+    void open_creationDoesNotBlockOtherDocuments() throws Exception {
+        try (var store = new BaseXProcessorStore(null)) {
+            // Arrange
+            var loading = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            var content = "<docs><a>1</a></docs>";
+            var slow = new XQDocument(8, XQDocument.Type.DIAGNOSE, XQDocument.hash(content), () -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return content;
+            }, null);
+            var other = XQDocument.of(9, XQDocument.Type.DIAGNOSE, "<docs><b>2</b></docs>");
+            var slowOpen = CompletableFuture.supplyAsync(() -> {
+                try (var database = store.open(slow)) {
+                    return database.name();
+                } catch (XQueryException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // Act
+            var otherOpen = CompletableFuture.supplyAsync(() -> {
+                try (var database = store.open(other)) {
+                    return database.name();
+                } catch (XQueryException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+
+            // Assert
+            assertNotNull(otherOpen.get(5, TimeUnit.SECONDS));
+            assertFalse(slowOpen.isDone());
+            release.countDown();
+            assertNotNull(slowOpen.get(5, TimeUnit.SECONDS));
+        }
+    }
+
     @Test
     void getVersion() throws XQueryException {
         // Arrange
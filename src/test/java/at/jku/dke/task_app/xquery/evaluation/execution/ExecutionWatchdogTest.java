@@ -0,0 +1,127 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionWatchdogTest {
+
+    @Test
+    void watch_wallClockExceeded() throws InterruptedException {
+        // Arrange
+        var interrupts = new AtomicInteger();
+        var limits = new XQLimits(Duration.ofMillis(100), Duration.ZERO);
+
+        // Act
+        try (var watch = ExecutionWatchdog.watch(limits, interrupts::incrementAndGet)) {
+            Thread.sleep(500);
+
+            // Assert
+            assertTrue(watch.isExpired());
+            assertEquals(1, interrupts.get());
+            var ex = assertThrows(XQueryTimeoutException.class, () -> watch.throwIfExpired(null));
+            assertEquals(Duration.ofMillis(100), ex.getLimit());
+        }
+    }
+
+    @Test
+    void watch_cpuTimeExceeded() {
+        // Arrange
+        var limits = new XQLimits(Duration.ZERO, Duration.ofMillis(100));
+
+        // Act
+        try (var watch = ExecutionWatchdog.watch(limits, () -> {
+        })) {
+            long end = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (!watch.isExpired() && System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+
+            // Assert
+            assertTrue(watch.isExpired());
+        }
+    }
+
+    @Test
+    void watch_notExceeded() {
+        // Arrange
+        var interrupts = new AtomicInteger();
+        var limits = new XQLimits(Duration.ofSeconds(10), Duration.ofSeconds(10));
+
+        // Act
+        try (var watch = ExecutionWatchdog.watch(limits, interrupts::incrementAndGet)) {
+            // Assert
+            assertFalse(watch.isExpired());
+            assertDoesNotThrow(() -> watch.throwIfExpired(null));
+        }
+        assertEquals(0, interrupts.get());
+    }
+
+    @Test
+    void watch_noLimits() throws InterruptedException {
+        // Arrange
+        var interrupts = new AtomicInteger();
+
+        // Act
+        try (var watch = ExecutionWatchdog.watch(XQLimits.NONE, interrupts::incrementAndGet)) {
+            Thread.sleep(100);
+
+            // Assert
+            assertFalse(watch.isExpired());
+        }
+        assertEquals(0, interrupts.get());
+    }
+
+    @Test
+    void watch_cancelled() {
+        // Arrange
+        var interrupts = new AtomicInteger();
+        var cancellation = new XQCancellation();
+        var limits = XQLimits.NONE.withCancellation(cancellation);
+
+        // Act
+        try (var watch = ExecutionWatchdog.watch(limits, interrupts::incrementAndGet)) {
+            assertFalse(watch.isExpired());
+            cancellation.cancel();
+
+            // Assert
+            assertTrue(watch.isExpired());
+            assertEquals(1, interrupts.get());
+            assertThrows(XQueryCancelledException.class, () -> watch.throwIfExpired(null));
+        }
+    }
+
+    @Test
+    void watch_cancelledBeforeStart() {
+        // Arrange
+        var interrupts = new AtomicInteger();
+        var cancellation = new XQCancellation();
+        cancellation.cancel();
+
+        // Act
+        try (var watch = ExecutionWatchdog.watch(XQLimits.NONE.withCancellation(cancellation), interrupts::incrementAndGet)) {
+            // Assert
+            assertTrue(watch.isExpired());
+            assertEquals(1, interrupts.get());
+        }
+    }
+
+    @Test
+    void watch_cancelledAfterClose() {
+        // Arrange
+        var interrupts = new AtomicInteger();
+        var cancellation = new XQCancellation();
+
+        // Act
+        try (var ignored = ExecutionWatchdog.watch(XQLimits.NONE.withCancellation(cancellation), interrupts::incrementAndGet)) {
+            assertFalse(cancellation.isCancelled());
+        }
+        cancellation.cancel();
+
+        // Assert
+        assertEquals(0, interrupts.get());
+    }
+}
@@ -0,0 +1,80 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeteredOutputStreamTest {
+
+    private static XQLimits limits(long maxBytes, long maxNodes, int maxDepth) {
+        return new XQLimits(Duration.ZERO, Duration.ZERO, maxBytes, maxNodes, maxDepth);
+    }
+
+    @Test
+    void write_withinLimits() throws IOException {
+        // Arrange
+        var meter = new ResultMeter(limits(1000, 10, 3));
+        var stream = new MeteredOutputStream(meter, () -> fail("must not abort"));
+        var xml = "<a x=\"1>/\"><!-- <b> --><b/><?pi <c>?><c><![CDATA[<d>]]></c></a>\n<e>ü</e>";
+
+        // Act
+        stream.write(xml.getBytes(StandardCharsets.UTF_8));
+
+        // Assert
+        assertEquals(xml, stream.toString());
+        assertEquals(4, meter.getNodes());
+        assertDoesNotThrow(() -> stream.throwIfExceeded(null));
+    }
+
+    @Test
+    void write_bytesExceeded() {
+        // Arrange
+        var aborts = new AtomicInteger();
+        var stream = new MeteredOutputStream(new ResultMeter(limits(10, 0, 0)), aborts::incrementAndGet);
+
+        // Act
+        assertThrows(IOException.class, () -> stream.write("<a>0123456789</a>".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(1, aborts.get());
+        assertEquals("", stream.toString());
+        var ex = assertThrows(XQueryLimitException.class, () -> stream.throwIfExceeded(null));
+        assertEquals(XQueryLimitException.Kind.BYTES, ex.getKind());
+        assertEquals(10, ex.getLimit());
+    }
+
+    @Test
+    void write_nodesExceeded() {
+        // Arrange
+        var stream = new MeteredOutputStream(new ResultMeter(limits(0, 2, 0)), () -> {
+        });
+
+        // Act
+        assertThrows(IOException.class, () -> stream.write("<x/><x/><x/>".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        var ex = assertThrows(XQueryLimitException.class, () -> stream.throwIfExceeded(null));
+        assertEquals(XQueryLimitException.Kind.NODES, ex.getKind());
+    }
+
+    @Test
+    void write_depthExceeded() throws IOException {
+        // Arrange
+        var stream = new MeteredOutputStream(new ResultMeter(limits(0, 0, 2)), () -> {
+        });
+        stream.write("<a><b/></a><a><b>".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        assertThrows(IOException.class, () -> stream.write("<c/>".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        var ex = assertThrows(XQueryLimitException.class, () -> stream.throwIfExceeded(null));
+        assertEquals(XQueryLimitException.Kind.DEPTH, ex.getKind());
+        assertThrows(IOException.class, () -> stream.write('x'));
+    }
+}
@@ -1,8 +1,16 @@
 package at.jku.dke.task_app.xquery.evaluation.execution;
 
+import net.sf.saxon.s9api.SaxonApiException;
 import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
 
+import javax.xml.transform.stream.StreamSource;
+import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -112,6 +120,310 @@ insert node (attribute { 'a' } { 5 }, 'text', <e/>) into $doc/
         assertThrows(XQueryException.class, () -> processor.executeQuery(query, document));
     }
 
+    @Test
+    void executeQuery_documentStore() throws XQueryException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"), true);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, """
+            <docs>
+                <a>1</a>
+                <b>2</b>
+                <a>3</a>
+            </docs>
+            """);
+        var query = """
+            for $x in doc('etutor.xml')/docs/a
+            return $x/text()
+            """;
+
+        // Act
+        var result = processor.executeQuery(query, document);
+        var result2 = processor.executeQuery(query, document);
+        processor.close();
+
+        // Assert
+        assertEquals("1\n3", result);
+        assertEquals("1\n3", result2);
+    }
+
+    @Test
+    void executeQuery_documentStore_changedDocument() throws XQueryException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"), true);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>1</a></docs>");
+        var changed = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>2</a></docs>");
+        var query = "doc('etutor.xml')/docs/a/text()";
+
+        // Act
+        var result = processor.executeQuery(query, document);
+        var result2 = processor.executeQuery(query, changed);
+        processor.close();
+
+        // Assert
+        assertEquals("1", result);
+        assertEquals("2", result2);
+    }
+
+    @Test
+    void executeQuery_storedDocument() throws XQueryException, IOException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"), true);
+        var store = new XQDocumentStore(Path.of("./saxon", "documents"));
+        var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<docs><a>1</a><a>2</a></docs>"), () -> "<docs><a>1</a><a>2</a></docs>", store);
+
+        // Act
+        var result = processor.executeQuery("doc('etutor.xml')/docs/a/text()", document);
+        var collection = processor.executeQuery("count(collection('etutor.xml'))", document);
+        var temporaryCollection = processor.executeQuery("count(collection('etutor.xml'))", document.content());
+        processor.close();
+        store.close();
+
+        // Assert
+        assertEquals("1\n2", result);
+        assertEquals(temporaryCollection, collection);
+    }
+
+    @Test
+    void executeQuery_storedDocument_fileRemoved() throws XQueryException, IOException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"), true);
+        var directory = Path.of("./saxon", "documents");
+        var store = new XQDocumentStore(directory) {
+            @Override
+            public Path materialize(XQDocument document) {
+                // simulates a newer version replacing the file after it has been materialized
+                return directory.resolve("removed.xml").toAbsolutePath().normalize();
+            }
+        };
+        var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<docs><a>1</a><a>2</a></docs>"), () -> "<docs><a>1</a><a>2</a></docs>", store);
+
+        // Act
+        var collection = processor.executeQuery("count(collection('etutor.xml')//a)", document);
+        processor.close();
+        store.close();
+
+        // Assert
+        assertEquals("2", collection);
+    }
+
+    @Test
+    void executeQuery_invalidDocumentLoad() {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"), true);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>1</a></docs>");
+
+        // Act & Assert
+        assertThrows(InvalidDocumentLoadException.class, () -> processor.executeQuery("doc('other.xml')/docs", document));
+    }
+
+    @Test
+    void evaluate_nodes() throws XQueryException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"), true);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a id=\"1\">1</a><a id=\"2\">2</a></docs>");
+        var handler = new DefaultHandler() {
+            int elements;
+            int documents;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                elements++;
+            }
+
+            @Override
+            public void startDocument() {
+                documents++;
+            }
+        };
+
+        // Act
+        var output = processor.evaluate("doc('etutor.xml')/docs/a", document);
+        assertDoesNotThrow(() -> output.emit(handler));
+        processor.close();
+
+        // Assert
+        assertTrue(output.isEmittable());
+        assertEquals(2, handler.elements);
+        assertEquals(0, handler.documents);
+        assertEquals(processor.executeQuery("doc('etutor.xml')/docs/a", document), output.getRawResult());
+    }
+
+    @Test
+    void evaluate_atomicValues() throws XQueryException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"));
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>1</a><a>3</a></docs>");
+
+        // Act
+        var output = processor.evaluate("for $x in doc('etutor.xml')/docs/a return data($x)", document);
+        processor.close();
+
+        // Assert
+        assertFalse(output.isEmittable());
+        assertEquals("1\n3", output.getRawResult());
+    }
+
+    @Test
+    void evaluate_timeout() {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"));
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+        var limits = new XQLimits(Duration.ofMillis(500), Duration.ZERO);
+        var query = """
+            declare function local:loop($n) { if ($n lt 0) then () else local:loop($n + 1) };
+            local:loop(0)""";
+
+        // Act & Assert
+        assertThrows(XQueryTimeoutException.class, () -> processor.evaluate(query, document, limits));
+        processor.close();
+    }
+
+    @Test
+    void evaluate_tracingOnlyWithTimeLimit() throws XQueryException {
+        // Arrange
+        var store = new SaxonProcessorStore();
+        var processor = new SaxonProcessor(Path.of("./saxon"), false, store);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>1</a></docs>");
+        var query = "doc('etutor.xml')/docs/a/text()";
+
+        // Act
+        processor.evaluate(query, document, XQLimits.NONE, true);
+        var untraced = store.getExecutable(query, false);
+        var tracedBefore = store.getExecutable(query, true);
+        processor.evaluate(query, document, new XQLimits(Duration.ofMinutes(1), Duration.ZERO), true);
+
+        // Assert
+        assertNotNull(untraced);
+        assertNull(tracedBefore);
+        assertNotNull(store.getExecutable(query, true));
+        assertNotSame(untraced, store.getExecutable(query, true));
+        processor.close();
+    }
+
+    @Test
+    void evaluate_cancelled() throws InterruptedException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"));
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+        var cancellation = new XQCancellation();
+        var limits = XQLimits.NONE.withCancellation(cancellation);
+        var query = """
+            declare function local:loop($n) { if ($n lt 0) then () else local:loop($n + 1) };
+            local:loop(0)""";
+        var canceller = Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ignored) {
+            }
+            cancellation.cancel();
+        });
+
+        // Act & Assert
+        assertThrows(XQueryCancelledException.class, () -> processor.evaluate(query, document, limits));
+        canceller.join();
+    }
+
+    @Test
+    void evaluate_resultLimits() throws XQueryException {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"));
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+        var limits = new XQLimits(Duration.ZERO, Duration.ZERO, 0, 1000, 2);
+
+        // Act
+        var nodes = assertThrows(XQueryLimitException.class, () -> processor.evaluate("for $i in 1 to 10000000 return <x/>", document, limits));
+        var depth = assertThrows(XQueryLimitException.class, () -> processor.evaluate("<a><b><c/></b></a>", document, limits));
+        var valid = processor.evaluate("<a><b/></a>", document, limits);
+        processor.close();
+
+        // Assert
+        assertEquals(XQueryLimitException.Kind.NODES, nodes.getKind());
+        assertEquals(XQueryLimitException.Kind.DEPTH, depth.getKind());
+        assertTrue(valid.isEmittable());
+        assertEquals("<a><b/></a>", valid.getRawResult());
+    }
+
+    @Test
+    void evaluate_resultLimits_singleRoot() {
+        // Arrange
+        var processor = new SaxonProcessor(Path.of("./saxon"));
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs/>");
+        var limits = new XQLimits(Duration.ofMinutes(1), Duration.ZERO, 1_000_000, 1000, 0);
+
+        // Act
+        var nodes = assertThrows(XQueryLimitException.class, () -> processor.evaluate("<r>{for $i in 1 to 100000000 return <a/>}</r>", document, limits));
+        var bytes = assertThrows(XQueryLimitException.class, () -> processor.evaluate("<r>{for $i in 1 to 100000000 return 'text'}</r>", document, limits));
+        processor.close();
+
+        // Assert
+        assertEquals(XQueryLimitException.Kind.NODES, nodes.getKind());
+        assertEquals(XQueryLimitException.Kind.BYTES, bytes.getKind());
+    }
+
+    @Test
+    void executeQuery_sharedStore_survivesProcessor() throws XQueryException {
+        // Arrange
+        var store = new SaxonProcessorStore();
+        var loaded = new AtomicInteger();
+        var content = "<docs><a>1</a></docs>";
+        var document = new XQDocument(6, XQDocument.Type.DIAGNOSE, XQDocument.hash(content), () -> {
+            loaded.incrementAndGet();
+            return content;
+        }, null);
+        var query = "doc('etutor.xml')/docs/a/text()";
+        try (var processor = new SaxonProcessor(Path.of("./saxon"), true, store)) {
+            processor.executeQuery(query, document);
+        }
+
+        // Act
+        String result;
+        try (var processor = new SaxonProcessor(Path.of("./saxon"), true, store)) {
+            result = processor.executeQuery(query, document);
+        }
+
+        // Assert
+        assertEquals("1", result);
+        assertEquals(1, loaded.get());
+    }
+
+    @Test
+    void evaluate_cachesOnlyReusableQueries() throws XQueryException {
+        // Arrange
+        var store = new SaxonProcessorStore();
+        var processor = new SaxonProcessor(Path.of("./saxon"), false, store);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<docs><a>1</a></docs>");
+
+        // Act
+        processor.evaluate("doc('etutor.xml')/docs/a", document, XQLimits.NONE);
+        processor.evaluate("doc('etutor.xml')/docs", document, XQLimits.NONE, true);
+
+        // Assert
+        assertNull(store.getExecutable("doc('etutor.xml')/docs/a", false));
+        assertNotNull(store.getExecutable("doc('etutor.xml')/docs", false));
+        processor.close();
+    }
+
+    @Test
+    void putDocument_boundedBySize() throws SaxonApiException {
+        // Arrange
+        var store = new SaxonProcessorStore(10, 100);
+        var node = store.getProcessor().newDocumentBuilder().build(new StreamSource(new StringReader("<docs/>")));
+
+        // Act
+        store.putDocument("1_diagnose_a", node, 40);
+        store.putDocument("2_diagnose_b", node, 40);
+        store.getDocument("1_diagnose_a");
+        store.putDocument("3_diagnose_c", node, 40);
+        store.putDocument("4_diagnose_d", node, 101);
+
+        // Assert
+        assertNotNull(store.getDocument("1_diagnose_a"));
+        assertNull(store.getDocument("2_diagnose_b"));
+        assertNotNull(store.getDocument("3_diagnose_c"));
+        assertNull(store.getDocument("4_diagnose_d"));
+        assertEquals(80, store.getDocumentSize());
+    }
+
     @Test
     void getVersion() {
         // Arrange
@@ -0,0 +1,54 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XQCancellationTest {
+    @Test
+    void cancel_notifiesListenersOnce() {
+        // Arrange
+        var calls = new AtomicInteger();
+        var cancellation = new XQCancellation();
+        cancellation.register(calls::incrementAndGet);
+
+        // Act
+        cancellation.cancel();
+        cancellation.cancel();
+
+        // Assert
+        assertTrue(cancellation.isCancelled());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void register_afterCancel() {
+        // Arrange
+        var calls = new AtomicInteger();
+        var cancellation = new XQCancellation();
+        cancellation.cancel();
+
+        // Act
+        cancellation.register(calls::incrementAndGet);
+
+        // Assert
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void register_unregister() {
+        // Arrange
+        var calls = new AtomicInteger();
+        var cancellation = new XQCancellation();
+        var unregister = cancellation.register(calls::incrementAndGet);
+
+        // Act
+        unregister.run();
+        cancellation.cancel();
+
+        // Assert
+        assertEquals(0, calls.get());
+    }
+}
@@ -0,0 +1,152 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XQDocumentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void constructor_clearsDirectory() throws IOException {
+        // Arrange
+        Files.writeString(this.directory.resolve("old.xml"), "<old/>");
+
+        // Act
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Assert
+            try (var files = Files.list(store.getDirectory())) {
+                assertEquals(0, files.count());
+            }
+        }
+    }
+
+    @Test
+    void materialize() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<db>\u00e4</db>"), () -> "<db>\u00e4</db>", store);
+
+            // Act
+            var path = store.materialize(document);
+
+            // Assert
+            assertEquals(this.directory.resolve(document.hash() + ".xml").toAbsolutePath(), path);
+            assertEquals("<db>\u00e4</db>", Files.readString(path, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void materialize_loadsContentOnce() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            int[] loads = {0};
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<db/>"), () -> {
+                loads[0]++;
+                return "<db/>";
+            }, store);
+
+            // Act
+            store.materialize(document);
+            store.materialize(document);
+            store.size(document);
+
+            // Assert
+            assertEquals(1, loads[0]);
+        }
+    }
+
+    @Test
+    void materialize_hashMismatch() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<db/>"), () -> "<other/>", store);
+
+            // Act & Assert
+            assertThrows(IOException.class, () -> store.materialize(document));
+        }
+    }
+
+    @Test
+    void open() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<db>\u00e4</db>"), () -> "<db>\u00e4</db>", store);
+
+            // Act
+            String content;
+            try (var in = store.open(document)) {
+                content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            // Assert
+            assertEquals("<db>\u00e4</db>", content);
+            assertEquals("<db>\u00e4</db>".getBytes(StandardCharsets.UTF_8).length, store.size(document));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void map_changedDocument() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<a/>"), () -> "<a/>", store);
+            var changed = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<b/>"), () -> "<b/>", store);
+            var path = store.materialize(document);
+
+            // Act
+            store.map(document);
+            store.map(changed);
+
+            // Assert
+            assertFalse(Files.exists(path));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void map_sharedDocument() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<a/>"), () -> "<a/>", store);
+            var shared = XQDocument.stored(2, XQDocument.Type.SUBMIT, XQDocument.hash("<a/>"), () -> "<a/>", store);
+            var changed = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<b/>"), () -> "<b/>", store);
+
+            // Act
+            var path = store.materialize(document);
+            store.materialize(shared);
+            store.materialize(changed);
+
+            // Assert
+            assertTrue(Files.exists(path));
+        }
+    }
+
+    @Test
+    void evictDocuments() throws IOException {
+        try (var store = new XQDocumentStore(this.directory)) {
+            // Arrange
+            var document = XQDocument.stored(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<a/>"), () -> "<a/>", store);
+            var other = XQDocument.stored(2, XQDocument.Type.DIAGNOSE, XQDocument.hash("<b/>"), () -> "<b/>", store);
+            var path = store.materialize(document);
+            var otherPath = store.materialize(other);
+            store.map(document);
+
+            // Act
+            store.evictDocuments(1);
+
+            // Assert
+            assertFalse(Files.exists(path));
+            assertTrue(Files.exists(otherPath));
+            assertEquals(0, store.size());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XQDocumentTest {
+
+    @Test
+    void of() {
+        // Arrange
+        var content = "<root/>";
+
+        // Act
+        var result = XQDocument.of(5, XQDocument.Type.SUBMIT, content);
+
+        // Assert
+        assertEquals(5, result.taskGroupId());
+        assertEquals(XQDocument.Type.SUBMIT, result.type());
+        assertEquals(content, result.content());
+        assertEquals(XQDocument.hash(content), result.hash());
+    }
+
+    @Test
+    void key_differentContent() {
+        // Arrange
+        var document = XQDocument.of(5, XQDocument.Type.DIAGNOSE, "<root/>");
+        var changed = XQDocument.of(5, XQDocument.Type.DIAGNOSE, "<root></root>");
+
+        // Act & Assert
+        assertNotEquals(document.key(), changed.key());
+        assertTrue(document.key().startsWith("5_diagnose_"));
+    }
+
+    @Test
+    void key_sameContent() {
+        // Arrange
+        var document = XQDocument.of(5, XQDocument.Type.DIAGNOSE, "<root/>");
+        var other = XQDocument.of(5, XQDocument.Type.DIAGNOSE, "<root/>");
+
+        // Act & Assert
+        assertEquals(document.key(), other.key());
+    }
+
+    @Test
+    void open_inMemory() throws IOException {
+        // Arrange
+        var document = XQDocument.of(5, XQDocument.Type.DIAGNOSE, "<root>\u00e4</root>");
+
+        // Act
+        String content;
+        try (var in = document.open()) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        // Assert
+        assertEquals("<root>\u00e4</root>", content);
+        assertEquals(14, document.size());
+        assertNull(document.file());
+    }
+
+    @Test
+    void type_of() {
+        // Act & Assert
+        assertEquals(XQDocument.Type.DIAGNOSE, XQDocument.Type.of(SubmissionMode.RUN));
+        assertEquals(XQDocument.Type.DIAGNOSE, XQDocument.Type.of(SubmissionMode.DIAGNOSE));
+        assertEquals(XQDocument.Type.SUBMIT, XQDocument.Type.of(SubmissionMode.SUBMIT));
+    }
+
+}
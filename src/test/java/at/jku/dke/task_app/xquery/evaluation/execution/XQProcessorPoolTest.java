@@ -0,0 +1,340 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class XQProcessorPoolTest {
+
+    @Test
+    void borrow_reusesProcessor() throws XQueryException {
+        // Arrange
+        var created = new AtomicInteger();
+        var pool = new XQProcessorPool(() -> {
+            created.incrementAndGet();
+            return mock(XQProcessor.class);
+        }, 2);
+
+        // Act
+        try (var lease = pool.borrow()) {
+            lease.executeQuery("1", "<db/>");
+        }
+        try (var lease = pool.borrow()) {
+            lease.executeQuery("1", "<db/>");
+        }
+
+        // Assert
+        assertEquals(1, created.get());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void warmUp_loadsDocumentsOnAllProcessors() throws XQueryException {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var pool = new XQProcessorPool(() -> processor, 3);
+        var documents = List.of(XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<db/>"), XQDocument.of(1, XQDocument.Type.SUBMIT, "<db/>"));
+
+        // Act
+        int warmedUp = pool.warmUp(documents);
+
+        // Assert
+        assertEquals(3, warmedUp);
+        assertEquals(3, pool.getCreatedCount());
+        assertEquals(3, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+        verify(processor, times(6)).executeQuery(anyString(), any(XQDocument.class));
+    }
+
+    @Test
+    void warmUp_skipsBorrowedProcessors() throws XQueryException {
+        // Arrange
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 2);
+
+        // Act
+        int warmedUp;
+        try (var ignored = pool.borrow()) {
+            warmedUp = pool.warmUp(List.of());
+        }
+
+        // Assert
+        assertEquals(1, warmedUp);
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    void warmUp_ignoresFailedDocuments() throws XQueryException {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        when(processor.executeQuery(anyString(), any(XQDocument.class))).thenThrow(new XQueryException("invalid"));
+        var pool = new XQProcessorPool(() -> processor, 1);
+
+        // Act
+        int warmedUp = pool.warmUp(List.of(XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<db")));
+
+        // Assert
+        assertEquals(1, warmedUp);
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void borrow_exclusive() throws XQueryException {
+        // Arrange
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 2);
+
+        // Act
+        try (var lease1 = pool.borrow(); var lease2 = pool.borrow()) {
+            // Assert
+            assertNotSame(lease1, lease2);
+            assertEquals(2, pool.getActiveCount());
+            assertEquals(2, pool.getCreatedCount());
+        }
+    }
+
+    @Test
+    void borrow_timeout() throws XQueryException {
+        // Arrange
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 1, 0, Duration.ofMillis(10), Duration.ZERO);
+
+        // Act & Assert
+        try (var ignored = pool.borrow()) {
+            var ex = assertThrows(XQueryUnavailableException.class, pool::borrow);
+            assertEquals(Duration.ofMillis(10), ex.getTimeout());
+        }
+    }
+
+    @Test
+    void tryBorrow_doesNotWait() throws XQueryException {
+        // Arrange
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 2);
+
+        // Act
+        try (var lease1 = pool.borrow(); var lease2 = pool.tryBorrow()) {
+            var lease3 = pool.tryBorrow();
+
+            // Assert
+            assertNotNull(lease2);
+            assertNotSame(lease1, lease2);
+            assertNull(lease3);
+        }
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void close_recyclesAfterMaxExecutions() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var pool = new XQProcessorPool(() -> processor, 1, 2, Duration.ofSeconds(1), Duration.ZERO);
+
+        // Act
+        try (var lease = pool.borrow()) {
+            lease.executeQuery("1", "<db/>");
+            lease.executeQuery("2", "<db/>");
+        }
+
+        // Assert
+        verify(processor).close();
+        assertEquals(1, pool.getRecycledCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void close_recyclesBrokenProcessor() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        when(processor.executeQuery(anyString(), anyString())).thenThrow(new IllegalStateException("broken"));
+        var pool = new XQProcessorPool(() -> processor, 1);
+
+        // Act
+        try (var lease = pool.borrow()) {
+            assertThrows(IllegalStateException.class, () -> lease.executeQuery("1", "<db/>"));
+        }
+
+        // Assert
+        verify(processor).close();
+        assertEquals(1, pool.getRecycledCount());
+    }
+
+    @Test
+    void close_keepsProcessorOnQueryError() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        when(processor.executeQuery(anyString(), anyString())).thenThrow(new XQueryException("syntax"));
+        var pool = new XQProcessorPool(() -> processor, 1);
+
+        // Act
+        try (var lease = pool.borrow()) {
+            assertThrows(XQueryException.class, () -> lease.executeQuery("1", "<db/>"));
+        }
+
+        // Assert
+        verify(processor, never()).close();
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void evaluate_countsAbortedExecutions() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<db/>");
+        when(processor.evaluate(anyString(), any(), any())).thenThrow(new XQueryLimitException(XQueryLimitException.Kind.NODES, 1));
+        var pool = new XQProcessorPool(() -> processor, 1);
+
+        // Act
+        try (var lease = pool.borrow()) {
+            assertThrows(XQueryLimitException.class, () -> lease.evaluate("1", document, XQLimits.NONE));
+        }
+
+        // Assert
+        assertEquals(1, pool.getAbortedCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void evaluate_offloadsToExecutionThread() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<db/>");
+        var executingThread = new AtomicReference<Thread>();
+        when(processor.evaluate(anyString(), any(), any())).thenAnswer(i -> {
+            executingThread.set(Thread.currentThread());
+            return XQOutput.of("<a/>");
+        });
+        var pool = new XQProcessorPool(() -> processor, 1, 0, Duration.ofSeconds(1), Duration.ZERO, true);
+
+        // Act
+        var result = new AtomicReference<String>();
+        Thread.ofVirtual().start(() -> {
+            try (var lease = pool.borrow()) {
+                result.set(lease.evaluate("1", document, XQLimits.NONE).getRawResult());
+            } catch (XQueryException ex) {
+                result.set(ex.getMessage());
+            }
+        }).join();
+
+        // Assert
+        assertEquals("<a/>", result.get());
+        assertTrue(pool.isOffloading());
+        assertFalse(executingThread.get().isVirtual());
+        assertTrue(executingThread.get().getName().startsWith("xq-execution-"));
+        pool.close();
+    }
+
+    @Test
+    void evaluate_offloadedExceptions() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var document = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<db/>");
+        when(processor.evaluate(eq("syntax"), any(), any())).thenThrow(new XQueryException("syntax"));
+        when(processor.evaluate(eq("broken"), any(), any())).thenThrow(new IllegalStateException("broken"));
+        var pool = new XQProcessorPool(() -> processor, 1, 0, Duration.ofSeconds(1), Duration.ZERO, true);
+
+        // Act
+        try (var lease = pool.borrow()) {
+            assertThrows(XQueryException.class, () -> lease.evaluate("syntax", document, XQLimits.NONE));
+            assertThrows(IllegalStateException.class, () -> lease.evaluate("broken", document, XQLimits.NONE));
+        }
+
+        // Assert
+        assertEquals(1, pool.getRecycledCount());
+        pool.close();
+    }
+
+    @Test
+    void lease_useAfterClose() throws XQueryException {
+        // Arrange
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 1);
+        var lease = pool.borrow();
+        lease.close();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> lease.executeQuery("1", "<db/>"));
+    }
+
+    @Test
+    void detectLeaks() throws XQueryException {
+        // Arrange
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 1, 0, Duration.ofSeconds(1), Duration.ofNanos(1));
+
+        // Act
+        try (var ignored = pool.borrow()) {
+            pool.detectLeaks();
+            pool.detectLeaks();
+        }
+
+        // Assert
+        assertEquals(1, pool.getLeakedCount());
+        pool.close();
+    }
+
+    @Test
+    void evictDocuments() throws XQueryException {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var pool = new XQProcessorPool(() -> processor, 1);
+        pool.borrow().close();
+
+        // Act
+        pool.evictDocuments(3);
+
+        // Assert
+        verify(processor).evictDocuments(3);
+    }
+
+    @Test
+    void evictDocuments_sharedStore() {
+        // Arrange
+        var store = mock(XQProcessorStore.class);
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 1, 0, Duration.ofSeconds(1), Duration.ZERO, false, store);
+
+        // Act
+        pool.evictDocuments(3);
+
+        // Assert
+        verify(store).evictDocuments(3);
+    }
+
+    @Test
+    void close_closesSharedStoreAfterLastProcessor() throws XQueryException {
+        // Arrange
+        var store = mock(XQProcessorStore.class);
+        var pool = new XQProcessorPool(() -> mock(XQProcessor.class), 1, 1, Duration.ofSeconds(1), Duration.ZERO, false, store);
+        try (var lease = pool.borrow()) {
+            lease.executeQuery("1", "<db/>");
+        }
+        var lease = pool.borrow();
+
+        // Act
+        pool.close();
+        verify(store, never()).close();
+        lease.close();
+
+        // Assert
+        assertEquals(1, pool.getRecycledCount());
+        verify(store).close();
+    }
+
+    @Test
+    void close_closesIdleProcessors() throws Exception {
+        // Arrange
+        var processor = mock(XQProcessor.class);
+        var pool = new XQProcessorPool(() -> processor, 1);
+        pool.borrow().close();
+
+        // Act
+        pool.close();
+
+        // Assert
+        verify(processor).close();
+        assertThrows(IllegalStateException.class, pool::borrow);
+    }
+}
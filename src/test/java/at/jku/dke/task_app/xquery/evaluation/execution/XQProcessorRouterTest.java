@@ -0,0 +1,205 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class XQProcessorRouterTest {
+    private static final XQDocument DOCUMENT = XQDocument.of(1, XQDocument.Type.DIAGNOSE, "<db/>");
+
+    private static Map<String, XQProcessorPool> pools() {
+        Map<String, XQProcessorPool> pools = new LinkedHashMap<>();
+        pools.put("basex", new XQProcessorPool(() -> mock(XQProcessor.class), 1));
+        pools.put("saxon", new XQProcessorPool(() -> mock(XQProcessor.class), 1));
+        return pools;
+    }
+
+    @Test
+    void constructor_missingDefaultPool() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new XQProcessorRouter(Map.of(), "basex", false, 1, 0, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void route_default() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var pools = pools();
+        var router = new XQProcessorRouter(pools, "saxon", false, 1, 0, registry);
+
+        // Act
+        var route = router.route(DOCUMENT, null);
+
+        // Assert
+        assertEquals("saxon", route.engine());
+        assertSame(pools.get("saxon"), route.pool());
+        assertEquals(XQProcessorRouter.Reason.DEFAULT, route.reason());
+        assertEquals(1, registry.get(XQProcessorRouter.DECISIONS).tag("engine", "saxon").tag("reason", "default").counter().count());
+    }
+
+    @Test
+    void route_override() {
+        // Arrange
+        var pools = pools();
+        var router = new XQProcessorRouter(pools, "basex", true, 1, 0, new SimpleMeterRegistry());
+
+        // Act
+        var route = router.route(DOCUMENT, "saxon");
+
+        // Assert
+        assertEquals("saxon", route.engine());
+        assertSame(pools.get("saxon"), route.pool());
+        assertEquals(XQProcessorRouter.Reason.OVERRIDE, route.reason());
+    }
+
+    @Test
+    void route_unavailableOverride() {
+        // Arrange
+        var router = XQProcessorRouter.of("basex", new XQProcessorPool(() -> mock(XQProcessor.class), 1));
+
+        // Act
+        var route = router.route(DOCUMENT, "saxon");
+
+        // Assert
+        assertEquals("basex", route.engine());
+        assertEquals(XQProcessorRouter.Reason.DEFAULT, route.reason());
+    }
+
+    @Test
+    void route_exploresUntilMinSamples() {
+        // Arrange
+        var router = new XQProcessorRouter(pools(), "basex", true, 2, 0, new SimpleMeterRegistry());
+
+        // Act & Assert
+        for (int i = 0; i < 4; i++) {
+            var route = router.route(DOCUMENT, null);
+            assertEquals(XQProcessorRouter.Reason.EXPLORATION, route.reason());
+            assertEquals(i % 2 == 0 ? "basex" : "saxon", route.engine());
+            router.recordLatency(route, DOCUMENT, 1000);
+        }
+    }
+
+    @Test
+    void route_latency() {
+        // Arrange
+        var router = new XQProcessorRouter(pools(), "basex", true, 1, 0, new SimpleMeterRegistry());
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(50));
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(5));
+
+        // Act
+        var route = router.route(DOCUMENT, null);
+
+        // Assert
+        assertEquals("saxon", route.engine());
+        assertEquals(XQProcessorRouter.Reason.LATENCY, route.reason());
+    }
+
+    @Test
+    void route_latencyOfSizeClass() {
+        // Arrange
+        var router = new XQProcessorRouter(pools(), "basex", true, 1, 0, new SimpleMeterRegistry());
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(5));
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(50));
+        var other = XQDocument.of(2, XQDocument.Type.DIAGNOSE, "<other/>");
+
+        // Act
+        var route = router.route(other, null);
+
+        // Assert
+        assertEquals("basex", route.engine());
+        assertEquals(XQProcessorRouter.Reason.LATENCY, route.reason());
+    }
+
+    @Test
+    void route_exploresSlowerEngine() {
+        // Arrange
+        var router = new XQProcessorRouter(pools(), "basex", true, 1, 4, new SimpleMeterRegistry());
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(5));
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(50));
+
+        // Act
+        var third = router.route(DOCUMENT, null);
+        var fourth = router.route(DOCUMENT, null);
+
+        // Assert
+        assertEquals("basex", third.engine());
+        assertEquals(XQProcessorRouter.Reason.LATENCY, third.reason());
+        assertEquals("saxon", fourth.engine());
+        assertEquals(XQProcessorRouter.Reason.EXPLORATION, fourth.reason());
+    }
+
+    @Test
+    void candidates() {
+        // Arrange
+        var router = new XQProcessorRouter(pools(), "basex", false, 1, 0, new SimpleMeterRegistry());
+        var latencyRouter = new XQProcessorRouter(pools(), "basex", true, 1, 0, new SimpleMeterRegistry());
+
+        // Act & Assert
+        assertEquals(List.of("basex"), router.candidates(null));
+        assertEquals(List.of("saxon"), router.candidates("saxon"));
+        assertEquals(List.of("basex", "saxon"), latencyRouter.candidates(null));
+        assertEquals(List.of("saxon"), latencyRouter.candidates("saxon"));
+    }
+
+    @Test
+    void recordLatency_publishesTimer() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var router = new XQProcessorRouter(pools(), "basex", false, 1, 0, registry);
+
+        // Act
+        router.recordLatency(router.route(DOCUMENT, null), DOCUMENT, TimeUnit.MILLISECONDS.toNanos(5));
+
+        // Assert
+        var timer = registry.get(XQProcessorRouter.LATENCY).tag("engine", "basex").tag("size", "<64KB").timer();
+        assertEquals(1, timer.count());
+        assertEquals(5, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void document_store() throws IOException {
+        // Arrange
+        var store = new XQDocumentStore(Files.createTempDirectory("etutor-documents"));
+        var router = new XQProcessorRouter(pools(), "basex", false, 1, 0, new SimpleMeterRegistry(), store);
+        var document = router.document(1, XQDocument.Type.DIAGNOSE, XQDocument.hash("<db/>"), () -> "<db/>");
+        var path = document.file();
+
+        // Act
+        router.evictDocuments(1);
+
+        // Assert
+        assertSame(store, document.store());
+        assertFalse(Files.exists(path));
+        store.close();
+    }
+
+    @Test
+    void document_withoutStore() {
+        // Arrange
+        var router = new XQProcessorRouter(pools(), "basex", false, 1, 0, new SimpleMeterRegistry());
+
+        // Act
+        var document = router.document(1, XQDocument.Type.DIAGNOSE, "ignored", () -> "<db/>");
+
+        // Assert
+        assertNull(document.store());
+        assertEquals(XQDocument.hash("<db/>"), document.hash());
+    }
+
+    @Test
+    void sizeClass() {
+        // Act & Assert
+        assertEquals("<64KB", XQProcessorRouter.sizeClass(DOCUMENT));
+        assertEquals("<1MB", XQProcessorRouter.sizeClass(XQDocument.of(1, XQDocument.Type.DIAGNOSE, "a".repeat(64 * 1024))));
+        assertEquals(">=16MB", XQProcessorRouter.sizeClass(XQDocument.of(1, XQDocument.Type.DIAGNOSE, "a".repeat(16 * 1024 * 1024))));
+    }
+}
@@ -0,0 +1,194 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XQueryAnalyzerTest {
+
+    @Test
+    void bind_onlyDocumentArguments() throws InvalidDocumentLoadException {
+        // Arrange
+        var query = """
+            let $name := 'etutor.xml' (: doc('etutor.xml') :)
+            return fn:doc( "etutor.xml" )//a[@file = "etutor.xml"]
+            """;
+
+        // Act
+        var result = XQueryAnalyzer.analyze(query).bind("db_1");
+
+        // Assert
+        assertEquals("""
+            let $name := 'etutor.xml' (: doc('etutor.xml') :)
+            return fn:doc( "db_1" )//a[@file = "etutor.xml"]
+            """, result);
+    }
+
+    @Test
+    void bind_escapesQuotes() throws InvalidDocumentLoadException {
+        // Act
+        var result = XQueryAnalyzer.analyze("doc('etutor.xml')").bind("it's.xml");
+
+        // Assert
+        assertEquals("doc('it''s.xml')", result);
+    }
+
+    @Test
+    void bind_constructors() throws InvalidDocumentLoadException {
+        // Arrange
+        var query = "<r title=\"{count(doc('etutor.xml')//a)}\">it's etutor.xml {{ {collection('etutor.xml')//b} }}</r>";
+
+        // Act
+        var analysis = XQueryAnalyzer.analyze(query);
+
+        // Assert
+        assertTrue(analysis.collection());
+        assertEquals("<r title=\"{count(doc('x.xml')//a)}\">it's etutor.xml {{ {collection('x.xml')//b} }}</r>", analysis.bind("x.xml"));
+    }
+
+    @Test
+    void bind_comparisonIsNoConstructor() throws InvalidDocumentLoadException {
+        // Arrange
+        var query = "for $a in doc('etutor.xml')//a where $a/@n <b return doc('etutor.xml')";
+
+        // Act
+        var result = XQueryAnalyzer.analyze(query).bind("x");
+
+        // Assert
+        assertEquals("for $a in doc('x')//a where $a/@n <b return doc('x')", result);
+    }
+
+    @Test
+    void analyze_collection() throws InvalidDocumentLoadException {
+        // Act
+        var withCollection = XQueryAnalyzer.analyze("collection('etutor.xml')//a");
+        var withoutCollection = XQueryAnalyzer.analyze("doc('etutor.xml')//a, 'collection of etutor.xml'");
+
+        // Assert
+        assertTrue(withCollection.collection());
+        assertFalse(withoutCollection.collection());
+    }
+
+    @Test
+    void analyze_allowedFunctions() {
+        // Act & Assert
+        assertDoesNotThrow(() -> XQueryAnalyzer.analyze("""
+            declare function local:count($n) { math:sqrt(count($n)) };
+            let $doc := function($x) { $x }
+            return (local:count(doc('etutor.xml')//doc), map:get(map { 'a': 1 }, 'a'), xs:integer('1'), $doc(1), fn:string-join(('a', 'b')))
+            """));
+    }
+
+    @Test
+    void analyze_invalidDocumentArgument() {
+        // Act & Assert
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("doc('etutor.xml2')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("doc('/etc/passwd')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("let $x := 'a.xml' return doc($x)"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("doc('etutor' || '.xml')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("'a.xml' => doc()"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("let $f := doc#1 return $f('a.xml')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("Q{http://www.w3.org/2005/xpath-functions}collection('a')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("1-doc('a.xml')"));
+    }
+
+    @Test
+    void analyze_forbiddenFunctions() {
+        // Act & Assert
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("unparsed-text('/etc/passwd')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("fn:json-doc('a.json')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("environment-variable('PATH')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("function-lookup(xs:QName('fn:doc'), 1)('a.xml')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("file:read-text('/etc/passwd')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("db:get('other')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("xquery:eval('1')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("Q{java:java.lang.System}exit(1)"));
+    }
+
+    @Test
+    void analyze_forbiddenDeclarations() {
+        // Act & Assert
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("import module namespace m = 'urn:m' at 'm.xqm'; m:f()"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("import schema 'urn:s' at 's.xsd'; 1"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("declare namespace local = 'http://expath.org/ns/file'; local:read-text('a')"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("<a xmlns:math='http://expath.org/ns/file'>{math:list('/')}</a>"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("declare default function namespace 'http://expath.org/ns/file'; read-text('a')"));
+    }
+
+    @Test
+    void analyze_hiddenInLiterals() {
+        // Act & Assert
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("<a>'</a>, doc('a.xml'), <b>'</b>"));
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze("'Q{', unparsed-text('a'), '}x'"));
+    }
+
+    @Test
+    void analyze_updating() throws InvalidDocumentLoadException {
+        // Act & Assert
+        assertTrue(XQueryAnalyzer.analyze("delete node doc('etutor.xml')//a").updating());
+        assertTrue(XQueryAnalyzer.analyze("insert nodes <a/> into doc('etutor.xml')/db").updating());
+        assertTrue(XQueryAnalyzer.analyze("replace value of node doc('etutor.xml')//a with 1").updating());
+        assertTrue(XQueryAnalyzer.analyze("rename (: x :) node doc('etutor.xml')/db as 'x'").updating());
+        assertFalse(XQueryAnalyzer.analyze("replace(doc('etutor.xml')//a, 'a', 'b'), $delete, //insert").updating());
+    }
+
+    @Test
+    void analyze_updatingOnlyInCode() throws InvalidDocumentLoadException {
+        // Act & Assert
+        assertFalse(XQueryAnalyzer.analyze("doc('etutor.xml')//a[. = 'replace value']").updating());
+        assertFalse(XQueryAnalyzer.analyze("(: delete node :) doc('etutor.xml')//a").updating());
+        assertFalse(XQueryAnalyzer.analyze("<p title=\"rename node\">insert node <!-- delete node --></p>").updating());
+        assertTrue(XQueryAnalyzer.analyze("<p>insert node {delete node doc('etutor.xml')//a}</p>").updating());
+    }
+
+    @Test
+    void analyze_cached() throws InvalidDocumentLoadException {
+        // Arrange
+        var query = "doc('etutor.xml')/cached";
+
+        // Act
+        var first = XQueryAnalyzer.analyze(query);
+        var second = XQueryAnalyzer.analyze(query);
+
+        // Assert
+        assertSame(first, second);
+    }
+
+    @Test
+    void analyze_cacheBoundedByLength() throws InvalidDocumentLoadException {
+        // Arrange
+        XQueryAnalyzer.clearCache();
+        var large = "'" + "x".repeat(20 * 1024) + "'";
+
+        // Act
+        for (int i = 0; i < 100; i++)
+            XQueryAnalyzer.analyze("'" + "x".repeat(16 * 1024 - 10) + i + "'");
+        var first = XQueryAnalyzer.analyze(large);
+        var second = XQueryAnalyzer.analyze(large);
+
+        // Assert
+        assertTrue(XQueryAnalyzer.getCachedChars() > 0);
+        assertTrue(XQueryAnalyzer.getCachedChars() <= 1024 * 1024);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void analyze_cachedViolation() {
+        // Arrange
+        var query = "doc('other.xml')/cached";
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze(query));
+
+        // Act & Assert
+        var ex = assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze(query));
+        assertEquals("Function doc may only load 'etutor.xml'.", ex.getMessage());
+    }
+
+    @Test
+    void analyze_nestedTooDeeply() {
+        // Arrange
+        var query = "<a>{".repeat(300) + "1" + "}</a>".repeat(300);
+
+        // Act & Assert
+        assertThrows(InvalidDocumentLoadException.class, () -> XQueryAnalyzer.analyze(query));
+    }
+}
@@ -0,0 +1,16 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class XQueryCancelledExceptionTest {
+    @Test
+    void constructor() {
+        // Act
+        var result = new XQueryCancelledException();
+
+        // Assert
+        assertNotNull(result.getMessage());
+    }
+}
@@ -0,0 +1,19 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XQueryLimitExceptionTest {
+    @Test
+    void constructor() {
+        // Act
+        var result = new XQueryLimitException(XQueryLimitException.Kind.NODES, 100);
+
+        // Assert
+        assertEquals(XQueryLimitException.Kind.NODES, result.getKind());
+        assertEquals(100, result.getLimit());
+        assertTrue(result.getMessage().contains("100"));
+    }
+}
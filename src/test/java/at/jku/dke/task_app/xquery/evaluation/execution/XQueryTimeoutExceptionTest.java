@@ -0,0 +1,23 @@
+package at.jku.dke.task_app.xquery.evaluation.execution;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class XQueryTimeoutExceptionTest {
+    @Test
+    void constructor() {
+        // Arrange
+        var expected = "message";
+        var limit = Duration.ofSeconds(5);
+
+        // Act
+        var result = new XQueryTimeoutException(expected, limit);
+
+        // Assert
+        assertEquals(expected, result.getMessage());
+        assertEquals(limit, result.getLimit());
+    }
+}
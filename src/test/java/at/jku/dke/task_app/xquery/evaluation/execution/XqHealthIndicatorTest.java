@@ -1,10 +1,13 @@
 package at.jku.dke.task_app.xquery.evaluation.execution;
 
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.boot.actuate.health.Status;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,7 +22,7 @@ void health_up() throws XQueryException {
         // Arrange
         var executor = mock(XQProcessor.class);
         when(executor.getVersion()).thenReturn("xq-version");
-        var indicator = new XqHealthIndicator(executor);
+        var indicator = new XqHealthIndicator(XQProcessorRouter.of("basex", new XQProcessorPool(() -> executor, 1)));
 
         // Act
         var result = indicator.health();
@@ -34,7 +37,7 @@ void health_exception() throws XQueryException {
         // Arrange
         var executor = mock(XQProcessor.class);
         when(executor.getVersion()).thenThrow(new XQueryException("xq-error"));
-        var indicator = new XqHealthIndicator(executor);
+        var indicator = new XqHealthIndicator(XQProcessorRouter.of("basex", new XQProcessorPool(() -> executor, 1)));
 
         // Act
         var result = indicator.health();
@@ -49,7 +52,7 @@ void health_cache() throws XQueryException {
         // Arrange
         var executor = mock(XQProcessor.class);
         when(executor.getVersion()).thenReturn("xq-version");
-        var indicator = new XqHealthIndicator(executor);
+        var indicator = new XqHealthIndicator(XQProcessorRouter.of("basex", new XQProcessorPool(() -> executor, 1)));
 
         // Act
         var result = indicator.health();
@@ -60,4 +63,26 @@ void health_cache() throws XQueryException {
         verify(executor, times(1)).getVersion();
     }
 
+    @Test
+    void health_multipleEngines() throws XQueryException {
+        // Arrange
+        var basex = mock(XQProcessor.class);
+        var saxon = mock(XQProcessor.class);
+        when(basex.getVersion()).thenReturn("basex-version");
+        when(saxon.getVersion()).thenReturn("saxon-version");
+        Map<String, XQProcessorPool> pools = new LinkedHashMap<>();
+        pools.put("basex", new XQProcessorPool(() -> basex, 1));
+        pools.put("saxon", new XQProcessorPool(() -> saxon, 1));
+        var indicator = new XqHealthIndicator(new XQProcessorRouter(pools, "saxon", false, 1, 0, new SimpleMeterRegistry()));
+
+        // Act
+        var result = indicator.health();
+
+        // Assert
+        assertEquals(Status.UP, result.getStatus());
+        assertEquals("saxon", result.getDetails().get("default"));
+        assertEquals("basex-version", ((Map<?, ?>) result.getDetails().get("basex")).get("version"));
+        assertEquals("saxon-version", ((Map<?, ?>) result.getDetails().get("saxon")).get("version"));
+    }
+
 }
@@ -0,0 +1,112 @@
+package at.jku.dke.task_app.xquery.evaluation.report;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultHighlighterTest {
+
+    @Test
+    void highlight() {
+        // Arrange
+        var highlighter = new ResultHighlighter(0, 0);
+
+        // Act
+        var result = highlighter.highlight("<a b=\"c\">d</a>");
+
+        // Assert
+        assertTrue(result.startsWith(ResultHighlighter.CSS));
+        assertTrue(result.contains("<div class=\"xml\">"));
+        assertTrue(result.contains("xml_tag_name"));
+        assertEquals(1, result.split("<style>", -1).length - 1);
+    }
+
+    @Test
+    void highlight_truncatesAtLineEnd() {
+        // Arrange
+        var highlighter = new ResultHighlighter(20, 0);
+        var code = "<a>1</a>\n<a>2</a>\n<a>3</a>\n<a>4</a>";
+
+        // Act
+        var truncated = highlighter.truncate(code);
+        var result = highlighter.highlight(code);
+
+        // Assert
+        assertTrue(highlighter.isTruncated(code));
+        assertEquals("<a>1</a>\n<a>2</a>", truncated);
+        assertFalse(result.contains(">3<"));
+    }
+
+    @Test
+    void highlight_truncatesWithoutLineEnd() {
+        // Arrange
+        var highlighter = new ResultHighlighter(5, 0);
+
+        // Act
+        var truncated = highlighter.truncate("<a>1234</a>");
+
+        // Assert
+        assertEquals("<a>12", truncated);
+    }
+
+    @Test
+    void highlight_notTruncated() {
+        // Arrange
+        var highlighter = new ResultHighlighter(100, 0);
+
+        // Act & Assert
+        assertFalse(highlighter.isTruncated("<a/>"));
+        assertEquals("<a/>", highlighter.truncate("<a/>"));
+    }
+
+    @Test
+    void highlight_cached() {
+        // Arrange
+        var highlighter = new ResultHighlighter(0, 2);
+
+        // Act
+        var first = highlighter.highlight("<a/>");
+        var second = highlighter.highlight("<a/>");
+        highlighter.highlight("<b/>");
+        highlighter.highlight("<c/>");
+
+        // Assert
+        assertEquals(first, second);
+        assertEquals(2, highlighter.getCacheCount());
+    }
+
+    @Test
+    void highlight_cacheBoundedByLength() {
+        // Arrange
+        var length = ResultHighlighter.render("<a>1</a>").length();
+        var highlighter = new ResultHighlighter(0, 10, 2L * length);
+
+        // Act
+        highlighter.highlight("<a>1</a>");
+        highlighter.highlight("<a>2</a>");
+        highlighter.highlight("<a>3</a>");
+        highlighter.highlight("<a>" + "x".repeat(10 * length) + "</a>");
+
+        // Assert
+        assertEquals(2, highlighter.getCacheCount());
+        assertEquals(2L * length, highlighter.getCachedLength());
+    }
+
+    @Test
+    void highlight_cacheDisabled() {
+        // Arrange
+        var highlighter = new ResultHighlighter(0, 0);
+
+        // Act
+        highlighter.highlight("<a/>");
+
+        // Assert
+        assertEquals(0, highlighter.getCacheCount());
+    }
+
+    @Test
+    void constructor_negativeLength() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ResultHighlighter(-1, 0));
+    }
+}
@@ -0,0 +1,207 @@
+package at.jku.dke.task_app.xquery.services;
+
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.etutor.task_app.dto.SubmitSubmissionDto;
+import at.jku.dke.task_app.xquery.data.entities.XQuerySubmission;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.repositories.XQuerySubmissionRepository;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
+import at.jku.dke.task_app.xquery.dto.EvaluationJobDto;
+import at.jku.dke.task_app.xquery.dto.XQuerySubmissionDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EvaluationQueueTest {
+    private static final SubmitSubmissionDto<XQuerySubmissionDto> SUBMISSION = new SubmitSubmissionDto<>("test-user", "test-quiz", 7L, "de",
+        SubmissionMode.SUBMIT, 3, new XQuerySubmissionDto("test-input"));
+    private static final GradingDto GRADING = new GradingDto(BigDecimal.ONE, BigDecimal.ONE, "success", List.of());
+
+    private static EvaluationJobDto await(EvaluationQueue queue, UUID id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            var job = queue.getJob(id).orElseThrow();
+            if (job.status() == EvaluationJobDto.Status.COMPLETED || job.status() == EvaluationJobDto.Status.FAILED)
+                return job;
+            Thread.sleep(10);
+        }
+        return fail("Evaluation did not finish.");
+    }
+
+    @Test
+    void enqueue_withoutPersist() throws InterruptedException {
+        // Arrange
+        var evaluationService = mock(EvaluationService.class);
+        var submissionRepository = mock(XQuerySubmissionRepository.class);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.existsById(7L)).thenReturn(true);
+        when(evaluationService.evaluate(SUBMISSION)).thenReturn(GRADING);
+
+        try (var queue = new EvaluationQueue(evaluationService, submissionRepository, taskRepository, 1, 1, Duration.ofMinutes(1))) {
+            // Act
+            var job = queue.enqueue(SUBMISSION, false);
+            var result = await(queue, job.id());
+
+            // Assert
+            assertEquals(EvaluationJobDto.Status.COMPLETED, result.status());
+            assertEquals(GRADING, result.grading());
+            assertNull(result.error());
+            verifyNoInteractions(submissionRepository);
+        }
+    }
+
+    @Test
+    void enqueue_virtualWorkers() throws InterruptedException {
+        // Arrange
+        var evaluationService = mock(EvaluationService.class);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var worker = new AtomicReference<Thread>();
+        when(taskRepository.existsById(7L)).thenReturn(true);
+        when(evaluationService.evaluate(SUBMISSION)).thenAnswer(i -> {
+            worker.set(Thread.currentThread());
+            return GRADING;
+        });
+
+        try (var queue = new EvaluationQueue(evaluationService, mock(XQuerySubmissionRepository.class), taskRepository, 1, 1, Duration.ofMinutes(1), true)) {
+            // Act
+            var job = queue.enqueue(SUBMISSION, false);
+            var result = await(queue, job.id());
+
+            // Assert
+            assertEquals(EvaluationJobDto.Status.COMPLETED, result.status());
+            assertTrue(worker.get().isVirtual());
+        }
+    }
+
+    @Test
+    void enqueue_withPersist() throws InterruptedException {
+        // Arrange
+        var evaluationService = mock(EvaluationService.class);
+        var submissionRepository = mock(XQuerySubmissionRepository.class);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var entity = mock(XQuerySubmission.class);
+        var id = UUID.randomUUID();
+        when(entity.getId()).thenReturn(id);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(new XQueryTask()));
+        when(submissionRepository.save(any())).thenReturn(entity);
+        when(evaluationService.evaluate(SUBMISSION)).thenReturn(GRADING);
+
+        try (var queue = new EvaluationQueue(evaluationService, submissionRepository, taskRepository, 1, 1, Duration.ofMinutes(1))) {
+            // Act
+            var job = queue.enqueue(SUBMISSION, true);
+            var result = await(queue, job.id());
+
+            // Assert
+            assertEquals(id, job.id());
+            assertEquals(EvaluationJobDto.Status.COMPLETED, result.status());
+            verify(entity).setEvaluationResult(GRADING);
+            verify(submissionRepository).save(entity);
+        }
+    }
+
+    @Test
+    void enqueue_taskNotFound() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findById(7L)).thenReturn(Optional.empty());
+
+        try (var queue = new EvaluationQueue(mock(EvaluationService.class), mock(XQuerySubmissionRepository.class), taskRepository, 1, 1, Duration.ofMinutes(1))) {
+            // Act & Assert
+            assertThrows(EntityNotFoundException.class, () -> queue.enqueue(SUBMISSION, true));
+            assertEquals(0, queue.getPendingCount());
+        }
+    }
+
+    @Test
+    void enqueue_failed() throws InterruptedException {
+        // Arrange
+        var evaluationService = mock(EvaluationService.class);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.existsById(7L)).thenReturn(true);
+        when(evaluationService.evaluate(SUBMISSION)).thenThrow(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not execute query."));
+
+        try (var queue = new EvaluationQueue(evaluationService, mock(XQuerySubmissionRepository.class), taskRepository, 1, 1, Duration.ofMinutes(1))) {
+            // Act
+            var job = queue.enqueue(SUBMISSION, false);
+            var result = await(queue, job.id());
+
+            // Assert
+            assertEquals(EvaluationJobDto.Status.FAILED, result.status());
+            assertEquals("Could not execute query.", result.error());
+            assertNull(result.grading());
+        }
+    }
+
+    @Test
+    void enqueue_saturated() throws InterruptedException {
+        // Arrange
+        var evaluationService = mock(EvaluationService.class);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(taskRepository.existsById(7L)).thenReturn(true);
+        when(evaluationService.evaluate(SUBMISSION)).thenAnswer(i -> {
+            started.countDown();
+            release.await();
+            return GRADING;
+        });
+
+        try (var queue = new EvaluationQueue(evaluationService, mock(XQuerySubmissionRepository.class), taskRepository, 1, 1, Duration.ofMinutes(1))) {
+            var running = queue.enqueue(SUBMISSION, false);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            var queued = queue.enqueue(SUBMISSION, false);
+
+            // Act
+            var ex = assertThrows(ResponseStatusException.class, () -> queue.enqueue(SUBMISSION, false));
+
+            // Assert
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatusCode());
+            assertEquals(2, queue.getPendingCount());
+            assertEquals(EvaluationJobDto.Status.RUNNING, queue.getJob(running.id()).orElseThrow().status());
+            assertEquals(EvaluationJobDto.Status.QUEUED, queue.getJob(queued.id()).orElseThrow().status());
+
+            release.countDown();
+            assertEquals(EvaluationJobDto.Status.COMPLETED, await(queue, queued.id()).status());
+            assertEquals(0, queue.getPendingCount());
+        }
+    }
+
+    @Test
+    void enqueue_closed() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.existsById(7L)).thenReturn(true);
+        var queue = new EvaluationQueue(mock(EvaluationService.class), mock(XQuerySubmissionRepository.class), taskRepository, 1, 1, Duration.ofMinutes(1));
+        queue.close();
+
+        // Act
+        var ex = assertThrows(ResponseStatusException.class, () -> queue.enqueue(SUBMISSION, false));
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    void getJob_unknown() {
+        try (var queue = new EvaluationQueue(mock(EvaluationService.class), mock(XQuerySubmissionRepository.class), mock(XQueryTaskRepository.class), 1, 1, Duration.ofMinutes(1))) {
+            // Act & Assert
+            assertTrue(queue.getJob(UUID.randomUUID()).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package at.jku.dke.task_app.xquery.services;
+
+import at.jku.dke.etutor.task_app.dto.GradingDto;
+import at.jku.dke.etutor.task_app.dto.SubmissionMode;
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.data.entities.XQuerySubmission;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import at.jku.dke.task_app.xquery.data.projections.EvaluationTask;
+import at.jku.dke.task_app.xquery.data.repositories.XQuerySubmissionRepository;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
+import at.jku.dke.task_app.xquery.dto.EvaluationJobDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RegradeServiceTest {
+
+    private static EvaluationTask evaluationTask(XQueryTask task) {
+        var evaluationTask = mock(EvaluationTask.class);
+        when(evaluationTask.toTask()).thenReturn(task);
+        return evaluationTask;
+    }
+
+    private static XQuerySubmission submission(XQueryTask task) {
+        var submission = new XQuerySubmission("test-user", "test-id", task, "de", 3, SubmissionMode.SUBMIT, "return doc('etutor.xml')/db");
+        submission.setId(UUID.randomUUID());
+        return submission;
+    }
+
+    @Test
+    void run() throws XQueryException, AnalysisException {
+        // Arrange
+        var task = new XQueryTask(1L, BigDecimal.TWO, TaskStatus.APPROVED, new XQueryTaskGroup(1L, TaskStatus.APPROVED, "<db/>", "<db/>"), "return doc('etutor.xml')/db", null);
+        var submissions = List.of(submission(task), submission(task), submission(task));
+        var ids = submissions.stream().map(XQuerySubmission::getId).toList();
+
+        var submissionRepository = mock(XQuerySubmissionRepository.class);
+        when(submissionRepository.findIdsByTaskId(1L)).thenReturn(ids);
+        when(submissionRepository.findAllById(ids.subList(0, 2))).thenReturn(submissions.subList(0, 2));
+        when(submissionRepository.findAllById(ids.subList(2, 3))).thenReturn(submissions.subList(2, 3));
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(evaluationTask(task)));
+        var evaluationService = mock(EvaluationService.class);
+        when(evaluationService.reevaluate(eq(task), any())).thenReturn(Optional.of(new GradingDto(BigDecimal.TWO, BigDecimal.TWO, "success", new ArrayList<>())));
+        var jdbcTemplate = mock(JdbcTemplate.class);
+
+        var job = new RegradeService.Job(UUID.randomUUID(), 1L, null);
+        try (var service = new RegradeService(submissionRepository, taskRepository, evaluationService, jdbcTemplate, new ObjectMapper(), 2, 2, Duration.ofHours(1))) {
+            // Act
+            service.run(job);
+        }
+
+        // Assert
+        var result = job.toDto();
+        assertEquals(EvaluationJobDto.Status.COMPLETED, result.status());
+        assertEquals(3, result.total());
+        assertEquals(3, result.completed());
+        assertEquals(0, result.failed());
+        verify(evaluationService, times(1)).warmUp(task);
+        verify(evaluationService, times(3)).reevaluate(eq(task), any());
+        verify(taskRepository, times(1)).findForEvaluation(1L);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void run_failedEvaluation() {
+        // Arrange
+        var task = new XQueryTask(1L, BigDecimal.TWO, TaskStatus.APPROVED, new XQueryTaskGroup(1L, TaskStatus.APPROVED, "<db/>", "<db/>"), "return doc('etutor.xml')/db", null);
+        var ok = submission(task);
+        var failing = submission(task);
+        failing.setSubmission("return doc('etutor.xml')/invalid");
+        var ids = List.of(ok.getId(), failing.getId());
+
+        var submissionRepository = mock(XQuerySubmissionRepository.class);
+        when(submissionRepository.findIdsByAssignmentId("test-id")).thenReturn(ids);
+        when(submissionRepository.findAllById(ids)).thenReturn(List.of(ok, failing));
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(evaluationTask(task)));
+        var evaluationService = mock(EvaluationService.class);
+        when(evaluationService.reevaluate(eq(task), argThat(s -> s != null && s.submission().input().contains("invalid")))).thenThrow(new IllegalStateException("failed"));
+        when(evaluationService.reevaluate(eq(task), argThat(s -> s != null && !s.submission().input().contains("invalid")))).thenReturn(Optional.of(new GradingDto(BigDecimal.TWO, BigDecimal.TWO, "success", new ArrayList<>())));
+        var jdbcTemplate = mock(JdbcTemplate.class);
+
+        var job = new RegradeService.Job(UUID.randomUUID(), null, "test-id");
+        try (var service = new RegradeService(submissionRepository, taskRepository, evaluationService, jdbcTemplate, new ObjectMapper(), 2, 10, Duration.ofHours(1))) {
+            // Act
+            service.run(job);
+        }
+
+        // Assert
+        var result = job.toDto();
+        assertEquals(EvaluationJobDto.Status.COMPLETED, result.status());
+        assertEquals(2, result.completed());
+        assertEquals(1, result.failed());
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertEquals(ok.getId(), rows.getValue().getFirst()[1]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void run_timeoutKeepsPreviousResult() {
+        // Arrange
+        var task = new XQueryTask(1L, BigDecimal.TWO, TaskStatus.APPROVED, new XQueryTaskGroup(1L, TaskStatus.APPROVED, "<db/>", "<db/>"), "return doc('etutor.xml')/db", null);
+        var ok = submission(task);
+        var slow = submission(task);
+        slow.setSubmission("return doc('etutor.xml')/slow");
+        var ids = List.of(ok.getId(), slow.getId());
+
+        var submissionRepository = mock(XQuerySubmissionRepository.class);
+        when(submissionRepository.findIdsByTaskId(1L)).thenReturn(ids);
+        when(submissionRepository.findAllById(ids)).thenReturn(List.of(ok, slow));
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findForEvaluation(1L)).thenReturn(Optional.of(evaluationTask(task)));
+        var evaluationService = mock(EvaluationService.class);
+        when(evaluationService.reevaluate(eq(task), argThat(s -> s != null && s.submission().input().contains("slow")))).thenReturn(Optional.empty());
+        when(evaluationService.reevaluate(eq(task), argThat(s -> s != null && !s.submission().input().contains("slow")))).thenReturn(Optional.of(new GradingDto(BigDecimal.TWO, BigDecimal.TWO, "success", new ArrayList<>())));
+        var jdbcTemplate = mock(JdbcTemplate.class);
+
+        var job = new RegradeService.Job(UUID.randomUUID(), 1L, null);
+        try (var service = new RegradeService(submissionRepository, taskRepository, evaluationService, jdbcTemplate, new ObjectMapper(), 2, 10, Duration.ofHours(1))) {
+            // Act
+            service.run(job);
+        }
+
+        // Assert
+        var result = job.toDto();
+        assertEquals(EvaluationJobDto.Status.COMPLETED, result.status());
+        assertEquals(2, result.completed());
+        assertEquals(1, result.failed());
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertEquals(ok.getId(), rows.getValue().getFirst()[1]);
+    }
+
+    @Test
+    void start_withoutTaskAndAssignment() {
+        // Arrange
+        try (var service = new RegradeService(mock(XQuerySubmissionRepository.class), mock(XQueryTaskRepository.class), mock(EvaluationService.class),
+            mock(JdbcTemplate.class), new ObjectMapper(), 1, 10, Duration.ofHours(1))) {
+            // Act & Assert
+            assertThrows(ResponseStatusException.class, () -> service.start(null, " "));
+        }
+    }
+
+    @Test
+    void start_unknownTask() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.existsById(1L)).thenReturn(false);
+        try (var service = new RegradeService(mock(XQuerySubmissionRepository.class), taskRepository, mock(EvaluationService.class),
+            mock(JdbcTemplate.class), new ObjectMapper(), 1, 10, Duration.ofHours(1))) {
+            // Act & Assert
+            assertThrows(EntityNotFoundException.class, () -> service.start(1L, null));
+        }
+    }
+
+    @Test
+    void getJob_unknown() {
+        // Arrange
+        try (var service = new RegradeService(mock(XQuerySubmissionRepository.class), mock(XQueryTaskRepository.class), mock(EvaluationService.class),
+            mock(JdbcTemplate.class), new ObjectMapper(), 1, 10, Duration.ofHours(1))) {
+            // Act & Assert
+            assertTrue(service.getJob(UUID.randomUUID()).isEmpty());
+        }
+    }
+
+    @Test
+    void constructor_invalidBatchSize() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new RegradeService(mock(XQuerySubmissionRepository.class), mock(XQueryTaskRepository.class),
+            mock(EvaluationService.class), mock(JdbcTemplate.class), new ObjectMapper(), 1, 0, Duration.ofHours(1)));
+    }
+}
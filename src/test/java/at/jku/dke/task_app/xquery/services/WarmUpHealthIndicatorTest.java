@@ -0,0 +1,45 @@
+package at.jku.dke.task_app.xquery.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WarmUpHealthIndicatorTest {
+
+    @Test
+    void health_down() {
+        // Arrange
+        var service = mock(WarmUpService.class);
+        when(service.isReady()).thenReturn(false);
+        when(service.getTotalCount()).thenReturn(10);
+        when(service.getCompletedCount()).thenReturn(4);
+        var indicator = new WarmUpHealthIndicator(service);
+
+        // Act
+        var result = indicator.health();
+
+        // Assert
+        assertEquals(Status.DOWN, result.getStatus());
+        assertEquals(10, result.getDetails().get("tasks"));
+        assertEquals(4, result.getDetails().get("completed"));
+    }
+
+    @Test
+    void health_up() {
+        // Arrange
+        var service = mock(WarmUpService.class);
+        when(service.isReady()).thenReturn(true);
+        when(service.isFinished()).thenReturn(true);
+        var indicator = new WarmUpHealthIndicator(service);
+
+        // Act
+        var result = indicator.health();
+
+        // Assert
+        assertEquals(Status.UP, result.getStatus());
+        assertEquals(true, result.getDetails().get("finished"));
+    }
+}
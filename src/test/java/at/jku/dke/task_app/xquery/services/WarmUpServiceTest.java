@@ -0,0 +1,134 @@
+package at.jku.dke.task_app.xquery.services;
+
+import at.jku.dke.etutor.task_app.dto.TaskStatus;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
+import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
+import at.jku.dke.task_app.xquery.data.repositories.XQueryTaskRepository;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationService;
+import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQDocument;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessor;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorPool;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQProcessorRouter;
+import at.jku.dke.task_app.xquery.evaluation.execution.XQueryException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WarmUpServiceTest {
+
+    private static XQueryTask task(long id, XQueryTaskGroup group) {
+        return new XQueryTask(id, BigDecimal.ONE, TaskStatus.APPROVED, group, "return doc('etutor.xml')/db", null);
+    }
+
+    @Test
+    void warmUp() throws XQueryException, AnalysisException {
+        // Arrange
+        var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, "<db/>", "<db><a/></db>");
+        var task1 = task(1, group);
+        var task2 = task(2, group);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findByStatusWithTaskGroup(TaskStatus.APPROVED)).thenReturn(List.of(task1, task2));
+        var evaluationService = mock(EvaluationService.class);
+        var processor = mock(XQProcessor.class);
+        var router = XQProcessorRouter.of("basex", new XQProcessorPool(() -> processor, 2));
+        var service = new WarmUpService(taskRepository, evaluationService, router, true, 100);
+
+        // Act
+        boolean readyBefore = service.isReady();
+        service.warmUp();
+
+        // Assert
+        assertFalse(readyBefore);
+        assertTrue(service.isReady());
+        assertTrue(service.isFinished());
+        assertEquals(2, service.getTotalCount());
+        assertEquals(2, service.getCompletedCount());
+        assertEquals(0, service.getFailedCount());
+        verify(evaluationService).warmUp(task1);
+        verify(evaluationService).warmUp(task2);
+        verify(processor, times(4)).executeQuery(anyString(), any(XQDocument.class));
+    }
+
+    @Test
+    void warmUp_failedTask() throws XQueryException, AnalysisException {
+        // Arrange
+        var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, "<db/>", "<db/>");
+        var task1 = task(1, group);
+        var task2 = task(2, group);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findByStatusWithTaskGroup(TaskStatus.APPROVED)).thenReturn(List.of(task1, task2));
+        var evaluationService = mock(EvaluationService.class);
+        doThrow(new XQueryException("invalid")).when(evaluationService).warmUp(task1);
+        var router = XQProcessorRouter.of("basex", new XQProcessorPool(() -> mock(XQProcessor.class), 1));
+        var service = new WarmUpService(taskRepository, evaluationService, router, true, 100);
+
+        // Act
+        service.warmUp();
+
+        // Assert
+        assertTrue(service.isReady());
+        assertEquals(2, service.getCompletedCount());
+        assertEquals(1, service.getFailedCount());
+        verify(evaluationService).warmUp(task2);
+    }
+
+    @Test
+    void warmUp_repositoryFails() {
+        // Arrange
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findByStatusWithTaskGroup(TaskStatus.APPROVED)).thenThrow(new IllegalStateException("database unavailable"));
+        var router = XQProcessorRouter.of("basex", new XQProcessorPool(() -> mock(XQProcessor.class), 1));
+        var service = new WarmUpService(taskRepository, mock(EvaluationService.class), router, true, 100);
+
+        // Act
+        service.warmUp();
+
+        // Assert
+        assertTrue(service.isFinished());
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    void isReady_disabled() {
+        // Arrange
+        var service = new WarmUpService(mock(XQueryTaskRepository.class), mock(EvaluationService.class), null, false, 100);
+
+        // Act
+        service.start();
+
+        // Assert
+        assertTrue(service.isReady());
+        assertTrue(service.isFinished());
+    }
+
+    @Test
+    void isReady_percentage() throws XQueryException, AnalysisException {
+        // Arrange
+        var group = new XQueryTaskGroup(1L, TaskStatus.APPROVED, "<db/>", "<db/>");
+        var task1 = task(1, group);
+        var task2 = task(2, group);
+        var taskRepository = mock(XQueryTaskRepository.class);
+        when(taskRepository.findByStatusWithTaskGroup(TaskStatus.APPROVED)).thenReturn(List.of(task1, task2));
+        var evaluationService = mock(EvaluationService.class);
+        var router = XQProcessorRouter.of("basex", new XQProcessorPool(() -> mock(XQProcessor.class), 1));
+        var service = new WarmUpService(taskRepository, evaluationService, router, true, 50);
+        var readyDuringSecondTask = new boolean[1];
+        doAnswer(i -> {
+            readyDuringSecondTask[0] = service.isReady();
+            return null;
+        }).when(evaluationService).warmUp(task2);
+
+        // Act
+        service.warmUp();
+
+        // Assert
+        assertTrue(readyDuringSecondTask[0]);
+    }
+}
@@ -5,7 +5,10 @@
 import at.jku.dke.task_app.xquery.config.XQuerySettings;
 import at.jku.dke.task_app.xquery.data.entities.XQueryTaskGroup;
 import at.jku.dke.task_app.xquery.dto.ModifyXQueryTaskGroupDto;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationCache;
+import at.jku.dke.task_app.xquery.evaluation.SolutionCache;
 import jakarta.validation.ValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.MessageSource;
 import org.springframework.web.server.ResponseStatusException;
@@ -24,7 +27,7 @@ class XQueryTaskGroupServiceTest {
     void createTaskGroup() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2</a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
 
         // Act
         var result = service.createTaskGroup(1, dto);
@@ -34,11 +37,24 @@ void createTaskGroup() {
         assertEquals(dto.additionalData().submitDocument(), result.getSubmitDocument());
     }
 
+    @Test
+    void createTaskGroup_executor() {
+        // Arrange
+        var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2</a></root>", "saxon"));
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
+
+        // Act
+        var result = service.createTaskGroup(1, dto);
+
+        // Assert
+        assertEquals("saxon", result.getExecutor());
+    }
+
     @Test
     void createTaskGroup_invalidType() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("datalog", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2</a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
 
         // Act & Assert
         assertThrows(ResponseStatusException.class, () -> service.createTaskGroup(1, dto));
@@ -48,7 +64,7 @@ void createTaskGroup_invalidType() {
     void createTaskGroup_invalidDiagnoseSyntax() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a><root>", "<root><a>2</a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
 
         // Act & Assert
         assertThrows(ValidationException.class, () -> service.createTaskGroup(1, dto));
@@ -58,7 +74,7 @@ void createTaskGroup_invalidDiagnoseSyntax() {
     void createTaskGroup_invalidSubmitSyntax() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root></a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
 
         // Act & Assert
         assertThrows(ValidationException.class, () -> service.createTaskGroup(1, dto));
@@ -70,7 +86,7 @@ void createTaskGroup_invalidSubmitSyntax() {
     void updateTaskGroup() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2</a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
         var taskGroup = new XQueryTaskGroup("<root><a>3</a></root>", "<root><a>4</a></root>");
 
         // Act
@@ -81,11 +97,26 @@ void updateTaskGroup() {
         assertEquals(dto.additionalData().submitDocument(), taskGroup.getSubmitDocument());
     }
 
+    @Test
+    void updateTaskGroup_executor() {
+        // Arrange
+        var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2</a></root>", "basex"));
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
+        var taskGroup = new XQueryTaskGroup("<root><a>3</a></root>", "<root><a>4</a></root>");
+        taskGroup.setExecutor("saxon");
+
+        // Act
+        service.updateTaskGroup(taskGroup, dto);
+
+        // Assert
+        assertEquals("basex", taskGroup.getExecutor());
+    }
+
     @Test
     void updateTaskGroup_invalidType() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("datalog", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2</a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
         var taskGroup = new XQueryTaskGroup("diagnose", "submit");
 
         // Act & Assert
@@ -96,7 +127,7 @@ void updateTaskGroup_invalidType() {
     void updateTaskGroup_invalidDiagnoseSyntax() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("root><a>1</a></root>", "<root><a>2</a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
         var taskGroup = new XQueryTaskGroup("diagnose", "submit");
 
         // Act & Assert
@@ -107,7 +138,7 @@ void updateTaskGroup_invalidDiagnoseSyntax() {
     void updateTaskGroup_invalidSubmitSyntax() {
         // Arrange
         var dto = new ModifyTaskGroupDto<>("xquery", TaskStatus.APPROVED, new ModifyXQueryTaskGroupDto("<root><a>1</a></root>", "<root><a>2/a></root>"));
-        var service = new XQueryTaskGroupService(null, null, null);
+        var service = new XQueryTaskGroupService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
         var taskGroup = new XQueryTaskGroup("diagnose", "submit");
 
         // Act & Assert
@@ -119,7 +150,7 @@ void updateTaskGroup_invalidSubmitSyntax() {
     void mapToReturnData() {
         // Arrange
         MessageSource ms = mock(MessageSource.class);
-        var service = new XQueryTaskGroupService(null, ms, new XQuerySettings("basex", ".", "https://example.com/xml"));
+        var service = new XQueryTaskGroupService(null, ms, new XQuerySettings("basex", ".", "https://example.com/xml", true, 100, null, null, null, null, null, null, null, null, null, null), new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()), null);
         var taskGroup = new XQueryTaskGroup("<root><a>1</a></root>", "<root><a>2</a></root>");
         taskGroup.setId(55L);
         when(ms.getMessage(anyString(), any(), any(Locale.class)))
@@ -6,8 +6,11 @@
 import at.jku.dke.task_app.xquery.data.entities.XQueryTask;
 import at.jku.dke.task_app.xquery.dto.ModifyXQueryTaskDto;
 import at.jku.dke.task_app.xquery.evaluation.EvaluationServiceImpl;
+import at.jku.dke.task_app.xquery.evaluation.EvaluationCache;
+import at.jku.dke.task_app.xquery.evaluation.SolutionCache;
 import at.jku.dke.task_app.xquery.evaluation.analysis.AnalysisException;
 import at.jku.dke.task_app.xquery.evaluation.analysis.XQResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -28,7 +31,7 @@ void createTask() {
         // Arrange
         var evalService = mock(EvaluationServiceImpl.class);
         var dto = new ModifyTaskDto<>(3L, BigDecimal.TEN, "xquery", TaskStatus.APPROVED, new ModifyXQueryTaskDto("/person", "//person\n//address/*"));
-        var service = new XQueryTaskService(null, null, evalService);
+        var service = new XQueryTaskService(null, null, evalService, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
         when(evalService.evaluate(any())).thenReturn(new GradingDto(BigDecimal.TEN, BigDecimal.TEN, "", List.of()));
 
         // Act
@@ -43,7 +46,7 @@ void createTask() {
     void afterCreate_invalidSyntax() throws AnalysisException {
         // Arrange
         var evalService = mock(EvaluationServiceImpl.class);
-        var service = new XQueryTaskService(null, null, evalService);
+        var service = new XQueryTaskService(null, null, evalService, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
         when(evalService.evaluate(any())).thenReturn(new GradingDto(BigDecimal.ZERO, BigDecimal.TEN, "invalid syntax", List.of()));
         when(evalService.execute(anyLong(), any(), any())).thenReturn(new XQResult("<doc></doc>"));
 
@@ -56,7 +59,7 @@ void afterCreate_invalidSyntax() throws AnalysisException {
     void createTask_invalidType() {
         // Arrange
         var dto = new ModifyTaskDto<>(3L, BigDecimal.TEN, "datalog", TaskStatus.APPROVED, new ModifyXQueryTaskDto("/person", "//person\n//address/*"));
-        var service = new XQueryTaskService(null, null, null);
+        var service = new XQueryTaskService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
 
         // Act & Assert
         assertThrows(ResponseStatusException.class, () -> service.createTask(3, dto));
@@ -69,7 +72,7 @@ void updateTask() {
         // Arrange
         var evalService = mock(EvaluationServiceImpl.class);
         var dto = new ModifyTaskDto<>(3L, BigDecimal.TEN, "xquery", TaskStatus.APPROVED, new ModifyXQueryTaskDto("/people", "//person\n//address/*"));
-        var service = new XQueryTaskService(null, null, evalService);
+        var service = new XQueryTaskService(null, null, evalService, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
         var task = new XQueryTask("/person", null);
         when(evalService.evaluate(any())).thenReturn(new GradingDto(BigDecimal.TEN, BigDecimal.TEN, "", List.of()));
 
@@ -85,7 +88,7 @@ void updateTask() {
     void afterUpdate_invalidSyntax() throws AnalysisException {
         // Arrange
         var evalService = mock(EvaluationServiceImpl.class);
-        var service = new XQueryTaskService(null, null, evalService);
+        var service = new XQueryTaskService(null, null, evalService, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
         var task = new XQueryTask("/person", null);
         task.setId(1L);
         when(evalService.evaluate(any())).thenReturn(new GradingDto(BigDecimal.ZERO, BigDecimal.TEN, "", List.of()));
@@ -99,7 +102,7 @@ void afterUpdate_invalidSyntax() throws AnalysisException {
     void updateTask_invalidType() {
         // Arrange
         var dto = new ModifyTaskDto<>(3L, BigDecimal.TEN, "datalog", TaskStatus.APPROVED, new ModifyXQueryTaskDto("/people", "//person\n//address/*"));
-        var service = new XQueryTaskService(null, null, null);
+        var service = new XQueryTaskService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
         var task = new XQueryTask("/person", null);
 
         // Act & Assert
@@ -111,7 +114,7 @@ void updateTask_invalidType() {
     void mapToReturnData() {
         // Arrange
         var task = new XQueryTask("//person", List.of("//person", "//address/*"));
-        var service = new XQueryTaskService(null, null, null);
+        var service = new XQueryTaskService(null, null, null, new SolutionCache(10), new EvaluationCache(0, new SimpleMeterRegistry()));
 
         // Act
         var result = service.mapToReturnData(task, true);